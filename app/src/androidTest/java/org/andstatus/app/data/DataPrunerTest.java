@@ -1,10 +1,17 @@
 package org.andstatus.app.data;
 
+import android.content.ContentValues;
 import android.net.Uri;
 
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.backup.ProgressLogger;
+import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.context.MyStorage;
 import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.table.ActivityTable;
+import org.andstatus.app.net.social.AActivity;
+import org.andstatus.app.net.social.Actor;
 import org.andstatus.app.net.social.Attachment;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
@@ -14,8 +21,12 @@ import org.junit.Test;
 
 import java.io.File;
 import java.net.MalformedURLException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import static org.andstatus.app.context.DemoData.demoData;
 import static org.andstatus.app.context.MyContextHolder.myContextHolder;
 import static org.andstatus.app.context.MyPreferences.BYTES_IN_MB;
 import static org.junit.Assert.assertEquals;
@@ -47,6 +58,8 @@ public class DataPrunerTest {
         clearPrunedDate();
         DataPruner dp = new DataPruner(myContextHolder.getNow());
         assertTrue("Pruned", dp.prune());
+        assertEquals("Pruning of activities is not left to resume", 0,
+                SharedPreferencesUtil.getLong(MyPreferences.KEY_DATA_PRUNED_ACTIVITY_ID));
         
         assertTrue("File is fresh", logFile1.exists());
         long pruneDate1 = SharedPreferencesUtil.getLong(MyPreferences.KEY_DATA_PRUNED_DATE);
@@ -88,6 +101,69 @@ public class DataPrunerTest {
         MyLog.v(this, method + "; Ended");
     }
 
+    @Test
+    public void testPruneActivitiesInterruptedAndResumed() {
+        MyContext myContext = myContextHolder.getNow();
+        MyAccount ma = demoData.getMyAccount(demoData.conversationAccountName);
+        DemoNoteInserter inserter = new DemoNoteInserter(ma);
+        Actor author = inserter.buildActor();
+        List<AActivity> activities = new ArrayList<>();
+        for (int ind = 0; ind < 3; ind++) {
+            AActivity activity = inserter.buildActivity(author, "", "Note to prune " + ind, null, null,
+                    DownloadStatus.LOADED);
+            inserter.onActivity(activity);
+            assertNotEquals("Activity is not stored " + activity, 0, activity.getId());
+            activities.add(activity);
+        }
+        // The last activity of the author is never pruned
+        ContentValues values = new ContentValues();
+        values.put(ActivityTable.INS_DATE, System.currentTimeMillis() - TimeUnit.DAYS.toMillis(365));
+        for (AActivity activity : activities) {
+            myContext.getDatabase().update(ActivityTable.TABLE_NAME, values,
+                    ActivityTable._ID + "=" + activity.getId(), null);
+        }
+        final AActivity activity0 = activities.get(0);
+        final AActivity activity1 = activities.get(1);
+        final AActivity activity2 = activities.get(2);
+
+        // As if pruning was interrupted after the first activity
+        SharedPreferencesUtil.putLong(MyPreferences.KEY_DATA_PRUNED_ACTIVITY_ID, activity0.getId());
+        ProgressLogger cancelledLogger = new ProgressLogger(new ProgressLogger.ProgressListener() {
+            @Override
+            public void onProgressMessage(CharSequence message) {
+                // Empty
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return true;
+            }
+        });
+        assertFalse("Cancelled pruning should be interrupted",
+                new DataPruner(myContext).setPruneNow().setLogger(cancelledLogger).prune());
+        assertEquals("Pruning should be left to resume after the deleted chunk", activity1.getId(),
+                SharedPreferencesUtil.getLong(MyPreferences.KEY_DATA_PRUNED_ACTIVITY_ID));
+        assertActivityExists("Activity before the resume point", activity0, true);
+        assertActivityExists("Old activity", activity1, false);
+        assertEquals("Deleted activity is still resolved", 0,
+                MyQuery.oidToId(myContext, OidEnum.ACTIVITY_OID, ma.getOriginId(), activity1.getOid()));
+        assertActivityExists("The latest activity of the author", activity2, true);
+
+        assertTrue("Resumed pruning", new DataPruner(myContext).setPruneNow().prune());
+        assertEquals("Pruning of activities is not left to resume", 0,
+                SharedPreferencesUtil.getLong(MyPreferences.KEY_DATA_PRUNED_ACTIVITY_ID));
+        assertActivityExists("Activity before the resume point", activity0, true);
+
+        assertTrue("Pruned from the start", new DataPruner(myContext).setPruneNow().prune());
+        assertActivityExists("Old activity", activity0, false);
+        assertActivityExists("The latest activity of the author", activity2, true);
+    }
+
+    private void assertActivityExists(String message, AActivity activity, boolean expected) {
+        assertEquals(message + " " + activity, expected,
+                MyQuery.activityIdToLongColumnValue(ActivityTable._ID, activity.getId()) != 0);
+    }
+
     @Test
     public void testPruneParentlessAttachments() {
         DataPruner dp = new DataPruner(myContextHolder.getNow());
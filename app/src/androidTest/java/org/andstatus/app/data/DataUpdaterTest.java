@@ -53,6 +53,7 @@ import org.andstatus.app.util.TriState;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -158,6 +159,50 @@ public class DataUpdaterTest {
         cursor.close();
     }
 
+    @Test
+    public void testActivitiesInTransaction() {
+        MyAccount ma = demoData.getPumpioConversationAccount();
+        Actor accountActor = ma.getActor();
+        CommandExecutionContext executionContext = new CommandExecutionContext(
+                myContext, CommandData.newAccountCommand(CommandEnum.EMPTY, ma));
+        String username = "batch" + demoData.testRunUid + "@identi.ca";
+        String actorOid = OriginPumpio.ACCOUNT_PREFIX + username;
+        String noteOid1 = "https://identi.ca/api/comment/batch1" + demoData.testRunUid;
+        String noteOid2 = "https://identi.ca/api/comment/batch2" + demoData.testRunUid;
+
+        List<AActivity> activities = newBatchOfActivities(accountActor, username, actorOid, noteOid1, noteOid2);
+        new DataUpdater(executionContext).onActivitiesInTransaction(activities);
+        long actorId = MyQuery.oidToId(OidEnum.ACTOR_OID, accountActor.origin.getId(), actorOid);
+        assertNotEquals("Actor " + username + " added", 0, actorId);
+        long noteId1 = MyQuery.oidToId(OidEnum.NOTE_OID, accountActor.origin.getId(), noteOid1);
+        assertNotEquals("Note 1 added", 0, noteId1);
+        assertEquals(noteId1, activities.get(0).getNote().noteId);
+        long noteId2 = MyQuery.oidToId(OidEnum.NOTE_OID, accountActor.origin.getId(), noteOid2);
+        assertNotEquals("Note 2 added", 0, noteId2);
+        assertEquals("Author of the note", actorId, MyQuery.noteIdToLongColumnValue(NoteTable.AUTHOR_ID, noteId2));
+
+        List<AActivity> activities2 = newBatchOfActivities(accountActor, username, actorOid, noteOid1, noteOid2);
+        new DataUpdater(executionContext).onActivitiesInTransaction(activities2);
+        assertEquals("Note 1 found", noteId1, activities2.get(0).getNote().noteId);
+        assertEquals("Note 2 found", noteId2, activities2.get(1).getNote().noteId);
+        assertEquals("Actor found", actorId, activities2.get(1).getAuthor().actorId);
+    }
+
+    private List<AActivity> newBatchOfActivities(Actor accountActor, String username, String actorOid,
+                                                 String... noteOids) {
+        Actor author = Actor.fromOid(accountActor.origin, actorOid);
+        author.setUsername(username);
+        author.build();
+        List<AActivity> activities = new ArrayList<>();
+        for (String noteOid : noteOids) {
+            AActivity activity = AActivity.newPartialNote(accountActor, author, noteOid,
+                    System.currentTimeMillis(), DownloadStatus.LOADED);
+            activity.getNote().setContentPosted("Batch note " + noteOid);
+            activities.add(activity);
+        }
+        return activities;
+    }
+
     @Test
     public void testPrivateNoteToMyAccount() {
         MyAccount ma = demoData.getPumpioConversationAccount();
@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import org.andstatus.app.actor.GroupType;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.table.ActorTable;
+import org.andstatus.app.net.social.Actor;
+import org.andstatus.app.util.LongSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.andstatus.app.context.MyContextHolder.myContextHolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GroupMembershipTest {
+    @Before
+    public void setUp() {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testSetMembers() {
+        MyContext myContext = myContextHolder.getNow();
+        Actor parentActor = demoData.getPumpioConversationAccount().getActor();
+        LongSet membersOld = GroupMembership.getGroupMemberIds(myContext, parentActor.actorId, GroupType.FOLLOWERS);
+        List<Long> actorIds = MyQuery.getLongs(myContext, "SELECT " + ActorTable._ID +
+                " FROM " + ActorTable.TABLE_NAME +
+                " WHERE " + ActorTable.ORIGIN_ID + "=" + parentActor.origin.getId()).stream()
+                .filter(id -> id != parentActor.actorId && !parentActor.user.actorIds.contains(id))
+                .limit(9)
+                .collect(Collectors.toList());
+        assertEquals("Not enough actors: " + actorIds, 9, actorIds.size());
+
+        try {
+            LongSet members1 = LongSet.of(actorIds.subList(0, 6));
+            GroupMembership.setMembers(myContext, parentActor, GroupType.FOLLOWERS, members1);
+            assertEquals(members1, GroupMembership.getGroupMemberIds(myContext, parentActor.actorId,
+                    GroupType.FOLLOWERS));
+            assertEquals("No changes expected", 0,
+                    GroupMembership.setMembers(myContext, parentActor, GroupType.FOLLOWERS, members1));
+
+            LongSet members2 = LongSet.of(actorIds.subList(3, 9));
+            members2.add(parentActor.actorId);
+            assertEquals("Three removed and three added", 6,
+                    GroupMembership.setMembers(myContext, parentActor, GroupType.FOLLOWERS, members2));
+            members2.remove(parentActor.actorId);
+            assertEquals("The actor is not a member of its own group", members2,
+                    GroupMembership.getGroupMemberIds(myContext, parentActor.actorId, GroupType.FOLLOWERS));
+            assertTrue(GroupMembership.isGroupMember(parentActor, GroupType.FOLLOWERS, actorIds.get(8)));
+        } finally {
+            GroupMembership.setMembers(myContext, parentActor, GroupType.FOLLOWERS, membersOld);
+        }
+    }
+}
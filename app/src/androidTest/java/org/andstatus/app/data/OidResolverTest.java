@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.table.ActivityTable;
+import org.andstatus.app.database.table.NoteTable;
+import org.andstatus.app.net.social.AActivity;
+import org.andstatus.app.util.MyLog;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.andstatus.app.context.MyContextHolder.myContextHolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OidResolverTest {
+
+    @Before
+    public void setUp() {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testOidToIdAndBack() {
+        MyContext myContext = myContextHolder.getNow();
+        OidResolver resolver = new OidResolver(myContext);
+        long originId = demoData.getPumpioConversationOrigin().getId();
+        String noteOid = demoData.conversationMentionsNoteOid;
+
+        long noteId = resolver.oidToId(OidEnum.NOTE_OID, originId, noteOid);
+        assertNotEquals("Note not found " + noteOid, 0, noteId);
+        assertEquals(noteId, MyQuery.oidToId(OidEnum.NOTE_OID, originId, noteOid));
+        assertTrue(resolver.getStatistics(), resolver.getStatistics().contains("hits:0, misses:1"));
+
+        assertEquals(noteId, resolver.oidToId(OidEnum.NOTE_OID, originId, noteOid));
+        assertEquals(noteOid, resolver.idToOid(OidEnum.NOTE_OID, noteId));
+        assertTrue(resolver.getStatistics(), resolver.getStatistics().contains("hits:2, misses:1"));
+
+        resolver.onNoteDeleted(noteId);
+        assertEquals(noteOid, resolver.idToOid(OidEnum.NOTE_OID, noteId));
+        assertTrue(resolver.getStatistics(), resolver.getStatistics().contains("hits:2, misses:2"));
+
+        assertEquals(0, resolver.oidToId(OidEnum.NOTE_OID, originId, noteOid + "-absent"));
+        assertEquals(MyQuery.noteIdToLongColumnValue(NoteTable.ORIGIN_ID, noteId),
+                resolver.noteIdToLongColumnValue(NoteTable.ORIGIN_ID, noteId));
+        resolver.release();
+        assertEquals(noteId, resolver.oidToId(OidEnum.NOTE_OID, originId, noteOid));
+    }
+
+    @Test
+    public void testDeletedActivityIsStoredAgain() {
+        MyContext myContext = myContextHolder.getNow();
+        MyAccount ma = demoData.getMyAccount(demoData.conversationAccountName);
+        long originId = ma.getOriginId();
+        String noteOid = "oidResolverTest" + MyLog.uniqueDateTimeFormatted();
+        AActivity activity1 = DemoNoteInserter.addNoteForAccount(ma, "Note to delete", noteOid, DownloadStatus.LOADED);
+        long activityId1 = activity1.getId();
+        assertNotEquals("Activity is not stored " + activity1, 0, activityId1);
+        assertEquals(activityId1, MyQuery.oidToId(myContext, OidEnum.ACTIVITY_OID, originId, activity1.getOid()));
+
+        int deleted = MyProvider.deleteNoteAndItsActivities(myContext, activity1.getNote().noteId);
+        assertTrue("Deleted " + deleted, deleted > 0);
+        assertEquals("Deleted activity is still resolved", 0,
+                MyQuery.oidToId(myContext, OidEnum.ACTIVITY_OID, originId, activity1.getOid()));
+
+        AActivity activity2 = DemoNoteInserter.addNoteForAccount(ma, "The same note again", noteOid, DownloadStatus.LOADED);
+        assertEquals(activity1.getOid(), activity2.getOid());
+        assertNotEquals("Activity is not stored again " + activity2, 0, activity2.getId());
+        assertEquals("Stored activity " + activity2, activity2.getNote().noteId,
+                MyQuery.idToLongColumnValue(myContext.getDatabase(), ActivityTable.TABLE_NAME,
+                        ActivityTable.NOTE_ID, activity2.getId()));
+    }
+}
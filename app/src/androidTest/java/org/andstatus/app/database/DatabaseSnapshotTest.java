@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.database;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.andstatus.app.context.MyStorage;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.database.table.NoteTable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+
+import io.vavr.control.Try;
+
+import static org.andstatus.app.context.MyContextHolder.myContextHolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class DatabaseSnapshotTest {
+
+    @Before
+    public void setUp() {
+        TestSuite.initializeWithData(this);
+    }
+
+    @Test
+    public void testSupportedVersion() {
+        assertTrue(DatabaseSnapshot.isSupportedVersion("3.27.0"));
+        assertTrue(DatabaseSnapshot.isSupportedVersion("3.28"));
+        assertTrue(DatabaseSnapshot.isSupportedVersion("3.32.2"));
+        assertFalse(DatabaseSnapshot.isSupportedVersion("3.26.9"));
+        assertFalse(DatabaseSnapshot.isSupportedVersion("3.9.2"));
+    }
+
+    @Test
+    public void testSnapshotOfDatabaseInUse() {
+        assumeTrue("Only a released database may be copied", DatabaseSnapshot.isSupported());
+        SQLiteDatabase db = myContextHolder.getNow().getDatabase();
+        String countSql = "SELECT COUNT(*) FROM " + NoteTable.TABLE_NAME;
+        long notesCount = DatabaseUtils.longForQuery(db, countSql, null);
+        assertTrue("No notes", notesCount > 0);
+
+        File databaseFile = MyStorage.getDatabasePath(DatabaseHolder.DATABASE_NAME);
+        File snapshotFile = MyStorage.newTempFile("snapshot_" + DatabaseHolder.DATABASE_NAME);
+        try {
+            Try<File> snapshot = DatabaseSnapshot.create(databaseFile, snapshotFile);
+            assertTrue("Failed " + snapshot, snapshot.isSuccess());
+            assertTrue("Database is still open", db.isOpen());
+            SQLiteDatabase copy = SQLiteDatabase.openDatabase(snapshotFile.getAbsolutePath(), null,
+                    SQLiteDatabase.OPEN_READONLY);
+            try {
+                assertEquals(notesCount, DatabaseUtils.longForQuery(copy, countSql, null));
+            } finally {
+                copy.close();
+            }
+        } finally {
+            snapshotFile.delete();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.graphics;
+
+import android.graphics.Bitmap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BitmapPoolTest {
+    private static final Bitmap.Config CONFIG = CachedImage.BITMAP_CONFIG;
+
+    @Test
+    public void testReuse() {
+        BitmapPool pool = new BitmapPool(1000000);
+        Bitmap large = pool.get(200, 100, CONFIG);
+        assertEquals(0, pool.getSize());
+        pool.put(large);
+        assertEquals(200 * 100 * 4, pool.getSize());
+
+        Bitmap tooSmall = pool.get(40, 40, CONFIG);
+        assertNotSame("Too large bitmap shouldn't be reused", large, tooSmall);
+        Bitmap reused = pool.get(150, 60, CONFIG);
+        assertSame(large, reused);
+        assertEquals(150, reused.getWidth());
+        assertEquals(60, reused.getHeight());
+        assertEquals(0, pool.getSize());
+
+        pool.put(Bitmap.createBitmap(10, 10, CONFIG).copy(CONFIG, false));
+        assertEquals("Immutable bitmaps are not pooled", 0, pool.getSize());
+    }
+
+    @Test
+    public void testTrim() {
+        BitmapPool pool = new BitmapPool(100 * 100 * 4 * 3);
+        Bitmap large = pool.get(100, 100, CONFIG);
+        pool.put(large);
+        for (int i = 0; i < 4; i++) {
+            pool.put(pool.get(10, 10, CONFIG));
+            pool.put(Bitmap.createBitmap(50, 50, CONFIG));
+        }
+        assertTrue("Size " + pool.getSize(), pool.getSize() <= pool.getMaxSize());
+
+        pool.trimToSize(50 * 50 * 4 * 2);
+        assertNotSame("Larger bitmaps are dropped first", large, pool.get(100, 100, CONFIG));
+        assertTrue("Size " + pool.getSize(), pool.getSize() <= 50 * 50 * 4 * 2);
+        pool.clear();
+        assertEquals(0, pool.getSize());
+    }
+}
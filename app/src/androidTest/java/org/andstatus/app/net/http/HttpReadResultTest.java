@@ -25,6 +25,8 @@ import org.json.JSONException;
 import org.json.JSONObject;
 import org.junit.Test;
 
+import java.util.List;
+
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
@@ -58,4 +60,33 @@ public class HttpReadResultTest {
         assertTrue(request3.toString(), request3.postParams.isPresent());
         assertThat(request3.toString(), containsString("POST:"));
     }
+
+    @Test
+    public void testReadJsonArrayItems() throws JSONException {
+        final Uri uri = UriUtils.fromString("https://example.com/somepath/file.html");
+        final String in = "{\"since_id\":12345678901234,\"other\":[1, 2],"
+                + "\"results\":[{\"text\":\"Text1\",\"id\":12345678901234,\"rate\":1.5,\"nothing\":null},"
+                + "{\"text\":\"Text2\",\"tags\":[\"one\",{\"name\":\"two\"}],\"sensitive\":false}]}";
+        HttpReadResult result = HttpRequest.of(ApiRoutineEnum.HOME_TIMELINE, uri).newResult();
+        result.strResponse = in;
+        JSONArray jsa = result.getJsonArray("results").get();
+        List<JSONObject> items = result.readJsonArrayItems("results", jso -> jso).get();
+        assertEquals(jsa.length(), items.size());
+        for (int ind = 0; ind < items.size(); ind++) {
+            assertEquals(jsa.getJSONObject(ind).toString(), items.get(ind).toString());
+        }
+        assertEquals(12345678901234L, items.get(0).getLong("id"));
+        assertTrue(items.get(0).isNull("nothing"));
+        assertEquals("two", items.get(1).getJSONArray("tags").getJSONObject(1).getString("name"));
+
+        assertTrue("Items of the first array are not objects",
+                result.readJsonArrayItems("absent", jso -> jso).isFailure());
+        result.strResponse = "{\"since_id\":1,\"found\":[{\"text\":\"a\"},{\"text\":\"b\"}]}";
+        assertEquals("The first array should be found", 2, result.readJsonArrayItems("absent", jso -> jso)
+                .map(List::size).getOrElse(0).intValue());
+        result.strResponse = "[" + items.get(1).toString() + "]";
+        assertEquals("Text2", result.readJsonArrayItems(jso -> jso.getString("text")).get().get(0));
+        result.strResponse = "[1, 2]";
+        assertTrue("Items should be objects", result.readJsonArrayItems(jso -> jso).isFailure());
+    }
 }
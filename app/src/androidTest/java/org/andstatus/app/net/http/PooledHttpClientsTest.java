@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.util.UrlUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URL;
+
+import cz.msebera.android.httpclient.client.HttpClient;
+
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PooledHttpClientsTest {
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initialize(this);
+    }
+
+    @Test
+    public void testClientIsReusedForTheSameHost() {
+        PooledHttpClients.shutdown();
+        URL url1 = UrlUtils.fromString("https://mastodon.example.com");
+        URL url2 = UrlUtils.fromString("https://gnusocial.example.com");
+
+        HttpClient client1 = PooledHttpClients.get(SslModeEnum.SECURE, url1);
+        assertSame(client1, PooledHttpClients.get(SslModeEnum.SECURE, url1));
+        assertNotSame(client1, PooledHttpClients.get(SslModeEnum.SECURE, url2));
+        assertNotSame(client1, PooledHttpClients.get(SslModeEnum.INSECURE, url1));
+
+        String statistics = PooledHttpClients.getStatistics();
+        assertTrue(statistics, statistics.startsWith("HTTP clients:3 "));
+
+        PooledHttpClients.closeIdleConnections(0);
+        PooledHttpClients.shutdown();
+        assertNotSame(client1, PooledHttpClients.get(SslModeEnum.SECURE, url1));
+        PooledHttpClients.shutdown();
+    }
+}
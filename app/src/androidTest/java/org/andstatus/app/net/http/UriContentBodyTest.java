@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class UriContentBodyTest {
+
+    @Test
+    public void testCopyWithProgress() throws IOException {
+        byte[] media = new byte[UriContentBody.BUFFER_LENGTH * 150 + 7];
+        Arrays.fill(media, (byte) 'a');
+        List<Long> progress = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        UriContentBody.copy(new ByteArrayInputStream(media), out, media.length,
+                (bytesSent, bytesTotal) -> {
+                    assertEquals(media.length, bytesTotal);
+                    progress.add(bytesSent);
+                });
+
+        assertArrayEquals(media, out.toByteArray());
+        assertTrue("Progress is reported not more often than each percent: " + progress.size(),
+                progress.size() > 10 && progress.size() <= 100);
+        assertEquals(media.length, (long) progress.get(progress.size() - 1));
+    }
+
+    @Test
+    public void testCopyOfUnknownSize() throws IOException {
+        byte[] media = new byte[3 * 1024 * 1024 + 5];
+        List<Long> progress = new ArrayList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        UriContentBody.copy(new ByteArrayInputStream(media), out, -1,
+                (bytesSent, bytesTotal) -> progress.add(bytesSent));
+
+        assertEquals(media.length, out.size());
+        assertEquals("Progress is reported once per megabyte " + progress, 3, progress.size());
+    }
+}
@@ -29,8 +29,11 @@ import org.andstatus.app.service.CommandExecutionContext;
 import org.andstatus.app.timeline.meta.TimelineType;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RawResourceUtils;
+import org.andstatus.app.util.StopWatch;
 import org.andstatus.app.util.TriState;
 import org.andstatus.app.util.UriUtils;
+import org.json.JSONArray;
+import org.json.JSONException;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -187,6 +190,42 @@ public class ConnectionMastodonTest {
         assertVisibility(timeline.get(0).getNote().audience(), visibility);
     }
 
+    /** Compares parsing of a large timeline page as a stream with parsing it into a JSONArray first */
+    @Test
+    public void testStreamingParsingOfLargePage() throws IOException, JSONException {
+        String response = RawResourceUtils.getString(org.andstatus.app.tests.R.raw.mastodon_home_timeline).trim();
+        String item = response.substring(1, response.length() - 1);
+        final int itemsCount = 400;
+        StringBuilder builder = new StringBuilder("[");
+        for (int ind = 0; ind < itemsCount; ind++) {
+            if (ind > 0) builder.append(",");
+            builder.append(item);
+        }
+        String largePage = builder.append("]").toString();
+        ConnectionMastodon connection = (ConnectionMastodon) mock.connection;
+
+        long streamingMs = 0;
+        long domMs = 0;
+        final int iterations = 3;
+        for (int iteration = 0; iteration < iterations; iteration++) {
+            StopWatch stopWatch = StopWatch.createStarted();
+            mock.getHttpMock().addResponse(largePage);
+            InputTimelinePage streamed = mock.connection.getTimeline(true, ApiRoutineEnum.HOME_TIMELINE,
+                    TimelinePosition.of("2656388"), TimelinePosition.EMPTY, 20, accountActor).get();
+            streamingMs += stopWatch.getTime();
+
+            stopWatch.restart();
+            List<AActivity> fromDom = connection.jArrToTimeline(new JSONArray(largePage), ApiRoutineEnum.HOME_TIMELINE).get();
+            domMs += stopWatch.getTime();
+
+            assertEquals(itemsCount, streamed.size());
+            assertEquals(fromDom.size(), streamed.size());
+            assertEquals(fromDom.get(0).getNote().getContent(), streamed.get(0).getNote().getContent());
+        }
+        MyLog.i(this, "Parsing " + itemsCount + " items, average ms; streaming:" + streamingMs / iterations
+                + ", via JSONArray:" + domMs / iterations);
+    }
+
     @Test
     public void testGetConversation() throws IOException {
         mock.addResponse(org.andstatus.app.tests.R.raw.mastodon_get_conversation);
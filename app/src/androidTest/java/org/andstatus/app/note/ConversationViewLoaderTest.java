@@ -1,18 +1,36 @@
 package org.andstatus.app.note;
 
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.AttachedImageFiles;
+import org.andstatus.app.data.DataUpdater;
+import org.andstatus.app.data.DownloadStatus;
 import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.data.OidEnum;
+import org.andstatus.app.net.social.AActivity;
+import org.andstatus.app.net.social.Actor;
+import org.andstatus.app.net.social.Audience;
 import org.andstatus.app.origin.Origin;
+import org.andstatus.app.origin.OriginPumpio;
+import org.andstatus.app.service.CommandData;
+import org.andstatus.app.service.CommandEnum;
+import org.andstatus.app.service.CommandExecutionContext;
 import org.andstatus.app.timeline.LoadableListActivity.ProgressPublisher;
 import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.StopWatch;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.andstatus.app.context.DemoData.demoData;
 import static org.andstatus.app.context.MyContextHolder.myContextHolder;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 public class ConversationViewLoaderTest implements ProgressPublisher {
@@ -54,6 +72,85 @@ public class ConversationViewLoaderTest implements ProgressPublisher {
         assertTrue(progressCounter > 0);
     }
 
+    /** Details, loaded for all notes at once, are the same as loaded for each note separately */
+    @Test
+    public void testNoteDetails() {
+        MyContext myContext = myContextHolder.getNow();
+        ConversationLoader loader = new ConversationLoaderFactory().getLoader(
+                ConversationViewItem.EMPTY, myContext, origin, selectedNoteId, false);
+        loader.load(this);
+        List<ConversationViewItem> list = loader.getList();
+        assertTrue("List is empty", !list.isEmpty());
+        for (ConversationViewItem item : list) {
+            Audience audience = Audience.fromNoteId(item.getOrigin(), item.getNoteId());
+            assertEquals("Audience of " + item, actorIds(audience.getNonSpecialActors()),
+                    actorIds(item.audience.getNonSpecialActors()));
+            assertEquals("Visibility of " + item, audience.getVisibility(), item.audience.getVisibility());
+
+            assertEquals("Rebloggers of " + item,
+                    actorIds(MyQuery.getRebloggers(myContext.getDatabase(), item.getOrigin(), item.getNoteId())),
+                    item.rebloggers.keySet());
+            if (item.attachmentsCount > 0) {
+                assertEquals("Attached images of " + item,
+                        AttachedImageFiles.load(myContext, item.getNoteId()), item.attachedImageFiles);
+            }
+        }
+    }
+
+    private static Set<Long> actorIds(Collection<Actor> actors) {
+        return actors.stream().map(actor -> actor.actorId).collect(Collectors.toSet());
+    }
+
+    /** Benchmark: a long discussion with many branches, deeper than a recursion may handle */
+    @Test
+    public void testLoadLongThread() {
+        final int threadSize = 5000;
+        final String method = "testLoadLongThread";
+        MyContext myContext = myContextHolder.getNow();
+        MyAccount ma = demoData.getPumpioConversationAccount();
+        Actor accountActor = ma.getActor();
+        CommandExecutionContext executionContext = new CommandExecutionContext(
+                myContext, CommandData.newAccountCommand(CommandEnum.EMPTY, ma));
+        String username = "longthread" + demoData.testRunUid + "@identi.ca";
+        Actor author = Actor.fromOid(accountActor.origin, OriginPumpio.ACCOUNT_PREFIX + username);
+        author.setUsername(username);
+        author.build();
+        String oidPrefix = "https://identi.ca/api/comment/longthread" + demoData.testRunUid + "-";
+
+        StopWatch stopWatch = StopWatch.createStarted();
+        List<AActivity> activities = new ArrayList<>();
+        for (int ind = 0; ind < threadSize; ind++) {
+            AActivity activity = AActivity.newPartialNote(accountActor, author, oidPrefix + ind,
+                    System.currentTimeMillis(), DownloadStatus.LOADED);
+            activity.getNote().setContentPosted("Long thread note " + ind);
+            if (ind > 0) {
+                int parentInd = ind % 5 == 0 ? ind / 2 : ind - 1;
+                activity.getNote().setInReplyTo(AActivity.newPartialNote(accountActor, author, oidPrefix + parentInd));
+            }
+            activities.add(activity);
+            if (activities.size() >= 500) {
+                new DataUpdater(executionContext).onActivitiesInTransaction(activities);
+                activities.clear();
+            }
+        }
+        new DataUpdater(executionContext).onActivitiesInTransaction(activities);
+        MyLog.i(this, method + "; " + threadSize + " notes stored in " + stopWatch.getTime() + " ms");
+
+        long lastNoteId = MyQuery.oidToId(OidEnum.NOTE_OID, accountActor.origin.getId(), oidPrefix + (threadSize - 1));
+        assertTrue("Last note exists", lastNoteId != 0);
+        stopWatch.restart();
+        ConversationLoader loader = new ConversationLoaderFactory().getLoader(
+                ConversationViewItem.EMPTY, myContext, accountActor.origin, lastNoteId, false);
+        loader.load(this);
+        MyLog.i(this, method + "; " + threadSize + " notes loaded in " + stopWatch.getTime() + " ms");
+        List<ConversationViewItem> list = loader.getList();
+        assertEquals("Notes in the thread", threadSize, list.size());
+        assertEquals("The root note is the first in history", oidPrefix + 0,
+                MyQuery.idToOid(myContext, OidEnum.NOTE_OID, list.stream()
+                        .filter(item -> item.historyOrder == 1).findFirst()
+                        .map(ConversationViewItem::getNoteId).orElse(0L), 0));
+    }
+
     @Override
     public void publish(String progress) {
         progressCounter++;
@@ -74,6 +74,21 @@ public class KeywordsFilterTest {
         assertNotMatchAll(query, body2);
     }
 
+    @Test
+    public void testSqlMatchExpression() {
+        assertEquals("", new KeywordsFilter("").getSqlMatchExpression());
+        assertEquals("\"word\"", new KeywordsFilter("Word").getSqlMatchExpression());
+        assertEquals("\"deleted notice\" \"word\"",
+                new KeywordsFilter("\"deleted notice\", word").getSqlMatchExpression());
+        assertEquals("\"andstatus andstatus\"", new KeywordsFilter("#AndStatus").getSqlMatchExpression());
+        assertEquals("\"andstatus org\"",
+                new KeywordsFilter(CONTAINS_PREFIX + "//andstatus.org/").getSqlMatchExpression());
+        assertEquals("\"org som*\"",
+                new KeywordsFilter(CONTAINS_PREFIX + "status.org/som").getSqlMatchExpression());
+        assertEquals("", new KeywordsFilter(CONTAINS_PREFIX + "a").getSqlMatchExpression());
+        assertEquals("\"word\"", new KeywordsFilter(CONTAINS_PREFIX + "a, word").getSqlMatchExpression());
+    }
+
     private void assertOneQueryToKeywords(String query, Keyword... keywords) {
         int size = keywords.length;
         KeywordsFilter filter1 = new KeywordsFilter(query);
@@ -144,6 +144,30 @@ public class CommandDataTest {
         assertCommand(queue, CommandEnum.GET_TIMELINE, TimelineType.INTERACTIONS);
     }
 
+    @Test
+    public void testDownloadsPriority() {
+        Queue<CommandData> queue = new PriorityBlockingQueue<>(100);
+        final MyAccount ma = demoData.getGnuSocialAccount();
+        CommandData attachment = CommandData.newFetchAttachment(0, 11);
+        queue.add(attachment);
+        CommandData avatar = CommandData.newActorCommand(CommandEnum.GET_AVATAR, Actor.fromId(ma.getOrigin(), 21), "");
+        queue.add(avatar);
+        CommandData shownAttachment = CommandData.newFetchAttachment(0, 12).setInForeground(true);
+        queue.add(shownAttachment);
+        CommandData shownAvatar1 = CommandData.newActorCommand(CommandEnum.GET_AVATAR,
+                Actor.fromId(ma.getOrigin(), 22), "").setInForeground(true);
+        queue.add(shownAvatar1);
+        CommandData shownAvatar2 = CommandData.newActorCommand(CommandEnum.GET_AVATAR,
+                Actor.fromId(ma.getOrigin(), 23), "").setInForeground(true);
+        queue.add(shownAvatar2);
+
+        assertEquals("Shown last is downloaded first", shownAvatar2, queue.poll());
+        assertEquals(shownAvatar1, queue.poll());
+        assertEquals(shownAttachment, queue.poll());
+        assertEquals(avatar, queue.poll());
+        assertEquals(attachment, queue.poll());
+    }
+
     private void assertCommand(Queue<CommandData> queue, CommandEnum commandEnum) {
         assertCommand(queue, commandEnum, TimelineType.UNKNOWN);
     }
@@ -0,0 +1,193 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.timeline.meta.TimelineType;
+import org.andstatus.app.util.SharedPreferencesUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.andstatus.app.context.MyContextHolder.myContextHolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CommandQueueTest {
+    private MyContext myContext;
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initializeWithAccounts(this);
+        myContext = myContextHolder.getNow();
+        TestSuite.getMyContextForTest().setConnectionState(ConnectionState.WIFI);
+        SharedPreferencesUtil.putString(MyPreferences.KEY_COMMAND_EXECUTOR_LANES, "2");
+        myContext.queues().clear();
+    }
+
+    @After
+    public void tearDown() {
+        myContext.queues().clear();
+        SharedPreferencesUtil.putString(MyPreferences.KEY_COMMAND_EXECUTOR_LANES, "");
+        TestSuite.getMyContextForTest().setConnectionState(ConnectionState.UNKNOWN);
+    }
+
+    @Test
+    public void testBusyOriginIsLeftForOtherLanes() {
+        MyAccount ma1 = demoData.getGnuSocialAccount();
+        MyAccount ma2 = demoData.getPumpioConversationAccount();
+        CommandData command1 = newTimelineCommand(ma1, TimelineType.HOME);
+        CommandData command2 = newTimelineCommand(ma1, TimelineType.NOTIFICATIONS);
+        CommandData command3 = newTimelineCommand(ma2, TimelineType.HOME);
+        CommandQueue queues = myContext.queues();
+        queues.addToQueue(QueueType.CURRENT, command1);
+        queues.addToQueue(QueueType.CURRENT, command2);
+        queues.addToQueue(QueueType.CURRENT, command3);
+
+        CommandQueue.Accessor accessor = queues.getAccessor(CommandQueue.AccessorType.GENERAL);
+        CommandData polled1 = accessor.pollQueue();
+        assertEquals(command1, polled1);
+        assertEquals("Command for another origin expected", command3, accessor.pollQueue());
+        assertNull("The origin is busy", accessor.pollQueue());
+        assertEquals(1, queues.get(QueueType.CURRENT).size());
+
+        accessor.onExecutionEnded(polled1);
+        assertEquals(command2, accessor.pollQueue());
+    }
+
+    @Test
+    public void testIndexedQueue() {
+        MyAccount ma = demoData.getGnuSocialAccount();
+        CommandQueue queues = myContext.queues();
+        CommandQueue.OneQueue oneQueue = queues.get(QueueType.CURRENT);
+        CommandData command1 = newTimelineCommand(ma, TimelineType.HOME);
+        assertTrue(queues.addToQueue(QueueType.CURRENT, command1));
+        assertTrue(queues.addToQueue(QueueType.CURRENT, newTimelineCommand(ma, TimelineType.HOME)));
+        assertEquals("Duplicate shouldn't be added", 1, oneQueue.size());
+        assertTrue(oneQueue.hasForegroundTasks());
+        assertSame(command1, queues.getFromQueue(QueueType.CURRENT, newTimelineCommand(ma, TimelineType.HOME)));
+
+        CommandData command2 = CommandData.newTimelineCommand(CommandEnum.GET_TIMELINE, ma, TimelineType.NOTIFICATIONS);
+        assertTrue(queues.addToQueue(QueueType.CURRENT, command2));
+        assertEquals(2, oneQueue.size());
+        assertEquals(QueueType.CURRENT, queues.inWhichQueue(command2).map(q -> q.queueType).orElse(QueueType.UNKNOWN));
+
+        assertEquals(command1, oneQueue.queue.poll());
+        assertFalse("Background command only", oneQueue.hasForegroundTasks());
+        assertFalse(oneQueue.queue.contains(command1));
+        Iterator<CommandData> iterator = oneQueue.queue.iterator();
+        assertEquals(command2, iterator.next());
+        iterator.remove();
+        assertTrue(oneQueue.isEmpty());
+        assertFalse(oneQueue.queue.contains(command2));
+    }
+
+    @Test
+    public void testForegroundCountDoesntDrift() {
+        MyAccount ma = demoData.getGnuSocialAccount();
+        CommandPriorityQueue queue = new CommandPriorityQueue(10, false);
+        CommandData background = CommandData.newTimelineCommand(CommandEnum.GET_TIMELINE, ma, TimelineType.NOTIFICATIONS);
+        assertFalse(background.isInForeground());
+        assertTrue(queue.offer(background));
+        background.setInForeground(true);
+        assertTrue(queue.remove(background));
+        assertFalse("Command, moved to foreground in the queue", queue.hasForegroundTasks());
+
+        CommandData foreground1 = newTimelineCommand(ma, TimelineType.HOME);
+        CommandData foreground2 = newTimelineCommand(ma, TimelineType.PUBLIC);
+        assertTrue(queue.offer(foreground1));
+        assertTrue(queue.offer(foreground2));
+        foreground1.setInForeground(false);
+        assertTrue(queue.remove(foreground2));
+        assertTrue("Command, moved to background in the queue, is still counted", queue.hasForegroundTasks());
+        assertTrue(queue.remove(foreground1));
+        assertFalse(queue.hasForegroundTasks());
+    }
+
+    @Test
+    public void testRemovedCommandsAreSkipped() {
+        CommandPriorityQueue queue = new CommandPriorityQueue(10, false);
+        final int count = 20;
+        for (int ind = 1; ind <= count; ind++) {
+            assertTrue(queue.offer(CommandData.newFetchAttachment(0, ind)));
+        }
+        for (int ind = 2; ind <= count; ind += 2) {
+            CommandData command = CommandData.newFetchAttachment(0, ind);
+            assertTrue(queue.remove(command));
+            assertFalse(queue.contains(command));
+            assertFalse("Removed twice " + command, queue.remove(command));
+        }
+        assertEquals(count / 2, queue.size());
+        int iterated = 0;
+        for (CommandData command : queue) {
+            iterated++;
+            assertEquals("Removed command is iterated " + command, 1, command.itemId % 2);
+        }
+        assertEquals(count / 2, iterated);
+
+        int polled = 0;
+        CommandData command;
+        while ((command = queue.poll()) != null) {
+            polled++;
+            assertEquals("Removed command is polled " + command, 1, command.itemId % 2);
+        }
+        assertEquals(count / 2, polled);
+        assertTrue(queue.isEmpty());
+        assertNull(queue.peek());
+    }
+
+    @Test
+    public void testIncrementalSave() {
+        MyAccount ma = demoData.getGnuSocialAccount();
+        CommandQueue queues = myContext.queues();
+        CommandData command1 = newTimelineCommand(ma, TimelineType.HOME);
+        CommandData command2 = newTimelineCommand(ma, TimelineType.NOTIFICATIONS);
+        queues.addToQueue(QueueType.CURRENT, command1);
+        queues.addToQueue(QueueType.CURRENT, command2);
+        final int downloadsCount = 350;
+        for (int ind = 1; ind <= downloadsCount; ind++) {
+            queues.addToQueue(QueueType.DOWNLOADS, CommandData.newFetchAttachment(0, ind));
+        }
+        queues.save();
+        CommandQueue loaded = new CommandQueue(myContext).load();
+        assertEquals(2, loaded.get(QueueType.CURRENT).size());
+        assertEquals("All commands should be saved", downloadsCount, loaded.get(QueueType.DOWNLOADS).size());
+
+        assertEquals(command1, queues.get(QueueType.CURRENT).queue.poll());
+        queues.addToQueue(QueueType.ERROR, command1);
+        queues.get(QueueType.DOWNLOADS).queue.poll();
+        queues.save();
+        loaded = new CommandQueue(myContext).load();
+        assertEquals(command2, loaded.getFromQueue(QueueType.CURRENT, command2));
+        assertEquals(1, loaded.get(QueueType.CURRENT).size());
+        assertEquals(command1, loaded.getFromQueue(QueueType.ERROR, command1));
+        assertEquals(downloadsCount - 1, loaded.get(QueueType.DOWNLOADS).size());
+    }
+
+    private static CommandData newTimelineCommand(MyAccount ma, TimelineType timelineType) {
+        return CommandData.newTimelineCommand(CommandEnum.GET_TIMELINE, ma, timelineType).setInForeground(true);
+    }
+}
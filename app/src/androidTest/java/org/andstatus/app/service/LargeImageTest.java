@@ -18,6 +18,7 @@ package org.andstatus.app.service;
 import androidx.test.platform.app.InstrumentationRegistry;
 
 import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyStorage;
 import org.andstatus.app.context.TestSuite;
 import org.andstatus.app.data.AttachedMediaFile;
 import org.andstatus.app.data.DemoNoteInserter;
@@ -32,6 +33,7 @@ import org.andstatus.app.net.social.ConnectionMock;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
 
 import static org.andstatus.app.context.DemoData.demoData;
@@ -85,6 +87,12 @@ public class LargeImageTest {
     }
 
     private void loadingTest(DownloadData dd) {
+        File[] thumbnails = MyStorage.getDataFilesDir(MyStorage.DIRECTORY_THUMBNAILS)
+                .listFiles((dir, name) -> name.startsWith(dd.getFilename() + "_"));
+        assertTrue("Thumbnail created for " + dd.getFilename(), thumbnails != null && thumbnails.length > 0);
+        assertTrue("Thumbnail is smaller: " + thumbnails[0].length(),
+                thumbnails[0].length() < dd.getFile().getSize());
+
         CachedImage image = new AttachedMediaFile(dd).loadAndGetImage(CacheName.ATTACHED_IMAGE);
         int width = image.getImageSize().x;
         assertTrue("Too wide: " + width, width < 4000 && width > 10);
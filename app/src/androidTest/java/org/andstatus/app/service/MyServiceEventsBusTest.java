@@ -0,0 +1,75 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.data.DbUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.andstatus.app.context.MyContextHolder.myContextHolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+public class MyServiceEventsBusTest {
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initialize(this);
+    }
+
+    @Test
+    public void testProgressCoalescing() {
+        List<MyServiceEvent> events = new CopyOnWriteArrayList<>();
+        List<CommandData> received = new CopyOnWriteArrayList<>();
+        MyServiceEventsReceiver receiver = new MyServiceEventsReceiver((commandData, event) -> {
+            events.add(event);
+            received.add(commandData);
+        });
+        receiver.registerReceiver(myContextHolder.getNow().context());
+        try {
+            CommandData commandData = CommandData.newCommand(CommandEnum.GET_TIMELINE);
+            broadcast(commandData, MyServiceEvent.BEFORE_EXECUTING_COMMAND, "");
+            for (int i = 1; i <= 10; i++) {
+                broadcast(commandData, MyServiceEvent.PROGRESS_EXECUTING_COMMAND, "Progress " + i);
+            }
+            DbUtils.waitMs(this, (int) MyServiceEventsBus.PROGRESS_COALESCING_MILLIS * 4);
+            assertEquals(events.toString(), 2, events.size());
+            assertEquals(MyServiceEvent.PROGRESS_EXECUTING_COMMAND, events.get(1));
+            assertEquals("Progress 10", received.get(1).getResult().getProgress());
+            assertNotSame("Receivers get a snapshot", commandData, received.get(1));
+            assertEquals(commandData.getCommandId(), received.get(1).getCommandId());
+
+            broadcast(commandData, MyServiceEvent.PROGRESS_EXECUTING_COMMAND, "Last progress");
+            broadcast(commandData, MyServiceEvent.AFTER_EXECUTING_COMMAND, "");
+            DbUtils.waitMs(this, (int) MyServiceEventsBus.PROGRESS_COALESCING_MILLIS * 4);
+            assertEquals("Progress before the end is dropped " + events, 3, events.size());
+            assertEquals(MyServiceEvent.AFTER_EXECUTING_COMMAND, events.get(2));
+            assertEquals("Progress 10", received.get(1).getResult().getProgress());
+        } finally {
+            receiver.unregisterReceiver(myContextHolder.getNow().context());
+        }
+    }
+
+    private static void broadcast(CommandData commandData, MyServiceEvent event, String progress) {
+        MyServiceEventsBroadcaster.newInstance(myContextHolder.getNow(), MyServiceState.RUNNING)
+                .setCommandData(commandData).setProgress(progress).setEvent(event).broadcast();
+    }
+}
@@ -60,7 +60,7 @@ public class MyServiceTestHelper implements MyServiceEventsListener {
             }
             connectionInstanceId = httpConnectionMock.getInstanceId();
 
-            serviceConnector = new MyServiceEventsReceiver(myContext, this);
+            serviceConnector = new MyServiceEventsReceiver(this);
             serviceConnector.registerReceiver(myContext.context());
 
             dropQueues();
@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.timeline;
+
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.AbsListView;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.timeline.meta.Timeline;
+import org.andstatus.app.timeline.meta.TimelineType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.andstatus.app.context.MyContextHolder.myContextHolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScrollPrefetcherTest {
+    private static final int ITEMS_COUNT = 100;
+    private static final int VISIBLE_COUNT = 5;
+
+    private final ScrollPrefetcher prefetcher = new ScrollPrefetcher();
+    private StubAdapter adapter;
+
+    /** Records prefetched positions instead of prefetching images */
+    private static class StubAdapter extends BaseTimelineAdapter<EmptyViewItem> {
+        final List<Integer> positions = new ArrayList<>();
+        final List<BooleanSupplier> cancellations = new ArrayList<>();
+
+        StubAdapter(MyContext myContext, Timeline timeline) {
+            super(myContext, timeline, new ArrayList<>());
+        }
+
+        @Override
+        public int getCount() {
+            return ITEMS_COUNT;
+        }
+
+        @Override
+        void prefetch(int position, BooleanSupplier isCancelled) {
+            positions.add(position);
+            cancellations.add(isCancelled);
+        }
+
+        void clear() {
+            positions.clear();
+            cancellations.clear();
+        }
+
+        @Override
+        public View getView(int position, View convertView, ViewGroup parent) {
+            return convertView;
+        }
+
+        @Override
+        public void onClick(View v) {
+            // Empty
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initialize(this);
+        MyContext myContext = myContextHolder.getNow();
+        MyAccount ma = demoData.getMyAccount(demoData.conversationAccountName);
+        Timeline timeline = myContext.timelines().get(TimelineType.HOME, ma.getActor(), ma.getOrigin());
+        adapter = new StubAdapter(myContext, timeline);
+    }
+
+    @Test
+    public void testItemsAhead() {
+        assertEquals(ScrollPrefetcher.ITEMS_AHEAD_MIN, prefetcher.getItemsAhead());
+        scrollTo(0);
+        assertEquals("Speed is unknown after the first scroll", ScrollPrefetcher.ITEMS_AHEAD_MIN,
+                prefetcher.getItemsAhead());
+        for (int firstVisible = 1; firstVisible < 10; firstVisible++) {
+            scrollTo(firstVisible);
+            int itemsAhead = prefetcher.getItemsAhead();
+            assertTrue("Items ahead: " + itemsAhead, itemsAhead >= ScrollPrefetcher.ITEMS_AHEAD_MIN
+                    && itemsAhead <= ScrollPrefetcher.ITEMS_AHEAD_MAX);
+        }
+        prefetcher.onScrollStateChanged(AbsListView.OnScrollListener.SCROLL_STATE_IDLE);
+        assertEquals("No speed, when the scroll stopped", ScrollPrefetcher.ITEMS_AHEAD_MIN,
+                prefetcher.getItemsAhead());
+    }
+
+    @Test
+    public void testPrefetchWhileScrollingDown() {
+        scrollTo(0);
+        assertTrue(prefetcher.isScrollingDown());
+        assertPositions(VISIBLE_COUNT, VISIBLE_COUNT + ScrollPrefetcher.ITEMS_AHEAD_MIN - 1);
+
+        adapter.clear();
+        scrollTo(2);
+        int lastVisible = 2 + VISIBLE_COUNT - 1;
+        int to = Math.min(lastVisible + prefetcher.getItemsAhead(), ITEMS_COUNT - 1);
+        assertPositions(VISIBLE_COUNT + ScrollPrefetcher.ITEMS_AHEAD_MIN, to);
+
+        adapter.clear();
+        scrollTo(ITEMS_COUNT - VISIBLE_COUNT - 2);
+        assertEquals("Beyond the last item " + adapter.positions, ITEMS_COUNT - 1,
+                (int) adapter.positions.get(adapter.positions.size() - 1));
+    }
+
+    @Test
+    public void testPrefetchWhileScrollingUp() {
+        scrollTo(50);
+        adapter.clear();
+        scrollTo(48);
+        assertTrue(prefetcher.isScrollingUp());
+        int to = Math.max(48 - prefetcher.getItemsAhead(), 0);
+        assertPositions(47, to);
+
+        adapter.clear();
+        scrollTo(47);
+        int to2 = Math.max(47 - prefetcher.getItemsAhead(), 0);
+        if (to2 < to) {
+            assertPositions(to - 1, to2);
+        } else {
+            assertTrue("Already prefetched " + adapter.positions, adapter.positions.isEmpty());
+        }
+
+        adapter.clear();
+        scrollTo(1);
+        assertEquals("Beyond the first item " + adapter.positions, 0,
+                (int) adapter.positions.get(adapter.positions.size() - 1));
+    }
+
+    @Test
+    public void testCancelledWhenDirectionChanges() {
+        scrollTo(10);
+        scrollTo(11);
+        List<BooleanSupplier> downCancellations = new ArrayList<>(adapter.cancellations);
+        assertFalse(downCancellations.isEmpty());
+        downCancellations.forEach(isCancelled -> assertFalse(isCancelled.getAsBoolean()));
+
+        adapter.clear();
+        scrollTo(12);
+        downCancellations.forEach(isCancelled -> assertFalse("Same direction", isCancelled.getAsBoolean()));
+        downCancellations.addAll(adapter.cancellations);
+
+        adapter.clear();
+        scrollTo(9);
+        assertTrue(prefetcher.isScrollingUp());
+        downCancellations.forEach(isCancelled -> assertTrue("Direction changed", isCancelled.getAsBoolean()));
+        assertFalse(adapter.cancellations.isEmpty());
+        adapter.cancellations.forEach(isCancelled -> assertFalse(isCancelled.getAsBoolean()));
+        assertTrue("Items above are prefetched, when scrolling up " + adapter.positions,
+                adapter.positions.stream().allMatch(position -> position < 9));
+    }
+
+    @Test
+    public void testReset() {
+        scrollTo(20);
+        scrollTo(21);
+        List<BooleanSupplier> cancellations = new ArrayList<>(adapter.cancellations);
+
+        prefetcher.reset();
+        cancellations.forEach(isCancelled -> assertTrue("Cancelled by reset", isCancelled.getAsBoolean()));
+        assertFalse(prefetcher.isScrollingDown());
+        assertFalse(prefetcher.isScrollingUp());
+        assertEquals(ScrollPrefetcher.ITEMS_AHEAD_MIN, prefetcher.getItemsAhead());
+
+        adapter.clear();
+        scrollTo(21);
+        assertTrue("Positions are forgotten", prefetcher.isScrollingDown());
+        assertPositions(21 + VISIBLE_COUNT, 21 + VISIBLE_COUNT + ScrollPrefetcher.ITEMS_AHEAD_MIN - 1);
+    }
+
+    private void scrollTo(int firstVisible) {
+        prefetcher.onScroll(null, adapter, firstVisible, VISIBLE_COUNT);
+    }
+
+    /** Positions from the first to the last one, in the order of prefetching */
+    private void assertPositions(int from, int to) {
+        List<Integer> expected = new ArrayList<>();
+        int step = from <= to ? 1 : -1;
+        for (int position = from; position != to + step; position += step) {
+            expected.add(position);
+        }
+        assertEquals(expected, adapter.positions);
+    }
+}
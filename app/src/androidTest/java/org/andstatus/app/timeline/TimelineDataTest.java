@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.timeline;
+
+import androidx.annotation.NonNull;
+
+import org.andstatus.app.account.MyAccount;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.context.TestSuite;
+import org.andstatus.app.origin.Origin;
+import org.andstatus.app.timeline.meta.Timeline;
+import org.andstatus.app.timeline.meta.TimelineType;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.andstatus.app.context.DemoData.demoData;
+import static org.andstatus.app.context.MyContextHolder.myContextHolder;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+public class TimelineDataTest {
+    private MyContext myContext;
+    private Timeline timeline;
+
+    private static class TestItem extends ViewItem<TestItem> {
+        final long id;
+        final String content;
+
+        TestItem(long id, long date, String content) {
+            super(false, date);
+            this.id = id;
+            this.content = content;
+        }
+
+        @Override
+        public long getId() {
+            return id;
+        }
+
+        @Override
+        public long getDate() {
+            return updatedDate;
+        }
+
+        @NonNull
+        @Override
+        public DuplicationLink duplicates(Timeline timeline, Origin preferredOrigin, @NonNull TestItem other) {
+            if (id == other.id || !content.equals(other.content)) return DuplicationLink.NONE;
+            return id < other.id ? DuplicationLink.DUPLICATES : DuplicationLink.IS_DUPLICATED;
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        TestSuite.initialize(this);
+        myContext = myContextHolder.getNow();
+        MyAccount ma = demoData.getMyAccount(demoData.conversationAccountName);
+        timeline = myContext.timelines().get(TimelineType.HOME, ma.getActor(), ma.getOrigin());
+    }
+
+    @Test
+    public void testNewItemsAreMergedIntoTheFirstPage() {
+        TimelineData<TestItem> data = newData(10);
+        int added = data.addNewItems(newPage(2, item(12), item(11)));
+        assertEquals(2, added);
+        assertEquals(1, data.pages.size());
+        assertEquals(12, data.size());
+        assertIds(data, 12, 11, 10, 9);
+    }
+
+    @Test
+    public void testFullPageOfNewItemsIsAddedAsYoungerPage() {
+        TimelineData<TestItem> data = newData(10);
+        int added = data.addNewItems(newPage(TimelineParameters.PAGE_SIZE, item(12), item(11)));
+        assertEquals(2, added);
+        assertEquals("Pages: " + data, 2, data.pages.size());
+        assertEquals(12, data.size());
+        assertIds(data, 12, 11, 10);
+    }
+
+    @Test
+    public void testUpdatedItemsAreReplaced() {
+        TimelineData<TestItem> data = newData(10);
+        TestItem updated = new TestItem(8, 20000, "updated 8");
+        int added = data.addNewItems(newPage(2, item(11), updated));
+        assertEquals(2, added);
+        assertEquals("Old version should be removed " + data, 11, data.size());
+        assertIds(data, 11, 8, 10, 9, 7);
+        assertEquals(updated.getDate(), data.getItem(1).getDate());
+    }
+
+    @Test
+    public void testOnlyDuplicatesNearNewItemsAreCollapsed() {
+        int maxDistance = MyPreferences.getMaxDistanceBetweenDuplicates();
+        assumeTrue(maxDistance > 0);
+
+        int size = maxDistance + 10;
+        TimelineData<TestItem> data = newData(size);
+        data.updateView(LoadableListViewParameters.collapseDuplicates(true));
+        // A duplicate of the oldest item, far from the new items
+        data.pages.get(0).items.add(new TestItem(-1, 1, "content 1"));
+        assertEquals(size + 1, data.size());
+
+        TestItem duplicateOfYoungest = new TestItem(size + 1, (size + 1) * 1000, "content " + size);
+        int added = data.addNewItems(newPage(1, duplicateOfYoungest));
+        assertEquals(1, added);
+        assertEquals("Only the new duplicate should be collapsed " + data, size + 1, data.size());
+        assertEquals(-1, data.getItem(data.size() - 1).getId());
+    }
+
+    private TimelineData<TestItem> newData(int count) {
+        List<TestItem> items = new ArrayList<>();
+        for (long id = count; id > 0; id--) {
+            items.add(item(id));
+        }
+        TimelineParameters params = new TimelineParameters(myContext, timeline, WhichPage.CURRENT);
+        params.rowsLoaded = count;
+        TimelineData<TestItem> data = new TimelineData<>(null, new TimelinePage<>(params, items));
+        data.updateView(LoadableListViewParameters.collapseDuplicates(false));
+        return data;
+    }
+
+    private TimelinePage<TestItem> newPage(int rowsLoaded, TestItem... items) {
+        TimelineParameters params = new TimelineParameters(myContext, timeline, WhichPage.NEW);
+        params.rowsLoaded = rowsLoaded;
+        return new TimelinePage<>(params, new ArrayList<>(Arrays.asList(items)));
+    }
+
+    private static TestItem item(long id) {
+        return new TestItem(id, id * 1000, "content " + id);
+    }
+
+    private static void assertIds(TimelineData<TestItem> data, long... ids) {
+        for (int position = 0; position < ids.length; position++) {
+            assertEquals("Position " + position + " " + data, ids[position], data.getItem(position).getId());
+        }
+    }
+}
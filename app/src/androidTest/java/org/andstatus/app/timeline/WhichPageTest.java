@@ -34,6 +34,7 @@ public class WhichPageTest {
         assertOne(WhichPage.YOUNGER);
         assertOne(WhichPage.YOUNGEST);
         assertOne(WhichPage.OLDER);
+        assertOne(WhichPage.NEW);
         assertOne(WhichPage.EMPTY);
 
         Bundle args = null;
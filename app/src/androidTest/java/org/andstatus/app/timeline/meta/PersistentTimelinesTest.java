@@ -26,6 +26,7 @@ import org.andstatus.app.net.social.Actor;
 import org.andstatus.app.origin.DemoOriginInserter;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.util.TriState;
+import org.andstatus.app.util.UriUtils;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -116,6 +117,47 @@ public class PersistentTimelinesTest {
         }
     }
 
+    @Test
+    public void testIndexedLookup() {
+        for (Timeline stored : myContext.timelines().values()) {
+            Timeline found = myContext.timelines().get(stored.getTimelineType(), stored.actor, stored.getOrigin(),
+                    stored.getSearchQuery());
+            Timeline scanned = new Timeline(myContext, 0, stored.getTimelineType(), stored.actor, stored.getOrigin(),
+                    stored.getSearchQuery(), 0);
+            if (myContext.timelines().stream().anyMatch(scanned::duplicates)) {
+                assertNotEquals("Should be found by index: " + stored, 0, found.getId());
+                assertTrue("Found " + found + "\nfor " + stored, scanned.duplicates(found));
+            } else {
+                assertEquals("Not stored " + found, 0, found.getId());
+            }
+        }
+
+        // An actor, which is not stored yet, may be the same as a stored one, see Actor.isSame()
+        for (Timeline stored : myContext.timelines().values()) {
+            if (stored.actor.actorId == 0 || !UriUtils.isRealOid(stored.actor.oid)) continue;
+
+            Actor actorByOid = Actor.fromOid(stored.getOrigin(), stored.actor.oid);
+            Timeline found = myContext.timelines().get(stored.getTimelineType(), actorByOid, stored.getOrigin(),
+                    stored.getSearchQuery());
+            assertNotEquals("Should be found by actor oid: " + stored, 0, found.getId());
+            assertTrue("Found " + found + "\nfor " + stored, found.actor.isSame(actorByOid));
+        }
+
+        for (MyAccount ma : myContext.accounts().get()) {
+            List<Timeline> autoSync = myContext.timelines().toAutoSyncForAccount(ma);
+            List<Timeline> expected = myContext.timelines().stream()
+                    .filter(Timeline::isSyncedAutomatically)
+                    .filter(timeline -> timeline.getTimelineType().isAtOrigin()
+                            ? timeline.getOrigin().equals(ma.getOrigin())
+                            : timeline.myAccountToSync.equals(ma))
+                    .filter(Timeline::isTimeToAutoSync)
+                    .collect(Collectors.toList());
+            if (!ma.isValidAndSucceeded()) expected.clear();
+            assertEquals("Auto sync for " + ma, expected.size(), autoSync.size());
+            assertTrue("Auto sync for " + ma, autoSync.containsAll(expected));
+        }
+    }
+
     @Test
     public void testDefaultTimelinesForAccounts() {
         new DemoAccountInserter(myContext).assertDefaultTimelinesForAccounts();
@@ -25,6 +25,8 @@ import org.junit.Test;
 import static org.andstatus.app.context.DemoData.demoData;
 import static org.andstatus.app.context.MyContextHolder.myContextHolder;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class CachedUsersAndActorsTest {
@@ -44,6 +46,37 @@ public class CachedUsersAndActorsTest {
         Actor actor = demoData.getMyAccount(demoData.conversationAccountSecondName).getActor();
         assertEquals(users.toString(), true, users.isMeOrMyFriend(actor));
         assertEquals(users.toString(), false, users.isMeOrMyFriend(Actor.EMPTY));
+        assertTrue(users.toString(), users.isMe(actor.actorId));
+        assertFalse(users.toString(), users.isMe(0));
+        assertTrue(users.toString(), users.actors.getOrDefault(actor.actorId, Actor.EMPTY).nonEmpty());
+    }
+
+    @Test
+    public void testResizeActorsCaches() {
+        CachedUsersAndActors users = CachedUsersAndActors.newEmpty(myContextHolder.getNow());
+        users.resizeActorsCaches(7);
+        assertEquals(7, users.actors.maxSize());
+        assertEquals(7, users.otherUsers.maxSize());
+        assertEquals(7, users.actorGroupTypes.maxSize());
+        assertEquals(7, users.originIdAndUsernameToActorId.maxSize());
+    }
+
+    @Test
+    public void testActorsCache() {
+        Origin origin = myContextHolder.getNow().origins().fromName(demoData.conversationOriginName);
+        ActorsCache cache = new ActorsCache(3, actorId -> actorId == 1);
+        for (long actorId = 1; actorId <= 6; actorId++) {
+            cache.put(Actor.fromId(origin, actorId));
+        }
+        assertEquals(cache.toString(), 4, cache.size());
+        assertTrue("Pinned actor is kept " + cache, cache.get(1) != null);
+        assertNull("Least recently used actor is evicted " + cache, cache.get(2));
+        assertEquals(6, cache.getOrDefault(6, Actor.EMPTY).actorId);
+        assertTrue(cache.getStatistics(), cache.getStatistics().contains("evicted:2"));
+
+        cache.resize(1);
+        assertEquals(cache.toString(), 2, cache.size());
+        assertEquals("The most recently used actor is kept", 6, cache.getOrDefault(6, Actor.EMPTY).actorId);
     }
 
 }
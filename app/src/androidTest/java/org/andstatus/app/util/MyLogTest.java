@@ -23,10 +23,13 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 
 import androidx.annotation.NonNull;
 import io.vavr.control.Try;
 
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
@@ -73,6 +76,62 @@ public class MyLogTest {
         }
     }
 
+    @Test
+    public void testLogToFileFromManyThreads() throws Exception {
+        final String method = "testLogToFileFromManyThreads";
+        boolean isLogEnabled = MyLog.isLogToFileEnabled();
+
+        MyLog.setLogToFile(false);
+        MyLog.setLogToFile(true);
+        File file = MyLog.getFileInLogDir(MyLog.getLogFilename(), true);
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            final int threadNumber = i;
+            threads[i] = new Thread(() -> {
+                for (int line = 1; line <= 100; line++) {
+                    MyLog.i(this, method + " thread" + threadNumber + " line" + line);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        MyLog.setLogToFile(false);
+
+        String content = new String(FileUtils.getBytes(file), StandardCharsets.UTF_8);
+        for (int i = 0; i < threads.length; i++) {
+            assertThat(content, containsString(method + " thread" + i + " line100\n"));
+        }
+        assertTrue(file.delete());
+
+        if (isLogEnabled) {
+            MyLog.setLogToFile(true);
+        }
+    }
+
+    @Test
+    public void testErrorIsWrittenAtOnce() throws Exception {
+        final String method = "testErrorIsWrittenAtOnce";
+        boolean isLogEnabled = MyLog.isLogToFileEnabled();
+
+        MyLog.setLogToFile(false);
+        MyLog.setLogToFile(true);
+        File file = MyLog.getFileInLogDir(MyLog.getLogFilename(), true);
+        MyLog.i(this, method + " info");
+        MyLog.e(this, method + " error");
+
+        String content = new String(FileUtils.getBytes(file), StandardCharsets.UTF_8);
+        assertThat("Lines, queued before the error, are flushed", content, containsString(method + " info\n"));
+        assertThat(content, containsString(method + " error\n"));
+        MyLog.setLogToFile(false);
+        assertTrue(file.delete());
+
+        if (isLogEnabled) {
+            MyLog.setLogToFile(true);
+        }
+    }
+
     @Test
     public void testUniqueDateTimeFormatted() {
         String string1 = "";
@@ -48,6 +48,7 @@ import org.andstatus.app.timeline.meta.TimelineType;
 import org.andstatus.app.util.IsEmpty;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.MyStringBuilder;
+import org.andstatus.app.util.SortedLongs;
 import org.andstatus.app.util.StringUtil;
 import org.andstatus.app.util.TaggedClass;
 import org.andstatus.app.util.TriState;
@@ -186,9 +187,8 @@ public final class MyAccount implements Comparable<MyAccount>, IsEmpty, TaggedCl
     }
 
     public boolean isFollowing(Actor thatActor) {
-        return data.myContext().users().friendsOfMyActors.entrySet().stream()
-                .filter(entry -> entry.getKey() == thatActor.actorId)
-                .anyMatch(entry -> entry.getValue().contains(getActor().actorId));
+        return data.myContext().users().friendsOfMyActors.getOrDefault(thatActor.actorId, SortedLongs.EMPTY)
+                .contains(getActor().actorId);
     }
 
     public String getShortestUniqueAccountName() {
@@ -15,7 +15,9 @@ import org.andstatus.app.net.social.Actor;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.IsEmpty;
+import org.andstatus.app.util.LongMap;
 import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SortedLongs;
 import org.andstatus.app.util.StopWatch;
 import org.andstatus.app.util.StringUtil;
 import org.json.JSONArray;
@@ -29,7 +31,6 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
@@ -220,9 +221,9 @@ public class MyAccounts implements IsEmpty {
     }
 
     private Optional<MyAccount> forFriendOfFollower(Actor friend, boolean sameOriginOnly, boolean succeededOnly,
-                                                    Map<Long, Set<Long>> friendsOrFollowers) {
-        return friendsOrFollowers.getOrDefault(friend.actorId, Collections.emptySet()).stream()
-                .map(this::fromActorId)
+                                                    LongMap<SortedLongs> friendsOrFollowers) {
+        return friendsOrFollowers.getOrDefault(friend.actorId, SortedLongs.EMPTY).stream()
+                .mapToObj(this::fromActorId)
                 .filter(ma -> ma.isValidAndSucceeded() || !succeededOnly)
                 .filter(ma -> !sameOriginOnly || ma.getOrigin().equals(friend.origin))
                 .sorted()
@@ -474,7 +475,7 @@ public class MyAccounts implements IsEmpty {
         AtomicLong restoredCount = new AtomicLong();
         final String method = "onRestore";
         MyLog.i(this, method + "; started, " + I18n.formatBytes(data.getDataSize()));
-        byte[] bytes = new byte[data.getDataSize()];
+        byte[] bytes = new byte[(int) data.getDataSize()];
         int bytesRead = data.readEntityData(bytes, 0, bytes.length);
         try {
             JSONArray jsa = new JSONArray(new String(bytes, 0, bytesRead, StandardCharsets.UTF_8));
@@ -23,6 +23,7 @@ import android.view.ViewGroup;
 import org.andstatus.app.R;
 import org.andstatus.app.actor.ActorAdapter;
 import org.andstatus.app.graphics.AvatarView;
+import org.andstatus.app.graphics.CacheName;
 import org.andstatus.app.net.social.ActivityType;
 import org.andstatus.app.note.NoteAdapter;
 import org.andstatus.app.timeline.BaseTimelineAdapter;
@@ -30,6 +31,8 @@ import org.andstatus.app.timeline.TimelineData;
 import org.andstatus.app.timeline.meta.TimelineType;
 import org.andstatus.app.util.MyUrlSpan;
 
+import java.util.function.BooleanSupplier;
+
 /**
  * @author yvolk@yurivolkov.com
  */
@@ -131,6 +134,20 @@ public class ActivityAdapter extends BaseTimelineAdapter<ActivityViewItem> {
         return view;
     }
 
+    @Override
+    public void prefetchImages(ActivityViewItem item, BooleanSupplier isCancelled) {
+        LayoutType layoutType = calcLayoutType(item);
+        if (showAvatars && layoutType.isActorShown() && layoutType != LayoutType.ACTOR_ACTOR) {
+            item.actor.getAvatarFile().prefetchImage(CacheName.AVATAR, isCancelled);
+        }
+        if (layoutType.isNoteShown()) {
+            noteAdapter.prefetchImages(item.noteViewItem, isCancelled);
+        }
+        if (layoutType.isObjActorShown()) {
+            objActorAdapter.prefetchImages(item.getObjActorItem(), isCancelled);
+        }
+    }
+
     private LayoutType calcLayoutType(ActivityViewItem item) {
         if (item.noteViewItem.getId() == 0) {
             if (item.getObjActorItem().getId() == 0) {
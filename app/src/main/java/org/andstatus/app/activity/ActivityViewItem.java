@@ -25,10 +25,13 @@ import org.andstatus.app.actor.ActorViewItem;
 import org.andstatus.app.actor.ActorsLoader;
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.data.AttachedImageFiles;
+import org.andstatus.app.data.AvatarFile;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.net.social.ActivityType;
 import org.andstatus.app.net.social.Actor;
+import org.andstatus.app.note.NoteDetailsLoader;
 import org.andstatus.app.note.NoteViewItem;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.timeline.DuplicationLink;
@@ -171,6 +174,18 @@ public class ActivityViewItem extends ViewItem<ActivityViewItem> implements Comp
         return actor;
     }
 
+    @Override
+    public boolean updateAvatar(@NonNull AvatarFile avatarFile) {
+        boolean changed = actor.updateAvatar(avatarFile);
+        changed |= noteViewItem.updateAvatar(avatarFile);
+        return objActorItem.updateAvatar(avatarFile) || changed;
+    }
+
+    @Override
+    public boolean updateAttachedImageFiles(long noteId, @NonNull AttachedImageFiles imageFiles) {
+        return noteViewItem.updateAttachedImageFiles(noteId, imageFiles);
+    }
+
     public ActorViewItem getObjActorItem() {
         return objActorItem;
     }
@@ -179,6 +194,11 @@ public class ActivityViewItem extends ViewItem<ActivityViewItem> implements Comp
         this.objActorItem = objActorItem;
     }
 
+    @Override
+    public void addNoteToLoadDetails(NoteDetailsLoader loader) {
+        noteViewItem.addNoteToLoadDetails(loader);
+    }
+
     @Override
     public void addActorsToLoad(ActorsLoader loader) {
         noteViewItem.addActorsToLoad(loader);
@@ -22,11 +22,13 @@ import android.view.View;
 import android.view.ViewGroup;
 
 import org.andstatus.app.R;
+import org.andstatus.app.graphics.CacheName;
 import org.andstatus.app.timeline.BaseTimelineAdapter;
 import org.andstatus.app.timeline.TimelineData;
 import org.andstatus.app.timeline.meta.Timeline;
 
 import java.util.List;
+import java.util.function.BooleanSupplier;
 
 public class ActorAdapter extends BaseTimelineAdapter<ActorViewItem> {
     private final ActorContextMenu contextMenu;
@@ -59,6 +61,13 @@ public class ActorAdapter extends BaseTimelineAdapter<ActorViewItem> {
         return view;
     }
 
+    @Override
+    public void prefetchImages(ActorViewItem item, BooleanSupplier isCancelled) {
+        if (showAvatars) {
+            item.getAvatarFile().prefetchImage(CacheName.AVATAR, isCancelled);
+        }
+    }
+
     private View newView() {
         return LayoutInflater.from(contextMenu.getActivity()).inflate(listItemLayoutId, null);
     }
@@ -32,10 +32,9 @@ import org.andstatus.app.timeline.TimelineFilter;
 import org.andstatus.app.timeline.ViewItem;
 import org.andstatus.app.timeline.meta.Timeline;
 import org.andstatus.app.util.MyStringBuilder;
-import org.andstatus.app.util.NullUtil;
+import org.andstatus.app.util.SortedLongs;
 import org.andstatus.app.util.StringUtil;
 
-import java.util.Collections;
 import java.util.stream.Stream;
 
 import static org.andstatus.app.timeline.DuplicationLink.DUPLICATES;
@@ -130,6 +129,14 @@ public class ActorViewItem extends ViewItem<ActorViewItem> implements Comparable
         return actor.avatarFile;
     }
 
+    @Override
+    public boolean updateAvatar(@NonNull AvatarFile avatarFile) {
+        if (actor.actorId == 0 || actor.actorId != avatarFile.getActor().actorId) return false;
+
+        actor.avatarFile = avatarFile;
+        return true;
+    }
+
     public void showAvatar(MyActivity myActivity, IdentifiableImageView imageView) {
         getAvatarFile().showImage(myActivity, imageView);
     }
@@ -165,9 +172,9 @@ public class ActorViewItem extends ViewItem<ActorViewItem> implements Comparable
     }
 
     Stream<Actor> getMyActorsFollowingTheActor(MyContext myContext) {
-        return NullUtil.getOrDefault(myContext.users().friendsOfMyActors, actor.actorId, Collections.emptySet()).stream()
+        return myContext.users().friendsOfMyActors.getOrDefault(actor.actorId, SortedLongs.EMPTY).stream()
                 .filter(id -> id != myActorFollowingToHide.actorId)
-                .map(id -> NullUtil.getOrDefault(myContext.users().actors, id, Actor.EMPTY))
+                .mapToObj(id -> myContext.users().actors.getOrDefault(id, Actor.EMPTY))
                 .filter(Actor::nonEmpty);
     }
 
@@ -176,9 +183,9 @@ public class ActorViewItem extends ViewItem<ActorViewItem> implements Comparable
     }
 
     Stream<Actor> getMyActorsFollowedByTheActor(MyContext myContext) {
-        return NullUtil.getOrDefault(myContext.users().followersOfMyActors, actor.actorId, Collections.emptySet()).stream()
+        return myContext.users().followersOfMyActors.getOrDefault(actor.actorId, SortedLongs.EMPTY).stream()
                 .filter(id -> id != myActorFollowedToHide.actorId)
-                .map(id -> NullUtil.getOrDefault(myContext.users().actors, id, Actor.EMPTY))
+                .mapToObj(id -> myContext.users().actors.getOrDefault(id, Actor.EMPTY))
                 .filter(Actor::nonEmpty);
     }
 
@@ -32,17 +32,22 @@ import org.andstatus.app.context.MyStorage;
 import org.andstatus.app.data.DataPruner;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.database.DatabaseHolder;
+import org.andstatus.app.database.DatabaseSnapshot;
 import org.andstatus.app.service.MyServiceManager;
 import org.andstatus.app.service.MyServiceState;
-import org.andstatus.app.util.FileUtils;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
+import org.andstatus.app.util.StopWatch;
 import org.andstatus.app.util.ZipUtils;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 import io.vavr.control.Try;
 
@@ -55,11 +60,13 @@ public class MyBackupAgent extends BackupAgent {
     public static final String DATABASE_KEY = "database";
     public static final String LOG_FILES_KEY = "logs";
     public static final String KEY_ACCOUNT = "account";
+    private static final int TRANSFER_BUFFER_SIZE = 4 * 1024 * 1024;
 
     private Activity activity;
     private MyBackupDescriptor backupDescriptor = null;
 
     private String previousKey = "";
+    private ByteBuffer transferBuffer = null;
     
     private long accountsBackedUp = 0;
     long accountsRestored = 0;
@@ -119,8 +126,10 @@ public class MyBackupAgent extends BackupAgent {
             } else if (myContextHolder.getNow().accounts().isEmpty()) {
                 throw new FileNotFoundException("Nothing to backup - No accounts yet");
             } else {
-                boolean isServiceAvailableStored = checkAndSetServiceUnavailable();
-                doBackup(data);
+                // The service is stopped only if we cannot make a snapshot of the database while it's in use
+                boolean useDatabaseSnapshot = DatabaseSnapshot.isSupported();
+                boolean isServiceAvailableStored = !useDatabaseSnapshot && checkAndSetServiceUnavailable();
+                doBackup(data, useDatabaseSnapshot);
                 backupDescriptor.save(getContext());
                 MyLog.v(this, () -> method + "; newState: " + backupDescriptor.toString());
                 if (isServiceAvailableStored) {
@@ -148,8 +157,10 @@ public class MyBackupAgent extends BackupAgent {
         return isServiceAvailableStored;
     }
 
-    private void doBackup(MyBackupDataOutput data) throws IOException {
-        myContextHolder.release(() -> "doBackup");
+    private void doBackup(MyBackupDataOutput data, boolean useDatabaseSnapshot) throws IOException {
+        if (!useDatabaseSnapshot) {
+            myContextHolder.release(() -> "doBackup");
+        }
         sharedPreferencesBackedUp = backupFile(data,
                 SHARED_PREFERENCES_KEY,
                 SharedPreferencesUtil.defaultSharedPreferencesPath(getContext()));
@@ -157,9 +168,11 @@ public class MyBackupAgent extends BackupAgent {
             foldersBackedUp += backupFolder(data, DOWNLOADS_KEY,
                     MyStorage.getDataFilesDir(MyStorage.DIRECTORY_DOWNLOADS));
         }
-        databasesBackedUp = backupFile(data,
-                DATABASE_KEY + "_" + DatabaseHolder.DATABASE_NAME,
-                MyStorage.getDatabasePath(DatabaseHolder.DATABASE_NAME));
+        databasesBackedUp = useDatabaseSnapshot
+                ? backupDatabaseSnapshot(data)
+                : backupFile(data,
+                    DATABASE_KEY + "_" + DatabaseHolder.DATABASE_NAME,
+                    MyStorage.getDatabasePath(DatabaseHolder.DATABASE_NAME));
         if (MyPreferences.isBackupLogFiles()) {
             foldersBackedUp += backupFolder(data, LOG_FILES_KEY,
                     MyStorage.getDataFilesDir(MyStorage.DIRECTORY_LOGS));
@@ -167,6 +180,22 @@ public class MyBackupAgent extends BackupAgent {
         accountsBackedUp = myContextHolder.getNow().accounts().onBackup(data, backupDescriptor);
     }
 
+    /** Backs up a compacted snapshot of the database, so sync may continue during the backup */
+    private long backupDatabaseSnapshot(MyBackupDataOutput data) throws IOException {
+        File databaseFile = MyStorage.getDatabasePath(DatabaseHolder.DATABASE_NAME);
+        File snapshotFile = MyStorage.newTempFile(DatabaseHolder.DATABASE_NAME);
+        try {
+            DatabaseSnapshot.create(databaseFile, snapshotFile).getOrElseThrow(IOException::new);
+            backupDescriptor.getLogger().logProgress("Created snapshot of the database, "
+                    + formatBytes(snapshotFile.length()) + " of " + formatBytes(databaseFile.length()));
+            return backupFile(data, DATABASE_KEY + "_" + DatabaseHolder.DATABASE_NAME, snapshotFile);
+        } finally {
+            if (snapshotFile.exists() && !snapshotFile.delete()) {
+                MyLog.w(this, "Couldn't delete " + snapshotFile.getAbsolutePath());
+            }
+        }
+    }
+
     private long backupFolder(MyBackupDataOutput data, String key, File sourceFolder) {
         return ZipUtils.zipFiles(sourceFolder, MyStorage.newTempFile(key + ".zip"))
             .map( zipFile -> {
@@ -181,21 +210,31 @@ public class MyBackupAgent extends BackupAgent {
     private long backupFile(MyBackupDataOutput data, String key, File dataFile) throws IOException {
         long backedUpFilesCount = 0;
         if (dataFile.exists()) {
-            long fileLength = dataFile.length();
-            if ( fileLength > Integer.MAX_VALUE) {
-                throw new FileNotFoundException("File '" 
-                        + dataFile.getName() + "' is too large for backup: " + formatBytes(fileLength));
-            } 
-            int bytesToWrite = (int) fileLength;
+            long bytesToWrite = dataFile.length();
             data.writeEntityHeader(key, bytesToWrite, MyBackupDataOutput.getDataFileExtension(dataFile));
-            int bytesWritten = 0;
-            while (bytesWritten < bytesToWrite) {
-                byte[] bytes = FileUtils.getBytes(dataFile, bytesWritten, MyStorage.FILE_CHUNK_SIZE);
-                if (bytes.length <= 0) {
-                    break;
+            long bytesWritten = 0;
+            StopWatch stopWatch = StopWatch.createStarted();
+            ByteBuffer buffer = getTransferBuffer();
+            try (Closeable output = data::closeDataFile;
+                 FileChannel input = new FileInputStream(dataFile).getChannel()) {
+                while (bytesWritten < bytesToWrite) {
+                    buffer.clear();
+                    if (bytesToWrite - bytesWritten < buffer.capacity()) {
+                        // The file may grow while we are reading it
+                        buffer.limit((int) (bytesToWrite - bytesWritten));
+                    }
+                    int bytesRead = input.read(buffer);
+                    if (bytesRead <= 0) {
+                        break;
+                    }
+                    buffer.flip();
+                    data.writeEntityData(buffer);
+                    bytesWritten += bytesRead;
+                    final long written = bytesWritten;
+                    backupDescriptor.getLogger().logProgressIfLongProcess(() -> "Backing up "
+                            + filePartiallyWritten(key, dataFile, bytesToWrite, written)
+                            + throughput(written, stopWatch));
                 }
-                bytesWritten += bytes.length;
-                data.writeEntityData(bytes, bytes.length);
             }
             if (bytesWritten != bytesToWrite) {
                 throw new FileNotFoundException("Couldn't backup "
@@ -203,22 +242,35 @@ public class MyBackupAgent extends BackupAgent {
             }
             backedUpFilesCount++;
             backupDescriptor.getLogger().logProgress(
-                    "Backed up " + fileWritten(key, dataFile, bytesWritten));
+                    "Backed up " + fileWritten(key, dataFile, bytesWritten) + throughput(bytesWritten, stopWatch));
         } else {
             MyLog.v(this, () -> "File doesn't exist key='" + key + "', path='" + dataFile.getAbsolutePath());
         }
         return backedUpFilesCount;
     }
 
+    /** Large direct buffer, reused for all files */
+    private ByteBuffer getTransferBuffer() {
+        if (transferBuffer == null) {
+            transferBuffer = ByteBuffer.allocateDirect(TRANSFER_BUFFER_SIZE);
+        }
+        return transferBuffer;
+    }
+
+    private String throughput(long bytes, StopWatch stopWatch) {
+        long millis = stopWatch.getTime();
+        return millis < 1000 ? "" : ", " + formatBytes(bytes * 1000 / millis) + "/s";
+    }
+
     private String formatBytes(long fileLength) {
         return Formatter.formatFileSize(getBaseContext(), fileLength);
     }
 
-    private String fileWritten(String key, File dataFile, int bytesWritten) {
+    private String fileWritten(String key, File dataFile, long bytesWritten) {
         return filePartiallyWritten(key, dataFile, bytesWritten, bytesWritten);
     }
     
-    private String filePartiallyWritten(String key, File dataFile, int bytesToWrite, int bytesWritten) {
+    private String filePartiallyWritten(String key, File dataFile, long bytesToWrite, long bytesWritten) {
         if ( bytesWritten == bytesToWrite) {
             return "file:'" + dataFile.getName()
                     + "', key:'" + key + "', size:" + formatBytes(bytesWritten);
@@ -384,17 +436,27 @@ public class MyBackupAgent extends BackupAgent {
         }
         final String method = "restoreFile";
         MyLog.i(this, method + " started, " + fileWritten(data.getKey(), dataFile, data.getDataSize()));
-        int bytesToWrite = data.getDataSize();
-        int bytesWritten = 0;
-        try (FileOutputStream output = newFileOutputStreamWithRetry(dataFile)) {
+        long bytesToWrite = data.getDataSize();
+        long bytesWritten = 0;
+        StopWatch stopWatch = StopWatch.createStarted();
+        ByteBuffer buffer = getTransferBuffer();
+        try (FileOutputStream output = newFileOutputStreamWithRetry(dataFile);
+             FileChannel channel = output.getChannel()) {
             while (bytesToWrite > bytesWritten) {
-                byte[] bytes = new byte[MyStorage.FILE_CHUNK_SIZE];
-                int bytesRead = data.readEntityData(bytes, 0, bytes.length);
+                buffer.clear();
+                int bytesRead = data.readEntityData(buffer);
                 if (bytesRead == 0) {
                     break;
                 }
-                output.write(bytes, 0, bytesRead);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
                 bytesWritten += bytesRead;
+                final long written = bytesWritten;
+                backupDescriptor.getLogger().logProgressIfLongProcess(() -> "Restoring "
+                        + filePartiallyWritten(data.getKey(), dataFile, bytesToWrite, written)
+                        + throughput(written, stopWatch));
             }
             if (bytesWritten != bytesToWrite) {
                 throw new FileNotFoundException("Couldn't restore " 
@@ -402,7 +464,8 @@ public class MyBackupAgent extends BackupAgent {
             }
         }
         backupDescriptor.getLogger().logProgress("Restored "
-                + filePartiallyWritten(data.getKey(), dataFile, bytesToWrite, bytesWritten));
+                + filePartiallyWritten(data.getKey(), dataFile, bytesToWrite, bytesWritten)
+                + throughput(bytesWritten, stopWatch));
         return 1;
     }
 
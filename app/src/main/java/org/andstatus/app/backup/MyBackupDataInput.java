@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2014-2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ * Copyright (C) 2014-2020 yvolk (Yuri Volkov), http://yurivolkov.com
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,19 +18,22 @@ package org.andstatus.app.backup;
 
 import android.app.backup.BackupDataInput;
 import android.content.Context;
+import android.os.ParcelFileDescriptor;
 
 import androidx.annotation.NonNull;
 import androidx.documentfile.provider.DocumentFile;
 
 import org.andstatus.app.context.MyContext;
-import org.andstatus.app.context.MyStorage;
 import org.andstatus.app.util.DocumentFileUtils;
 import org.andstatus.app.util.JsonUtils;
 import org.andstatus.app.util.MyLog;
 import org.json.JSONObject;
 
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.TreeSet;
@@ -45,16 +48,21 @@ public class MyBackupDataInput {
     private Set<BackupHeader> headers = new TreeSet<BackupHeader>();
     private Iterator<BackupHeader> keysIterator;
     private boolean mHeaderReady = false;
-    private int dataOffset = 0;
+    private long dataOffset = 0;
     private BackupHeader header = BackupHeader.getEmpty();
+    /** Opened once for the whole entity and closed, when all its data is read or skipped */
+    private ParcelFileDescriptor dataDescriptor = null;
+    private FileChannel dataChannel = null;
+    /** For copying data from {@link BackupDataInput} to direct buffers */
+    private byte[] transferBytes = new byte[0];
 
     static class BackupHeader implements Comparable<BackupHeader> {
         String key;
         long ordinalNumber;
-        int dataSize;
+        long dataSize;
         String fileExtension;
 
-        BackupHeader(String key, long ordinalNumber, int dataSize, String fileExtension) {
+        BackupHeader(String key, long ordinalNumber, long dataSize, String fileExtension) {
             this.key = key;
             this.ordinalNumber = ordinalNumber;
             this.dataSize = dataSize;
@@ -69,7 +77,7 @@ public class MyBackupDataInput {
             return new BackupHeader(
             JsonUtils.optString(jso, MyBackupDataOutput.KEY_KEYNAME),
             jso.optLong(MyBackupDataOutput.KEY_ORDINAL_NUMBER, 0),
-            jso.optInt(MyBackupDataOutput.KEY_DATA_SIZE, 0),
+            jso.optLong(MyBackupDataOutput.KEY_DATA_SIZE, 0),
             JsonUtils.optString(jso, MyBackupDataOutput.KEY_FILE_EXTENSION, MyBackupDataOutput.DATA_FILE_EXTENSION_DEFAULT));
         }
 
@@ -82,7 +90,7 @@ public class MyBackupDataInput {
         public int hashCode() {
             final int prime = 31;
             int result = 1;
-            result = prime * result + dataSize;
+            result = prime * result + (int) (dataSize ^ (dataSize >>> 32));
             result = prime * result + ((fileExtension == null) ? 0 : fileExtension.hashCode());
             result = prime * result + ((key == null) ? 0 : key.hashCode());
             result = prime * result + (int) (ordinalNumber ^ (ordinalNumber >>> 32));
@@ -159,6 +167,7 @@ public class MyBackupDataInput {
     }
 
     private boolean readNextHeader2() throws IOException {
+        closeDataFile();
         mHeaderReady = false;
         dataOffset = 0;
         if (keysIterator.hasNext()) {
@@ -190,7 +199,7 @@ public class MyBackupDataInput {
     }
 
     /** {@link BackupDataInput#getDataSize()}  */
-    public int getDataSize() {
+    public long getDataSize() {
         if (backupDataInput != null) {
             return backupDataInput.getDataSize();
         } else {
@@ -198,7 +207,7 @@ public class MyBackupDataInput {
         }
     }
 
-    private int getDataSize2() {
+    private long getDataSize2() {
         if (mHeaderReady) {
             return header.dataSize;
         } else {
@@ -215,31 +224,92 @@ public class MyBackupDataInput {
         }
     }
 
+    /** Reads until the requested size is read or until the end of the entity data */
     private int readEntityData2(byte[] data, int offset, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data, offset, size);
         int bytesRead = 0;
-        if (size > MyStorage.FILE_CHUNK_SIZE) {
-            throw new FileNotFoundException("Size to read is too large: " + size);
-        } else if (size < 1 || dataOffset >= header.dataSize) {
-            // skip
-        } else if (mHeaderReady) {
-            byte[] readData = getBytes(size);
-            bytesRead = readData.length;
-            System.arraycopy(readData, 0, data, offset, bytesRead);
+        int read;
+        do {
+            read = readEntityData2(buffer);
+            bytesRead += read;
+        } while (read > 0 && buffer.hasRemaining());
+        return bytesRead;
+    }
+
+    /** Reads the next portion of the entity data into the buffer, a direct buffer is filled without copying
+     * @return number of bytes read, 0 at the end of the entity data */
+    public int readEntityData(ByteBuffer buffer) throws IOException {
+        if (backupDataInput != null) {
+            int size = buffer.remaining();
+            if (transferBytes.length < size) {
+                transferBytes = new byte[size];
+            }
+            int bytesRead = backupDataInput.readEntityData(transferBytes, 0, size);
+            if (bytesRead > 0) {
+                buffer.put(transferBytes, 0, bytesRead);
+            }
+            return Math.max(bytesRead, 0);
         } else {
-            throw new IllegalStateException("Entity header not read");
+            return readEntityData2(buffer);
+        }
+    }
+
+    private int readEntityData2(ByteBuffer buffer) throws IOException {
+        if (!mHeaderReady) {
+            throw new IllegalStateException(ENTITY_HEADER_NOT_READ);
+        }
+        int bytesRead = 0;
+        if (buffer.hasRemaining() && dataOffset < header.dataSize) {
+            int limit = buffer.limit();
+            if (header.dataSize - dataOffset < buffer.remaining()) {
+                buffer.limit(buffer.position() + (int) (header.dataSize - dataOffset));
+            }
+            try {
+                bytesRead = Math.max(getDataChannel().read(buffer), 0);
+            } finally {
+                buffer.limit(limit);
+            }
         }
-        MyLog.v(this, "key=" + header.key + ", offset=" + dataOffset + ", bytes read=" + bytesRead);
         dataOffset += bytesRead;
+        if (bytesRead == 0 || dataOffset >= header.dataSize) {
+            MyLog.v(this, "key=" + header.key + ", bytes read=" + dataOffset + " of " + header.dataSize);
+            closeDataFile();
+        }
         return bytesRead;
     }
 
-    private byte[] getBytes(int size) throws IOException {
-        String childName = header.key + MyBackupDataOutput.DATA_FILE_SUFFIX + header.fileExtension;
-        DocumentFile childDocFile = docFolder.findFile(childName);
-        if (childDocFile == null) {
-            throw new IOException("File '" + childName + "' not found in folder '" + docFolder.getName() + "'");
+    private FileChannel getDataChannel() throws IOException {
+        if (dataChannel == null) {
+            String childName = header.key + MyBackupDataOutput.DATA_FILE_SUFFIX + header.fileExtension;
+            DocumentFile childDocFile = docFolder.findFile(childName);
+            if (childDocFile == null) {
+                throw new IOException("File '" + childName + "' not found in folder '" + docFolder.getName() + "'");
+            }
+            dataDescriptor = context.getContentResolver().openFileDescriptor(childDocFile.getUri(), "r");
+            if (dataDescriptor == null) {
+                throw new FileNotFoundException("Couldn't open document " + childDocFile.getUri());
+            }
+            dataChannel = new FileInputStream(dataDescriptor.getFileDescriptor()).getChannel();
+            dataChannel.position(dataOffset);
+        }
+        return dataChannel;
+    }
+
+    private void closeDataFile() throws IOException {
+        try {
+            if (dataChannel != null) {
+                dataChannel.close();
+            }
+        } finally {
+            dataChannel = null;
+            try {
+                if (dataDescriptor != null) {
+                    dataDescriptor.close();
+                }
+            } finally {
+                dataDescriptor = null;
+            }
         }
-        return DocumentFileUtils.getBytes(context, childDocFile, dataOffset, size);
     }
 
     /** {@link BackupDataInput#skipEntityData()}  */
@@ -251,9 +321,10 @@ public class MyBackupDataInput {
         }
     }
 
-    private void skipEntityData2() {
+    private void skipEntityData2() throws IOException {
         if (mHeaderReady) {
             mHeaderReady = false;
+            closeDataFile();
         } else {
             throw new IllegalStateException("Entity header not read");
         }
@@ -1,5 +1,5 @@
 /*
- * Copyright (C) 2014-2019 yvolk (Yuri Volkov), http://yurivolkov.com
+ * Copyright (C) 2014-2020 yvolk (Yuri Volkov), http://yurivolkov.com
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.andstatus.app.backup;
 
 import android.app.backup.BackupDataOutput;
 import android.content.Context;
+import android.os.ParcelFileDescriptor;
 
 import androidx.annotation.NonNull;
 import androidx.documentfile.provider.DocumentFile;
@@ -31,6 +32,8 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 
 /** Allowing to instantiate and to mock BackupDataOutput class */
@@ -45,9 +48,13 @@ public class MyBackupDataOutput {
     private final Context context;
     private DocumentFile docFolder = null;
     private BackupDataOutput backupDataOutput;
-    private int sizeToWrite = 0;
-    private int sizeWritten = 0;
+    private long sizeToWrite = 0;
+    private long sizeWritten = 0;
     private DocumentFile docFile = null;
+    /** Opened once for the whole entity and closed, when all its data is written */
+    private FileChannel dataChannel = null;
+    /** For copying data from direct buffers to {@link BackupDataOutput} */
+    private byte[] transferBytes = new byte[0];
     private int headerOrdinalNumber = 0;
 
     public MyBackupDataOutput(Context context, BackupDataOutput backupDataOutput) {
@@ -60,18 +67,24 @@ public class MyBackupDataOutput {
         this.docFolder = docFolder;
     }
 
-    /** {@link BackupDataOutput#writeEntityHeader(String, int)} */
-    public int writeEntityHeader(String key, int dataSize, String fileExtension) throws IOException {
+    /** {@link BackupDataOutput#writeEntityHeader(String, int)}
+     * Data size may exceed 2 GB only for backup to a folder */
+    public int writeEntityHeader(String key, long dataSize, String fileExtension) throws IOException {
         headerOrdinalNumber++;
         if (backupDataOutput != null) {
-            return backupDataOutput.writeEntityHeader(key, dataSize);
+            if (dataSize > Integer.MAX_VALUE) {
+                throw new FileNotFoundException("Data is too large for Android backup: key='" + key
+                        + "', size=" + dataSize);
+            }
+            return backupDataOutput.writeEntityHeader(key, (int) dataSize);
         } else {
             return writeEntityHeader2(key, dataSize, fileExtension);
         }
     }
 
-    private int writeEntityHeader2(String key, int dataSize, String fileExtension) throws IOException {
+    private int writeEntityHeader2(String key, long dataSize, String fileExtension) throws IOException {
         MyLog.v(this, "Writing header for '" + key + "', size=" + dataSize);
+        closeDataFile();
         sizeToWrite = dataSize;
         sizeWritten = 0;
         writeHeaderFile(key, dataSize, fileExtension);
@@ -79,7 +92,7 @@ public class MyBackupDataOutput {
         return key.length();
     }
 
-    private void writeHeaderFile(String key, int dataSize, String fileExtension) throws IOException {
+    private void writeHeaderFile(String key, long dataSize, String fileExtension) throws IOException {
         JSONObject jso = new JSONObject();
         try {
             jso.put(KEY_KEYNAME, key);
@@ -93,9 +106,9 @@ public class MyBackupDataOutput {
         }
     }
 
-    private void createDataFile(String key, int dataSize, String fileExtension) throws IOException {
+    private void createDataFile(String key, long dataSize, String fileExtension) throws IOException {
         String childName = key + DATA_FILE_SUFFIX + fileExtension;
-        docFile = createDocumentIfNeeded(dataSize, childName);
+        docFile = createDocumentIfNeeded(childName);
     }
 
     /** {@link BackupDataOutput#writeEntityData(byte[], int)} */
@@ -103,58 +116,95 @@ public class MyBackupDataOutput {
         if (backupDataOutput != null) {
             return backupDataOutput.writeEntityData(data, size);
         } else {
-            return writeEntityData2(data, size);
+            return writeEntityData2(ByteBuffer.wrap(data, 0, size));
         }
     }
 
-    private int writeEntityData2(byte[] data, int size) throws IOException {
-        if (!docFile.exists()) {
-            throw new FileNotFoundException("Output document doesn't exist " + docFile.getUri());
+    /** Writes all remaining bytes of the buffer. A direct buffer is written to a folder without copying
+     * @return number of bytes written */
+    public int writeEntityData(ByteBuffer buffer) throws IOException {
+        if (backupDataOutput != null) {
+            int size = buffer.remaining();
+            if (transferBytes.length < size) {
+                transferBytes = new byte[size];
+            }
+            buffer.get(transferBytes, 0, size);
+            return backupDataOutput.writeEntityData(transferBytes, size);
+        } else {
+            return writeEntityData2(buffer);
         }
-        if (size < 0) {
-            throw new FileNotFoundException("Wrong number of bytes to write: " + size);
+    }
+
+    private int writeEntityData2(ByteBuffer buffer) throws IOException {
+        if (docFile == null || !docFile.exists()) {
+            throw new FileNotFoundException("Output document doesn't exist "
+                    + (docFile == null ? "" : docFile.getUri()));
+        }
+        int size = buffer.remaining();
+        if (sizeWritten + size > sizeToWrite) {
+            closeDataFile();
+            throw new FileNotFoundException("Data is longer than expected: written=" + (sizeWritten + size)
+                    + ", expected=" + sizeToWrite );
+        }
+        try {
+            FileChannel channel = getDataChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException | RuntimeException e) {
+            closeDataFileOnError(e);
+            throw e;
         }
-        appendBytesToFile(data, size);
         sizeWritten += size;
         if (sizeWritten >= sizeToWrite) {
-            try {
-                if (sizeWritten > sizeToWrite) {
-                    throw new FileNotFoundException("Data is longer than expected: written=" + sizeWritten 
-                            + ", expected=" + sizeToWrite );
-                }
-            } finally {
-                docFile = null;
-                sizeWritten = 0;
-            }
+            closeDataFile();
         }
         return size;
     }
 
-    private void appendBytesToFile(byte[] data, int size) throws IOException {
-        try (OutputStream fileOutputStream = getOutputStreamAppend(size);
-             OutputStream out = new BufferedOutputStream(fileOutputStream)) {
-            out.write(data, 0, size);
+    private FileChannel getDataChannel() throws IOException {
+        if (dataChannel == null) {
+            MyLog.v(this, "Opening document='" + docFile.getName() + "' to write " + sizeToWrite + " bytes");
+            // "wt" truncates the document, which may be left longer by a previous backup
+            ParcelFileDescriptor descriptor = context.getContentResolver().openFileDescriptor(docFile.getUri(), "wt");
+            if (descriptor == null) {
+                throw new FileNotFoundException("Couldn't open document " + docFile.getUri());
+            }
+            // Closing the channel closes the descriptor also
+            dataChannel = new ParcelFileDescriptor.AutoCloseOutputStream(descriptor).getChannel();
         }
+        return dataChannel;
     }
 
-    private OutputStream getOutputStreamAppend(int size) throws IOException {
-        MyLog.v(this, "Appending data to document='" + docFile.getName() + "', size=" + size);
-        return context.getContentResolver().openOutputStream(docFile.getUri(), "wa");
+    /** Closes the data file of the current entity, if it's open */
+    void closeDataFile() throws IOException {
+        try (FileChannel channel = dataChannel) {
+            dataChannel = null;
+            docFile = null;
+        }
+    }
+
+    private void closeDataFileOnError(Exception e) {
+        try {
+            closeDataFile();
+        } catch (IOException closeException) {
+            e.addSuppressed(closeException);
+        }
     }
 
     private void appendBytesToChild(String childName, byte[] data, int size) throws IOException {
         MyLog.v(this, "Appending data to file='" + childName + "', size=" + size);
-        try (OutputStream outputStream = getOutputStreamAppend(childName, size);
+        try (OutputStream outputStream = getOutputStreamAppend(childName);
              OutputStream out = new BufferedOutputStream(outputStream)) {
             out.write(data, 0, size);
         }
     }
 
-    private OutputStream getOutputStreamAppend(String childName, int size) throws IOException {
-        return context.getContentResolver().openOutputStream(createDocumentIfNeeded(size, childName).getUri(), "wa");
+    private OutputStream getOutputStreamAppend(String childName) throws IOException {
+        return context.getContentResolver().openOutputStream(createDocumentIfNeeded(childName).getUri(), "wa");
     }
 
-    private DocumentFile createDocumentIfNeeded(int dataSize, String childName) throws IOException {
+    private DocumentFile createDocumentIfNeeded(String childName) throws IOException {
         DocumentFile documentFile = docFolder.findFile(childName);
         if (documentFile == null) {
             documentFile = docFolder.createFile("", childName);
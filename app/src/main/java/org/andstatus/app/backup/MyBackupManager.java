@@ -25,6 +25,7 @@ import androidx.annotation.NonNull;
 import androidx.documentfile.provider.DocumentFile;
 
 import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.database.DatabaseSnapshot;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StringUtil;
 import org.andstatus.app.util.TryUtils;
@@ -120,7 +121,10 @@ class MyBackupManager {
     }
 
     void backup() {
-        progressLogger.logProgress("Starting backup to data folder:'" + dataFolder.getUri() + "'");
+        progressLogger.logProgress("Starting backup to data folder:'" + dataFolder.getUri() + "'"
+                + (DatabaseSnapshot.isSupported()
+                    ? ", using snapshot of the database"
+                    : ", synchronization is paused"));
         backupAgent = new MyBackupAgent();
         backupAgent.setActivity(activity);
 
@@ -22,6 +22,7 @@ import android.database.sqlite.SQLiteDatabase;
 import androidx.annotation.NonNull;
 
 import org.andstatus.app.account.MyAccounts;
+import org.andstatus.app.data.OidResolver;
 import org.andstatus.app.database.DatabaseHolder;
 import org.andstatus.app.net.http.HttpConnection;
 import org.andstatus.app.notification.NotificationData;
@@ -60,6 +61,8 @@ public interface MyContext extends IdentifiableInstance {
     PersistentTimelines timelines();
     @NonNull
     CommandQueue queues();
+    @NonNull
+    OidResolver oids();
     default void putAssertionData(@NonNull String key, @NonNull ContentValues contentValues) {}
     void save(Supplier<String> reason);
     void release(Supplier<String> reason);
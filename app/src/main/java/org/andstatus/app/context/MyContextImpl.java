@@ -29,6 +29,7 @@ import net.jcip.annotations.ThreadSafe;
 import org.andstatus.app.ClassInApplicationPackage;
 import org.andstatus.app.FirstActivity;
 import org.andstatus.app.account.MyAccounts;
+import org.andstatus.app.data.OidResolver;
 import org.andstatus.app.data.converter.DatabaseConverterController;
 import org.andstatus.app.database.DatabaseHolder;
 import org.andstatus.app.graphics.ImageCaches;
@@ -84,6 +85,7 @@ public class MyContextImpl implements MyContext {
     private final PersistentOrigins origins = PersistentOrigins.newEmpty(this);
     private final PersistentTimelines timelines = PersistentTimelines.newEmpty(this);
     private final CommandQueue commandQueue = new CommandQueue(this);
+    private final OidResolver oids = new OidResolver(this);
 
     private volatile boolean expired = false;
     private final Notifier notifier = new Notifier(this);
@@ -292,6 +294,7 @@ public class MyContextImpl implements MyContext {
     public void release(Supplier<String> reason) {
         setExpired(() -> "Release " + reason.get());
         try {
+            oids.release();
             if (db != null) db.close();
         } catch (Exception e) {
             MyLog.d(this, "db.close()", e);
@@ -340,6 +343,12 @@ public class MyContextImpl implements MyContext {
         return commandQueue;
     }
 
+    @NonNull
+    @Override
+    public OidResolver oids() {
+        return oids;
+    }
+
     @Override
     public ConnectionState getConnectionState() {
         return UriUtils.getConnectionState(context);
@@ -91,6 +91,14 @@ public class MyPreferences {
     public static final String KEY_DONT_SYNCHRONIZE_OLD_NOTES = "dont_synchronize_old_messages";
     public static final String KEY_CONNECTION_TIMEOUT_SECONDS = "connection_timeout";
     private static final long CONNECTION_TIMEOUT_DEFAULT_SECONDS = 30;
+    public static final String KEY_MAX_CONNECTIONS_PER_HOST = "max_connections_per_host";
+    private static final long MAX_CONNECTIONS_PER_HOST_DEFAULT = 4;
+    public static final String KEY_COMMAND_EXECUTOR_LANES = "command_executor_lanes";
+    private static final long COMMAND_EXECUTOR_LANES_DEFAULT = 2;
+    public static final int MAX_COMMAND_EXECUTOR_LANES = 4;
+    public static final String KEY_DOWNLOAD_EXECUTOR_LANES = "download_executor_lanes";
+    private static final long DOWNLOAD_EXECUTOR_LANES_DEFAULT = 4;
+    public static final int MAX_DOWNLOAD_EXECUTOR_LANES = 8;
 
     // ----------------------------------------------------------
     // Filters
@@ -110,6 +118,8 @@ public class MyPreferences {
     public static final String KEY_HISTORY_SIZE = "history_size";
     public static final String KEY_HISTORY_TIME = "history_time";
     public static final String KEY_MAXIMUM_SIZE_OF_CACHED_MEDIA_MB = "maximum_size_of_cached_media_mb";
+    public static final String KEY_ACTORS_CACHE_SIZE = "actors_cache_size";
+    private static final long ACTORS_CACHE_SIZE_DEFAULT = 5000;
     public static final String KEY_ENABLE_ANDROID_BACKUP = "enable_android_backup";
     public static final String KEY_BACKUP_DOWNLOADS = "backup_downloads";
     public static final String KEY_LAST_BACKUP_URI = "last_backup_uri";
@@ -134,6 +144,8 @@ public class MyPreferences {
     /** System time when shared preferences were changed */
     public static final String KEY_PREFERENCES_CHANGE_TIME = "preferences_change_time";
     public static final String KEY_DATA_PRUNED_DATE = "data_pruned_date";
+    /** Id of the last activity, checked by interrupted pruning, so the pruning is resumed from the next one */
+    public static final String KEY_DATA_PRUNED_ACTIVITY_ID = "data_pruned_activity_id";
     /** Version code of last opened application (int) */
     public static final String KEY_VERSION_CODE_LAST = "version_code_last";
     public static final String KEY_BEING_EDITED_NOTE_ID = "draft_message_id";
@@ -156,6 +168,33 @@ public class MyPreferences {
                 KEY_CONNECTION_TIMEOUT_SECONDS, CONNECTION_TIMEOUT_DEFAULT_SECONDS));
     }
 
+    /** Maximum number of simultaneous (and kept alive) HTTP connections to one server */
+    public static int getMaxConnectionsPerHost() {
+        long value = SharedPreferencesUtil.getLongStoredAsString(KEY_MAX_CONNECTIONS_PER_HOST,
+                MAX_CONNECTIONS_PER_HOST_DEFAULT);
+        return (int) (value < 1 || value > 20 ? MAX_CONNECTIONS_PER_HOST_DEFAULT : value);
+    }
+
+    /** Number of commands of the same kind (e.g. downloads), which may be executed in parallel */
+    public static int getCommandExecutorLanes() {
+        long value = SharedPreferencesUtil.getLongStoredAsString(KEY_COMMAND_EXECUTOR_LANES,
+                COMMAND_EXECUTOR_LANES_DEFAULT);
+        return (int) (value < 1 || value > MAX_COMMAND_EXECUTOR_LANES ? COMMAND_EXECUTOR_LANES_DEFAULT : value);
+    }
+
+    /** Commands for one origin may occupy all lanes except one, so other origins are not starved.
+     * With the default two lanes this is one command per origin */
+    public static int getMaxCommandsPerOrigin() {
+        return Math.max(1, Math.min(getMaxConnectionsPerHost(), getCommandExecutorLanes() - 1));
+    }
+
+    /** Number of avatars and attachments, which may be downloaded in parallel */
+    public static int getDownloadExecutorLanes() {
+        long value = SharedPreferencesUtil.getLongStoredAsString(KEY_DOWNLOAD_EXECUTOR_LANES,
+                DOWNLOAD_EXECUTOR_LANES_DEFAULT);
+        return (int) (value < 1 || value > MAX_DOWNLOAD_EXECUTOR_LANES ? DOWNLOAD_EXECUTOR_LANES_DEFAULT : value);
+    }
+
     /**
      * @return the number of seconds between two sync ("fetch"...) actions.
      */
@@ -299,6 +338,12 @@ public class MyPreferences {
                 * BYTES_IN_MB;
     }
 
+    /** Maximum number of actors, cached in memory, except my actors and my friends */
+    public static int getActorsCacheSize() {
+        long value = SharedPreferencesUtil.getLongStoredAsString(KEY_ACTORS_CACHE_SIZE, ACTORS_CACHE_SIZE_DEFAULT);
+        return (int) (value < 100 || value > 100000 ? ACTORS_CACHE_SIZE_DEFAULT : value);
+    }
+
     public static boolean isBackupDownloads() {
         return SharedPreferencesUtil.getBoolean(KEY_BACKUP_DOWNLOADS, false);
     }
@@ -51,6 +51,7 @@ import org.andstatus.app.data.DataPruner;
 import org.andstatus.app.data.MatchedUri;
 import org.andstatus.app.data.checker.DataChecker;
 import org.andstatus.app.graphics.ImageCaches;
+import org.andstatus.app.net.http.PooledHttpClients;
 import org.andstatus.app.note.KeywordsFilter;
 import org.andstatus.app.notification.NotificationMethodType;
 import org.andstatus.app.origin.PersistentOriginList;
@@ -140,6 +141,9 @@ public class MySettingsFragment extends PreferenceFragmentCompat implements
         showFrequency();
         showDontSynchronizeOldNotes();
         showConnectionTimeout();
+        showMaxConnectionsPerHost();
+        showCommandExecutorLanes();
+        showDownloadExecutorLanes();
         showHistorySize();
         showHistoryTime();
         showRingtone();
@@ -160,6 +164,7 @@ public class MySettingsFragment extends PreferenceFragmentCompat implements
         showMaxDistanceBetweenDuplicates();
         showMaximumSizeOfAttachment();
         showMaximumSizeOfCachedMedia();
+        showActorsCacheSize();
     }
 
     private void showManageAccounts() {
@@ -191,6 +196,36 @@ public class MySettingsFragment extends PreferenceFragmentCompat implements
         }
     }
 
+    private void showMaxConnectionsPerHost() {
+        Preference preference = findPreference(MyPreferences.KEY_MAX_CONNECTIONS_PER_HOST);
+        if (preference != null) {
+            preference.setSummary(Integer.toString(MyPreferences.getMaxConnectionsPerHost()));
+        }
+        showCommandExecutorLanes();
+    }
+
+    private void showCommandExecutorLanes() {
+        Preference preference = findPreference(MyPreferences.KEY_COMMAND_EXECUTOR_LANES);
+        if (preference != null) {
+            preference.setSummary(getString(R.string.summary_preference_command_executor_lanes,
+                    MyPreferences.getCommandExecutorLanes(), MyPreferences.getMaxCommandsPerOrigin()));
+        }
+    }
+
+    private void showDownloadExecutorLanes() {
+        Preference preference = findPreference(MyPreferences.KEY_DOWNLOAD_EXECUTOR_LANES);
+        if (preference != null) {
+            preference.setSummary(Integer.toString(MyPreferences.getDownloadExecutorLanes()));
+        }
+    }
+
+    private void showActorsCacheSize() {
+        Preference preference = findPreference(MyPreferences.KEY_ACTORS_CACHE_SIZE);
+        if (preference != null) {
+            preference.setSummary(Integer.toString(MyPreferences.getActorsCacheSize()));
+        }
+    }
+
     private void showDontSynchronizeOldNotes() {
         long hours = MyPreferences.getDontSynchronizeOldNotes();
         Preference preference = findPreference(MyPreferences.KEY_DONT_SYNCHRONIZE_OLD_NOTES);
@@ -534,6 +569,16 @@ public class MySettingsFragment extends PreferenceFragmentCompat implements
                 case MyPreferences.KEY_CONNECTION_TIMEOUT_SECONDS:
                     showConnectionTimeout();
                     break;
+                case MyPreferences.KEY_MAX_CONNECTIONS_PER_HOST:
+                    PooledHttpClients.onPreferencesChanged();
+                    showMaxConnectionsPerHost();
+                    break;
+                case MyPreferences.KEY_COMMAND_EXECUTOR_LANES:
+                    showCommandExecutorLanes();
+                    break;
+                case MyPreferences.KEY_DOWNLOAD_EXECUTOR_LANES:
+                    showDownloadExecutorLanes();
+                    break;
                 case MyPreferences.KEY_NOTIFICATION_METHOD_SOUND:
                     showRingtone();
                     break;
@@ -570,6 +615,10 @@ public class MySettingsFragment extends PreferenceFragmentCompat implements
                 case MyPreferences.KEY_MAXIMUM_SIZE_OF_CACHED_MEDIA_MB:
                     showMaximumSizeOfCachedMedia();
                     break;
+                case MyPreferences.KEY_ACTORS_CACHE_SIZE:
+                    myContextHolder.getNow().users().resizeActorsCaches(MyPreferences.getActorsCacheSize());
+                    showActorsCacheSize();
+                    break;
                 case MyPreferences.KEY_APP_INSTANCE_NAME:
                     showAppInstanceName();
                     break;
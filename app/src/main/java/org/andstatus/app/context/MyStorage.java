@@ -44,6 +44,8 @@ public class MyStorage {
     public static final String DIRECTORY_DATABASES = "databases";
     public static final String DIRECTORY_DOWNLOADS = "downloads";
     public static final String DIRECTORY_LOGS = "logs";
+    /** Scaled down images, see {@link org.andstatus.app.graphics.Thumbnails} */
+    public static final String DIRECTORY_THUMBNAILS = "thumbnails";
 
     private MyStorage() {
         // Non instantiable
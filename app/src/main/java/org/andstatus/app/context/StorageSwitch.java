@@ -28,6 +28,7 @@ import org.andstatus.app.ActivityRequestCode;
 import org.andstatus.app.R;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.database.DatabaseHolder;
+import org.andstatus.app.database.DatabaseSnapshot;
 import org.andstatus.app.os.AsyncTaskLauncher;
 import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.service.MyServiceManager;
@@ -173,6 +174,7 @@ public class StorageSwitch {
                     result.moved = true;
                     moveFolder(mUseExternalStorageNew, result.messageBuilder, MyStorage.DIRECTORY_DOWNLOADS);
                     moveFolder(mUseExternalStorageNew, result.messageBuilder, MyStorage.DIRECTORY_LOGS);
+                    moveFolder(mUseExternalStorageNew, result.messageBuilder, MyStorage.DIRECTORY_THUMBNAILS);
                 }
             } finally {
                 if (result.success) {
@@ -226,7 +228,8 @@ public class StorageSwitch {
                     }
                     try {
                         myContextHolder.release(() -> "moveDatabase");
-                        if (FileUtils.copyFile(this, dbFileOld, dbFileNew)) {
+                        // A compacted copy is made, if possible
+                        if (DatabaseSnapshot.create(dbFileOld, dbFileNew).isSuccess()) {
                             copied = true;
                             succeeded = true;
                         }
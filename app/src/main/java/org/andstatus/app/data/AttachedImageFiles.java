@@ -27,9 +27,13 @@ import org.andstatus.app.util.IsEmpty;
 import org.andstatus.app.util.MyStringBuilder;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
 public class AttachedImageFiles implements IsEmpty {
@@ -50,17 +54,40 @@ public class AttachedImageFiles implements IsEmpty {
     }
 
     public static AttachedImageFiles load(MyContext myContext, long noteId) {
-        final String sql = "SELECT *" +
-                " FROM " + DownloadTable.TABLE_NAME + 
-                " WHERE " + DownloadTable.NOTE_ID + "=" + noteId +
-                " AND " + DownloadTable.DOWNLOAD_TYPE + "=" + DownloadType.ATTACHMENT.save() + 
+        List<AttachedMediaFile> mediaFiles1 = MyQuery.getList(myContext, sqlToLoad(SqlIds.fromId(noteId)),
+                AttachedMediaFile::fromCursor);
+        List<AttachedMediaFile> mediaFiles2 = foldPreviews(mediaFiles1);
+        return new AttachedImageFiles(mediaFiles2);
+    }
+
+    /** Loads attached images of several notes with one query
+     * @return Attached images by note ids. Notes without attached images are absent */
+    public static Map<Long, AttachedImageFiles> loadForNotes(MyContext myContext, Collection<Long> noteIds) {
+        if (noteIds.isEmpty()) return Collections.emptyMap();
+
+        Map<Long, List<AttachedMediaFile>> mediaFilesByNoteId = MyQuery.foldLeft(myContext,
+                sqlToLoad(SqlIds.fromIds(noteIds)),
+                new HashMap<>(),
+                map -> cursor -> {
+                    map.computeIfAbsent(DbUtils.getLong(cursor, DownloadTable.NOTE_ID), id -> new ArrayList<>())
+                            .add(AttachedMediaFile.fromCursor(cursor));
+                    return map;
+                });
+        Map<Long, AttachedImageFiles> loaded = new HashMap<>();
+        mediaFilesByNoteId.forEach((noteId, mediaFiles) ->
+                loaded.put(noteId, new AttachedImageFiles(foldPreviews(mediaFiles))));
+        return loaded;
+    }
+
+    private static String sqlToLoad(SqlIds noteIds) {
+        return "SELECT *" +
+                " FROM " + DownloadTable.TABLE_NAME +
+                " WHERE " + DownloadTable.NOTE_ID + noteIds.getSql() +
+                " AND " + DownloadTable.DOWNLOAD_TYPE + "=" + DownloadType.ATTACHMENT.save() +
                 " AND " + DownloadTable.CONTENT_TYPE +
                 " IN(" + MyContentType.IMAGE.save() + ", " + MyContentType.ANIMATED_IMAGE.save() + ", " +
                         MyContentType.VIDEO.save() + ")" +
                 " ORDER BY " + DownloadTable.DOWNLOAD_NUMBER;
-        List<AttachedMediaFile> mediaFiles1 = MyQuery.getList(myContext, sql, AttachedMediaFile::fromCursor);
-        List<AttachedMediaFile> mediaFiles2 = foldPreviews(mediaFiles1);
-        return new AttachedImageFiles(mediaFiles2);
     }
 
     private static List<AttachedMediaFile> foldPreviews(List<AttachedMediaFile> mediaFiles) {
@@ -100,10 +127,10 @@ public class AttachedImageFiles implements IsEmpty {
         return MyStringBuilder.formatKeyValue(this, list);
     }
 
-    public void preloadImagesAsync() {
+    public void prefetchImages(BooleanSupplier isCancelled) {
         for (AttachedMediaFile mediaFile: list) {
             if (mediaFile.contentType.isImage()) {
-                mediaFile.preloadImageAsync(CacheName.ATTACHED_IMAGE);
+                mediaFile.prefetchImage(CacheName.ATTACHED_IMAGE, isCancelled);
             }
         }
     }
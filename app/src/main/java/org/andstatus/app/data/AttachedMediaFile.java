@@ -82,10 +82,10 @@ public class AttachedMediaFile extends MediaFile {
     }
 
     @Override
-    protected void requestDownload() {
+    protected void requestDownload(boolean isShown) {
         if (downloadId == 0 || uri == Uri.EMPTY || !contentType.getDownloadMediaOfThisType()) return;
 
-        MyServiceManager.sendCommand(CommandData.newFetchAttachment(0, downloadId));
+        MyServiceManager.sendCommand(CommandData.newFetchAttachment(0, downloadId).setInForeground(isShown));
     }
 
     AttachedMediaFile(AttachedMediaFile previewFile, AttachedMediaFile previewOf) {
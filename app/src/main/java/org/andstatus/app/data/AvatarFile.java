@@ -82,14 +82,19 @@ public class AvatarFile extends MediaFile {
         }
     }
 
-    @Override
     public void requestDownload() {
+        requestDownload(false);
+    }
+
+    @Override
+    protected void requestDownload(boolean isShown) {
         if (getActor().actorId == 0 || !getActor().hasAvatar() || !contentType.getDownloadMediaOfThisType()) return;
 
         MyLog.v(this, () -> "Requesting download " + getActor() + "\n" + this);
         MyServiceManager.sendCommand(
                 CommandData.newActorCommandAtOrigin(CommandEnum.GET_AVATAR, getActor(),
-                        getActor().getUsername(), getActor().origin));
+                        getActor().getUsername(), getActor().origin)
+                .setInForeground(isShown));
     }
 
     @Override
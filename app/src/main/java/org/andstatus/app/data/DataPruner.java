@@ -32,6 +32,7 @@ import org.andstatus.app.database.table.ActorTable;
 import org.andstatus.app.database.table.AudienceTable;
 import org.andstatus.app.database.table.DownloadTable;
 import org.andstatus.app.database.table.NoteTable;
+import org.andstatus.app.graphics.Thumbnails;
 import org.andstatus.app.net.social.Actor;
 import org.andstatus.app.timeline.meta.DisplayedInSelector;
 import org.andstatus.app.util.I18n;
@@ -39,6 +40,7 @@ import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
 import org.andstatus.app.util.SelectionAndArgs;
 import org.andstatus.app.util.SharedPreferencesUtil;
+import org.andstatus.app.util.StopWatch;
 
 import java.io.File;
 import java.util.Date;
@@ -65,8 +67,14 @@ public class DataPruner {
     static final long MAX_DAYS_UNUSED_TIMELINES_TO_KEEP = 31;
     private static final long PRUNE_MIN_PERIOD_DAYS = 1;
     private static final double ATTACHMENTS_SIZE_PART = 0.90;
+    /** Thumbnails are stored in addition to media files */
+    private static final double THUMBNAILS_SIZE_PART = 0.10;
+    static final int ACTIVITIES_CHUNK_SIZE = 500;
+    private static final int PAUSE_BETWEEN_CHUNKS_MILLIS = 50;
 
     private long latestTimestamp;
+    /** Pruning was stopped before completion, so it will be resumed later */
+    private boolean interrupted = false;
 
     public DataPruner(@NonNull MyContext myContext) {
         this.myContext = myContext;
@@ -85,7 +93,7 @@ public class DataPruner {
     }
 
     /**
-     * @return true if done successfully, false if skipped or an error
+     * @return true if done successfully, false if skipped, interrupted or an error
      */
     public boolean prune() {
         final String method = "prune";
@@ -97,7 +105,12 @@ public class DataPruner {
             return false;
         }
         logger.logProgress(method + " started");
+        interrupted = false;
         boolean pruned = pruneActivities();
+        if (interrupted) {
+            logger.onComplete(false);
+            return false;
+        }
 
         if (mDeleted > 0) {
             pruneParentlessAttachments();
@@ -113,13 +126,17 @@ public class DataPruner {
         return pruned;
     }
 
+    /**
+     * Activities are deleted in chunks of {@link #ACTIVITIES_CHUNK_SIZE} ids, each chunk in a short transaction,
+     * so the database is not locked for long. Pruning in background gives way to the User,
+     * and it is resumed from the last checked activity next time
+     */
     private boolean pruneActivities() {
         final String method = "pruneActivities";
         logger.logProgress(method + " started");
 
         boolean pruned = false;
         mDeleted = 0;
-        int nDeletedTime = 0;
         // We're using global preferences here
         SharedPreferences sp = SharedPreferencesUtil.getDefaultSharedPreferences();
 
@@ -133,26 +150,18 @@ public class DataPruner {
         latestTimestamp = getLatestTimestamp(maxDays);
 
         long nActivities = 0;
-        long nToDeleteSize = 0;
-        long nDeletedSize = 0;
         long maxSize = Integer.parseInt(sp.getString(MyPreferences.KEY_HISTORY_SIZE, "2000"));
         long latestTimestampSize = 0;
+        long nDeletedActivities = 0;
+        long lastActivityId = SharedPreferencesUtil.getLong(MyPreferences.KEY_DATA_PRUNED_ACTIVITY_ID);
+        StopWatch stopWatch = StopWatch.createStarted();
         Cursor cursor = null;
         try {
-            if (maxDays > 0) {
-                SelectionAndArgs sa = new SelectionAndArgs();
-                sa.addSelection(ActivityTable.TABLE_NAME + "." + ActivityTable.INS_DATE + " <  ?",
-                        Long.toString(latestTimestamp));
-                sa.addSelection(sqlNotMyActivity);
-                sa.addSelection(sqlNotLatestActivityByActor);
-                nDeletedTime = MyProvider.deleteActivities(myContext, sa.selection, sa.selectionArgs, false);
-            }
-
             if (maxSize > 0) {
                 nActivities = MyQuery.getCountOfActivities("");
-                nToDeleteSize = nActivities - maxSize;
+                long nToDeleteSize = nActivities - maxSize;
                 if (nToDeleteSize > 0) {
-                    // Find INS_DATE of the most recent tweet to delete
+                    // Find INS_DATE of the most recent activity to delete
                     cursor = mContentResolver.query(MatchedUri.ACTIVITY_CONTENT_URI, new String[] {
                             ActivityTable.INS_DATE
                     }, null, null, ActivityTable.INS_DATE + " ASC LIMIT 0," + nToDeleteSize);
@@ -160,29 +169,65 @@ public class DataPruner {
                         latestTimestampSize = cursor.getLong(0);
                     }
                     cursor.close();
-                    if (latestTimestampSize > 0) {
-                        SelectionAndArgs sa = new SelectionAndArgs();
-                        sa.addSelection(ActivityTable.TABLE_NAME + "." + ActivityTable.INS_DATE + " <=  ?",
-                                Long.toString(latestTimestampSize));
-                        sa.addSelection(sqlNotMyActivity);
-                        sa.addSelection(sqlNotLatestActivityByActor);
-                        nDeletedSize = MyProvider.deleteActivities(myContext, sa.selection, sa.selectionArgs, false);
+                }
+            }
+            long deleteBefore = Long.max(latestTimestamp, latestTimestampSize > 0 ? latestTimestampSize + 1 : 0);
+            if (deleteBefore > 0) {
+                if (lastActivityId > 0) {
+                    logger.logProgress(method + " resumed after activity id=" + lastActivityId);
+                }
+                while (true) {
+                    String sql = "SELECT " + ActivityTable._ID + " FROM " + ActivityTable.TABLE_NAME +
+                            " WHERE " + ActivityTable._ID + ">" + lastActivityId +
+                            " AND " + ActivityTable.INS_DATE + "<" + deleteBefore +
+                            " AND " + sqlNotMyActivity +
+                            " AND " + sqlNotLatestActivityByActor +
+                            " ORDER BY " + ActivityTable._ID + " LIMIT " + ACTIVITIES_CHUNK_SIZE;
+                    Set<Long> activityIds = MyQuery.getLongs(myContext, sql);
+                    if (activityIds.isEmpty()) break;
+
+                    // On failure the saved activity id is not advanced, so the next run retries this chunk
+                    mDeleted += MyProvider.deleteActivities(myContext, activityIds).get();
+                    nDeletedActivities += activityIds.size();
+                    lastActivityId = activityIds.stream().mapToLong(Long::longValue).max().orElse(lastActivityId);
+                    SharedPreferencesUtil.putLong(MyPreferences.KEY_DATA_PRUNED_ACTIVITY_ID, lastActivityId);
+                    final long deletedSoFar = mDeleted;
+                    logger.logProgressIfLongProcess(() -> method + "; deleted " + deletedSoFar + " rows, "
+                            + rowsPerSecond(deletedSoFar, stopWatch) + " rows/sec");
+                    if (shouldYield()) {
+                        interrupted = true;
+                        break;
                     }
+                    DbUtils.waitMs(TAG, PAUSE_BETWEEN_CHUNKS_MILLIS);
                 }
             }
+            if (!interrupted) {
+                SharedPreferencesUtil.putLong(MyPreferences.KEY_DATA_PRUNED_ACTIVITY_ID, 0);
+            }
             pruned = true;
         } catch (Exception e) {
             MyLog.i(logger.logTag, method + " failed", e);
         } finally {
             DbUtils.closeSilently(cursor);
         }
-        mDeleted = nDeletedTime + nDeletedSize;
         logger.logProgressAndPause(
-            method + " " + (pruned ? "succeeded" : "failed") + "; History time=" + maxDays +
-                    " days; deleted " + nDeletedTime + " , before " + new Date(latestTimestamp).toString() + "\n" +
-            "History size=" + maxSize + " notes; deleted " +
-              nDeletedSize + " of " + nActivities + " notes, before " + new Date(latestTimestampSize).toString(), mDeleted);
-        return pruned;
+            method + " " + (interrupted ? "interrupted" : pruned ? "succeeded" : "failed") +
+                    "; History time=" + maxDays + " days, before " + new Date(latestTimestamp).toString() + "\n" +
+            "History size=" + maxSize + " of " + nActivities + " activities, before " +
+                    new Date(latestTimestampSize).toString() + "\n" +
+            "Deleted " + nDeletedActivities + " activities, " + mDeleted + " rows, " +
+                    rowsPerSecond(mDeleted, stopWatch) + " rows/sec", mDeleted);
+        return pruned && !interrupted;
+    }
+
+    /** Background pruning stops, when the User needs the database */
+    private boolean shouldYield() {
+        return !pruneNow && (myContext.isInForeground() || myContext.queues().hasForegroundTasks())
+                || logger.isCancelled();
+    }
+
+    private static long rowsPerSecond(long rows, StopWatch stopWatch) {
+        return rows * 1000 / Long.max(stopWatch.getTime(), 1);
     }
 
     private void deleteTempFiles() {
@@ -190,8 +235,16 @@ public class DataPruner {
     }
 
     long pruneMedia() {
-        long dirSize = MyStorage.getMediaFilesSize();
         long maxSize = MyPreferences.getMaximumSizeOfCachedMediaBytes();
+        long prunedCount = pruneMediaFiles(maxSize);
+        long thumbnailsPruned = Thumbnails.prune(Math.round(maxSize * THUMBNAILS_SIZE_PART));
+        logger.logProgress("Pruned " + thumbnailsPruned + " thumbnails, size of thumbnails: "
+                + I18n.formatBytes(Thumbnails.getSize()));
+        return prunedCount;
+    }
+
+    private long pruneMediaFiles(long maxSize) {
+        long dirSize = MyStorage.getMediaFilesSize();
         final long bytesToPrune = dirSize - maxSize;
         long bytesToPruneMin = ATTACHMENTS_TO_STORE_MIN * MyPreferences.getMaximumSizeOfAttachmentBytes();
         logger.logProgress("Size of media files: " + I18n.formatBytes(dirSize)
@@ -17,6 +17,7 @@
 package org.andstatus.app.data;
 
 import android.content.ContentValues;
+import android.database.sqlite.SQLiteDatabase;
 import android.net.Uri;
 
 import androidx.annotation.NonNull;
@@ -33,17 +34,23 @@ import org.andstatus.app.net.social.Actor;
 import org.andstatus.app.net.social.Note;
 import org.andstatus.app.net.social.TimelinePosition;
 import org.andstatus.app.note.KeywordsFilter;
+import org.andstatus.app.origin.Origin;
 import org.andstatus.app.service.CommandData;
 import org.andstatus.app.service.CommandEnum;
 import org.andstatus.app.service.CommandExecutionContext;
 import org.andstatus.app.timeline.meta.TimelineType;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.SharedPreferencesUtil;
+import org.andstatus.app.util.StopWatch;
 import org.andstatus.app.util.StringUtil;
 import org.andstatus.app.util.TriState;
 
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import io.vavr.control.Try;
 
@@ -86,6 +93,78 @@ public class DataUpdater {
         this.execContext = execContext;
     }
 
+    /**
+     * Stores the activities (e.g. a downloaded page of a timeline) in one database transaction.
+     * Ids of the notes and actors, which are already stored, are looked up in bulk beforehand.
+     * Latest actors' activities are not saved here, see {@link #saveLum()}
+     */
+    public void onActivitiesInTransaction(List<AActivity> activities) {
+        final String method = "onActivitiesInTransaction";
+        if (activities.isEmpty()) return;
+
+        SQLiteDatabase db = execContext.getMyContext().getDatabase();
+        if (db == null) {
+            MyLog.databaseIsNull(() -> method);
+            return;
+        }
+        StopWatch stopWatch = StopWatch.createStarted();
+        db.beginTransactionNonExclusive();
+        try {
+            lookupStoredIds(activities);
+            for (AActivity activity : activities) {
+                try {
+                    onActivity(activity, false);
+                } catch (Exception e) {
+                    MyLog.e(this, method + "; " + activity, e);
+                }
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        MyLog.v(this, () -> method + "; " + activities.size() + " activities stored in "
+                + stopWatch.getTime() + " ms");
+    }
+
+    private void lookupStoredIds(List<AActivity> activities) {
+        Map<Origin, List<Note>> notes = new HashMap<>();
+        Map<Origin, List<Actor>> actors = new HashMap<>();
+        for (AActivity activity : activities) {
+            collectNotesAndActors(activity, notes, actors, 0);
+        }
+        notes.forEach((origin, list) -> {
+            Map<String, Long> ids = MyQuery.oidsToIds(execContext.myContext, OidEnum.NOTE_OID, origin.getId(),
+                    list.stream().map(note -> note.oid).collect(Collectors.toList()));
+            list.forEach(note -> note.noteId = ids.getOrDefault(note.oid, 0L));
+        });
+        actors.forEach((origin, list) -> {
+            Map<String, Long> ids = MyQuery.oidsToIds(execContext.myContext, OidEnum.ACTOR_OID, origin.getId(),
+                    list.stream().map(actor -> actor.oid).collect(Collectors.toList()));
+            list.forEach(actor -> actor.actorId = ids.getOrDefault(actor.oid, 0L));
+        });
+    }
+
+    private void collectNotesAndActors(AActivity activity, Map<Origin, List<Note>> notes,
+                                       Map<Origin, List<Actor>> actors, int recursing) {
+        if (activity.isEmpty() || recursing > MAX_RECURSING) return;
+
+        collectActor(activity.getActor(), actors);
+        collectActor(activity.getAuthor(), actors);
+        collectActor(activity.getObjActor(), actors);
+        Note note = activity.getNote();
+        if (note.noteId == 0 && nonEmptyOid(note.oid) && note.origin.isValid()) {
+            notes.computeIfAbsent(note.origin, o -> new ArrayList<>()).add(note);
+        }
+        collectNotesAndActors(note.getInReplyTo(), notes, actors, recursing + 1);
+        collectNotesAndActors(activity.getActivity(), notes, actors, recursing + 1);
+    }
+
+    private void collectActor(Actor actor, Map<Origin, List<Actor>> actors) {
+        if (actor.actorId == 0 && !actor.isConstant() && actor.isOidReal() && actor.origin.isValid()) {
+            actors.computeIfAbsent(actor.origin, o -> new ArrayList<>()).add(actor);
+        }
+    }
+
     public AActivity onActivity(AActivity mbActivity) {
         return onActivity(mbActivity, true);
     }
@@ -505,9 +584,7 @@ public class DataUpdater {
         .getTimeline(true, TimelineType.SENT.getConnectionApiRoutine(), TimelinePosition.EMPTY,
                 TimelinePosition.EMPTY, 1, actor)
         .map(page -> {
-            for (AActivity item : page.items) {
-                onActivity(item, false);
-            }
+            onActivitiesInTransaction(page.items);
             saveLum();
             return null;
         });
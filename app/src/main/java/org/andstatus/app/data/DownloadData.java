@@ -457,6 +457,13 @@ public class DownloadData implements IsEmpty, TaggedClass {
         deleteSelected(method, db, DownloadTable.NOTE_ID + "=" + noteId);
     }
 
+    public static void deleteAllOfTheseNotes(SQLiteDatabase db, @NonNull SqlIds noteIds) {
+        if (noteIds.isEmpty()) return;
+
+        final String method = "deleteAllOfTheseNotes noteIds:" + noteIds.getList();
+        deleteSelected(method, db, DownloadTable.NOTE_ID + noteIds.getSql());
+    }
+
     public static void deleteOtherOfThisNote(MyContext myContext, long noteId, @NonNull List<Long> downloadIds) {
         if (noteId == 0 || downloadIds.isEmpty()) return;
 
@@ -470,14 +477,14 @@ public class DownloadData implements IsEmpty, TaggedClass {
         if (longs == null || longs.isEmpty()) {
             return "0";
         }
-        String list = "";
-        for (Long theLong : longs) {
+        StringBuilder list = new StringBuilder(longs.size() * 8);
+        for (long theLong : longs) {
             if (list.length() > 0) {
-                list += ",";
+                list.append(',');
             }
-            list += Long.toString(theLong);
+            list.append(theLong);
         }
-        return list;
+        return list.toString();
     }
 
     public DownloadFile getFile() {
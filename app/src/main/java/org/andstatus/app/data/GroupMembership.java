@@ -20,6 +20,7 @@ import android.content.ContentValues;
 import android.database.sqlite.SQLiteConstraintException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteDatabaseLockedException;
+import android.database.sqlite.SQLiteStatement;
 
 import androidx.annotation.NonNull;
 
@@ -28,12 +29,14 @@ import org.andstatus.app.context.MyContext;
 import org.andstatus.app.database.table.ActorTable;
 import org.andstatus.app.database.table.GroupMembersTable;
 import org.andstatus.app.net.social.Actor;
+import org.andstatus.app.util.LongSet;
 import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SortedLongs;
+import org.andstatus.app.util.StopWatch;
 import org.andstatus.app.util.TriState;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Set;
 
 import static org.andstatus.app.actor.Group.getActorsGroup;
 
@@ -43,6 +46,7 @@ import static org.andstatus.app.actor.Group.getActorsGroup;
  */
 public class GroupMembership {
     private static final String TAG = GroupMembership.class.getSimpleName();
+    private static final int MAX_IDS_IN_STATEMENT = 500;
     private final Actor parentActor;
     private final Actor group;
     private final long memberId;
@@ -81,6 +85,64 @@ public class GroupMembership {
         membership.save(myContext);
     }
 
+    /**
+     * Replaces all members of the group of the parentActor with the supplied ones:
+     * current members are read in one query, and only the difference is written
+     * in one transaction, using batches of {@link #MAX_IDS_IN_STATEMENT} members
+     * @return number of added and removed members
+     */
+    public static int setMembers(MyContext myContext, Actor parentActor, GroupType groupType, LongSet memberIds) {
+        final String method = "setMembers";
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db == null) {
+            MyLog.databaseIsNull(() -> method);
+            return 0;
+        }
+        Actor group = getActorsGroup(parentActor, groupType, "");
+        if (group.actorId == 0 || !group.groupType.isGroupLike) return 0;
+
+        StopWatch stopWatch = StopWatch.createStarted();
+        LongSet idsOld = getGroupMemberIds(myContext, parentActor.actorId, groupType);
+        LongSet idsToAdd = new LongSet();
+        memberIds.forEach(memberId -> {
+            if (memberId == 0 || memberId == parentActor.actorId
+                    || parentActor.user.actorIds.contains(memberId)) return;
+
+            if (!idsOld.remove(memberId)) {
+                idsToAdd.add(memberId);
+            }
+        });
+        // Only not found among the new members are left
+        LongSet idsToDelete = idsOld;
+        if (idsToAdd.isEmpty() && idsToDelete.isEmpty()) return 0;
+
+        db.beginTransactionNonExclusive();
+        try {
+            long[] toDelete = idsToDelete.toArray();
+            for (int start = 0; start < toDelete.length; start += MAX_IDS_IN_STATEMENT) {
+                db.delete(GroupMembersTable.TABLE_NAME, GroupMembersTable.GROUP_ID + "=" + group.actorId +
+                        " AND " + GroupMembersTable.MEMBER_ID + SqlIds.fromIds(SortedLongs.of(Arrays.copyOfRange(
+                        toDelete, start, Math.min(start + MAX_IDS_IN_STATEMENT, toDelete.length)))).getSql(),
+                        null);
+            }
+            try (SQLiteStatement statement = db.compileStatement("INSERT OR IGNORE INTO " +
+                    GroupMembersTable.TABLE_NAME + " (" + GroupMembersTable.GROUP_ID + ", " +
+                    GroupMembersTable.MEMBER_ID + ") VALUES (?, ?)")) {
+                idsToAdd.forEach(memberId -> {
+                    statement.bindLong(1, group.actorId);
+                    statement.bindLong(2, memberId);
+                    statement.executeInsert();
+                });
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        MyLog.d(TAG, method + "; " + groupType + " of " + parentActor.getUniqueNameWithOrigin() + ": added " +
+                idsToAdd.size() + ", removed " + idsToDelete.size() + " in " + stopWatch.getTime() + "ms");
+        return idsToAdd.size() + idsToDelete.size();
+    }
+
     static String selectMemberIds(SqlIds parentActorSqlIds, GroupType groupType, boolean includeParentId) {
         return "SELECT members." + GroupMembersTable.MEMBER_ID +
             (includeParentId ? ", grp." + ActorTable.PARENT_ACTOR_ID : "") +
@@ -115,8 +177,8 @@ public class GroupMembership {
     }
 
     @NonNull
-    public static Set<Long> getGroupMemberIds(MyContext myContext, long parentActorId, GroupType groupType) {
-        return MyQuery.getLongs(myContext, selectMemberIds(Collections.singletonList(parentActorId), groupType, false));
+    public static LongSet getGroupMemberIds(MyContext myContext, long parentActorId, GroupType groupType) {
+        return MyQuery.getLongSet(myContext, selectMemberIds(SqlIds.fromId(parentActorId), groupType, false));
     }
 
     public static String selectMemberIds(Collection<Long> parentActorIds, GroupType groupType, boolean includeParentId) {
@@ -36,6 +36,7 @@ import org.andstatus.app.util.IsEmpty;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.TryUtils;
 
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 
 import io.vavr.control.CheckedFunction;
@@ -77,7 +78,7 @@ public abstract class MediaFile implements IsEmpty, IdentifiableInstance {
         }
         if (downloadStatus != DownloadStatus.LOADED) {
             showDefaultImage(imageView);
-            requestDownload();
+            requestDownload(true);
             return;
         }
         if (imageView instanceof AttachedImageView) {
@@ -104,7 +105,7 @@ public abstract class MediaFile implements IsEmpty, IdentifiableInstance {
         } else {
             logResult("No image file", taskSuffix);
             onNoImage(imageView);
-            requestDownload();
+            requestDownload(true);
         }
     }
 
@@ -143,11 +144,27 @@ public abstract class MediaFile implements IsEmpty, IdentifiableInstance {
         }
     }
 
+    /**
+     * Loads the image to the cache in background or requests its download,
+     * so it's ready, when shown. The loading is skipped, if it's cancelled before start
+     */
+    public void prefetchImage(CacheName cacheName, BooleanSupplier isCancelled) {
+        if (!imageMayBeShown()) return;
+
+        if (downloadStatus != DownloadStatus.LOADED || !downloadFile.existed) {
+            requestDownload(false);
+        } else if (getImageFromCache(cacheName) == null) {
+            AsyncTaskLauncher.execute(() -> {
+                if (!isCancelled.getAsBoolean()) preloadImage(this, cacheName);
+            });
+        }
+    }
+
     public CachedImage loadAndGetImage(CacheName cacheName) {
         if (downloadFile.existed) {
             return ImageCaches.loadAndGetImage(cacheName, this);
         }
-        requestDownload();
+        requestDownload(false);
         return null;
     }
 
@@ -235,7 +252,7 @@ public abstract class MediaFile implements IsEmpty, IdentifiableInstance {
         final String taskSuffix = "-syncd-" + uiConsumer.hashCode();
         if (downloadStatus != DownloadStatus.LOADED || !downloadFile.existed) {
             logResult("No image file", taskSuffix);
-            requestDownload();
+            requestDownload(true);
             uiConsumer.accept(null);
             return;
         }
@@ -331,7 +348,8 @@ public abstract class MediaFile implements IsEmpty, IdentifiableInstance {
 
     protected abstract CachedImage getDefaultImage();
 
-    protected abstract void requestDownload();
+    /** @param isShown true if the image is shown on the screen now, so it's downloaded before other media */
+    protected abstract void requestDownload(boolean isShown);
 
     protected boolean isDefaultImageRequired() {
         return false;
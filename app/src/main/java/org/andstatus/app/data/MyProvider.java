@@ -45,15 +45,19 @@ import org.andstatus.app.timeline.meta.Timeline;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StringUtil;
 import org.andstatus.app.util.TriState;
+import org.andstatus.app.util.TryUtils;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import io.vavr.control.Try;
+
 import static org.andstatus.app.context.MyContextHolder.myContextHolder;
 
 /**
@@ -112,7 +116,11 @@ public class MyProvider extends ContentProvider {
 
             // Start from deletion of activities
             sqlDesc = selection + descSuffix;
-            count += db.delete(ActivityTable.TABLE_NAME, selection, selectionArgs);
+            int activitiesDeleted = db.delete(ActivityTable.TABLE_NAME, selection, selectionArgs);
+            if (activitiesDeleted > 0) {
+                myContext.oids().onActivitiesDeleted();
+            }
+            count += activitiesDeleted;
 
             // Notes, which don't have any activities
             String sqlNoteIds = "SELECT msgA." + NoteTable._ID +
@@ -131,6 +139,7 @@ public class MyProvider extends ContentProvider {
 
             for (long noteId : noteIds) {
                 DownloadData.deleteAllOfThisNote(db, noteId);
+                myContext.oids().onNoteDeleted(noteId);
             }
 
             // Notes
@@ -153,6 +162,62 @@ public class MyProvider extends ContentProvider {
         return count;
     }
 
+    /**
+     * Deletes the activities and their notes, which are left without activities, in one short transaction.
+     * Unlike {@link #deleteActivities(MyContext, String, String[], boolean)}, only notes of these activities
+     * are checked, not the whole table of notes
+     * @return number of deleted rows or failure, if nothing was deleted
+     */
+    public static Try<Integer> deleteActivities(MyContext myContext, Collection<Long> activityIdsIn) {
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db == null) {
+            MyLog.databaseIsNull(() -> "deleteActivities");
+            return TryUtils.failure("Database is null");
+        }
+        if (activityIdsIn.isEmpty()) return Try.success(0);
+
+        final SqlIds activityIds = SqlIds.fromIds(activityIdsIn);
+        int count = 0;
+        Set<Long> noteIdsToDelete = Collections.emptySet();
+        String sqlDesc = "";
+        db.beginTransaction();
+        try {
+            sqlDesc = "SELECT DISTINCT " + ActivityTable.NOTE_ID + " FROM " + ActivityTable.TABLE_NAME +
+                    " WHERE " + ActivityTable._ID + activityIds.getSql() + " AND " + ActivityTable.NOTE_ID + "<>0";
+            final SqlIds noteIds = SqlIds.fromIds(MyQuery.getLongs(myContext, sqlDesc));
+
+            sqlDesc = ActivityTable._ID + activityIds.getSql();
+            count += db.delete(ActivityTable.TABLE_NAME, sqlDesc, null);
+
+            // Notes of these activities, which don't have other activities
+            sqlDesc = "SELECT " + NoteTable._ID + " FROM " + NoteTable.TABLE_NAME +
+                    " WHERE " + NoteTable._ID + noteIds.getSql() +
+                    " AND NOT EXISTS (SELECT " + ActivityTable.NOTE_ID + " FROM " + ActivityTable.TABLE_NAME +
+                    " WHERE " + ActivityTable.NOTE_ID + "=" + NoteTable.TABLE_NAME + "." + NoteTable._ID + ")";
+            noteIdsToDelete = MyQuery.getLongs(myContext, sqlDesc);
+            if (!noteIdsToDelete.isEmpty()) {
+                final SqlIds sqlIdsToDelete = SqlIds.fromIds(noteIdsToDelete);
+                final String sqlNoteIds = sqlIdsToDelete.getSql();
+                sqlDesc = AudienceTable.NOTE_ID + sqlNoteIds;
+                count += db.delete(AudienceTable.TABLE_NAME, sqlDesc, null);
+
+                DownloadData.deleteAllOfTheseNotes(db, sqlIdsToDelete);
+
+                sqlDesc = NoteTable._ID + sqlNoteIds;
+                count += db.delete(NoteTable.TABLE_NAME, sqlDesc, null);
+            }
+            db.setTransactionSuccessful();
+        } catch(Exception e) {
+            MyLog.d(TAG, "; SQL='" + sqlDesc + "'", e);
+            return TryUtils.failure("deleteActivities failed; SQL='" + sqlDesc + "'", e);
+        } finally {
+            db.endTransaction();
+        }
+        myContext.oids().onActivitiesDeleted(activityIdsIn);
+        myContext.oids().onNotesDeleted(noteIdsToDelete);
+        return Try.success(count);
+    }
+
     public static long deleteActor(MyContext myContext, long actorIdToDelete) {
         return deleteActor(myContext, actorIdToDelete, 0);
     }
@@ -176,6 +241,7 @@ public class MyProvider extends ContentProvider {
         DownloadData.deleteAllOfThisActor(myContext, actorId);
         delete(myContext, ActorEndpointTable.TABLE_NAME, ActorEndpointTable.ACTOR_ID, actorId);
         delete(myContext, ActorTable.TABLE_NAME, ActorTable._ID, actorId);
+        myContext.oids().onActorDeleted(actorId);
 
         if (!MyQuery.dExists(myContext.getDatabase(), "SELECT * FROM " + ActorTable.TABLE_NAME
                 + " WHERE " + ActorTable.USER_ID + "=" + userId)) {
@@ -579,7 +645,8 @@ public class MyProvider extends ContentProvider {
      */
     @Override
     public int update(@NonNull Uri uri, ContentValues values, String selection, String[] selectionArgs) {
-        SQLiteDatabase db = myContextHolder.getNow().getDatabase();
+        MyContext myContext = myContextHolder.getNow();
+        SQLiteDatabase db = myContext.getDatabase();
         if (db == null) {
             MyLog.databaseIsNull(() -> "update");
             return 0;
@@ -589,6 +656,9 @@ public class MyProvider extends ContentProvider {
         switch (uriParser.matched()) {
             case ACTIVITY:
                 count = db.update(NoteTable.TABLE_NAME, values, selection, selectionArgs);
+                if (values.containsKey(NoteTable.NOTE_OID)) {
+                    myContext.oids().clear();
+                }
                 break;
 
             case NOTE_ITEM:
@@ -597,11 +667,17 @@ public class MyProvider extends ContentProvider {
                     count = db.update(NoteTable.TABLE_NAME, values, BaseColumns._ID + "=" + rowId
                             + (StringUtil.nonEmpty(selection) ? " AND (" + selection + ')' : ""),
                             selectionArgs);
+                    if (values.containsKey(NoteTable.NOTE_OID)) {
+                        myContext.oids().onIdChanged(OidEnum.NOTE_OID, rowId);
+                    }
                 }
                 break;
 
             case ACTOR:
                 count = db.update(ActorTable.TABLE_NAME, values, selection, selectionArgs);
+                if (values.containsKey(ActorTable.ACTOR_OID)) {
+                    myContext.oids().clear();
+                }
                 break;
 
             case ACTOR_ITEM:
@@ -610,6 +686,9 @@ public class MyProvider extends ContentProvider {
                     count = db.update(ActorTable.TABLE_NAME, values, BaseColumns._ID + "=" + selectedActorId
                                     + (StringUtil.nonEmpty(selection) ? " AND (" + selection + ')' : ""),
                             selectionArgs);
+                    if (values.containsKey(ActorTable.ACTOR_OID)) {
+                        myContext.oids().onIdChanged(OidEnum.ACTOR_OID, selectedActorId);
+                    }
                 }
                 break;
 
@@ -35,21 +35,27 @@ import org.andstatus.app.net.social.Actor;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.util.MyHtml;
+import org.andstatus.app.util.LongSet;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.MyStringBuilder;
 import org.andstatus.app.util.StringUtil;
 import org.andstatus.app.util.TriState;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static org.andstatus.app.context.MyContextHolder.myContextHolder;
 
 public class MyQuery {
     private static final String TAG = MyQuery.class.getSimpleName();
+    private static final int MAX_OIDS_IN_QUERY = 200;
 
     private MyQuery() {
         // Empty
@@ -85,31 +91,58 @@ public class MyQuery {
     }
 
     public static long oidToId(@NonNull MyContext myContext, OidEnum oidEnum, long originId, String oid) {
-        if (StringUtil.isEmpty(oid)) {
-            return 0;
+        return myContext.oids().oidToId(oidEnum, originId, oid);
+    }
+
+    /**
+     * Bulk version of {@link #oidToId(MyContext, OidEnum, long, String)}
+     * @return ids of found oids only
+     */
+    @NonNull
+    public static Map<String, Long> oidsToIds(@NonNull MyContext myContext, OidEnum oidEnum, long originId,
+                                              Collection<String> oids) {
+        final String method = "oidsToIds";
+        Map<String, Long> ids = new HashMap<>();
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db == null) {
+            MyLog.databaseIsNull(() -> method);
+            return ids;
         }
-        String msgLog = "oidToId; " + oidEnum + ", origin=" + originId + ", oid=" + oid;
-        String sql;
+        String tableName;
+        String oidColumnName;
+        String originColumnName;
         switch (oidEnum) {
             case NOTE_OID:
-                sql = "SELECT " + BaseColumns._ID + " FROM " + NoteTable.TABLE_NAME
-                        + " WHERE " + NoteTable.ORIGIN_ID + "=" + originId + " AND " + NoteTable.NOTE_OID
-                        + "=" + quoteIfNotQuoted(oid);
+                tableName = NoteTable.TABLE_NAME;
+                oidColumnName = NoteTable.NOTE_OID;
+                originColumnName = NoteTable.ORIGIN_ID;
                 break;
             case ACTOR_OID:
-                sql = "SELECT " + BaseColumns._ID + " FROM " + ActorTable.TABLE_NAME
-                        + " WHERE " + ActorTable.ORIGIN_ID + "=" + originId + " AND " + ActorTable.ACTOR_OID
-                        + "=" + quoteIfNotQuoted(oid);
-                break;
-            case ACTIVITY_OID:
-                sql = "SELECT " + BaseColumns._ID + " FROM " + ActivityTable.TABLE_NAME
-                        + " WHERE " + ActivityTable.ORIGIN_ID + "=" + originId + " AND " + ActivityTable.ACTIVITY_OID
-                        + "=" + quoteIfNotQuoted(oid);
+                tableName = ActorTable.TABLE_NAME;
+                oidColumnName = ActorTable.ACTOR_OID;
+                originColumnName = ActorTable.ORIGIN_ID;
                 break;
             default:
-                throw new IllegalArgumentException(msgLog + "; Unknown oidEnum");
+                throw new IllegalArgumentException(method + "; Unsupported oidEnum: " + oidEnum);
+        }
+        List<String> oidsToFind = oids.stream().filter(StringUtil::nonEmpty).distinct().collect(Collectors.toList());
+        for (int start = 0; start < oidsToFind.size(); start += MAX_OIDS_IN_QUERY) {
+            String sql = "SELECT " + BaseColumns._ID + ", " + oidColumnName + " FROM " + tableName
+                    + " WHERE " + originColumnName + "=" + originId + " AND " + oidColumnName + " IN ("
+                    + oidsToFind.subList(start, Math.min(start + MAX_OIDS_IN_QUERY, oidsToFind.size())).stream()
+                        .map(MyQuery::quoteIfNotQuoted).collect(Collectors.joining(","))
+                    + ")";
+            try (Cursor cursor = db.rawQuery(sql, null)) {
+                while (cursor.moveToNext()) {
+                    ids.put(cursor.getString(1), cursor.getLong(0));
+                }
+            } catch (Exception e) {
+                MyLog.i(TAG, method + "; SQL:'" + sql + "'", e);
+            }
         }
-        return sqlToLong(myContext.getDatabase(), msgLog, sql);
+        MyLog.v(TAG, () -> method + "; " + oidEnum + ", origin=" + originId + ", found " + ids.size()
+                + " of " + oidsToFind.size());
+        return ids;
     }
 
     public static long sqlToLong(SQLiteDatabase databaseIn, String msgLogIn, String sql) {
@@ -179,6 +212,13 @@ public class MyQuery {
     public static String idToOid(MyContext myContext, OidEnum oe, long entityId, long rebloggerActorId) {
         if (entityId == 0) return "";
 
+        switch (oe) {
+            case NOTE_OID:
+            case ACTOR_OID:
+                return myContext.oids().idToOid(oe, entityId);
+            default:
+                break;
+        }
         SQLiteDatabase db = myContext.getDatabase();
         if (db == null) {
             MyLog.databaseIsNull(() -> "idToOid, oe=" + oe + " id=" + entityId);
@@ -593,7 +633,7 @@ public class MyQuery {
             case ActivityTable.LAST_UPDATE_ID:
                 return noteIdToLongActivityColumnValue(null, columnName, systemId);
             default:
-                return idToLongColumnValue(null, NoteTable.TABLE_NAME, columnName, systemId);
+                return myContextHolder.getNow().oids().noteIdToLongColumnValue(columnName, systemId);
         }
     }
 
@@ -654,51 +694,13 @@ public class MyQuery {
     private static long actorColumnValueToId(MyContext myContext, long originId, String columnName, String columnValue,
                                              boolean checkOid) {
         final String method = "actor" + columnName + "ToId";
-        SQLiteDatabase db = myContext.getDatabase();
-        if (db == null) {
-            MyLog.databaseIsNull(() -> method);
-            return 0;
-        }
-        long id = 0;
-        SQLiteStatement prog = null;
-        String sql = "";
-        try {
-            if (checkOid) {
-                sql = sql4actorColumnValueToId(originId, columnName, columnValue, true);
-                prog = db.compileStatement(sql);
-                id = prog.simpleQueryForLong();
-                if (id == 0) DbUtils.closeSilently(prog);
-            }
-            if (id == 0) {
-                sql = sql4actorColumnValueToId(originId, columnName, columnValue, false);
-                prog = db.compileStatement(sql);
-                id = prog.simpleQueryForLong();
-            }
-        } catch (SQLiteDoneException e) {
-            MyLog.ignored(MyQuery.TAG, e);
-            id = 0;
-        } catch (Exception e) {
-            MyLog.e(MyQuery.TAG, method + ": SQL:'" + sql + "'", e);
-            id = 0;
-        } finally {
-            DbUtils.closeSilently(prog);
-        }
+        long id = myContext.oids().actorColumnValueToId(originId, columnName, columnValue, checkOid);
         if (MyLog.isVerboseEnabled()) {
             MyLog.v(MyQuery.TAG, method + ":" + originId + "+" + columnValue + " -> " + id);
         }
         return id;
     }
 
-    private static String sql4actorColumnValueToId(long originId, String columnName, String value, boolean checkOid) {
-      return "SELECT " + ActorTable._ID +
-                    " FROM " + ActorTable.TABLE_NAME +
-                    " WHERE " +
-                    (originId == 0 ? "" : ActorTable.ORIGIN_ID + "=" + originId + " AND ") +
-                    (checkOid ? ActorTable.ACTOR_OID + " NOT LIKE('andstatustemp:%') AND " : "") +
-                    columnName + "='" + value + "'" +
-                    " ORDER BY " + ActorTable._ID;
-    }
-
     public static long getCountOfActivities(@NonNull String condition) {
         String sql = "SELECT COUNT(*) FROM " + ActivityTable.TABLE_NAME
                 + (StringUtil.isEmpty(condition) ? "" : " WHERE " + condition);
@@ -716,6 +718,15 @@ public class MyQuery {
         return get(myContext, sql, cursor -> cursor.getLong(0));
     }
 
+    /** Same as {@link #getLongs(MyContext, String)}, but doesn't box the values */
+    @NonNull
+    public static LongSet getLongSet(MyContext myContext, String sql) {
+        return foldLeft(myContext, sql, new LongSet(), set -> cursor -> {
+            set.add(cursor.getLong(0));
+            return set;
+        });
+    }
+
     /**
      * @return Empty set on UI thread
      */
@@ -0,0 +1,321 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteDoneException;
+import android.database.sqlite.SQLiteStatement;
+import android.provider.BaseColumns;
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.database.table.ActivityTable;
+import org.andstatus.app.database.table.ActorTable;
+import org.andstatus.app.database.table.NoteTable;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.StringUtil;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Resolves oids to ids and back for one {@link MyContext}.
+ * Uses compiled statements with bound parameters (so that SQL isn't compiled for each lookup)
+ * and remembers recently resolved mappings of real (not temporary) oids.
+ * @author yvolk@yurivolkov.com
+ */
+public class OidResolver {
+    private static final String TAG = OidResolver.class.getSimpleName();
+    private static final int CACHE_SIZE = 5000;
+
+    private final MyContext myContext;
+    private final LruCache<String, Long> oidToIdCache = new LruCache<>(CACHE_SIZE);
+    private final LruCache<String, String> idToOidCache = new LruCache<>(CACHE_SIZE);
+    private final Map<String, SQLiteStatement> statements = new ConcurrentHashMap<>();
+    private volatile SQLiteDatabase statementsDatabase = null;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public OidResolver(MyContext myContext) {
+        this.myContext = myContext;
+    }
+
+    /** @return 0 if not found */
+    public long oidToId(OidEnum oidEnum, long originId, String oid) {
+        if (StringUtil.isEmpty(oid)) return 0;
+
+        final boolean cacheable = StringUtil.nonEmptyNonTemp(oid);
+        final String key = cacheable ? oidKey(oidEnum, originId, oid) : "";
+        if (cacheable) {
+            Long cached = oidToIdCache.get(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                return cached;
+            }
+        }
+        misses.incrementAndGet();
+        final String sql;
+        switch (oidEnum) {
+            case NOTE_OID:
+                sql = "SELECT " + BaseColumns._ID + " FROM " + NoteTable.TABLE_NAME
+                        + " WHERE " + NoteTable.ORIGIN_ID + "=? AND " + NoteTable.NOTE_OID + "=?";
+                break;
+            case ACTOR_OID:
+                sql = "SELECT " + BaseColumns._ID + " FROM " + ActorTable.TABLE_NAME
+                        + " WHERE " + ActorTable.ORIGIN_ID + "=? AND " + ActorTable.ACTOR_OID + "=?";
+                break;
+            case ACTIVITY_OID:
+                sql = "SELECT " + BaseColumns._ID + " FROM " + ActivityTable.TABLE_NAME
+                        + " WHERE " + ActivityTable.ORIGIN_ID + "=? AND " + ActivityTable.ACTIVITY_OID + "=?";
+                break;
+            default:
+                throw new IllegalArgumentException("oidToId; Unknown oidEnum: " + oidEnum);
+        }
+        long id = queryForLong(sql, originId, oid);
+        if (id != 0 && cacheable) {
+            oidToIdCache.put(key, id);
+            if (oidEnum != OidEnum.ACTIVITY_OID) {
+                idToOidCache.put(idKey(oidEnum, id), oid);
+            }
+        }
+        MyLog.v(TAG, () -> "oidToId; " + oidEnum + ", origin=" + originId + ", oid=" + oid + " -> " + id);
+        return id;
+    }
+
+    /** Only {@link OidEnum#NOTE_OID} and {@link OidEnum#ACTOR_OID} are supported
+     * @return empty string if not found */
+    @NonNull
+    public String idToOid(OidEnum oidEnum, long id) {
+        if (id == 0) return "";
+
+        final String key = idKey(oidEnum, id);
+        String cached = idToOidCache.get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        final String sql;
+        switch (oidEnum) {
+            case NOTE_OID:
+                sql = "SELECT " + NoteTable.NOTE_OID + " FROM " + NoteTable.TABLE_NAME
+                        + " WHERE " + BaseColumns._ID + "=?";
+                break;
+            case ACTOR_OID:
+                sql = "SELECT " + ActorTable.ACTOR_OID + " FROM " + ActorTable.TABLE_NAME
+                        + " WHERE " + BaseColumns._ID + "=?";
+                break;
+            default:
+                throw new IllegalArgumentException("idToOid; Unsupported oidEnum: " + oidEnum);
+        }
+        String oid = queryForString(sql, id);
+        if (StringUtil.nonEmptyNonTemp(oid)) {
+            idToOidCache.put(key, oid);
+        }
+        MyLog.v(TAG, () -> "idToOid; " + oidEnum + " + " + id + " -> " + oid);
+        return oid;
+    }
+
+    /** @return 0 if not found. See {@link MyQuery#webFingerIdToId(MyContext, long, String, boolean)} */
+    public long actorColumnValueToId(long originId, String columnName, String columnValue, boolean checkOid) {
+        long id = 0;
+        if (checkOid) {
+            id = queryForLong(sqlActorColumnValueToId(originId, columnName, true), columnValue);
+        }
+        if (id == 0) {
+            id = queryForLong(sqlActorColumnValueToId(originId, columnName, false), columnValue);
+        }
+        return id;
+    }
+
+    private static String sqlActorColumnValueToId(long originId, String columnName, boolean checkOid) {
+        return "SELECT " + ActorTable._ID +
+                " FROM " + ActorTable.TABLE_NAME +
+                " WHERE " +
+                (originId == 0 ? "" : ActorTable.ORIGIN_ID + "=" + originId + " AND ") +
+                (checkOid ? ActorTable.ACTOR_OID + " NOT LIKE('andstatustemp:%') AND " : "") +
+                columnName + "=?" +
+                " ORDER BY " + ActorTable._ID;
+    }
+
+    /** @return 0 if not found. Only {@link NoteTable} columns are supported */
+    public long noteIdToLongColumnValue(String columnName, long noteId) {
+        if (noteId == 0) return 0;
+        return queryForLong("SELECT " + columnName + " FROM " + NoteTable.TABLE_NAME
+                + " WHERE " + BaseColumns._ID + "=?", noteId);
+    }
+
+    public void onNoteDeleted(long noteId) {
+        onIdChanged(OidEnum.NOTE_OID, noteId);
+    }
+
+    /** Forget mappings of these deleted notes */
+    public void onNotesDeleted(Collection<Long> noteIds) {
+        if (noteIds.isEmpty()) return;
+
+        for (long noteId : noteIds) {
+            idToOidCache.remove(idKey(OidEnum.NOTE_OID, noteId));
+        }
+        removeOids(OidEnum.NOTE_OID, noteIds::contains);
+    }
+
+    public void onActorDeleted(long actorId) {
+        onIdChanged(OidEnum.ACTOR_OID, actorId);
+    }
+
+    /** Forget mappings of these deleted activities */
+    public void onActivitiesDeleted(Collection<Long> activityIds) {
+        if (activityIds.isEmpty()) return;
+
+        removeOids(OidEnum.ACTIVITY_OID, activityIds::contains);
+    }
+
+    /** Forget mappings of all activities, when it's not known, which activities were deleted */
+    public void onActivitiesDeleted() {
+        removeOids(OidEnum.ACTIVITY_OID, id -> true);
+    }
+
+    /** Forget mappings of this entity, e.g. because its oid was changed */
+    public void onIdChanged(OidEnum oidEnum, long id) {
+        if (id == 0) return;
+
+        idToOidCache.remove(idKey(oidEnum, id));
+        removeOids(oidEnum, value -> value == id);
+    }
+
+    private void removeOids(OidEnum oidEnum, Predicate<Long> idPredicate) {
+        String prefix = oidEnum.name() + ":";
+        for (Map.Entry<String, Long> entry : oidToIdCache.snapshot().entrySet()) {
+            if (entry.getKey().startsWith(prefix) && idPredicate.test(entry.getValue())) {
+                oidToIdCache.remove(entry.getKey());
+            }
+        }
+    }
+
+    public void clear() {
+        oidToIdCache.evictAll();
+        idToOidCache.evictAll();
+    }
+
+    /** Closes compiled statements. The resolver may still be used after this */
+    public void release() {
+        clear();
+        closeStatements();
+    }
+
+    public String getStatistics() {
+        long hitsCount = hits.get();
+        long total = hitsCount + misses.get();
+        return "oids cached:" + oidToIdCache.size() + ", ids cached:" + idToOidCache.size()
+                + ", hits:" + hitsCount + ", misses:" + misses.get()
+                + (total > 0 ? ", hit rate:" + (hitsCount * 100 / total) + "%" : "");
+    }
+
+    private long queryForLong(String sql, Object... args) {
+        SQLiteStatement statement = getStatement(sql);
+        if (statement == null) return 0;
+
+        synchronized (statement) {
+            try {
+                bindArgs(statement, args);
+                return statement.simpleQueryForLong();
+            } catch (SQLiteDoneException e) {
+                return 0;
+            } catch (Exception e) {
+                MyLog.e(TAG, "SQL:'" + sql + "'", e);
+                return 0;
+            }
+        }
+    }
+
+    @NonNull
+    private String queryForString(String sql, Object... args) {
+        SQLiteStatement statement = getStatement(sql);
+        if (statement == null) return "";
+
+        synchronized (statement) {
+            try {
+                bindArgs(statement, args);
+                return StringUtil.notNull(statement.simpleQueryForString());
+            } catch (SQLiteDoneException e) {
+                return "";
+            } catch (Exception e) {
+                MyLog.e(TAG, "SQL:'" + sql + "'", e);
+                return "";
+            }
+        }
+    }
+
+    private static void bindArgs(SQLiteStatement statement, Object[] args) {
+        statement.clearBindings();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i] instanceof Long) {
+                statement.bindLong(i + 1, (Long) args[i]);
+            } else {
+                statement.bindString(i + 1, String.valueOf(args[i]));
+            }
+        }
+    }
+
+    private SQLiteStatement getStatement(String sql) {
+        SQLiteDatabase db = myContext.getDatabase();
+        if (db == null) {
+            MyLog.databaseIsNull(() -> TAG);
+            return null;
+        }
+        if (db != statementsDatabase) {
+            closeStatements();
+            statementsDatabase = db;
+        }
+        try {
+            return statements.computeIfAbsent(sql, db::compileStatement);
+        } catch (Exception e) {
+            MyLog.e(TAG, "Failed to compile SQL:'" + sql + "'", e);
+            return null;
+        }
+    }
+
+    private void closeStatements() {
+        for (String sql : statements.keySet()) {
+            SQLiteStatement statement = statements.remove(sql);
+            if (statement != null) {
+                synchronized (statement) {
+                    DbUtils.closeSilently(statement);
+                }
+            }
+        }
+        statementsDatabase = null;
+    }
+
+    private static String oidKey(OidEnum oidEnum, long originId, String oid) {
+        return oidEnum.name() + ":" + originId + ":" + oid;
+    }
+
+    private static String idKey(OidEnum oidEnum, long id) {
+        return oidEnum.name() + ":" + id;
+    }
+
+    @Override
+    public String toString() {
+        return TAG + "{" + getStatistics() + "}";
+    }
+}
@@ -21,14 +21,12 @@ import androidx.annotation.NonNull;
 import org.andstatus.app.net.social.Actor;
 import org.andstatus.app.timeline.meta.Timeline;
 import org.andstatus.app.util.IsEmpty;
+import org.andstatus.app.util.LongSet;
+import org.andstatus.app.util.SortedLongs;
 
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
 
-import static java.util.stream.Collectors.toList;
 import static org.andstatus.app.context.MyContextHolder.myContextHolder;
 
 /**
@@ -37,7 +35,7 @@ import static org.andstatus.app.context.MyContextHolder.myContextHolder;
  */
 public class SqlIds implements IsEmpty {
     public static final SqlIds EMPTY = new SqlIds();
-    private final Set<Long> ids;
+    private final SortedLongs ids;
 
     /** We may not have our actor in some origin... ?! */
     public static SqlIds notifiedActorIdsOfTimeline(@NonNull Timeline timeline) {
@@ -70,27 +68,35 @@ public class SqlIds implements IsEmpty {
     }
 
     public static SqlIds actorIdsOf(@NonNull Collection<Actor> actors) {
-        return new SqlIds(actors.stream().map(actor -> actor.actorId).collect(toList()));
+        return new SqlIds(SortedLongs.of(actors.stream().mapToLong(actor -> actor.actorId).toArray()));
     }
 
     public static SqlIds fromId(long id) {
-        return new SqlIds(Collections.singleton(id));
+        return new SqlIds(SortedLongs.of(id));
     }
 
     public static SqlIds fromIds(@NonNull Collection<Long> ids) {
+        return new SqlIds(SortedLongs.of(ids));
+    }
+
+    public static SqlIds fromIds(@NonNull LongSet ids) {
+        return new SqlIds(SortedLongs.of(ids));
+    }
+
+    public static SqlIds fromIds(@NonNull SortedLongs ids) {
         return new SqlIds(ids);
     }
 
     public static SqlIds fromIds(Long ... ids) {
-        return new SqlIds(Arrays.asList(ids));
+        return new SqlIds(SortedLongs.of(Arrays.asList(ids)));
     }
 
-    private SqlIds(@NonNull Collection<Long> ids) {
-        this.ids = new HashSet<>(ids);
+    private SqlIds(@NonNull SortedLongs ids) {
+        this.ids = ids;
     }
 
-    private SqlIds(Long ... id) {
-        this.ids = new HashSet<>(Arrays.asList(id));
+    private SqlIds() {
+        this(SortedLongs.EMPTY);
     }
 
     public int size() {
@@ -98,12 +104,12 @@ public class SqlIds implements IsEmpty {
     }
 
     public String getList() {
-        StringBuilder sb = new StringBuilder();
-        for (long id : ids) {
-            if (sb.length() > 0) {
+        StringBuilder sb = new StringBuilder(ids.size() * 8);
+        for (int index = 0; index < ids.size(); index++) {
+            if (index > 0) {
                 sb.append(", ");
             }
-            sb.append(Long.toString(id));
+            sb.append(ids.get(index));
         }
         return sb.toString();
     }
@@ -112,7 +118,7 @@ public class SqlIds implements IsEmpty {
         if (size() == 0) {
             return getInexistentId();
         } else if (size() == 1) {
-            return "=" + ids.iterator().next();
+            return "=" + ids.get(0);
         } else {
             return " IN (" + getList() + ")";
         }
@@ -126,7 +132,7 @@ public class SqlIds implements IsEmpty {
         if (size() == 0) {
             return "";
         } else if (size() == 1) {
-            return "!=" + ids.iterator().next();
+            return "!=" + ids.get(0);
         } else {
             return " NOT IN (" + getList() + ")";
         }
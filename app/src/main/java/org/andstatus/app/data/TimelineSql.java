@@ -27,11 +27,14 @@ import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.database.table.ActorTable;
 import org.andstatus.app.database.table.AudienceTable;
 import org.andstatus.app.database.table.GroupMembersTable;
+import org.andstatus.app.database.table.NoteSearchTable;
 import org.andstatus.app.database.table.NoteTable;
 import org.andstatus.app.net.social.Visibility;
+import org.andstatus.app.note.KeywordsFilter;
 import org.andstatus.app.timeline.meta.Timeline;
 import org.andstatus.app.timeline.meta.TimelineType;
 import org.andstatus.app.util.SharedPreferencesUtil;
+import org.andstatus.app.util.StringUtil;
 import org.andstatus.app.util.TriState;
 
 import java.util.Arrays;
@@ -119,6 +122,14 @@ public class TimelineSql {
                 break;
         }
 
+        String searchQuery = ParsedUri.fromUri(uri).getSearchQuery();
+        if (StringUtil.nonEmpty(searchQuery)) {
+            // Exact matching is done in MyProvider, here we only use the index to select candidates
+            String matchExpression = new KeywordsFilter(searchQuery).getSqlMatchExpression();
+            if (StringUtil.nonEmpty(matchExpression)) {
+                actWhere.append(ActivityTable.NOTE_ID + " IN (" + NoteSearchTable.selectNoteIds(matchExpression) + ")");
+            }
+        }
         if (timeline.getTimelineType().isAtOrigin() && !timeline.isCombined()) {
             actWhere.append(ActivityTable.ORIGIN_ID, "=" + timeline.getOrigin().getId());
         }
@@ -122,6 +122,7 @@ public abstract class DataChecker {
                         .fix();
             }
         } finally {
+            myContext.oids().clear();
             MyServiceManager.setServiceAvailable();
         }
         MyLog.i(TAG, "fixData ended in " + stopWatch.getTime(TimeUnit.MINUTES) + " min, counted: " + counter);
@@ -19,6 +19,7 @@ package org.andstatus.app.data.checker;
 import android.database.Cursor;
 
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.database.table.NoteSearchTable;
 import org.andstatus.app.database.table.NoteTable;
 import org.andstatus.app.net.social.Note;
 import org.andstatus.app.service.MyServiceManager;
@@ -63,7 +64,10 @@ class SearchIndexUpdate extends DataChecker {
             MyLog.e(this, logMsg, e);
         }
 
-        if (!countOnly) notesToFix.forEach(this::fixOneNote);
+        if (!countOnly) {
+            notesToFix.forEach(this::fixOneNote);
+            updateFullTextIndex();
+        }
 
         logger.logProgress(notesToFix.isEmpty()
                 ? "No changes to search index were needed. " + counter + " notes"
@@ -71,6 +75,24 @@ class SearchIndexUpdate extends DataChecker {
         return notesToFix.size();
     }
 
+    /** Notes are added to the index by triggers, so usually it only needs merging of its segments */
+    private void updateFullTextIndex() {
+        if (logger.isCancelled()) return;
+
+        try {
+            if (includeLong) {
+                logger.logProgress("Rebuilding full text search index");
+                NoteSearchTable.rebuild(myContext.getDatabase());
+            }
+            logger.logProgress("Optimizing full text search index");
+            NoteSearchTable.optimize(myContext.getDatabase());
+        } catch (Exception e) {
+            String logMsg = "Error: " + e.getMessage() + " while updating full text search index";
+            logger.logProgress(logMsg);
+            MyLog.e(this, logMsg, e);
+        }
+    }
+
     private void fixOneNote(Note note) {
         if (logger.isCancelled()) return;
 
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.data.converter;
+
+import org.andstatus.app.data.DbUtils;
+
+class Convert54 extends ConvertOneStep {
+    Convert54() {
+        versionTo = 55;
+    }
+
+    @Override
+    protected void execute2() {
+        progressLogger.logProgress(stepTitle + ": Creating full text search index of notes");
+
+        sql = "CREATE VIRTUAL TABLE note_search USING fts4(content=\"note\",content_to_search)";
+        DbUtils.execSQL(db, sql);
+        sql = "CREATE TRIGGER note_search_bu BEFORE UPDATE OF content_to_search ON note BEGIN" +
+                " DELETE FROM note_search WHERE docid=old.rowid; END";
+        DbUtils.execSQL(db, sql);
+        sql = "CREATE TRIGGER note_search_bd BEFORE DELETE ON note BEGIN" +
+                " DELETE FROM note_search WHERE docid=old.rowid; END";
+        DbUtils.execSQL(db, sql);
+        sql = "CREATE TRIGGER note_search_au AFTER UPDATE OF content_to_search ON note BEGIN" +
+                " INSERT INTO note_search (docid, content_to_search) VALUES (new.rowid, new.content_to_search); END";
+        DbUtils.execSQL(db, sql);
+        sql = "CREATE TRIGGER note_search_ai AFTER INSERT ON note BEGIN" +
+                " INSERT INTO note_search (docid, content_to_search) VALUES (new.rowid, new.content_to_search); END";
+        DbUtils.execSQL(db, sql);
+
+        progressLogger.logProgress(stepTitle + ": Indexing notes");
+        sql = "INSERT INTO note_search(note_search) VALUES('rebuild')";
+        DbUtils.execSQL(db, sql);
+    }
+}
@@ -27,6 +27,7 @@ import org.andstatus.app.database.table.AudienceTable;
 import org.andstatus.app.database.table.CommandTable;
 import org.andstatus.app.database.table.DownloadTable;
 import org.andstatus.app.database.table.GroupMembersTable;
+import org.andstatus.app.database.table.NoteSearchTable;
 import org.andstatus.app.database.table.NoteTable;
 import org.andstatus.app.database.table.OriginTable;
 import org.andstatus.app.database.table.TimelineTable;
@@ -41,6 +42,7 @@ public class DatabaseCreator {
      * Current database scheme version, defined by AndStatus developers.
      * This is used to check (and upgrade if necessary) existing database after application update.
      *
+     * v.55 2020-05-02 Full text search index of notes: NoteSearchTable.
      * v.54 2020-04-13 Add timeline_position to ActivityTable.
      *                 Fix type of endpoint_uri in ActorEndpointTable.
      * v.51 2019-07-23 ActorTable holds Groups also. GroupMembersTable instead of FriendshipTable
@@ -78,7 +80,7 @@ public class DatabaseCreator {
      *      All messages are in the same table.
      *      Allows to have multiple User Accounts in different Originating systems (twitter.com etc. )
      */
-    public static final int DATABASE_VERSION = 54;
+    public static final int DATABASE_VERSION = 55;
     public static final long ORIGIN_ID_TWITTER =  1L;
 
     private final SQLiteDatabase db;
@@ -95,6 +97,7 @@ public class DatabaseCreator {
         MyLog.i(this, "Creating tables");
         OriginTable.create(db);
         NoteTable.create(db);
+        NoteSearchTable.create(db);
         UserTable.create(db);
         ActorTable.create(db);
         AudienceTable.create(db);
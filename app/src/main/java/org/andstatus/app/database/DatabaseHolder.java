@@ -38,6 +38,8 @@ public final class DatabaseHolder extends SQLiteOpenHelper  {
     public DatabaseHolder(Context context, boolean creationEnabled) {
         super(context, DATABASE_NAME, null, DatabaseCreator.DATABASE_VERSION);
         this.creationEnabled = creationEnabled;
+        // So that readers (e.g. timeline loaders) are not blocked by write transactions of the sync
+        setWriteAheadLoggingEnabled(true);
         File databasePath = context.getDatabasePath(DATABASE_NAME);
         if (databasePath == null || (!creationEnabled && !databasePath.exists())) {
             databaseWasNotCreated = true;
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.database;
+
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteDatabase;
+
+import org.andstatus.app.util.FileUtils;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.StopWatch;
+
+import java.io.File;
+import java.io.IOException;
+
+import io.vavr.control.Try;
+
+/**
+ * Consistent copy of a database, which may be made while the database is being used and changed,
+ * if snapshots are {@link #isSupported()}:
+ * "VACUUM INTO" of a separate read only connection sees a snapshot of the database (including its WAL)
+ * and doesn't block writers. The copy is compacted.
+ * Otherwise only the database file is copied, and pages, which are still in its WAL file, are not,
+ * so the database should be released before that.
+ * See <a href="https://sqlite.org/lang_vacuum.html#vacuuminto">VACUUM INTO</a>
+ * @author yvolk@yurivolkov.com
+ */
+public final class DatabaseSnapshot {
+    private static final String TAG = DatabaseSnapshot.class.getSimpleName();
+    /** "VACUUM INTO" appeared in this version, it's shipped with Android 11 */
+    private static final int[] MIN_SQLITE_VERSION = {3, 27, 0};
+    private static volatile Boolean supported = null;
+
+    private DatabaseSnapshot() {
+        // Empty
+    }
+
+    /** @return true if online snapshots are supported by the SQLite library of this device */
+    public static boolean isSupported() {
+        if (supported == null) {
+            supported = Try.of(DatabaseSnapshot::getSqliteVersion)
+                    .map(DatabaseSnapshot::isSupportedVersion)
+                    .onFailure(e -> MyLog.w(TAG, "Failed to get SQLite version", e))
+                    .getOrElse(false);
+        }
+        return supported;
+    }
+
+    private static String getSqliteVersion() {
+        SQLiteDatabase db = SQLiteDatabase.create(null);
+        try {
+            String version = DatabaseUtils.stringForQuery(db, "SELECT sqlite_version()", null);
+            MyLog.i(TAG, "SQLite version " + version);
+            return version;
+        } finally {
+            db.close();
+        }
+    }
+
+    static boolean isSupportedVersion(String version) {
+        String[] parts = version.split("\\.");
+        for (int ind = 0; ind < MIN_SQLITE_VERSION.length; ind++) {
+            int part = ind < parts.length ? Integer.parseInt(parts[ind].trim()) : 0;
+            if (part != MIN_SQLITE_VERSION[ind]) return part > MIN_SQLITE_VERSION[ind];
+        }
+        return true;
+    }
+
+    /** Creates a snapshot of the database, or, if snapshots are not supported, copies its file,
+     *  which requires the database to be released (closed), see {@link #isSupported()}.
+     *  Old target file is replaced */
+    public static Try<File> create(File databaseFile, File target) {
+        if (!databaseFile.exists()) {
+            return Try.failure(new IOException("No database file '" + databaseFile.getAbsolutePath() + "'"));
+        }
+        if (target.exists() && !target.delete()) {
+            return Try.failure(new IOException("Couldn't delete old file '" + target.getAbsolutePath() + "'"));
+        }
+        StopWatch stopWatch = StopWatch.createStarted();
+        return Try.of(() -> {
+                if (isSupported()) {
+                    vacuumInto(databaseFile, target);
+                } else if (!FileUtils.copyFile(TAG, databaseFile, target)) {
+                    throw new IOException("Failed to copy database file");
+                }
+                return target;
+            })
+            .onSuccess(file -> MyLog.i(TAG, (isSupported() ? "Snapshot of " : "Copy of ")
+                    + databaseFile.getName() + " created in " + stopWatch.getTime() + " ms, size "
+                    + file.length() + " of " + databaseFile.length() + " bytes"))
+            .onFailure(e -> {
+                MyLog.w(TAG, "Failed to create snapshot of " + databaseFile.getAbsolutePath(), e);
+                target.delete();
+            });
+    }
+
+    private static void vacuumInto(File databaseFile, File target) {
+        SQLiteDatabase db = SQLiteDatabase.openDatabase(databaseFile.getAbsolutePath(), null,
+                SQLiteDatabase.OPEN_READONLY);
+        try {
+            db.execSQL("VACUUM INTO " + DatabaseUtils.sqlEscapeString(target.getAbsolutePath()));
+        } finally {
+            db.close();
+        }
+    }
+}
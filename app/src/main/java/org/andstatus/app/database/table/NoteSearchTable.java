@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.database.table;
+
+import android.database.sqlite.SQLiteDatabase;
+
+import org.andstatus.app.data.DbUtils;
+
+/**
+ * Full text search index of {@link NoteTable#CONTENT_TO_SEARCH}.
+ * This is an "external content" FTS4 table: it doesn't store a copy of the text,
+ * its rowid ("docid") is the {@link NoteTable} _id.
+ * The index is kept in sync with the Note table by triggers,
+ * see <a href="https://www.sqlite.org/fts3.html#_external_content_fts4_tables_">External Content FTS4 Tables</a>
+ */
+public class NoteSearchTable {
+    public static final String TABLE_NAME = "note_search";
+
+    private NoteSearchTable() {
+    }
+
+    /** The same as {@link android.provider.BaseColumns#_ID} of the Note */
+    public static final String DOCID = "docid";
+
+    public static void create(SQLiteDatabase db) {
+        DbUtils.execSQL(db, "CREATE VIRTUAL TABLE " + TABLE_NAME + " USING fts4("
+                + "content=\"" + NoteTable.TABLE_NAME + "\","
+                + NoteTable.CONTENT_TO_SEARCH
+                + ")");
+
+        DbUtils.execSQL(db, "CREATE TRIGGER " + TABLE_NAME + "_bu BEFORE UPDATE OF "
+                + NoteTable.CONTENT_TO_SEARCH + " ON " + NoteTable.TABLE_NAME + " BEGIN"
+                + " DELETE FROM " + TABLE_NAME + " WHERE " + DOCID + "=old.rowid;"
+                + " END");
+        DbUtils.execSQL(db, "CREATE TRIGGER " + TABLE_NAME + "_bd BEFORE DELETE ON "
+                + NoteTable.TABLE_NAME + " BEGIN"
+                + " DELETE FROM " + TABLE_NAME + " WHERE " + DOCID + "=old.rowid;"
+                + " END");
+        DbUtils.execSQL(db, "CREATE TRIGGER " + TABLE_NAME + "_au AFTER UPDATE OF "
+                + NoteTable.CONTENT_TO_SEARCH + " ON " + NoteTable.TABLE_NAME + " BEGIN"
+                + " INSERT INTO " + TABLE_NAME + " (" + DOCID + ", " + NoteTable.CONTENT_TO_SEARCH + ")"
+                + " VALUES (new.rowid, new." + NoteTable.CONTENT_TO_SEARCH + ");"
+                + " END");
+        DbUtils.execSQL(db, "CREATE TRIGGER " + TABLE_NAME + "_ai AFTER INSERT ON "
+                + NoteTable.TABLE_NAME + " BEGIN"
+                + " INSERT INTO " + TABLE_NAME + " (" + DOCID + ", " + NoteTable.CONTENT_TO_SEARCH + ")"
+                + " VALUES (new.rowid, new." + NoteTable.CONTENT_TO_SEARCH + ");"
+                + " END");
+    }
+
+    /** Rebuilds the whole index from the content of the Note table */
+    public static void rebuild(SQLiteDatabase db) {
+        DbUtils.execSQL(db, "INSERT INTO " + TABLE_NAME + "(" + TABLE_NAME + ") VALUES('rebuild')");
+    }
+
+    /** Merges index segments, so that subsequent queries are faster */
+    public static void optimize(SQLiteDatabase db) {
+        DbUtils.execSQL(db, "INSERT INTO " + TABLE_NAME + "(" + TABLE_NAME + ") VALUES('optimize')");
+    }
+
+    /**
+     * @param matchExpression See {@link org.andstatus.app.note.KeywordsFilter#getSqlMatchExpression()}
+     * @return SQL that selects ids of matching notes
+     */
+    public static String selectNoteIds(String matchExpression) {
+        return "SELECT " + DOCID + " FROM " + TABLE_NAME
+                + " WHERE " + TABLE_NAME + " MATCH '" + matchExpression.replace("'", "''") + "'";
+    }
+}
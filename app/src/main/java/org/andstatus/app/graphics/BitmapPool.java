@@ -0,0 +1,180 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Color;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import org.andstatus.app.util.MyLog;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Pool of bitmaps, which are not used any more, so they may be reused for new images,
+ * instead of allocating new bitmaps. Bitmaps are allocated lazily, when needed.
+ * Bitmaps are grouped in buckets by their config and allocated size, and a bitmap is reused for an image of
+ * up to {@link #MAX_SIZE_MULTIPLE} times smaller size.
+ * Only bitmaps, which were never shown (e.g. intermediate results of decoding), are put to the pool.
+ * Images, evicted from caches, may still be shown, so their bitmaps are left for the garbage collector.
+ * @author yvolk@yurivolkov.com
+ */
+public class BitmapPool {
+    private static final String TAG = BitmapPool.class.getSimpleName();
+    static final int MAX_SIZE_MULTIPLE = 4;
+
+    private final Map<Bitmap.Config, TreeMap<Integer, Deque<Bitmap>>> buckets = new EnumMap<>(Bitmap.Config.class);
+    private volatile long maxSize;
+    private long size = 0;
+    private long hits = 0;
+    private long misses = 0;
+
+    BitmapPool(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /** @return A mutable bitmap of exactly this size, cleared, taken from the pool or newly created */
+    @NonNull
+    Bitmap get(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = take(width, height, config);
+        if (bitmap == null) {
+            return Bitmap.createBitmap(width, height, config);
+        }
+        bitmap.reconfigure(width, height, config);
+        bitmap.eraseColor(Color.TRANSPARENT);
+        return bitmap;
+    }
+
+    @Nullable
+    private synchronized Bitmap take(int width, int height, Bitmap.Config config) {
+        int byteCount = width * height * bytesPerPixel(config);
+        TreeMap<Integer, Deque<Bitmap>> bucketsOfConfig = buckets.get(config);
+        Map.Entry<Integer, Deque<Bitmap>> entry = bucketsOfConfig == null ? null : bucketsOfConfig.ceilingEntry(byteCount);
+        if (entry == null || entry.getKey() > byteCount * MAX_SIZE_MULTIPLE) {
+            misses++;
+            return null;
+        }
+        Bitmap bitmap = entry.getValue().poll();
+        if (entry.getValue().isEmpty()) {
+            bucketsOfConfig.remove(entry.getKey());
+        }
+        size -= entry.getKey();
+        hits++;
+        return bitmap;
+    }
+
+    /** Returns a bitmap, which is not used any more, to the pool */
+    void put(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getConfig() == null) return;
+
+        int byteCount = bitmap.getAllocationByteCount();
+        synchronized (this) {
+            if (byteCount > maxSize) return;
+
+            buckets.computeIfAbsent(bitmap.getConfig(), config -> new TreeMap<>())
+                    .computeIfAbsent(byteCount, key -> new ArrayDeque<>())
+                    .add(bitmap);
+            size += byteCount;
+            trimToSize(maxSize);
+        }
+    }
+
+    /**
+     * Decodes the file, reusing a bitmap from the pool, if possible
+     * @param options Should have sample size set, other fields are set here
+     */
+    @Nullable
+    Bitmap decodeFile(String path, BitmapFactory.Options options) {
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(path, options);
+        options.inJustDecodeBounds = false;
+        if (options.outWidth < 1 || options.outHeight < 1) return null;
+
+        int sampleSize = Math.max(options.inSampleSize, 1);
+        options.inMutable = true;
+        options.inPreferredConfig = CachedImage.BITMAP_CONFIG;
+        options.inBitmap = get((options.outWidth + sampleSize - 1) / sampleSize,
+                (options.outHeight + sampleSize - 1) / sampleSize, CachedImage.BITMAP_CONFIG);
+        Bitmap bitmap = BitmapFactory.decodeFile(path, options);
+        if (bitmap == null) {
+            // decodeFile logs and hides "Problem decoding into existing bitmap"
+            MyLog.v(TAG, () -> "Couldn't decode into existing bitmap '" + path + "'");
+            put(options.inBitmap);
+            options.inBitmap = null;
+            bitmap = BitmapFactory.decodeFile(path, options);
+        }
+        return bitmap;
+    }
+
+    /** Drops bitmaps of larger sizes first, until the pool fits into the size */
+    synchronized void trimToSize(long newSize) {
+        for (TreeMap<Integer, Deque<Bitmap>> bucketsOfConfig : buckets.values()) {
+            while (size > newSize && !bucketsOfConfig.isEmpty()) {
+                Map.Entry<Integer, Deque<Bitmap>> entry = bucketsOfConfig.lastEntry();
+                entry.getValue().poll();
+                if (entry.getValue().isEmpty()) {
+                    bucketsOfConfig.remove(entry.getKey());
+                }
+                size -= entry.getKey();
+            }
+        }
+    }
+
+    synchronized void clear() {
+        buckets.clear();
+        size = 0;
+    }
+
+    synchronized void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        trimToSize(maxSize);
+    }
+
+    long getMaxSize() {
+        return maxSize;
+    }
+
+    synchronized long getSize() {
+        return size;
+    }
+
+    private static int bytesPerPixel(Bitmap.Config config) {
+        switch (config) {
+            case ALPHA_8:
+                return 1;
+            case RGB_565:
+            case ARGB_4444:
+                return 2;
+            default:
+                return 4;
+        }
+    }
+
+    public synchronized String getInfo() {
+        long accesses = hits + misses;
+        return "Bitmap pool: " + size + " of " + maxSize + " bytes"
+                + ", hits:" + hits + ", misses:" + misses
+                + (accesses == 0 ? "" : ", hitRate:" + hits * 100 / accesses + "%");
+    }
+}
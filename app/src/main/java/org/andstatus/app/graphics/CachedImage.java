@@ -52,10 +52,6 @@ public class CachedImage {
         return Bitmap.createBitmap(size, size, BITMAP_CONFIG);
     }
 
-    boolean isBitmapRecyclable() {
-        return !expired && !EMPTY_BITMAP.equals(bitmap);
-    }
-
     @NonNull
     Bitmap getBitmap() {
         return bitmap;
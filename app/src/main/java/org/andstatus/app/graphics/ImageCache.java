@@ -16,15 +16,12 @@
 
 package org.andstatus.app.graphics;
 
-import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
 import android.graphics.BitmapShader;
 import android.graphics.Canvas;
-import android.graphics.Color;
 import android.graphics.Paint;
 import android.graphics.Point;
-import android.graphics.PorterDuff;
 import android.graphics.Rect;
 import android.graphics.RectF;
 import android.graphics.Shader;
@@ -32,7 +29,6 @@ import android.media.MediaMetadataRetriever;
 import android.media.ThumbnailUtils;
 import android.net.Uri;
 import android.os.Build;
-import android.util.DisplayMetrics;
 import android.util.LruCache;
 
 import androidx.annotation.Nullable;
@@ -45,11 +41,10 @@ import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StringUtil;
 
 import java.io.File;
-import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 import static org.andstatus.app.context.MyContextHolder.myContextHolder;
 
@@ -62,15 +57,13 @@ public class ImageCache extends LruCache<String, CachedImage> {
 
     public final static int BYTES_PER_PIXEL = 4;
     final CacheName name;
-    private volatile int requestedCacheSize;
-    private volatile int currentCacheSize;
+    private final int cacheSize;
     volatile int maxBitmapHeight;
     volatile int maxBitmapWidth;
     final AtomicLong hits = new AtomicLong();
     final AtomicLong misses = new AtomicLong();
     final Set<String> brokenBitmaps = new ConcurrentSkipListSet<>();
-    final Queue<Bitmap> recycledBitmaps;
-    final DisplayMetrics displayMetrics;
+    final BitmapPool bitmapPool;
     volatile boolean rounded = false;
     final boolean showImageInimations;
 
@@ -79,33 +72,14 @@ public class ImageCache extends LruCache<String, CachedImage> {
         throw new IllegalStateException("Cache cannot be resized");
     }
 
-    public ImageCache(Context context, CacheName name, int maxBitmapHeightWidthIn, int requestedCacheSizeIn) {
-        super(requestedCacheSizeIn);
+    /** Bitmaps are allocated lazily and are taken from the pool, shared by the caches */
+    public ImageCache(CacheName name, int maxBitmapHeightWidth, int cacheSize, BitmapPool bitmapPool) {
+        super(Math.max(cacheSize, 1));
         showImageInimations = MyPreferences.isShowImageAnimations();
         this.name = name;
-        displayMetrics = context.getResources().getDisplayMetrics();
-        int maxBitmapHeightWidth = maxBitmapHeightWidthIn;
         this.setMaxBounds(maxBitmapHeightWidth, maxBitmapHeightWidth);
-        this.requestedCacheSize = requestedCacheSizeIn;
-        this.currentCacheSize = this.requestedCacheSize;
-        recycledBitmaps = new ConcurrentLinkedQueue<>();
-        try {
-            for (int i = 0; i < currentCacheSize + 2; i++) {
-                recycledBitmaps.add(newBlankBitmap());
-            }
-        } catch (OutOfMemoryError e) {
-            MyLog.w(this, getInfo(), e);
-            currentCacheSize = recycledBitmaps.size() - 2;
-            if (currentCacheSize < 0) {
-                currentCacheSize = 0;
-            }
-            super.resize(currentCacheSize);
-        }
-    }
-
-    private Bitmap newBlankBitmap() {
-        return Bitmap.createBitmap(displayMetrics, maxBitmapWidth,
-                maxBitmapHeight, CachedImage.BITMAP_CONFIG);
+        this.cacheSize = cacheSize;
+        this.bitmapPool = bitmapPool;
     }
 
     @Nullable
@@ -120,10 +94,8 @@ public class ImageCache extends LruCache<String, CachedImage> {
 
     @Override
     protected void entryRemoved(boolean evicted, String key, CachedImage oldValue, CachedImage newValue) {
-        if (oldValue.isBitmapRecyclable()) {
-            oldValue.makeExpired();
-            recycledBitmaps.add(oldValue.getBitmap());
-        }
+        // The bitmap is not returned to the pool, because an evicted image may still be shown
+        oldValue.makeExpired();
     }
 
     @Nullable
@@ -142,7 +114,7 @@ public class ImageCache extends LruCache<String, CachedImage> {
             if (!fromCacheOnly && (new File(mediaFile.getPath())).exists()) {
                 image = loadImage(mediaFile);
                 if (image != null) {
-                    if (currentCacheSize > 0) {
+                    if (cacheSize > 0) {
                         put(mediaFile.getPath(), image);
                     }
                 } else {
@@ -155,22 +127,69 @@ public class ImageCache extends LruCache<String, CachedImage> {
 
     @Nullable
     private CachedImage loadImage(MediaFile mediaFile) {
-        switch (MyContentType.fromPathOfSavedFile(mediaFile.getPath())) {
+        MyContentType contentType = MyContentType.fromPathOfSavedFile(mediaFile.getPath());
+        switch (contentType) {
             case IMAGE:
             case ANIMATED_IMAGE:
-                if (showImageInimations && Build.VERSION.SDK_INT >= 28) {
+                if (showImageInimations && Build.VERSION.SDK_INT >= 28 && (contentType == MyContentType.ANIMATED_IMAGE
+                        || !Thumbnails.exists(getThumbnailFile(mediaFile), mediaFile))) {
                     return ImageCacheApi28Helper.animatedFileToCachedImage(this, mediaFile);
                 }
                 return imageFileToCachedImage(mediaFile);
             case VIDEO:
-                return bitmapToCachedImage(mediaFile, videoFileToBitmap(mediaFile));
+                return bitmapToCachedImage(mediaFile, loadBitmap(mediaFile, this::videoFileToBitmap));
             default:
                 return null;
         }
     }
 
     CachedImage imageFileToCachedImage(MediaFile mediaFile) {
-        return bitmapToCachedImage(mediaFile, imageFileToBitmap(mediaFile));
+        return bitmapToCachedImage(mediaFile, loadBitmap(mediaFile, this::imageFileToBitmap));
+    }
+
+    /** Creates a thumbnail of the media file in advance, e.g. right after its download, if it's missing */
+    void createThumbnail(MediaFile mediaFile) {
+        MyContentType contentType = MyContentType.fromPathOfSavedFile(mediaFile.getPath());
+        Function<MediaFile, Bitmap> decoder;
+        switch (contentType) {
+            case ANIMATED_IMAGE:
+                if (showImageInimations && Build.VERSION.SDK_INT >= 28) return;
+                // Fall through: the first frame is shown
+            case IMAGE:
+                decoder = this::imageFileToBitmap;
+                break;
+            case VIDEO:
+                decoder = this::videoFileToBitmap;
+                break;
+            default:
+                return;
+        }
+        bitmapPool.put(loadBitmap(mediaFile, decoder));
+    }
+
+    /** Reads the thumbnail of the media file, or decodes the media file and saves its thumbnail for later */
+    @Nullable
+    private Bitmap loadBitmap(MediaFile mediaFile, Function<MediaFile, Bitmap> decoder) {
+        File thumbnail = getThumbnailFile(mediaFile);
+        Bitmap bitmap = Thumbnails.read(thumbnail, mediaFile, bitmapPool);
+        if (bitmap == null) {
+            bitmap = decoder.apply(mediaFile);
+            if (bitmap != null && isScaledDown(mediaFile, bitmap)) {
+                Thumbnails.write(thumbnail, bitmap);
+            }
+        }
+        return bitmap;
+    }
+
+    @Nullable
+    private File getThumbnailFile(MediaFile mediaFile) {
+        return Thumbnails.getFile(mediaFile, maxBitmapWidth, maxBitmapHeight);
+    }
+
+    /** Small images are read as fast as their thumbnails, so thumbnails are saved for large media only */
+    private static boolean isScaledDown(MediaFile mediaFile, Bitmap bitmap) {
+        return mediaFile.isVideo() || bitmap.getWidth() < mediaFile.getSize().x
+                || bitmap.getHeight() < mediaFile.getSize().y;
     }
 
     CachedImage bitmapToCachedImage(MediaFile mediaFile, Bitmap bitmap) {
@@ -178,14 +197,20 @@ public class ImageCache extends LruCache<String, CachedImage> {
             return null;
         }
         Rect srcRect = new Rect(0, 0, bitmap.getWidth(), bitmap.getHeight());
-        Bitmap background = getSuitableRecycledBitmap(srcRect);
-        if (background == null) {
-            MyLog.w(mediaFile, "No suitable bitmap found to cache "
-                    + srcRect.width() + "x" + srcRect.height() + " '" + mediaFile.getPath() + "'");
-            return null ;
+        if (!rounded && bitmap.isMutable() && bitmap.getConfig() == CachedImage.BITMAP_CONFIG) {
+            // The bitmap was decoded into a bitmap of the pool, so it is cached as is
+            return new CachedImage(mediaFile.getId(), bitmap, srcRect);
+        }
+        Bitmap background;
+        try {
+            background = bitmapPool.get(srcRect.width(), srcRect.height(), CachedImage.BITMAP_CONFIG);
+        } catch (OutOfMemoryError e) {
+            MyLog.w(mediaFile, "No memory to cache " + srcRect.width() + "x" + srcRect.height()
+                    + " '" + mediaFile.getPath() + "'; " + getInfo(), e);
+            evictAll();
+            return null;
         }
         Canvas canvas = new Canvas(background);
-        canvas.drawColor(Color.TRANSPARENT, PorterDuff.Mode.CLEAR);
         try {
             // On Android 8+ this may cause
             //   java.lang.IllegalArgumentException: Software rendering doesn't support hardware bitmaps
@@ -195,11 +220,11 @@ public class ImageCache extends LruCache<String, CachedImage> {
             } else {
                 canvas.drawBitmap(bitmap, 0 , 0, null);
             }
-            bitmap.recycle();
+            bitmapPool.put(bitmap);
         } catch (Exception e) {
             // TODO: better approach needed... maybe fail?!
             MyLog.w(TAG, "Drawing bitmap of " + mediaFile, e);
-            recycledBitmaps.add(background);
+            bitmapPool.put(background);
             background = bitmap;
         }
         return new CachedImage(mediaFile.getId(), background, srcRect);
@@ -218,20 +243,16 @@ public class ImageCache extends LruCache<String, CachedImage> {
         canvas.drawOval(rectF, paint);
     }
 
-    private Bitmap getSuitableRecycledBitmap(Rect srcRect) {
-        return recycledBitmaps.poll();
-    }
-
     @Nullable
     private Bitmap imageFileToBitmap(MediaFile mediaFile) {
         try {
             final Bitmap bitmap;
             final BitmapFactory.Options options = calculateScaling(mediaFile, mediaFile.getSize());
             if (MyPreferences.isShowDebuggingInfoInUi()) {
-                bitmap = BitmapFactory.decodeFile(mediaFile.getPath(), options);
+                bitmap = bitmapPool.decodeFile(mediaFile.getPath(), options);
             } else {
                 try {
-                    bitmap = BitmapFactory.decodeFile(mediaFile.getPath(), options);
+                    bitmap = bitmapPool.decodeFile(mediaFile.getPath(), options);
                 } catch (OutOfMemoryError e) {
                     MyLog.w(mediaFile, getInfo(), e);
                     evictAll();
@@ -294,11 +315,7 @@ public class ImageCache extends LruCache<String, CachedImage> {
     public String getInfo() {
         StringBuilder builder = new StringBuilder(name.title);
         builder.append(": " + maxBitmapWidth + "x" + maxBitmapHeight + ", "
-                + size() + " of " + currentCacheSize);
-        if (requestedCacheSize != currentCacheSize) {
-            builder.append(" (initially capacity was " + requestedCacheSize + ")");
-        }
-        builder.append(", free: " + recycledBitmaps.size());
+                + size() + " of " + cacheSize);
         if (!brokenBitmaps.isEmpty()) {
             builder.append(", broken: " + brokenBitmaps.size());
         }
@@ -17,6 +17,7 @@
 package org.andstatus.app.graphics;
 
 import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.graphics.Point;
 import android.view.Display;
@@ -48,6 +49,10 @@ public class ImageCaches {
     private static final float AVATARS_CACHE_PART_OF_TOTAL_APP_MEMORY = 0.05f;
     public static final int AVATARS_CACHE_SIZE_MIN = 200;
     public static final int AVATARS_CACHE_SIZE_MAX = 700;
+    /** Bitmaps, released by both caches, wait for reuse in the pool */
+    private static final float BITMAP_POOL_PART_OF_TOTAL_APP_MEMORY = 0.05f;
+
+    private static final BitmapPool bitmapPool = new BitmapPool(0);
 
     private static volatile ImageCache attachedImagesCache;
     private static volatile ImageCache avatarsCache;
@@ -59,6 +64,8 @@ public class ImageCaches {
     public static synchronized void initialize(Context context) {
         StopWatch stopWatch = StopWatch.createStarted();
         styledImages.clear();
+        bitmapPool.clear();
+        bitmapPool.setMaxSize(Math.round(BITMAP_POOL_PART_OF_TOTAL_APP_MEMORY * getTotalAppMemory(context)));
         initializeAttachedImagesCache(context);
         initializeAvatarsCache(context);
         MyLog.i(ImageCaches.class.getSimpleName(), "imageCachesInitializedMs:" + stopWatch.getTime() + "; " + getCacheInfo());
@@ -80,8 +87,7 @@ public class ImageCaches {
         if (cacheSize > ATTACHED_IMAGES_CACHE_SIZE_MAX) {
             cacheSize = ATTACHED_IMAGES_CACHE_SIZE_MAX;
         }
-        attachedImagesCache = new ImageCache(context, CacheName.ATTACHED_IMAGE, imageSize,
-                cacheSize);
+        attachedImagesCache = new ImageCache(CacheName.ATTACHED_IMAGE, imageSize, cacheSize, bitmapPool);
     }
 
     private static void initializeAvatarsCache(Context context) {
@@ -98,7 +104,7 @@ public class ImageCaches {
         if (cacheSize > AVATARS_CACHE_SIZE_MAX) {
             cacheSize = AVATARS_CACHE_SIZE_MAX;
         }
-        avatarsCache = new ImageCache(context, CacheName.AVATAR, imageSize, cacheSize);
+        avatarsCache = new ImageCache(CacheName.AVATAR, imageSize, cacheSize, bitmapPool);
         setAvatarsRounded();
     }
 
@@ -107,6 +113,26 @@ public class ImageCaches {
         avatarsCache.rounded = SharedPreferencesUtil.getBoolean(MyPreferences.KEY_ROUNDED_AVATARS, true);
     }
 
+    /**
+     * Releases memory, see {@link android.content.ComponentCallbacks2#onTrimMemory(int)}:
+     * the more memory is needed, the more of the pool and then of the caches is freed
+     */
+    public static void onTrimMemory(int level) {
+        ImageCache avatars = avatarsCache;
+        ImageCache attachedImages = attachedImagesCache;
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            if (avatars != null) avatars.evictAll();
+            if (attachedImages != null) attachedImages.evictAll();
+            bitmapPool.clear();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            if (attachedImages != null) attachedImages.trimToSize(attachedImages.maxSize() / 2);
+            bitmapPool.clear();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            bitmapPool.trimToSize(bitmapPool.getMaxSize() / 2);
+        }
+        MyLog.i(ImageCaches.class.getSimpleName(), "onTrimMemory, level:" + level + "; " + getCacheInfo());
+    }
+
     private static int calcCacheSize(Context context, int imageSize, float partOfAvailableMemory) {
         return Math.round(partOfAvailableMemory * getTotalAppMemory(context)
                 / imageSize / imageSize / ImageCache.BYTES_PER_PIXEL);
@@ -140,6 +166,14 @@ public class ImageCaches {
         return getCache(cacheName).getCachedImage(mediaFile);
     }
 
+    /** Creates a thumbnail of a downloaded media file, so it won't be decoded, when shown */
+    public static void createThumbnail(CacheName cacheName, MediaFile mediaFile) {
+        ImageCache cache = getCache(cacheName);
+        if (cache != null && mediaFile.downloadFile.existsNow()) {
+            cache.createThumbnail(mediaFile);
+        }
+    }
+
     public static ImageCache getCache(CacheName cacheName) {
         switch (cacheName) {
             case ATTACHED_IMAGE:
@@ -156,6 +190,7 @@ public class ImageCaches {
         } else {
             builder.append(avatarsCache.getInfo() + "; ");
             builder.append(attachedImagesCache.getInfo() + "; ");
+            builder.append(bitmapPool.getInfo() + "; ");
             builder.append("Styled images: " + styledImages.size() + "; ");
         }
         Context context = myContextHolder.getNow().context();
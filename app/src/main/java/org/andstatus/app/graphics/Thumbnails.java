@@ -0,0 +1,166 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import androidx.annotation.Nullable;
+
+import org.andstatus.app.context.MyStorage;
+import org.andstatus.app.data.MediaFile;
+import org.andstatus.app.util.MyLog;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Disk cache of thumbnails: media files, decoded and scaled down to the maximum bitmap size of an {@link ImageCache}.
+ * Reading a small thumbnail is much faster than decoding a large image or a frame of a video again and again,
+ * when an image has been evicted from the in-memory cache.
+ * A thumbnail is stale, if it is older than its media file
+ * @author yvolk@yurivolkov.com
+ */
+public final class Thumbnails {
+    private static final String TAG = Thumbnails.class.getSimpleName();
+    private static final String EXTENSION = ".webp";
+    private static final int QUALITY = 90;
+    private static final long TEMP_FILE_MAX_AGE_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    private Thumbnails() {
+        // Empty
+    }
+
+    @Nullable
+    static File getFile(MediaFile mediaFile, int width, int height) {
+        File folder = MyStorage.getDataFilesDir(MyStorage.DIRECTORY_THUMBNAILS);
+        if (folder == null) return null;
+
+        return new File(folder, mediaFile.downloadFile.getFilename() + "_" + width + "x" + height + EXTENSION);
+    }
+
+    /** @return Name of the media file, or empty if this is not a thumbnail */
+    static String getMediaFilename(File thumbnail) {
+        String name = thumbnail.getName();
+        if (!name.endsWith(EXTENSION)) return "";
+
+        int indSize = name.lastIndexOf('_');
+        return indSize > 0 ? name.substring(0, indSize) : "";
+    }
+
+    static boolean exists(@Nullable File thumbnail, MediaFile mediaFile) {
+        return thumbnail != null && thumbnail.exists()
+                && thumbnail.lastModified() >= mediaFile.downloadFile.getFile().lastModified();
+    }
+
+    /** @return null if there is no fresh thumbnail */
+    @Nullable
+    static Bitmap read(@Nullable File thumbnail, MediaFile mediaFile, BitmapPool bitmapPool) {
+        if (!exists(thumbnail, mediaFile)) return null;
+
+        Bitmap bitmap = bitmapPool.decodeFile(thumbnail.getAbsolutePath(), new BitmapFactory.Options());
+        if (bitmap == null) {
+            MyLog.w(TAG, "Failed to read thumbnail '" + thumbnail.getAbsolutePath() + "'");
+            thumbnail.delete();
+        } else {
+            // To keep recently used thumbnails on pruning
+            thumbnail.setLastModified(System.currentTimeMillis());
+            MyLog.v(mediaFile, () -> "Loaded thumbnail " + bitmap.getWidth() + "x" + bitmap.getHeight()
+                    + " '" + thumbnail.getAbsolutePath() + "'");
+        }
+        return bitmap;
+    }
+
+    /** The thumbnail is written to a temporary file first, so a partially written thumbnail is never read */
+    static void write(@Nullable File thumbnail, Bitmap bitmap) {
+        if (thumbnail == null) return;
+
+        File fileTemp = new File(thumbnail.getParentFile(), MyStorage.TEMP_FILENAME_PREFIX + thumbnail.getName());
+        try (OutputStream out = new FileOutputStream(fileTemp)) {
+            if (!bitmap.compress(Bitmap.CompressFormat.WEBP, QUALITY, out)) {
+                throw new IOException("Failed to compress bitmap");
+            }
+        } catch (Exception e) {
+            MyLog.w(TAG, "Failed to write thumbnail '" + fileTemp.getAbsolutePath() + "'", e);
+            fileTemp.delete();
+            return;
+        }
+        thumbnail.delete();
+        if (fileTemp.renameTo(thumbnail)) {
+            MyLog.v(TAG, () -> "Saved thumbnail " + bitmap.getWidth() + "x" + bitmap.getHeight()
+                    + " '" + thumbnail.getAbsolutePath() + "', " + thumbnail.length() + " bytes");
+        } else {
+            MyLog.w(TAG, "Couldn't rename file " + fileTemp + " to " + thumbnail);
+            fileTemp.delete();
+        }
+    }
+
+    public static long getSize() {
+        return getFiles().stream().mapToLong(File::length).sum();
+    }
+
+    /**
+     * Deletes stale thumbnails and thumbnails of deleted media files,
+     * and then least recently used thumbnails, exceeding the maximum size
+     * @return number of deleted thumbnails
+     */
+    public static long prune(long maxSize) {
+        File downloads = MyStorage.getDataFilesDir(MyStorage.DIRECTORY_DOWNLOADS);
+        if (downloads == null) return 0;
+
+        long deleted = 0;
+        long size = 0;
+        long tempFileTime = System.currentTimeMillis() - TEMP_FILE_MAX_AGE_MILLIS;
+        List<File> files = getFiles().stream()
+                .sorted(Comparator.comparing(File::lastModified).reversed())
+                .collect(Collectors.toList());
+        for (File file : files) {
+            boolean toDelete;
+            if (MyStorage.isTempFile(file)) {
+                toDelete = file.lastModified() < tempFileTime;
+            } else {
+                File mediaFile = new File(downloads, getMediaFilename(file));
+                toDelete = !mediaFile.isFile() || mediaFile.lastModified() > file.lastModified()
+                        || size + file.length() > maxSize;
+            }
+            if (toDelete) {
+                if (file.delete()) deleted++;
+            } else {
+                size += file.length();
+            }
+        }
+        MyLog.v(TAG, "Thumbnails deleted: " + deleted + ", left: " + (files.size() - deleted)
+                + ", size " + size + " bytes");
+        return deleted;
+    }
+
+    private static List<File> getFiles() {
+        File folder = MyStorage.getDataFilesDir(MyStorage.DIRECTORY_THUMBNAILS);
+        File[] files = folder == null ? null : folder.listFiles();
+        return files == null
+                ? Collections.emptyList()
+                : Arrays.stream(files).filter(File::isFile).collect(Collectors.toList());
+    }
+}
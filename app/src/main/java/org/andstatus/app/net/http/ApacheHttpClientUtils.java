@@ -20,14 +20,14 @@ import android.content.ContentResolver;
 import android.net.Uri;
 
 import org.andstatus.app.data.MyContentType;
-import org.andstatus.app.util.FileUtils;
 import org.andstatus.app.util.JsonUtils;
 import org.andstatus.app.util.StringUtil;
 import org.json.JSONObject;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -42,14 +42,6 @@ import cz.msebera.android.httpclient.protocol.HTTP;
 
 class ApacheHttpClientUtils {
 
-    static MultipartFormEntityBytes buildMultipartFormEntityBytes(HttpRequest request) throws ConnectionException {
-        HttpEntity httpEntity = multiPartFormEntity(request);
-        return new MultipartFormEntityBytes(
-                httpEntity.getContentType().getName(),
-                httpEntity.getContentType().getValue(),
-                httpEntityToBytes(httpEntity));
-    }
-
     static HttpEntity multiPartFormEntity(HttpRequest request) throws ConnectionException {
         MultipartEntityBuilder builder = MultipartEntityBuilder.create();
         request.postParams.ifPresent(formParams -> {
@@ -69,10 +61,12 @@ class ApacheHttpClientUtils {
         }
         if (request.mediaUri.isPresent()) {
             Uri mediaUri = request.mediaUri.get();
-            try (InputStream ins = contentResolver.openInputStream(mediaUri)) {
+            // The stream is opened here to fail early, the media is read while the request is being sent
+            try (InputStream ignored = contentResolver.openInputStream(mediaUri)) {
                 ContentType mediaContentType = ContentType.create(
                         MyContentType.uri2MimeType(contentResolver, mediaUri));
-                builder.addBinaryBody(request.mediaPartName, FileUtils.getBytes(ins), mediaContentType, mediaUri.getPath());
+                builder.addPart(request.mediaPartName, new UriContentBody(contentResolver, mediaUri,
+                        mediaContentType, request.uploadProgressListener));
             } catch (SecurityException | IOException e) {
                 throw ConnectionException.hardConnectionException("mediaUri='" + mediaUri + "'", e);
             }
@@ -80,15 +74,18 @@ class ApacheHttpClientUtils {
         return builder.build();
     }
 
-    private static byte[] httpEntityToBytes(HttpEntity httpEntity) throws ConnectionException {
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
-        try {
+    /** Streams the entity to the connection, the media part is not loaded into memory */
+    static void writeEntity(HttpURLConnection conn, HttpEntity httpEntity) throws IOException {
+        long length = httpEntity.getContentLength();
+        if (length < 0) {
+            conn.setChunkedStreamingMode(0);
+        } else {
+            conn.setFixedLengthStreamingMode(length);
+        }
+        conn.setRequestProperty(httpEntity.getContentType().getName(), httpEntity.getContentType().getValue());
+        try (OutputStream out = conn.getOutputStream()) {
             httpEntity.writeTo(out);
-            out.flush();
-        } catch (IOException e) {
-            throw new ConnectionException("httpEntityToBytes", e);
         }
-        return out.toByteArray();
     }
 
     static List<NameValuePair> jsonToNameValuePair(JSONObject jso) {
@@ -104,9 +101,10 @@ class ApacheHttpClientUtils {
         return formParams;
     }
 
-    static HttpClient getHttpClient(SslModeEnum sslMode) {
+    static HttpClient getHttpClient(HttpConnectionData data) {
+        SslModeEnum sslMode = data.getSslMode();
         return sslMode == SslModeEnum.MISCONFIGURED ?
                 MisconfiguredSslHttpClientFactory.getHttpClient() :
-                    MyHttpClientFactory.getHttpClient(sslMode) ;
+                    PooledHttpClients.get(sslMode, data.originUrl);
     }
 }
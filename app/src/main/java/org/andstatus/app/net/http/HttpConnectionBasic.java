@@ -48,7 +48,7 @@ public class HttpConnectionBasic extends HttpConnection implements HttpConnectio
     @Override
     public HttpReadResult httpApachePostRequest(HttpPost postMethod, HttpReadResult result) {
         try {
-            HttpClient client = ApacheHttpClientUtils.getHttpClient(data.getSslMode());
+            HttpClient client = ApacheHttpClientUtils.getHttpClient(data);
             postMethod.setHeader("User-Agent", HttpConnection.USER_AGENT);
             if (getCredentialsPresent()) {
                 postMethod.addHeader("Authorization", "Basic " + getCredentials());
@@ -59,7 +59,7 @@ public class HttpConnectionBasic extends HttpConnection implements HttpConnectio
             result.readStream("", o -> httpEntity == null ? null : httpEntity.getContent());
         } catch (Exception e) {
             result.setException(e);
-        } finally {
+            // Don't return a broken connection to the pool
             postMethod.abort();
         }
         return result;
@@ -67,7 +67,7 @@ public class HttpConnectionBasic extends HttpConnection implements HttpConnectio
 
     @Override
     public HttpResponse httpApacheGetResponse(HttpGet httpGet) throws IOException {
-        HttpClient client = ApacheHttpClientUtils.getHttpClient(data.getSslMode());
+        HttpClient client = ApacheHttpClientUtils.getHttpClient(data);
         return client.execute(httpGet);
     }
 
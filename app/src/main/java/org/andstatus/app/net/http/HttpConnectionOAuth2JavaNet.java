@@ -35,12 +35,15 @@ import org.andstatus.app.util.MyStringBuilder;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.net.HttpURLConnection;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import cz.msebera.android.httpclient.HttpEntity;
 import io.vavr.control.Try;
 import oauth.signpost.OAuthConsumer;
 import oauth.signpost.OAuthProvider;
@@ -104,12 +107,11 @@ public class HttpConnectionOAuth2JavaNet extends HttpConnectionOAuthJavaNet {
     private HttpReadResult postRequestOauth(HttpReadResult result) {
         try {
             OAuth20Service service = getService(false);
-            final OAuthRequest request = new OAuthRequest(Verb.POST, result.getUrlObj().toString());
             if (result.request.mediaUri.isPresent()) {
-                MultipartFormEntityBytes bytes = ApacheHttpClientUtils.buildMultipartFormEntityBytes(result.request);
-                request.addHeader(bytes.contentTypeName, bytes.contentTypeValue);
-                request.setPayload(bytes.bytes);
-            } else if(result.request.postParams.isPresent()) {
+                return postMultipartOauth(result, service);
+            }
+            final OAuthRequest request = new OAuthRequest(Verb.POST, result.getUrlObj().toString());
+            if (result.request.postParams.isPresent()) {
                 JSONObject params = result.request.postParams.get();
                 if (data.optOriginContentType().map(value -> {
                     request.addHeader("Content-Type", value);
@@ -151,6 +153,34 @@ public class HttpConnectionOAuth2JavaNet extends HttpConnectionOAuthJavaNet {
         return result;
     }
 
+    /** The request is streamed, because OAuth library's requests hold the whole payload in memory */
+    private HttpReadResult postMultipartOauth(HttpReadResult result, OAuth20Service service) throws IOException {
+        HttpEntity httpEntity = ApacheHttpClientUtils.multiPartFormEntity(result.request);
+        final OAuthRequest signedRequest = new OAuthRequest(Verb.POST, result.getUrlObj().toString());
+        signRequest(signedRequest, service, false);
+        HttpURLConnection conn = (HttpURLConnection) new URL(signedRequest.getCompleteUrl()).openConnection();
+        try {
+            conn.setConnectTimeout(MyPreferences.getConnectionTimeoutMs());
+            conn.setReadTimeout(2 * MyPreferences.getConnectionTimeoutMs());
+            conn.setInstanceFollowRedirects(false);
+            conn.setDoOutput(true);
+            conn.setDoInput(true);
+            conn.setRequestMethod("POST");
+            signedRequest.getHeaders().forEach(conn::setRequestProperty);
+            ApacheHttpClientUtils.writeEntity(conn, httpEntity);
+            setStatusCodeAndHeaders(result, conn);
+            if (result.getStatusCode() == OK) {
+                result.readStream("", o -> conn.getInputStream());
+            } else {
+                result.readStream("", o -> conn.getErrorStream());
+                result.setException(result.getExceptionFromJsonErrorResponse());
+            }
+        } finally {
+            conn.disconnect();
+        }
+        return result;
+    }
+
     @Override
     public HttpReadResult getRequest(HttpReadResult result) {
         Response responseCopy = null;
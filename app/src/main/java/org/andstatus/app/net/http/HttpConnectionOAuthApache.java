@@ -45,7 +45,7 @@ public class HttpConnectionOAuthApache extends HttpConnectionOAuth implements Ht
                 getApiUri(ApiRoutineEnum.OAUTH_REQUEST_TOKEN).toString(),
                 getApiUri(ApiRoutineEnum.OAUTH_ACCESS_TOKEN).toString(),
                 getApiUri(ApiRoutineEnum.OAUTH_AUTHORIZE).toString());
-        provider.setHttpClient(ApacheHttpClientUtils.getHttpClient(data.getSslMode()));
+        provider.setHttpClient(ApacheHttpClientUtils.getHttpClient(data));
         provider.setOAuth10a(true);
         return provider;
     }
@@ -72,7 +72,7 @@ public class HttpConnectionOAuthApache extends HttpConnectionOAuth implements Ht
             if (result.authenticate()) {
                 signRequest(post);
             }
-            result.strResponse = ApacheHttpClientUtils.getHttpClient(data.getSslMode()).execute(
+            result.strResponse = ApacheHttpClientUtils.getHttpClient(data).execute(
                     post, new BasicResponseHandler());
         } catch (Exception e) {
             // We don't catch other exceptions because in fact it's vary difficult to tell
@@ -84,7 +84,7 @@ public class HttpConnectionOAuthApache extends HttpConnectionOAuth implements Ht
 
     @Override
     public HttpResponse httpApacheGetResponse(HttpGet httpGet) throws IOException {
-        return ApacheHttpClientUtils.getHttpClient(data.getSslMode()).execute(httpGet);
+        return ApacheHttpClientUtils.getHttpClient(data).execute(httpGet);
     }
 
     private void signRequest(Object httpGetOrPost) throws IOException {
@@ -28,7 +28,7 @@ import org.andstatus.app.util.MyStringBuilder;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.json.JSONObject;
 
-import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -166,17 +166,19 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
     private void writeMedia(HttpURLConnection conn, HttpRequest request) throws IOException {
         final ContentResolver contentResolver = myContextHolder.getNow().context().getContentResolver();
         Uri mediaUri = request.mediaUri.get();
-        conn.setChunkedStreamingMode(0);
+        long length = UriContentBody.getLength(contentResolver, mediaUri);
+        if (length < 0) {
+            conn.setChunkedStreamingMode(0);
+        } else {
+            conn.setFixedLengthStreamingMode(length);
+        }
         conn.setRequestProperty("Content-Type", MyContentType.uri2MimeType(contentResolver, mediaUri));
         signConnection(conn, getConsumer(), false);
 
         try (InputStream in = contentResolver.openInputStream(mediaUri)) {
-            byte[] buffer = new byte[16384];
-            try (OutputStream out = new BufferedOutputStream(conn.getOutputStream())) {
-                int length;
-                while ((length = in.read(buffer)) != -1) {
-                    out.write(buffer, 0, length);
-                }
+            if (in == null) throw new FileNotFoundException("No input stream for '" + mediaUri + "'");
+            try (OutputStream out = conn.getOutputStream()) {
+                UriContentBody.copy(in, out, length, request.uploadProgressListener);
             }
         }
     }
@@ -242,7 +244,7 @@ public class HttpConnectionOAuthJavaNet extends HttpConnectionOAuth {
         return result;
     }
 
-    private void setStatusCodeAndHeaders(HttpReadResult result, HttpURLConnection conn) throws IOException {
+    protected void setStatusCodeAndHeaders(HttpReadResult result, HttpURLConnection conn) throws IOException {
         result.setStatusCode(conn.getResponseCode());
         try {
             result.setHeaders(
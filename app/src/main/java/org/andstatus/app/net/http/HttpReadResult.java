@@ -16,6 +16,8 @@ package org.andstatus.app.net.http;
 
 import android.text.TextUtils;
 import android.text.format.Formatter;
+import android.util.JsonReader;
+import android.util.JsonToken;
 
 import androidx.annotation.NonNull;
 
@@ -34,6 +36,7 @@ import org.json.JSONObject;
 import org.json.JSONTokener;
 
 import java.io.InputStream;
+import java.io.StringReader;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
@@ -263,6 +266,84 @@ public class HttpReadResult {
         return Try.success(jsa);
     }
  
+    /** The same as {@link #getJsonArray()}, but the response is parsed as a stream, item by item,
+     * so the whole array isn't built in memory: only one item at a time */
+    public <T> Try<List<T>> readJsonArrayItems(CheckedFunction<JSONObject, T> itemMapper) {
+        return readJsonArrayItems("items", itemMapper);
+    }
+
+    /** Streaming version of {@link #getJsonArray(String)}
+     * @param itemMapper Maps each item of the array, which should be a JSON object */
+    public <T> Try<List<T>> readJsonArrayItems(String arrayKey, CheckedFunction<JSONObject, T> itemMapper) {
+        String method = "readJsonArrayItems; ";
+        if (StringUtil.isEmpty(strResponse)) {
+            MyLog.v(this, () -> method + "; response is empty");
+            return Try.success(new ArrayList<>());
+        }
+        try (JsonReader reader = new JsonReader(new StringReader(strResponse))) {
+            // As tolerant as JSONTokener
+            reader.setLenient(true);
+            switch (reader.peek()) {
+                case BEGIN_ARRAY:
+                    return Try.success(readArrayItems(reader, itemMapper));
+                case BEGIN_OBJECT:
+                    // Used if there is no array with the arrayKey
+                    JSONArray firstArray = null;
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        String key = reader.nextName();
+                        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                            reader.skipValue();
+                        } else if (key.equals(arrayKey)) {
+                            return Try.success(readArrayItems(reader, itemMapper));
+                        } else if (firstArray == null) {
+                            MyLog.v(this, () -> method + "; found array inside '" + key + "' object");
+                            firstArray = (JSONArray) JsonUtils.readValue(reader);
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    if (firstArray == null) {
+                        return Try.failure(ConnectionException.loggedJsonException(this, "No array found; "
+                                + method + toString(), null, strResponse));
+                    }
+                    List<T> items = new ArrayList<>();
+                    for (int index = 0; index < firstArray.length(); index++) {
+                        items.add(mapArrayItem(firstArray.get(index), itemMapper));
+                    }
+                    return Try.success(items);
+                default:
+                    return Try.failure(ConnectionException.loggedJsonException(this, "Not an array, but "
+                            + reader.peek() + "; " + method + toString(), null, strResponse));
+            }
+        } catch (JSONException e) {
+            return Try.failure(ConnectionException.loggedJsonException(this, method + toString(), e, strResponse));
+        } catch (ConnectionException e) {
+            return Try.failure(e);
+        } catch (Exception e) {
+            return Try.failure(ConnectionException.loggedHardJsonException(this, method + toString(), e, strResponse));
+        } catch (Throwable e) {
+            return Try.failure(e);
+        }
+    }
+
+    private <T> List<T> readArrayItems(JsonReader reader, CheckedFunction<JSONObject, T> itemMapper) throws Throwable {
+        List<T> items = new ArrayList<>();
+        reader.beginArray();
+        while (reader.hasNext()) {
+            items.add(mapArrayItem(JsonUtils.readValue(reader), itemMapper));
+        }
+        reader.endArray();
+        return items;
+    }
+
+    private static <T> T mapArrayItem(Object item, CheckedFunction<JSONObject, T> itemMapper) throws Throwable {
+        if (!(item instanceof JSONObject)) {
+            throw new JSONException("Array item is not a JSON object: " + I18n.trimTextAt(String.valueOf(item), 40));
+        }
+        return itemMapper.apply((JSONObject) item);
+    }
+
     ConnectionException getExceptionFromJsonErrorResponse() {
         StatusCode statusCode = this.statusCode;
         String error = "?";
@@ -44,6 +44,7 @@ public class HttpRequest {
 
     String mediaPartName = "file";
     Optional<Uri> mediaUri = Optional.empty();
+    UploadProgressListener uploadProgressListener = UploadProgressListener.EMPTY;
     public Optional<JSONObject> postParams = Optional.empty();
     File fileResult = null;
 
@@ -105,6 +106,7 @@ public class HttpRequest {
 
     public HttpRequest withAttachmentToPost(Attachment attachment) {
         this.mediaUri = Optional.ofNullable(attachment.mediaUriToPost()).filter(UriUtils::nonEmpty);
+        this.uploadProgressListener = attachment.getUploadProgressListener();
         return asPost();
     }
 
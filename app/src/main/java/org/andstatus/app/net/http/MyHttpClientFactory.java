@@ -22,11 +22,11 @@ import cz.msebera.android.httpclient.client.HttpClient;
 import cz.msebera.android.httpclient.client.config.RequestConfig;
 import cz.msebera.android.httpclient.config.Registry;
 import cz.msebera.android.httpclient.config.RegistryBuilder;
+import cz.msebera.android.httpclient.conn.HttpClientConnectionManager;
 import cz.msebera.android.httpclient.conn.socket.ConnectionSocketFactory;
 import cz.msebera.android.httpclient.conn.socket.PlainConnectionSocketFactory;
 import cz.msebera.android.httpclient.impl.client.HttpClientBuilder;
 import cz.msebera.android.httpclient.impl.client.HttpClients;
-import cz.msebera.android.httpclient.impl.conn.PoolingHttpClientConnectionManager;
 
 public class MyHttpClientFactory {
 
@@ -36,18 +36,20 @@ public class MyHttpClientFactory {
         // Empty
     }
     
-    public static HttpClient getHttpClient(SslModeEnum sslMode) {
+    static PooledHttpClients.CountingConnectionManager newConnectionManager(SslModeEnum sslMode) {
         Registry<ConnectionSocketFactory> registry = 
                 RegistryBuilder.<ConnectionSocketFactory> create()
                     .register("http", PlainConnectionSocketFactory.getSocketFactory())
                     .register("https", TlsSniSocketFactory.getInstance(sslMode))
                     .build();
-        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(registry);
-        // max.  3 connections in total
-        connectionManager.setMaxTotal(3);
-        // max.  2 connections per host
-        connectionManager.setDefaultMaxPerRoute(2);
+        PooledHttpClients.CountingConnectionManager connectionManager =
+                new PooledHttpClients.CountingConnectionManager(registry);
+        connectionManager.setMaxTotal(MyPreferences.getMaxConnectionsPerHost() + 1);
+        connectionManager.setDefaultMaxPerRoute(MyPreferences.getMaxConnectionsPerHost());
+        return connectionManager;
+    }
 
+    static HttpClient getHttpClient(HttpClientConnectionManager connectionManager) {
         // use request defaults from AndroidHttpClient
         RequestConfig requestConfig = RequestConfig.copy(RequestConfig.DEFAULT)
                 .setConnectTimeout(MyPreferences.getConnectionTimeoutMs())
@@ -58,6 +60,8 @@ public class MyHttpClientFactory {
         HttpClientBuilder builder = HttpClients.custom()
                 .useSystemProperties()
                 .setConnectionManager(connectionManager)
+                .setConnectionManagerShared(true)
+                .setKeepAliveStrategy(PooledHttpClients.KEEP_ALIVE_STRATEGY)
                 .setDefaultRequestConfig(requestConfig)
                 /* TODO maybe:  
                 .setRetryHandler(DavHttpRequestRetryHandler.INSTANCE)
@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import org.andstatus.app.context.MyPreferences;
+import org.andstatus.app.util.MyLog;
+
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import cz.msebera.android.httpclient.client.HttpClient;
+import cz.msebera.android.httpclient.config.ConnectionConfig;
+import cz.msebera.android.httpclient.config.Registry;
+import cz.msebera.android.httpclient.conn.ConnectionKeepAliveStrategy;
+import cz.msebera.android.httpclient.conn.ConnectionRequest;
+import cz.msebera.android.httpclient.conn.HttpConnectionFactory;
+import cz.msebera.android.httpclient.conn.ManagedHttpClientConnection;
+import cz.msebera.android.httpclient.conn.routing.HttpRoute;
+import cz.msebera.android.httpclient.conn.socket.ConnectionSocketFactory;
+import cz.msebera.android.httpclient.impl.client.DefaultConnectionKeepAliveStrategy;
+import cz.msebera.android.httpclient.impl.conn.ManagedHttpClientConnectionFactory;
+import cz.msebera.android.httpclient.impl.conn.PoolingHttpClientConnectionManager;
+import cz.msebera.android.httpclient.pool.PoolStats;
+
+/**
+ * Long living Apache HTTP clients, one per origin host and {@link SslModeEnum},
+ * so that consecutive requests to the same server reuse kept alive connections
+ * instead of doing a new TCP and TLS handshake each time.
+ * Idle connections are evicted by {@link org.andstatus.app.service.MyService}
+ */
+public class PooledHttpClients {
+    private static final String TAG = PooledHttpClients.class.getSimpleName();
+    /** Don't keep a connection alive longer than this, even if a server allows it */
+    private static final long MAX_KEEP_ALIVE_SECONDS = 60;
+    public static final long IDLE_CONNECTION_TIMEOUT_SECONDS = 30;
+
+    static final ConnectionKeepAliveStrategy KEEP_ALIVE_STRATEGY = (response, context) -> {
+        long keepAliveMs = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+        long maxKeepAliveMs = TimeUnit.SECONDS.toMillis(MAX_KEEP_ALIVE_SECONDS);
+        return keepAliveMs > 0 && keepAliveMs < maxKeepAliveMs ? keepAliveMs : maxKeepAliveMs;
+    };
+
+    private static final Map<String, PooledHttpClient> clients = new ConcurrentHashMap<>();
+    private static final AtomicLong clientsCreated = new AtomicLong();
+    private static final AtomicLong clientsReused = new AtomicLong();
+
+    private PooledHttpClients() {
+        // Empty
+    }
+
+    static HttpClient get(SslModeEnum sslMode, URL originUrl) {
+        String key = sslMode.name() + ":" + (originUrl == null ? "" : originUrl.getHost());
+        PooledHttpClient client = clients.get(key);
+        if (client == null) {
+            client = clients.computeIfAbsent(key, k -> {
+                clientsCreated.incrementAndGet();
+                MyLog.v(TAG, () -> "New client for " + k);
+                return new PooledHttpClient(sslMode);
+            });
+        } else {
+            clientsReused.incrementAndGet();
+        }
+        return client.httpClient;
+    }
+
+    /** Close connections that were not used recently and those that expired according to the keep alive strategy */
+    public static void closeIdleConnections(long idleSeconds) {
+        for (PooledHttpClient client : clients.values()) {
+            client.connectionManager.closeExpiredConnections();
+            client.connectionManager.closeIdleConnections(idleSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    public static void onPreferencesChanged() {
+        int maxPerHost = MyPreferences.getMaxConnectionsPerHost();
+        for (PooledHttpClient client : clients.values()) {
+            client.connectionManager.setMaxTotal(maxPerHost + 1);
+            client.connectionManager.setDefaultMaxPerRoute(maxPerHost);
+        }
+    }
+
+    /** Forget all clients and close their connections */
+    public static void shutdown() {
+        for (String key : clients.keySet()) {
+            PooledHttpClient client = clients.remove(key);
+            if (client != null) {
+                client.connectionManager.shutdown();
+            }
+        }
+    }
+
+    public static String getStatistics() {
+        long leased = 0;
+        long created = 0;
+        int available = 0;
+        for (PooledHttpClient client : clients.values()) {
+            leased += client.connectionManager.leased.get();
+            created += client.connectionManager.created.get();
+            available += client.connectionManager.getTotalStats().getAvailable();
+        }
+        return "HTTP clients:" + clients.size()
+                + " (created:" + clientsCreated.get() + ", reused:" + clientsReused.get() + ")"
+                + ", connections leased:" + leased
+                + ", created:" + created
+                + ", reused:" + Math.max(0, leased - created)
+                + ", idle:" + available;
+    }
+
+    private static class PooledHttpClient {
+        final CountingConnectionManager connectionManager;
+        final HttpClient httpClient;
+
+        PooledHttpClient(SslModeEnum sslMode) {
+            connectionManager = MyHttpClientFactory.newConnectionManager(sslMode);
+            httpClient = MyHttpClientFactory.getHttpClient(connectionManager);
+        }
+    }
+
+    /** Counts connections that were requested from the pool and connections that were actually created */
+    static class CountingConnectionManager extends PoolingHttpClientConnectionManager {
+        final AtomicLong leased;
+        final AtomicLong created;
+
+        CountingConnectionManager(Registry<ConnectionSocketFactory> registry) {
+            this(registry, new AtomicLong());
+        }
+
+        private CountingConnectionManager(Registry<ConnectionSocketFactory> registry, AtomicLong created) {
+            super(registry, new CountingConnectionFactory(created));
+            this.leased = new AtomicLong();
+            this.created = created;
+        }
+
+        @Override
+        public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+            leased.incrementAndGet();
+            return super.requestConnection(route, state);
+        }
+
+        @Override
+        public String toString() {
+            PoolStats stats = getTotalStats();
+            return "leased:" + leased.get() + ", created:" + created.get() + ", " + stats;
+        }
+    }
+
+    private static class CountingConnectionFactory
+            implements HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> {
+        private final AtomicLong created;
+
+        CountingConnectionFactory(AtomicLong created) {
+            this.created = created;
+        }
+
+        @Override
+        public ManagedHttpClientConnection create(HttpRoute route, ConnectionConfig config) {
+            created.incrementAndGet();
+            return ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+/**
+ * Receives progress of a media upload. Called on the thread, which sends the request
+ * @author yvolk@yurivolkov.com
+ */
+@FunctionalInterface
+public interface UploadProgressListener {
+    UploadProgressListener EMPTY = (bytesSent, bytesTotal) -> {};
+
+    /** @param bytesTotal -1 if the size of the media is unknown */
+    void onProgress(long bytesSent, long bytesTotal);
+}
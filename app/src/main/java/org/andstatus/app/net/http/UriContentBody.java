@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.net.http;
+
+import android.content.ContentResolver;
+import android.content.res.AssetFileDescriptor;
+import android.net.Uri;
+
+import org.andstatus.app.util.MyLog;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import cz.msebera.android.httpclient.entity.ContentType;
+import cz.msebera.android.httpclient.entity.mime.MIME;
+import cz.msebera.android.httpclient.entity.mime.content.AbstractContentBody;
+
+/**
+ * Media part of a multipart request, which is read from the content Uri at the time of sending
+ * through a buffer of a fixed size, so the whole media is never loaded into memory
+ * @author yvolk@yurivolkov.com
+ */
+class UriContentBody extends AbstractContentBody {
+    static final int BUFFER_LENGTH = 16384;
+    /** Progress is reported not more often than once per this number of bytes, if the size is unknown */
+    private static final long PROGRESS_STEP_BYTES = 1024 * 1024;
+
+    private final ContentResolver contentResolver;
+    private final Uri uri;
+    private final long length;
+    private final UploadProgressListener listener;
+
+    UriContentBody(ContentResolver contentResolver, Uri uri, ContentType contentType,
+                   UploadProgressListener listener) {
+        super(contentType);
+        this.contentResolver = contentResolver;
+        this.uri = uri;
+        this.length = getLength(contentResolver, uri);
+        this.listener = listener;
+    }
+
+    /** @return -1 if the length is unknown */
+    static long getLength(ContentResolver contentResolver, Uri uri) {
+        try (AssetFileDescriptor fd = contentResolver.openAssetFileDescriptor(uri, "r")) {
+            return fd == null ? -1 : fd.getLength();
+        } catch (IOException | SecurityException e) {
+            MyLog.d(UriContentBody.class, "Failed to get length of '" + uri + "'", e);
+            return -1;
+        }
+    }
+
+    @Override
+    public String getFilename() {
+        return uri.getPath();
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        try (InputStream in = contentResolver.openInputStream(uri)) {
+            if (in == null) throw new FileNotFoundException("No input stream for '" + uri + "'");
+            copy(in, out, length, listener);
+        }
+    }
+
+    /** Copies the stream through a buffer of {@link #BUFFER_LENGTH} bytes, reporting progress to the listener */
+    static void copy(InputStream in, OutputStream out, long bytesTotal, UploadProgressListener listener)
+            throws IOException {
+        byte[] buffer = new byte[BUFFER_LENGTH];
+        long bytesSent = 0;
+        long reportedAt = 0;
+        int length;
+        while ((length = in.read(buffer)) != -1) {
+            out.write(buffer, 0, length);
+            bytesSent += length;
+            if (bytesTotal > 0
+                    ? bytesSent * 100 / bytesTotal > reportedAt * 100 / bytesTotal
+                    : bytesSent - reportedAt >= PROGRESS_STEP_BYTES) {
+                reportedAt = bytesSent;
+                listener.onProgress(bytesSent, bytesTotal);
+            }
+        }
+        out.flush();
+    }
+
+    @Override
+    public String getTransferEncoding() {
+        return MIME.ENC_BINARY;
+    }
+
+    @Override
+    public long getContentLength() {
+        return length;
+    }
+}
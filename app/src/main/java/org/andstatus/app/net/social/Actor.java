@@ -49,7 +49,6 @@ import org.andstatus.app.util.LazyVal;
 import org.andstatus.app.util.MyHtml;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.MyStringBuilder;
-import org.andstatus.app.util.NullUtil;
 import org.andstatus.app.util.SharedPreferencesUtil;
 import org.andstatus.app.util.StringUtil;
 import org.andstatus.app.util.TriState;
@@ -666,7 +665,7 @@ public class Actor implements Comparable<Actor>, IsEmpty {
     public Actor toHomeOrigin() {
         return origin.getHost().equals(getIdHost())
             ? this
-            : user.actorIds.stream().map(id -> NullUtil.getOrDefault(origin.myContext.users().actors, id, Actor.EMPTY))
+            : user.actorIds.stream().map(id -> origin.myContext.users().actors.getOrDefault(id, Actor.EMPTY))
                 .filter(a -> a.nonEmpty() && a.origin.getHost().equals(getIdHost()))
                 .findAny().orElse(this);
     }
@@ -25,6 +25,7 @@ import org.andstatus.app.data.DownloadData;
 import org.andstatus.app.data.DownloadType;
 import org.andstatus.app.data.FileProvider;
 import org.andstatus.app.data.MyContentType;
+import org.andstatus.app.net.http.UploadProgressListener;
 import org.andstatus.app.util.IsEmpty;
 import org.andstatus.app.util.UriUtils;
 
@@ -45,6 +46,8 @@ public class Attachment implements Comparable<Attachment>, IsEmpty {
 
     DownloadData downloadData = DownloadData.EMPTY;
     private Optional<Long> optNewDownloadNumber = Optional.empty();
+    /** Not persisted, is used while the media is being uploaded only */
+    private volatile UploadProgressListener uploadProgressListener = UploadProgressListener.EMPTY;
 
     /** #previewOf cannot be set here **/
     Attachment(@NonNull DownloadData downloadData) {
@@ -78,6 +81,16 @@ public class Attachment implements Comparable<Attachment>, IsEmpty {
         return new Attachment(myContextHolder.getNow().context().getContentResolver(), uriIn, mimeTypeIn);
     }
 
+    public Attachment setUploadProgressListener(@NonNull UploadProgressListener uploadProgressListener) {
+        this.uploadProgressListener = uploadProgressListener;
+        return this;
+    }
+
+    @NonNull
+    public UploadProgressListener getUploadProgressListener() {
+        return uploadProgressListener;
+    }
+
     Attachment setPreviewOf(@NonNull Attachment previewOf) {
         this.previewOf = previewOf;
         return this;
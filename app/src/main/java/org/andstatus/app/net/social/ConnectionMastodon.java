@@ -220,8 +220,7 @@ public class ConnectionMastodon extends ConnectionTwitterLike {
                 .map(Uri.Builder::build)
                 .map(uri -> HttpRequest.of(apiRoutine, uri))
                 .flatMap(this::execute)
-                .flatMap(result -> result.getJsonArray()
-                    .flatMap(jsonArray -> jArrToTimeline(jsonArray, apiRoutine)))
+                .flatMap(result -> readTimeline(result, apiRoutine))
                 .map(InputTimelinePage::of);
     }
 
@@ -241,8 +240,7 @@ public class ConnectionMastodon extends ConnectionTwitterLike {
         .map(Uri.Builder::build)
         .map(uri -> HttpRequest.of(apiRoutine, uri))
         .flatMap(this::execute)
-        .flatMap(result -> result.getJsonArray()
-            .flatMap(jsonArray -> jArrToActors(jsonArray, apiRoutine, result.request.uri)));
+        .flatMap(result -> readActors(result, apiRoutine));
     }
 
     // TODO: Delete ?
@@ -575,8 +573,7 @@ public class ConnectionMastodon extends ConnectionTwitterLike {
             .map(Uri.Builder::build)
             .map(uri -> HttpRequest.of(apiRoutine, uri))
             .flatMap(this::execute)
-            .flatMap(result -> result.getJsonArray()
-                .flatMap(jsonArray -> jArrToActors(jsonArray, apiRoutine, result.request.uri)));
+            .flatMap(result -> readActors(result, apiRoutine));
     }
 
     @Override
@@ -225,8 +225,7 @@ public class ConnectionTheTwitter extends ConnectionTwitterLike {
         .map(Uri.Builder::build)
         .map(uri -> HttpRequest.of(apiRoutine, uri))
         .flatMap(this::execute)
-        .flatMap(result -> result.getJsonArrayInObject("statuses")
-            .flatMap(jArr -> jArrToTimeline(jArr, apiRoutine)))
+        .flatMap(result -> readTimeline(result, "statuses", apiRoutine))
         .map(InputTimelinePage::of);
     }
 
@@ -241,8 +240,7 @@ public class ConnectionTheTwitter extends ConnectionTwitterLike {
         .map(Uri.Builder::build)
         .map(uri -> HttpRequest.of(apiRoutine, uri))
         .flatMap(this::execute)
-        .flatMap(result -> result.getJsonArray()
-            .flatMap(jsonArray -> jArrToActors(jsonArray, apiRoutine, result.request.uri)));
+        .flatMap(result -> readActors(result, apiRoutine));
     }
 
     @Override
@@ -325,8 +323,7 @@ public class ConnectionTheTwitter extends ConnectionTwitterLike {
         .map(Uri.Builder::build)
         .map(uri -> HttpRequest.of(apiRoutine, uri))
         .flatMap(this::execute)
-        .flatMap(result -> result.getJsonArray()
-            .flatMap(jsonArray -> jArrToActors(jsonArray, apiRoutine, result.request.uri)));
+        .flatMap(result -> readActors(result, apiRoutine));
     }
 
 }
@@ -187,8 +187,7 @@ public class ConnectionTwitterGnuSocial extends ConnectionTwitterLike {
         return getApiPathWithNoteId(apiRoutine, conversationOid)
         .map(uri -> HttpRequest.of(apiRoutine, uri))
         .flatMap(this::execute)
-        .flatMap(HttpReadResult::getJsonArray)
-        .flatMap(jsonArray -> jArrToTimeline(jsonArray, apiRoutine));
+        .flatMap(result -> readTimeline(result, apiRoutine));
     }
 
     @Override
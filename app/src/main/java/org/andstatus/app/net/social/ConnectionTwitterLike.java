@@ -36,6 +36,7 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -213,8 +214,7 @@ public abstract class ConnectionTwitterLike extends Connection {
         .map(Uri.Builder::build)
         .map(uri -> HttpRequest.of(apiRoutine, uri))
         .flatMap(this::execute)
-        .flatMap(result -> result.getJsonArray()
-            .flatMap(jsonArray -> jArrToTimeline(jsonArray, apiRoutine)))
+        .flatMap(result -> readTimeline(result, apiRoutine))
         .map(InputTimelinePage::of);
     }
 
@@ -442,8 +442,7 @@ public abstract class ConnectionTwitterLike extends Connection {
         .map(Uri.Builder::build)
         .map(uri -> HttpRequest.of(apiRoutine, uri))
         .flatMap(this::execute)
-        .flatMap(result -> result.getJsonArray()
-            .flatMap(jsonArray -> jArrToTimeline(jsonArray, apiRoutine)))
+        .flatMap(result -> readTimeline(result, apiRoutine))
         .map(InputTimelinePage::of);
     }
 
@@ -464,6 +463,23 @@ public abstract class ConnectionTwitterLike extends Connection {
         return builder;
     }
 
+    /** Parses the timeline from the response as a stream, so the whole JSON array isn't built in memory */
+    Try<List<AActivity>> readTimeline(HttpReadResult result, ApiRoutineEnum apiRoutine) {
+        return readTimeline(result, "items", apiRoutine);
+    }
+
+    Try<List<AActivity>> readTimeline(HttpReadResult result, String arrayKey, ApiRoutineEnum apiRoutine) {
+        return result.readJsonArrayItems(arrayKey, this::activityFromTwitterLikeJson)
+        .map(timeline -> {
+            // Read the activities in chronological order
+            Collections.reverse(timeline);
+            if (apiRoutine.isNotePrivate()) {
+                setNotesPrivate(timeline);
+            }
+            return timeline;
+        });
+    }
+
     Try<List<AActivity>> jArrToTimeline(JSONArray jArr, ApiRoutineEnum apiRoutine) {
         List<AActivity> timeline = new ArrayList<>();
         if (jArr != null) {
@@ -493,23 +509,10 @@ public abstract class ConnectionTwitterLike extends Connection {
         }
     }
 
-    Try<List<Actor>> jArrToActors(JSONArray jArr, ApiRoutineEnum apiRoutine, Uri uri) {
-        List<Actor> actors = new ArrayList<>();
-        if (jArr != null) {
-            for (int index = 0; index < jArr.length(); index++) {
-                try {
-                    JSONObject jso = jArr.getJSONObject(index);
-                    Actor item = actorFromJson(jso);
-                    actors.add(item);
-                } catch (JSONException e) {
-                    return Try.failure(ConnectionException.loggedJsonException(this, "Parsing " + apiRoutine, e, null));
-                } catch (Exception e) {
-                    return Try.failure(e);
-                }
-            }
-        }
-        MyLog.d(this, apiRoutine + " '" + uri + "' " + actors.size() + " items");
-        return Try.success(actors);
+    /** Parses actors from the response as a stream, so the whole JSON array isn't built in memory */
+    Try<List<Actor>> readActors(HttpReadResult result, ApiRoutineEnum apiRoutine) {
+        return result.readJsonArrayItems(this::actorFromJson)
+        .onSuccess(actors -> MyLog.d(this, apiRoutine + " '" + result.request.uri + "' " + actors.size() + " items"));
     }
 
     /**
@@ -30,6 +30,7 @@ import org.andstatus.app.R;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.AttachedMediaFile;
 import org.andstatus.app.data.DownloadStatus;
+import org.andstatus.app.graphics.CacheName;
 import org.andstatus.app.graphics.IdentifiableImageView;
 import org.andstatus.app.net.social.SpanUtil;
 import org.andstatus.app.timeline.BaseTimelineAdapter;
@@ -38,8 +39,7 @@ import org.andstatus.app.util.MyStringBuilder;
 import org.andstatus.app.util.MyUrlSpan;
 import org.andstatus.app.util.SharedPreferencesUtil;
 
-import java.util.HashSet;
-import java.util.Set;
+import java.util.function.BooleanSupplier;
 
 import static org.andstatus.app.util.I18n.notZero;
 
@@ -50,7 +50,6 @@ public abstract class BaseNoteAdapter<T extends BaseNoteViewItem<T>> extends Bas
     protected final boolean showButtonsBelowNotes =
             SharedPreferencesUtil.getBoolean(MyPreferences.KEY_SHOW_BUTTONS_BELOW_NOTE, true);
     protected final NoteContextMenu contextMenu;
-    protected Set<Long> preloadedImages = new HashSet<>(100);
 
     public BaseNoteAdapter(@NonNull NoteContextMenu contextMenu, TimelineData<T> listData) {
         super(contextMenu.getMyContext(), listData);
@@ -148,6 +147,16 @@ public abstract class BaseNoteAdapter<T extends BaseNoteViewItem<T>> extends Bas
                 false);
     }
 
+    @Override
+    public void prefetchImages(T item, BooleanSupplier isCancelled) {
+        if (showAvatars) {
+            item.author.getAvatarFile().prefetchImage(CacheName.AVATAR, isCancelled);
+        }
+        if (showAttachedImages && !(item.isSensitive() && !MyPreferences.isShowSensitiveContent())) {
+            item.attachedImageFiles.prefetchImages(isCancelled);
+        }
+    }
+
     protected void showAvatar(View view, T item) {
         item.author.showAvatar(contextMenu.getActivity(), view.findViewById(R.id.avatar_image));
     }
@@ -176,7 +185,6 @@ public abstract class BaseNoteAdapter<T extends BaseNoteViewItem<T>> extends Bas
                     .inflate(attachmentLayout, attachmentsList, false);
             if (mediaFile.imageMayBeShown()) {
                 IdentifiableImageView imageView = attachmentView.findViewById(R.id.attachment_image);
-                preloadedImages.add(item.getNoteId());
                 mediaFile.showImage(contextMenu.getActivity(), imageView);
                 setOnImageClick(imageView, mediaFile);
             } else {
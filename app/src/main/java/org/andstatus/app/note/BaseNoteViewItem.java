@@ -30,9 +30,9 @@ import org.andstatus.app.actor.ActorViewItem;
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.AttachedImageFiles;
+import org.andstatus.app.data.AvatarFile;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.DownloadStatus;
-import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.data.TextMediaType;
 import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.database.table.NoteTable;
@@ -99,7 +99,7 @@ public abstract class BaseNoteViewItem<T extends BaseNoteViewItem<T>> extends Vi
     boolean reblogged = false;
 
     final long attachmentsCount;
-    final AttachedImageFiles attachedImageFiles;
+    AttachedImageFiles attachedImageFiles = AttachedImageFiles.EMPTY;
 
     private MyAccount linkedMyAccount = MyAccount.EMPTY;
     public final StringBuilder detailsSuffix = new StringBuilder();
@@ -107,7 +107,6 @@ public abstract class BaseNoteViewItem<T extends BaseNoteViewItem<T>> extends Vi
     protected BaseNoteViewItem(boolean isEmpty, long updatedDate) {
         super(isEmpty, updatedDate);
         attachmentsCount = 0;
-        attachedImageFiles = AttachedImageFiles.EMPTY;
     }
 
     BaseNoteViewItem(MyContext myContext, Cursor cursor) {
@@ -122,15 +121,10 @@ public abstract class BaseNoteViewItem<T extends BaseNoteViewItem<T>> extends Vi
 
         this.myContext = myContext;
 
-        if (MyPreferences.getDownloadAndDisplayAttachedImages()) {
-            attachmentsCount = DbUtils.getLong(cursor, NoteTable.ATTACHMENTS_COUNT);
-            attachedImageFiles = (attachmentsCount) == 0
-                    ? AttachedImageFiles.EMPTY
-                    : AttachedImageFiles.load(myContext, noteId);
-        } else {
-            attachmentsCount = 0;
-            attachedImageFiles = AttachedImageFiles.EMPTY;
-        }
+        // Attached images are loaded by NoteDetailsLoader
+        attachmentsCount = MyPreferences.getDownloadAndDisplayAttachedImages()
+                ? DbUtils.getLong(cursor, NoteTable.ATTACHMENTS_COUNT)
+                : 0;
     }
 
     void setOtherViewProperties(Cursor cursor) {
@@ -141,7 +135,8 @@ public abstract class BaseNoteViewItem<T extends BaseNoteViewItem<T>> extends Vi
         inReplyToNoteId = DbUtils.getLong(cursor, NoteTable.IN_REPLY_TO_NOTE_ID);
         inReplyToActor = ActorViewItem.fromActorId(getOrigin(), DbUtils.getLong(cursor, NoteTable.IN_REPLY_TO_ACTOR_ID));
         visibility = Visibility.fromCursor(cursor);
-        audience = Audience.fromNoteId(getOrigin(), getNoteId(), visibility);
+        // Actors of the audience and rebloggers are loaded by NoteDetailsLoader
+        audience = new Audience(getOrigin()).withVisibility(visibility);
         noteStatus = DownloadStatus.load(DbUtils.getLong(cursor, NoteTable.NOTE_STATUS));
         favorited = DbUtils.getTriState(cursor, NoteTable.FAVORITED) == TriState.TRUE;
         reblogged = DbUtils.getTriState(cursor, NoteTable.REBLOGGED) == TriState.TRUE;
@@ -150,10 +145,6 @@ public abstract class BaseNoteViewItem<T extends BaseNoteViewItem<T>> extends Vi
         if (!StringUtil.isEmpty(via)) {
             noteSource = Html.fromHtml(via).toString().trim();
         }
-
-        for (Actor actor : MyQuery.getRebloggers(myContextHolder.getNow().getDatabase(), getOrigin(), getNoteId())) {
-            rebloggers.put(actor.actorId, actor.getWebFingerId());
-        }
     }
 
     @NonNull
@@ -181,6 +172,19 @@ public abstract class BaseNoteViewItem<T extends BaseNoteViewItem<T>> extends Vi
         return author;
     }
 
+    @Override
+    public boolean updateAvatar(@NonNull AvatarFile avatarFile) {
+        return author.updateAvatar(avatarFile);
+    }
+
+    @Override
+    public boolean updateAttachedImageFiles(long noteId, @NonNull AttachedImageFiles imageFiles) {
+        if (noteId == 0 || getNoteId() != noteId) return false;
+
+        attachedImageFiles = imageFiles;
+        return true;
+    }
+
     public Origin getOrigin() {
         return origin;
     }
@@ -365,6 +369,11 @@ public abstract class BaseNoteViewItem<T extends BaseNoteViewItem<T>> extends Vi
         rebloggers.remove(actor.actorId);
     }
 
+    @Override
+    public void addNoteToLoadDetails(NoteDetailsLoader loader) {
+        loader.addNoteToLoad(this);
+    }
+
     @Override
     public void addActorsToLoad(ActorsLoader loader) {
         loader.addActorToList(author.getActor());
@@ -44,8 +44,12 @@ import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StringUtil;
 
 import java.io.Serializable;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -68,9 +72,12 @@ public abstract class ConversationLoader extends SyncLoader<ConversationViewItem
     private final ConversationViewItem emptyItem;
 
     final Map<Long, ConversationViewItem> cachedConversationItems = new ConcurrentHashMap<>();
+    /** Replies to cached notes by id of a note they are replying to */
+    final Map<Long, List<ConversationViewItem>> cachedReplies = new ConcurrentHashMap<>();
     LoadableListActivity.ProgressPublisher mProgress;
 
-    final List<Long> idsOfItemsToFind = new ArrayList<>();
+    final Set<Long> idsOfItemsToFind = new HashSet<>();
+    private final Set<Long> idsOfItemsInList = new HashSet<>();
 
     public ConversationLoader(ConversationViewItem emptyItem, MyContext myContext, Origin origin, long selectedNoteId, boolean sync) {
         this.emptyItem = emptyItem;
@@ -91,6 +98,7 @@ public abstract class ConversationLoader extends SyncLoader<ConversationViewItem
                     .setMyContext(myContext).fix();
             load1();
         }
+        loadNoteDetails(items);
         loadActors(items);
         items.sort(replyLevelComparator);
         enumerateNotes();
@@ -99,7 +107,9 @@ public abstract class ConversationLoader extends SyncLoader<ConversationViewItem
     private void load1() {
         conversationIds.clear();
         cachedConversationItems.clear();
+        cachedReplies.clear();
         idsOfItemsToFind.clear();
+        idsOfItemsInList.clear();
         items.clear();
         if (sync) {
             requestConversationSync(selectedNoteId);
@@ -117,6 +127,23 @@ public abstract class ConversationLoader extends SyncLoader<ConversationViewItem
         // Empty
     }
 
+    void cacheItem(ConversationViewItem item) {
+        ConversationViewItem replaced = cachedConversationItems.put(item.getNoteId(), item);
+        if (replaced != null && replaced.inReplyToNoteId != 0) {
+            List<ConversationViewItem> replies = cachedReplies.get(replaced.inReplyToNoteId);
+            if (replies != null) replies.remove(replaced);
+        }
+        if (item.inReplyToNoteId != 0) {
+            cachedReplies.computeIfAbsent(item.inReplyToNoteId, id -> new ArrayList<>()).add(item);
+        }
+    }
+
+    @NonNull
+    List<ConversationViewItem> getCachedReplies(long noteId) {
+        List<ConversationViewItem> replies = cachedReplies.get(noteId);
+        return replies == null ? Collections.emptyList() : replies;
+    }
+
     private void addMissedFromCache() {
         if (cachedConversationItems.isEmpty()) return;
         for (ConversationViewItem item : items) {
@@ -129,6 +156,12 @@ public abstract class ConversationLoader extends SyncLoader<ConversationViewItem
         }
     }
 
+    private void loadNoteDetails(List<ConversationViewItem> items) {
+        NoteDetailsLoader loader = new NoteDetailsLoader(myContext);
+        items.forEach(item -> item.addNoteToLoadDetails(loader));
+        loader.load();
+    }
+
     private void loadActors(List<ConversationViewItem> items) {
         if (items.isEmpty()) return;
         ActorsLoader loader = new ActorsLoader(myContext, ActorsScreenType.ACTORS_AT_ORIGIN,
@@ -190,10 +223,11 @@ public abstract class ConversationLoader extends SyncLoader<ConversationViewItem
 
     protected boolean addItemToList(ConversationViewItem item) {
         boolean added = false;
-        if (items.contains(item)) {
+        if (idsOfItemsInList.contains(item.getNoteId())) {
             MyLog.v(this, () -> "Note id=" + item.getNoteId() + " is in the list already");
         } else {
             items.add(item);
+            idsOfItemsInList.add(item.getNoteId());
             if (mProgress != null) {
                 mProgress.publish(Integer.toString(items.size()));
             }
@@ -260,9 +294,14 @@ public abstract class ConversationLoader extends SyncLoader<ConversationViewItem
     
     private void enumerateNotes() {
         idsOfItemsToFind.clear();
-        for (ConversationViewItem item : items) {
+        Map<Long, List<ConversationViewItem>> replies = new HashMap<>();
+        for (int ind = items.size() - 1; ind >= 0; ind--) {
+            ConversationViewItem item = items.get(ind);
             item.mListOrder = 0;
             item.historyOrder = 0;
+            if (item.inReplyToNoteId != 0) {
+                replies.computeIfAbsent(item.inReplyToNoteId, id -> new ArrayList<>()).add(item);
+            }
         }
         OrderCounters order = new OrderCounters();
         for (int ind = items.size()-1; ind >= 0; ind--) {
@@ -270,28 +309,38 @@ public abstract class ConversationLoader extends SyncLoader<ConversationViewItem
             if (oMsg.mListOrder < 0 ) {
                 continue;
             }
-            enumerateBranch(oMsg, order, 0);
+            enumerateBranch(oMsg, replies, order);
         }
     }
 
-    private void enumerateBranch(ConversationViewItem oMsg, OrderCounters order, int indent) {
-        if (!addNoteIdToFind(oMsg.getNoteId())) {
-            return;
-        }
-        int indentNext = indent;
-        oMsg.historyOrder = order.history++;
-        oMsg.mListOrder = order.list--;
-        oMsg.indentLevel = indent;
-        if ((oMsg.nReplies > 1 || oMsg.nParentReplies > 1)
-                && indentNext < MAX_INDENT_LEVEL) {
-            indentNext++;
-        }
-        for (int ind = items.size() - 1; ind >= 0; ind--) {
-           ConversationViewItem reply = items.get(ind);
-           if (reply.inReplyToNoteId == oMsg.getNoteId()) {
-               reply.nParentReplies = oMsg.nReplies;
-               enumerateBranch(reply, order, indentNext);
-           }
+    /** Depth first traversal of the branch without recursion, so that long threads don't overflow the stack
+     * @param replies of each note, in the order of their traversal */
+    private void enumerateBranch(ConversationViewItem branchRoot, Map<Long, List<ConversationViewItem>> replies,
+                                 OrderCounters order) {
+        Deque<ConversationViewItem> toEnumerate = new ArrayDeque<>();
+        branchRoot.indentLevel = 0;
+        toEnumerate.push(branchRoot);
+        while (!toEnumerate.isEmpty()) {
+            ConversationViewItem oMsg = toEnumerate.pop();
+            if (!addNoteIdToFind(oMsg.getNoteId())) {
+                continue;
+            }
+            int indentNext = oMsg.indentLevel;
+            oMsg.historyOrder = order.history++;
+            oMsg.mListOrder = order.list--;
+            if ((oMsg.nReplies > 1 || oMsg.nParentReplies > 1)
+                    && indentNext < MAX_INDENT_LEVEL) {
+                indentNext++;
+            }
+            List<ConversationViewItem> itemReplies = replies.getOrDefault(oMsg.getNoteId(), Collections.emptyList());
+            for (int ind = itemReplies.size() - 1; ind >= 0; ind--) {
+                ConversationViewItem reply = itemReplies.get(ind);
+                if (idsOfItemsToFind.contains(reply.getNoteId())) continue;
+
+                reply.nParentReplies = oMsg.nReplies;
+                reply.indentLevel = indentNext;
+                toEnumerate.push(reply);
+            }
         }
     }
 
@@ -173,6 +173,67 @@ public class KeywordsFilter implements IsEmpty {
         return selection.length() == 0 ? "" : "(" + selection.toString() + ")";
     }
 
+    /**
+     * Expression for the full text search index, see {@link org.andstatus.app.database.table.NoteSearchTable}.
+     * It selects a superset of notes matched by {@link #getSqlSelection(String)}, so both are used together:
+     * the index narrows the search to a few candidate notes, and "LIKE" checks them exactly
+     * (e.g. it tells a hashtag from the same plain word).
+     * Each keyword becomes a phrase of its words; as a hashtag is stored as "tag,#tag",
+     * the phrase for "#tag" is "tag tag", so it doesn't match notes with the plain word only.
+     * For "contains:" keywords the last word is a prefix, and the first word, which may be the end
+     * of a longer word, is skipped.
+     * @return empty if the index cannot help for these keywords
+     */
+    @NonNull
+    public String getSqlMatchExpression() {
+        StringBuilder expression = new StringBuilder();
+        for (Keyword keyword : keywordsToFilter) {
+            List<String> words = wordsForIndex(keyword.value);
+            if (keyword.contains && !words.isEmpty()) {
+                if (isIndexedChar(keyword.value.charAt(0))) {
+                    words.remove(0);
+                }
+                if (!words.isEmpty() && isIndexedChar(keyword.value.charAt(keyword.value.length() - 1))) {
+                    words.set(words.size() - 1, words.get(words.size() - 1) + "*");
+                }
+            }
+            if (words.isEmpty()) continue;
+
+            if (expression.length() > 0) {
+                expression.append(" ");
+            }
+            expression.append(DOUBLE_QUOTE);
+            expression.append(String.join(" ", words));
+            expression.append(DOUBLE_QUOTE);
+        }
+        return expression.toString();
+    }
+
+    /** Splits text into words the same way as the "simple" tokenizer of SQLite does */
+    @NonNull
+    private static List<String> wordsForIndex(String text) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        for (int ind = 0; ind < text.length(); ind++) {
+            char c = text.charAt(ind);
+            if (isIndexedChar(c)) {
+                word.append(c);
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (word.length() > 0) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    /** ASCII letters and digits and all non-ASCII characters are parts of words */
+    private static boolean isIndexedChar(char c) {
+        return c > 127 || (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
     @NonNull
     public String[] prependSqlSelectionArgs(String[] selectionArgs) {
         String[] selectionArgsOut = selectionArgs;
@@ -0,0 +1,161 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.note;
+
+import org.andstatus.app.actor.GroupType;
+import org.andstatus.app.context.MyContext;
+import org.andstatus.app.data.AttachedImageFiles;
+import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.data.SqlIds;
+import org.andstatus.app.database.table.ActivityTable;
+import org.andstatus.app.database.table.ActorTable;
+import org.andstatus.app.database.table.AudienceTable;
+import org.andstatus.app.net.social.ActivityType;
+import org.andstatus.app.net.social.Actor;
+import org.andstatus.app.net.social.Audience;
+import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.StopWatch;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads audiences, rebloggers and attached images of all notes of a page at once,
+ * using one query for each kind of details instead of several queries for each note
+ * @author yvolk@yurivolkov.com
+ */
+public class NoteDetailsLoader {
+    private final MyContext myContext;
+    /** One note may be shown in several items, e.g. as created and as reblogged */
+    private final Map<Long, List<BaseNoteViewItem<?>>> itemsByNoteId = new HashMap<>();
+    private final Set<Long> noteIdsWithAttachments = new HashSet<>();
+
+    private static class AudienceMember {
+        final GroupType groupType;
+        final long actorId;
+        final String actorOid;
+
+        AudienceMember(GroupType groupType, long actorId, String actorOid) {
+            this.groupType = groupType;
+            this.actorId = actorId;
+            this.actorOid = actorOid;
+        }
+    }
+
+    public NoteDetailsLoader(MyContext myContext) {
+        this.myContext = myContext;
+    }
+
+    void addNoteToLoad(BaseNoteViewItem<?> item) {
+        if (item.getNoteId() == 0) return;
+
+        itemsByNoteId.computeIfAbsent(item.getNoteId(), id -> new ArrayList<>()).add(item);
+        if (item.attachmentsCount > 0) {
+            noteIdsWithAttachments.add(item.getNoteId());
+        }
+    }
+
+    public void load() {
+        if (itemsByNoteId.isEmpty()) return;
+
+        final StopWatch stopWatch = StopWatch.createStarted();
+        loadAudiences();
+        final long audiencesMs = stopWatch.getTime();
+        stopWatch.restart();
+        loadRebloggers();
+        final long rebloggersMs = stopWatch.getTime();
+        stopWatch.restart();
+        loadAttachedImageFiles();
+        final long attachedImagesMs = stopWatch.getTime();
+        MyLog.d(this, "Details of " + itemsByNoteId.size() + " notes loaded; audiences " + audiencesMs
+                + "ms, rebloggers " + rebloggersMs + "ms, attached images of " + noteIdsWithAttachments.size()
+                + " notes " + attachedImagesMs + "ms");
+    }
+
+    private void loadAudiences() {
+        String sql = "SELECT " + AudienceTable.NOTE_ID + "," + ActorTable.GROUP_TYPE + "," +
+                AudienceTable.ACTOR_ID + "," + ActorTable.ACTOR_OID +
+                " FROM " + AudienceTable.TABLE_NAME +
+                " INNER JOIN " + ActorTable.TABLE_NAME + " ON " +
+                AudienceTable.TABLE_NAME + "." + AudienceTable.ACTOR_ID + "=" +
+                ActorTable.TABLE_NAME + "." + ActorTable._ID +
+                " WHERE " + AudienceTable.NOTE_ID + SqlIds.fromIds(itemsByNoteId.keySet()).getSql();
+        Map<Long, List<AudienceMember>> members = MyQuery.foldLeft(myContext, sql, new HashMap<>(),
+                map -> cursor -> {
+                    map.computeIfAbsent(DbUtils.getLong(cursor, AudienceTable.NOTE_ID), id -> new ArrayList<>())
+                            .add(new AudienceMember(GroupType.fromId(DbUtils.getLong(cursor, ActorTable.GROUP_TYPE)),
+                                    DbUtils.getLong(cursor, AudienceTable.ACTOR_ID),
+                                    DbUtils.getString(cursor, ActorTable.ACTOR_OID)));
+                    return map;
+                });
+        itemsByNoteId.forEach((noteId, items) -> {
+            List<AudienceMember> noteMembers = members.get(noteId);
+            for (BaseNoteViewItem<?> item : items) {
+                // Each item gets its own audience, because its actors are replaced with loaded ones later
+                Audience audience = new Audience(item.getOrigin()).withVisibility(item.visibility);
+                if (noteMembers != null) {
+                    noteMembers.forEach(member -> audience.add(Actor.fromTwoIds(item.getOrigin(),
+                            member.groupType, member.actorId, member.actorOid)));
+                }
+                item.audience = audience;
+            }
+        });
+    }
+
+    /** See {@link MyQuery#getRebloggers} */
+    private void loadRebloggers() {
+        String sql = "SELECT " + ActivityTable.NOTE_ID + ", " + ActivityTable.ACTIVITY_TYPE + ", "
+                + ActivityTable.ACTOR_ID + ", " + ActorTable.WEBFINGER_ID
+                + " FROM " + ActivityTable.TABLE_NAME + " INNER JOIN " + ActorTable.TABLE_NAME
+                + " ON " + ActivityTable.ACTOR_ID + "=" + ActorTable.TABLE_NAME + "." + ActorTable._ID
+                + " WHERE " + ActivityTable.NOTE_ID + SqlIds.fromIds(itemsByNoteId.keySet()).getSql() + " AND "
+                + ActivityTable.ACTIVITY_TYPE + " IN(" + ActivityType.ANNOUNCE.id + ","
+                + ActivityType.UNDO_ANNOUNCE.id + ")"
+                + " ORDER BY " + ActivityTable.UPDATED_DATE + " DESC";
+        Set<String> foundNoteActors = new HashSet<>();
+        MyQuery.foldLeft(myContext, sql, itemsByNoteId, map -> cursor -> {
+            long noteId = DbUtils.getLong(cursor, ActivityTable.NOTE_ID);
+            long actorId = DbUtils.getLong(cursor, ActivityTable.ACTOR_ID);
+            List<BaseNoteViewItem<?>> items = map.get(noteId);
+            // Only the latest activity of the actor counts
+            if (items != null && foundNoteActors.add(noteId + ":" + actorId)
+                    && ActivityType.fromId(DbUtils.getLong(cursor, ActivityTable.ACTIVITY_TYPE)) == ActivityType.ANNOUNCE) {
+                String webFingerId = DbUtils.getString(cursor, ActorTable.WEBFINGER_ID);
+                for (BaseNoteViewItem<?> item : items) {
+                    Actor actor = Actor.fromId(item.getOrigin(), actorId);
+                    actor.setWebFingerId(webFingerId);
+                    item.rebloggers.put(actor.actorId, actor.getWebFingerId());
+                }
+            }
+            return map;
+        });
+    }
+
+    private void loadAttachedImageFiles() {
+        AttachedImageFiles.loadForNotes(myContext, noteIdsWithAttachments).forEach((noteId, imageFiles) -> {
+            List<BaseNoteViewItem<?>> items = itemsByNoteId.get(noteId);
+            if (items != null) {
+                items.forEach(item -> item.attachedImageFiles = imageFiles);
+            }
+        });
+    }
+}
@@ -27,6 +27,9 @@ import org.andstatus.app.origin.Origin;
 import org.andstatus.app.timeline.meta.TimelineType;
 import org.andstatus.app.util.MyLog;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+
 /**
  * @author yvolk@yurivolkov.com
  */
@@ -61,35 +64,33 @@ public class RecursiveConversationLoader extends ConversationLoader {
                 selection, null, null)) {
             while (cursor != null && cursor.moveToNext()) {
                 ConversationViewItem itemLoaded = item.fromCursor(myContext, cursor);
-                cachedConversationItems.put(itemLoaded.getNoteId(), itemLoaded);
+                cacheItem(itemLoaded);
             }
         }
     }
 
-    private void findPreviousNotesRecursively(ConversationViewItem itemIn) {
-        if (!addNoteIdToFind(itemIn.getNoteId())) {
-            return;
-        }
-        ConversationViewItem item = loadItemFromDatabase(itemIn);
-        findRepliesRecursively(item);
-        MyLog.v(this, () -> "findPreviousNotesRecursively id=" + item.getNoteId() + " replies:" + item.nReplies);
-        if (item.isLoaded()) {
-            if (addItemToList(item) && item.inReplyToNoteId != 0) {
-                findPreviousNotesRecursively(
-                        getItem(item.inReplyToNoteId, item.conversationId, item.replyLevel - 1));
-            }
-        } else if (mAllowLoadingFromInternet) {
-            loadFromInternet(item.getNoteId());
-        }
-    }
+    /** Walks the conversation tree up to its root and down to all replies,
+     * using an explicit stack instead of recursion, so that long threads don't overflow the stack */
+    private void findPreviousNotesRecursively(ConversationViewItem selectedItem) {
+        Deque<ConversationViewItem> toFind = new ArrayDeque<>();
+        toFind.push(selectedItem);
+        while (!toFind.isEmpty()) {
+            ConversationViewItem itemIn = toFind.pop();
+            if (!addNoteIdToFind(itemIn.getNoteId())) continue;
 
-    private void findRepliesRecursively(ConversationViewItem item) {
-        MyLog.v(this, () -> "findReplies for id=" + item.getNoteId());
-        for (ConversationViewItem reply : cachedConversationItems.values()) {
-            if (reply.inReplyToNoteId == item.getNoteId()) {
+            ConversationViewItem item = loadItemFromDatabase(itemIn);
+            for (ConversationViewItem reply : getCachedReplies(item.getNoteId())) {
                 item.nReplies++;
                 reply.replyLevel = item.replyLevel + 1;
-                findPreviousNotesRecursively(reply);
+                toFind.push(reply);
+            }
+            MyLog.v(this, () -> "findPreviousNotesRecursively id=" + item.getNoteId() + " replies:" + item.nReplies);
+            if (item.isLoaded()) {
+                if (addItemToList(item) && item.inReplyToNoteId != 0) {
+                    toFind.push(getItem(item.inReplyToNoteId, item.conversationId, item.replyLevel - 1));
+                }
+            } else if (mAllowLoadingFromInternet) {
+                loadFromInternet(item.getNoteId());
             }
         }
     }
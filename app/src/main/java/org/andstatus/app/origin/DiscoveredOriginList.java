@@ -30,7 +30,7 @@ import org.andstatus.app.service.MyServiceManager;
 import static org.andstatus.app.context.MyContextHolder.myContextHolder;
 
 public class DiscoveredOriginList extends OriginList implements MyServiceEventsListener {
-    MyServiceEventsReceiver mServiceConnector = new MyServiceEventsReceiver(myContextHolder.getNow(), this);
+    MyServiceEventsReceiver mServiceConnector = new MyServiceEventsReceiver(this);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
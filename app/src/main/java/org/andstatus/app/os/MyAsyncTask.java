@@ -23,6 +23,7 @@ import android.os.Looper;
 
 import androidx.annotation.NonNull;
 
+import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.util.IdentifiableInstance;
 import org.andstatus.app.util.InstanceId;
 import org.andstatus.app.util.MyLog;
@@ -68,8 +69,10 @@ public abstract class MyAsyncTask<Params, Progress, Result> extends AsyncTask<Pa
     volatile boolean hasExecutor = true;
 
     public enum PoolEnum {
-        SYNC(3, MAX_COMMAND_EXECUTION_SECONDS, true),
-        FILE_DOWNLOAD(1, MAX_COMMAND_EXECUTION_SECONDS, true),
+        /** Enough for all lanes of command queue executors plus the heartbeat */
+        SYNC(9, MAX_COMMAND_EXECUTION_SECONDS, true),
+        /** For all lanes of downloads of avatars and attachments */
+        FILE_DOWNLOAD(MyPreferences.MAX_DOWNLOAD_EXECUTOR_LANES, MAX_COMMAND_EXECUTION_SECONDS, true),
         QUICK_UI(0, 20, false),
         LONG_UI(1, MAX_COMMAND_EXECUTION_SECONDS, true);
 
@@ -18,8 +18,11 @@ package org.andstatus.app.service;
 
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContext;
+import org.andstatus.app.data.AttachedMediaFile;
 import org.andstatus.app.data.NoteContextMenuData;
 import org.andstatus.app.data.DownloadData;
+import org.andstatus.app.graphics.CacheName;
+import org.andstatus.app.graphics.ImageCaches;
 import org.andstatus.app.util.MyLog;
 
 import static org.andstatus.app.context.MyContextHolder.myContextHolder;
@@ -38,6 +41,7 @@ public class AttachmentDownloader extends FileDownloader {
     @Override
     protected void onSuccessfulLoad() {
         MyLog.v(this, () -> "Loaded attachment " + data);
+        ImageCaches.createThumbnail(CacheName.ATTACHED_IMAGE, new AttachedMediaFile(data));
     }
 
 }
@@ -22,6 +22,8 @@ import org.andstatus.app.data.AvatarData;
 import org.andstatus.app.data.DownloadData;
 import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.database.table.ActorTable;
+import org.andstatus.app.graphics.CacheName;
+import org.andstatus.app.graphics.ImageCaches;
 import org.andstatus.app.net.social.Actor;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.util.MyLog;
@@ -48,7 +50,8 @@ public class AvatarDownloader extends FileDownloader {
     @Override
     protected void onSuccessfulLoad() {
         data.deleteOtherOfThisActor(myContextHolder.getNow());
-        myContextHolder.getNow().users().load(data.actorId, true);
+        Actor actor = myContextHolder.getNow().users().load(data.actorId, true);
         MyLog.v(this, () -> "Loaded avatar actorId:" + data.actorId + "; uri:'" + data.getUri() + "'");
+        ImageCaches.createThumbnail(CacheName.AVATAR, actor.avatarFile);
     }
 }
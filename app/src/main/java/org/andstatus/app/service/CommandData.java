@@ -86,6 +86,8 @@ public class CommandData implements Comparable<CommandData>, TaggedClass {
     private String username = "";
 
     private CommandResult commandResult = new CommandResult();
+    /** Origin or host, which the command connects to, found once by {@link CommandQueue}. null if not found yet */
+    volatile String executionKey = null;
 
     public static CommandData newSearch(SearchObjects searchObjects,
                                         MyContext myContext, Origin origin, String queryString) {
@@ -220,6 +222,16 @@ public class CommandData implements Comparable<CommandData>, TaggedClass {
         return commandData;
     }
 
+    /** @return A snapshot of the command, which isn't changed, while the command is being executed further */
+    @NonNull
+    CommandData copy(MyContext myContext) {
+        if (command == CommandEnum.EMPTY) return EMPTY;
+
+        CommandData commandData = fromBundle(myContext, toBundle());
+        commandData.commandResult = commandResult.copy();
+        return commandData;
+    }
+
     /**
      * @return Intent to be sent to MyService
      */
@@ -345,6 +357,10 @@ public class CommandData implements Comparable<CommandData>, TaggedClass {
             return 0;
         } else if (command.getPriority() == another.command.getPriority()) {
             greater = commandId > another.commandId ? 1 : -1;
+            if (isInForeground() && (command == CommandEnum.GET_AVATAR || command == CommandEnum.GET_ATTACHMENT)) {
+                // Images, requested last, are shown on the screen now
+                greater = -greater;
+            }
         } else {
             greater = command.getPriority() > another.command.getPriority() ? 1 : -1;
         }
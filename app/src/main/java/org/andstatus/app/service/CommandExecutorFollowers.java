@@ -27,22 +27,22 @@ import org.andstatus.app.data.OidEnum;
 import org.andstatus.app.database.table.ActivityTable;
 import org.andstatus.app.database.table.ActorTable;
 import org.andstatus.app.net.http.ConnectionException;
-import org.andstatus.app.net.social.AActivity;
 import org.andstatus.app.net.social.ActivityType;
 import org.andstatus.app.net.social.Actor;
 import org.andstatus.app.net.social.ApiRoutineEnum;
 import org.andstatus.app.net.social.InputActorPage;
 import org.andstatus.app.net.social.TimelinePosition;
+import org.andstatus.app.origin.Origin;
+import org.andstatus.app.util.LongSet;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.RelativeTime;
 import org.andstatus.app.util.StringUtil;
-import org.andstatus.app.util.TriState;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
 
 import io.vavr.control.Try;
 
@@ -52,7 +52,16 @@ import static org.andstatus.app.context.MyContextHolder.myContextHolder;
  * @author yvolk@yurivolkov.com
  */
 public class CommandExecutorFollowers extends CommandExecutorStrategy {
+    /** Latest notes are downloaded for new members only, if there are so few of them */
+    private static final int MAX_ACTORS_TO_LOAD_LATEST_NOTES = 30;
+    /** Actors, downloaded one by one using their oids, are saved in batches of this size */
+    private static final int ACTORS_BATCH_SIZE = 200;
     String commandSummary = "";
+    private long actorsCount = 0;
+    /** First downloaded actors, which are kept while there are few of them. null after that */
+    private List<Actor> fewActors = new ArrayList<>();
+    /** Ids of the saved actors, so that pages of actors themselves are not kept in memory */
+    private final LongSet memberIds = new LongSet();
 
     public CommandExecutorFollowers(CommandExecutionContext execContext) {
         super(execContext);
@@ -66,29 +75,30 @@ public class CommandExecutorFollowers extends CommandExecutorStrategy {
         }
 
         CommandEnum command = execContext.getCommandData().getCommand();
-        return getNewActors(command)
-        .onSuccess(actorsNew -> updateGroupMemberships(command, actorsNew))
-        .map(actorsNew -> {
+        return downloadMembers(command)
+        .onSuccess(count -> updateGroupMemberships(command))
+        .map(count -> {
             TimelineSyncTracker syncTracker = new TimelineSyncTracker(execContext.getTimeline(), true);
             syncTracker.onTimelineDownloaded();
 
-            MyLog.d(this, commandSummary + " ended, " + actorsNew.size() + " actors");
+            MyLog.d(this, commandSummary + " ended, " + count + " actors");
             return true;
         });
     }
 
-    private Try<List<Actor>> getNewActors(CommandEnum command) {
+    /** @return number of downloaded actors */
+    private Try<Long> downloadMembers(CommandEnum command) {
         ApiRoutineEnum apiActors = command == CommandEnum.GET_FOLLOWERS
                 ? ApiRoutineEnum.GET_FOLLOWERS : ApiRoutineEnum.GET_FRIENDS;
         if (isApiSupported(apiActors)) {
-            return getNewActors(apiActors);
+            return downloadMembers(apiActors);
         } else {
             ApiRoutineEnum apiIds = command == CommandEnum.GET_FOLLOWERS
                     ? ApiRoutineEnum.GET_FOLLOWERS_IDS : ApiRoutineEnum.GET_FRIENDS_IDS;
             if (isApiSupported(apiIds)) {
                 return getConnection()
                     .getFriendsOrFollowersIds(apiIds, getActor().oid)
-                    .flatMap(this::getActorsForOids);
+                    .flatMap(this::downloadActorsForOids);
             } else {
                 return Try.failure(new ConnectionException(ConnectionException.StatusCode.UNSUPPORTED_API,
                         apiActors + " and " + apiIds));
@@ -96,19 +106,19 @@ public class CommandExecutorFollowers extends CommandExecutorStrategy {
         }
     }
 
-    private Try<List<Actor>> getNewActors(ApiRoutineEnum apiActors) {
-        List<Actor> actors = new ArrayList<>();
+    /** Each page is saved as soon as it's downloaded */
+    private Try<Long> downloadMembers(ApiRoutineEnum apiActors) {
         List<TimelinePosition> requested = new ArrayList<>();
         AtomicReference<TimelinePosition> positionToRequest = new AtomicReference<>(TimelinePosition.EMPTY);
         for (int pageNum = 0; pageNum < 100; pageNum++) {
             if (requested.contains(positionToRequest.get())) break;
 
             Try<InputActorPage> tried = getConnection().getFriendsOrFollowers(apiActors, positionToRequest.get(), getActor());
-            if (tried.isFailure()) return tried.map(page -> page.items);
+            if (tried.isFailure()) return tried.map(page -> actorsCount);
 
             requested.add(positionToRequest.get());
             tried.onSuccess(page -> {
-                actors.addAll(page.items);
+                onActorsDownloaded(page.items);
 
                 if (page.firstPosition.nonEmpty() && !requested.contains(page.firstPosition)) {
                     positionToRequest.set(page.firstPosition);
@@ -116,73 +126,92 @@ public class CommandExecutorFollowers extends CommandExecutorStrategy {
                     positionToRequest.set(page.olderPosition);
                 }
             });
+            if (logSoftErrorIfStopping()) {
+                return Try.failure(new Exception(execContext.getResult().getMessage()));
+            }
         }
-        return Try.success(actors);
+        return Try.success(actorsCount);
     }
 
-    private Try<List<Actor>> getActorsForOids(List<String> actorOidsNew) {
-        List<Actor> actorsNew = new ArrayList<>();
-        AtomicLong count = new AtomicLong();
-        for (String actorOidNew : actorOidsNew) {
-            getConnection().getActor(Actor.fromOid(execContext.getMyAccount().getOrigin(), actorOidNew)).map(actor -> {
-                count.incrementAndGet();
-                execContext.getResult().incrementDownloadedCount();
-                return actor;
-            }).recover(Exception.class, e -> {
-                long actorId = MyQuery.oidToId(OidEnum.ACTOR_OID,
-                        execContext.getMyAccount().getOriginId(), actorOidNew);
-                if (actorId == 0) {
-                    MyLog.i(this, "Failed to identify an Actor for oid=" + actorOidNew, e);
-                    return Actor.EMPTY;
-                } else {
-                    Actor actor = Actor.fromTwoIds(execContext.getMyAccount().getOrigin(),
-                            GroupType.UNKNOWN, actorId, actorOidNew);
-                    actor.setWebFingerId(MyQuery.actorIdToWebfingerId(execContext.myContext, actorId));
-                    MyLog.v(this, "Server doesn't return Actor object for " + actor , e);
+    private Try<Long> downloadActorsForOids(List<String> actorOidsNew) {
+        final Origin origin = execContext.getMyAccount().getOrigin();
+        for (int start = 0; start < actorOidsNew.size(); start += ACTORS_BATCH_SIZE) {
+            List<String> oids = actorOidsNew.subList(start, Math.min(start + ACTORS_BATCH_SIZE, actorOidsNew.size()));
+            // Ids of the actors, which are known already, are looked up for the whole batch at once
+            Map<String, Long> knownIds = MyQuery.oidsToIds(execContext.myContext, OidEnum.ACTOR_OID,
+                    origin.getId(), oids);
+            List<Actor> actors = new ArrayList<>();
+            for (String actorOidNew : oids) {
+                getConnection().getActor(Actor.fromOid(origin, actorOidNew)).map(actor -> {
+                    execContext.getResult().incrementDownloadedCount();
                     return actor;
+                }).recover(Exception.class, e -> {
+                    long actorId = knownIds.getOrDefault(actorOidNew, 0L);
+                    if (actorId == 0) {
+                        MyLog.i(this, "Failed to identify an Actor for oid=" + actorOidNew, e);
+                        return Actor.EMPTY;
+                    } else {
+                        Actor actor = Actor.fromTwoIds(origin, GroupType.UNKNOWN, actorId, actorOidNew);
+                        actor.setWebFingerId(MyQuery.actorIdToWebfingerId(execContext.myContext, actorId));
+                        MyLog.v(this, "Server doesn't return Actor object for " + actor , e);
+                        return actor;
+                    }
+                })
+                .onSuccess(actor -> {
+                    broadcastProgress((actorsCount + actors.size() + 1) + ". "
+                            + execContext.getContext().getText(R.string.get_user)
+                            + ": " + actor.getUniqueNameWithOrigin(), true);
+                    if (actor.nonEmpty()) actors.add(actor);
+                });
+                if (logSoftErrorIfStopping()) {
+                    return Try.failure(new Exception(execContext.getResult().getMessage()));
                 }
-            })
-            .onSuccess(actor -> {
-                broadcastProgress(count + ". "
-                        + execContext.getContext().getText(R.string.get_user)
-                        + ": " + actor.getUniqueNameWithOrigin(), true);
-                actorsNew.add(actor);
-            });
-            if (logSoftErrorIfStopping()) {
-                return Try.failure(new Exception(execContext.getResult().getMessage()));
             }
+            onActorsDownloaded(actors);
         }
-        return Try.success(actorsNew);
+        return Try.success(actorsCount);
     }
 
-    private void updateGroupMemberships(CommandEnum command, List<Actor> actorsNew) {
+    private void onActorsDownloaded(List<Actor> actors) {
+        actorsCount += actors.size();
+        if (fewActors != null) {
+            fewActors.addAll(actors);
+            if (fewActors.size() <= MAX_ACTORS_TO_LOAD_LATEST_NOTES) return;
+
+            saveActors(fewActors);
+            fewActors = null;
+        } else {
+            saveActors(actors);
+        }
+    }
+
+    /** Saves the actors in one transaction */
+    private void saveActors(List<Actor> actors) {
+        if (actors.isEmpty()) return;
+
+        broadcastProgress(actorsCount + ". " + execContext.getContext().getText(R.string.button_save)
+                + ": " + actors.get(actors.size() - 1).getUniqueNameWithOrigin(), true);
+        final Actor myAccountActor = execContext.getMyAccount().getActor();
+        DataUpdater dataUpdater = new DataUpdater(execContext);
+        dataUpdater.onActivitiesInTransaction(actors.stream().map(myAccountActor::update).collect(Collectors.toList()));
+        dataUpdater.saveLum();
+        actors.forEach(actor -> memberIds.add(actor.actorId));
+    }
+
+    private void updateGroupMemberships(CommandEnum command) {
         GroupType groupType = command == CommandEnum.GET_FOLLOWERS
                 ? GroupType.FOLLOWERS : GroupType.FRIENDS;
         int actionStringRes = groupType == GroupType.FOLLOWERS ? R.string.followers : R.string.friends;
-        Set<Long> actorIdsOld = GroupMembership.getGroupMemberIds(execContext.myContext, getActor().actorId, groupType);
         execContext.getResult().incrementDownloadedCount();
         broadcastProgress(execContext.getContext().getText(actionStringRes).toString()
-                + ": " + actorIdsOld.size() + " -> " + actorsNew.size(), false);
+                + ": " + actorsCount, false);
 
-        boolean loadLatestNotes = actorsNew.size() < 30;  // TODO: Too long...
-        if (loadLatestNotes && !areAllNotesLoaded(actorsNew)) {
-            if (updateNewActorsAndTheirLatestActions(actorsNew)) return;
-        } else {
-            DataUpdater dataUpdater = new DataUpdater(execContext);
-            for (Actor actor : actorsNew) {
-                AActivity activity = execContext.getMyAccount().getActor().update(actor);
-                dataUpdater.onActivity(activity);
-            }
-        }
+        if (fewActors != null) {
+            if (!areAllNotesLoaded(fewActors) && updateNewActorsAndTheirLatestActions(fewActors)) return;
 
-        for (Actor actor : actorsNew) {
-            actorIdsOld.remove(actor.actorId);
-            GroupMembership.setMember(execContext.myContext, getActor(), groupType, TriState.TRUE, actor);
-        }
-        for (long actorIdOld : actorIdsOld) {
-            GroupMembership.setMember(execContext.myContext, getActor(), groupType,
-                    TriState.FALSE, Actor.load(execContext.myContext, actorIdOld));
+            fewActors.forEach(actor -> memberIds.add(actor.actorId));
         }
+        GroupMembership.setMembers(execContext.myContext, getActor(), groupType, memberIds);
         execContext.myContext.users().reload(getActor());
     }
 
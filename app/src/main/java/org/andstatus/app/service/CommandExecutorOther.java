@@ -16,9 +16,13 @@
 
 package org.andstatus.app.service;
 
+import android.content.Context;
+import android.text.format.Formatter;
+
 import androidx.annotation.NonNull;
 import androidx.core.util.Pair;
 
+import org.andstatus.app.R;
 import org.andstatus.app.context.DemoData;
 import org.andstatus.app.data.DataUpdater;
 import org.andstatus.app.data.DownloadData;
@@ -370,6 +374,8 @@ class CommandExecutorOther extends CommandExecutorStrategy{
         if (!note.getStatus().mayBeSent()) {
             return Try.failure(ConnectionException.hardConnectionException("Wrong note status: " + note.getStatus(), null));
         }
+        note.attachments.list.forEach(attachment ->
+            attachment.setUploadProgressListener(this::broadcastUploadProgress));
 
         return getConnection().updateNote(note)
         .flatMap(activity ->
@@ -386,6 +392,17 @@ class CommandExecutorOther extends CommandExecutorStrategy{
         );
     }
 
+    private void broadcastUploadProgress(long bytesSent, long bytesTotal) {
+        final Context context = execContext.getContext();
+        broadcastProgress(context.getText(R.string.dialog_title_sending_message) + " "
+                + Formatter.formatShortFileSize(context, bytesSent)
+                + (bytesTotal > 0
+                    ? " / " + Formatter.formatShortFileSize(context, bytesTotal)
+                        + " (" + bytesSent * 100 / bytesTotal + "%)"
+                    : ""),
+                bytesSent != bytesTotal);
+    }
+
     private Try<Boolean> failIfEmptyNote(String method, long noteId, Note note) {
         if (note == null || note.isEmpty()) {
             return logExecutionError(false, method + "; Received note is empty, "
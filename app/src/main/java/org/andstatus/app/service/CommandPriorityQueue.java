@@ -0,0 +1,320 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import androidx.annotation.NonNull;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+
+/**
+ * Priority queue of commands with a hash index of its elements, so that checking,
+ * if an equal command is in the queue already, doesn't need to scan the whole queue.
+ * Removal of a command, which is not at the head, only marks its entry as removed,
+ * so it doesn't scan the queue either. Removed entries are skipped, when they reach the head.
+ * Counts commands in foreground also.
+ * Optionally tracks changes of the queue since the previous save, so that only they are persisted.
+ * @author yvolk@yurivolkov.com
+ */
+class CommandPriorityQueue extends AbstractQueue<CommandData> {
+    /** Lazily purged of the entries, which were removed */
+    private final Queue<Entry> queue;
+    /** Entries, removed from the index, but still in the {@link #queue} */
+    private int removedCount = 0;
+    private volatile int size = 0;
+    /** Equal commands may be added to the queue more than once, so we keep all of them */
+    private final Map<CommandData, List<Entry>> index = new ConcurrentHashMap<>();
+    /** Commands, counted in {@link #foregroundCount}, so that each of them is uncounted once,
+     * even if it's moved to background, while in the queue */
+    private final Set<CommandData> countedInForeground = Collections.newSetFromMap(new IdentityHashMap<>());
+    private volatile int foregroundCount = 0;
+    private final boolean trackChanges;
+    /** Added or changed commands by their ids */
+    private final Map<Long, CommandData> toSave = new HashMap<>();
+    /** Ids of removed commands */
+    private final Set<Long> toDelete = new HashSet<>();
+
+    private static class Entry implements Comparable<Entry> {
+        final CommandData commandData;
+        volatile boolean removed = false;
+
+        Entry(CommandData commandData) {
+            this.commandData = commandData;
+        }
+
+        @Override
+        public int compareTo(@NonNull Entry another) {
+            return commandData.compareTo(another.commandData);
+        }
+    }
+
+    /** Changes of the queue, taken for persistence */
+    static class Changes {
+        final List<CommandData> toSave;
+        final List<Long> toDelete;
+
+        private Changes(Collection<CommandData> toSave, Collection<Long> toDelete) {
+            this.toSave = new ArrayList<>(toSave);
+            this.toDelete = new ArrayList<>(toDelete);
+        }
+
+        boolean isEmpty() {
+            return toSave.isEmpty() && toDelete.isEmpty();
+        }
+    }
+
+    CommandPriorityQueue(int initialCapacity, boolean trackChanges) {
+        queue = new PriorityBlockingQueue<>(initialCapacity);
+        this.trackChanges = trackChanges;
+    }
+
+    @Override
+    public synchronized boolean offer(CommandData commandData) {
+        if (!offerUntracked(commandData)) return false;
+
+        if (trackChanges) {
+            toSave.put(commandData.getCommandId(), commandData);
+            toDelete.remove(commandData.getCommandId());
+        }
+        return true;
+    }
+
+    /** Adds the command, which is persisted already, e.g. while loading the queue from a database */
+    synchronized boolean offerSaved(CommandData commandData) {
+        return offerUntracked(commandData);
+    }
+
+    private boolean offerUntracked(CommandData commandData) {
+        Entry entry = new Entry(commandData);
+        if (!queue.offer(entry)) return false;
+
+        try {
+            size++;
+            List<Entry> equalCommands = index.get(commandData);
+            if (equalCommands == null) {
+                equalCommands = new ArrayList<>(1);
+                index.put(commandData, equalCommands);
+            }
+            equalCommands.add(entry);
+        } finally {
+            if (commandData.isInForeground() && countedInForeground.add(commandData)) foregroundCount++;
+        }
+        return true;
+    }
+
+    @Override
+    public synchronized CommandData poll() {
+        skipRemovedHead();
+        Entry entry = queue.poll();
+        if (entry == null) return null;
+
+        onRemoved(entry);
+        return entry.commandData;
+    }
+
+    @Override
+    public synchronized CommandData peek() {
+        skipRemovedHead();
+        Entry entry = queue.peek();
+        return entry == null ? null : entry.commandData;
+    }
+
+    private void skipRemovedHead() {
+        Entry entry;
+        while ((entry = queue.peek()) != null && entry.removed) {
+            queue.poll();
+            removedCount--;
+        }
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o != null && index.containsKey(o);
+    }
+
+    /** @return The command, equal to the one supplied, from the queue. null if not found */
+    synchronized CommandData get(CommandData commandData) {
+        List<Entry> equalCommands = commandData == null ? null : index.get(commandData);
+        return equalCommands == null || equalCommands.isEmpty() ? null : equalCommands.get(0).commandData;
+    }
+
+    /** Removes the same object, if it's in the queue, otherwise removes an equal command */
+    @Override
+    public synchronized boolean remove(Object o) {
+        if (!contains(o)) return false;
+
+        Entry toRemove = null;
+        for (Entry entry : index.get(o)) {
+            if (entry.commandData == o) {
+                toRemove = entry;
+                break;
+            }
+            if (toRemove == null) toRemove = entry;
+        }
+        if (toRemove == null) return false;
+
+        toRemove.removed = true;
+        removedCount++;
+        onRemoved(toRemove);
+        if (removedCount > size) purgeRemoved();
+        return true;
+    }
+
+    /** Keeps the queue from growing, when commands are removed, but not polled */
+    private void purgeRemoved() {
+        List<Entry> entries = new ArrayList<>(size);
+        for (Entry entry : queue) {
+            if (!entry.removed) entries.add(entry);
+        }
+        queue.clear();
+        queue.addAll(entries);
+        removedCount = 0;
+    }
+
+    private void onRemoved(Entry entry) {
+        CommandData commandData = entry.commandData;
+        try {
+            size--;
+            List<Entry> equalCommands = index.get(commandData);
+            if (equalCommands != null) {
+                for (Iterator<Entry> iterator = equalCommands.iterator(); iterator.hasNext(); ) {
+                    if (iterator.next() == entry) {
+                        iterator.remove();
+                        break;
+                    }
+                }
+                if (equalCommands.isEmpty()) index.remove(commandData);
+            }
+            if (trackChanges) {
+                toSave.remove(commandData.getCommandId());
+                toDelete.add(commandData.getCommandId());
+            }
+        } finally {
+            if (countedInForeground.remove(commandData)) foregroundCount--;
+        }
+    }
+
+    /** The command in the queue was modified, so it needs to be persisted again */
+    synchronized void onChanged(CommandData commandData) {
+        if (trackChanges && contains(commandData)) {
+            toSave.put(commandData.getCommandId(), commandData);
+        }
+    }
+
+    /** The command was persisted, but it's not in the queue, so needs to be deleted */
+    synchronized void onDeleted(CommandData commandData) {
+        if (trackChanges && !toSave.containsKey(commandData.getCommandId())) {
+            toDelete.add(commandData.getCommandId());
+        }
+    }
+
+    @Override
+    public synchronized void clear() {
+        if (trackChanges) {
+            for (Entry entry : queue) {
+                if (!entry.removed) toDelete.add(entry.commandData.getCommandId());
+            }
+            toSave.clear();
+        }
+        queue.clear();
+        removedCount = 0;
+        size = 0;
+        index.clear();
+        countedInForeground.clear();
+        foregroundCount = 0;
+    }
+
+    boolean hasForegroundTasks() {
+        return foregroundCount > 0;
+    }
+
+    synchronized boolean hasChanges() {
+        return !toSave.isEmpty() || !toDelete.isEmpty();
+    }
+
+    /** @return Changes since the previous call, which are forgotten by the queue */
+    synchronized Changes takeChanges() {
+        Changes changes = new Changes(toSave.values(), toDelete);
+        toSave.clear();
+        toDelete.clear();
+        return changes;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Weakly consistent iterator, which skips removed entries and supports removal */
+    @NonNull
+    @Override
+    public Iterator<CommandData> iterator() {
+        Iterator<Entry> iterator = queue.iterator();
+        return new Iterator<CommandData>() {
+            private Entry nextEntry = nextNotRemoved();
+            private CommandData lastReturned = null;
+
+            private Entry nextNotRemoved() {
+                while (iterator.hasNext()) {
+                    Entry entry = iterator.next();
+                    if (!entry.removed) return entry;
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextEntry != null;
+            }
+
+            @Override
+            public CommandData next() {
+                if (nextEntry == null) throw new NoSuchElementException();
+
+                lastReturned = nextEntry.commandData;
+                nextEntry = nextNotRemoved();
+                return lastReturned;
+            }
+
+            @Override
+            public void remove() {
+                if (lastReturned == null) throw new IllegalStateException();
+
+                CommandPriorityQueue.this.remove(lastReturned);
+                lastReturned = null;
+            }
+        };
+    }
+}
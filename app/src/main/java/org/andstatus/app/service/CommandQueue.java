@@ -19,26 +19,35 @@ package org.andstatus.app.service;
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
 
 import androidx.annotation.NonNull;
 
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.data.MyQuery;
+import org.andstatus.app.database.table.ActorTable;
 import org.andstatus.app.database.table.CommandTable;
+import org.andstatus.app.database.table.DownloadTable;
+import org.andstatus.app.net.social.Actor;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.MyStringBuilder;
 import org.andstatus.app.util.RelativeTime;
 import org.andstatus.app.util.StopWatch;
+import org.andstatus.app.util.StringUtil;
 import org.andstatus.app.util.TryUtils;
+import org.andstatus.app.util.UriUtils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Queue;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -54,6 +63,10 @@ public class CommandQueue {
     private static final long RETRY_QUEUE_PROCESSING_PERIOD_SECONDS = 900;
     private static final long MIN_RETRY_PERIOD_SECONDS = 900;
     private static final long MAX_DAYS_IN_ERROR_QUEUE = 10;
+    /** Not more commands of busy origins or hosts are set aside during one poll, so a long queue isn't scanned */
+    private static final int MAX_BUSY_COMMANDS_TO_SET_ASIDE = 50;
+    private static final List<QueueType> PERSISTED_QUEUES = Arrays.asList(QueueType.CURRENT, QueueType.DOWNLOADS,
+            QueueType.SKIPPED, QueueType.RETRY, QueueType.ERROR);
     private final static OneQueue preQueue = new OneQueue(QueueType.PRE);
 
     private final MyContext myContext;
@@ -61,8 +74,13 @@ public class CommandQueue {
     private final Map<QueueType, OneQueue> queues = new HashMap<>();
     private final Accessor generalAccessor;
     private final Map<AccessorType, Accessor> accessors = new HashMap<>();
+    /** Number of executing commands by their origins or hosts, see {@link #getExecutionKey(CommandData)} */
+    private final Map<String, Integer> executingPerKey = new HashMap<>();
+    private final Map<Long, String> executionKeys = new HashMap<>();
     private volatile boolean loaded = false;
     private volatile boolean changed = false;
+    /** Set after a failure to save changes, so the whole queues are rewritten next time */
+    private volatile boolean saveAll = false;
 
     static void addToPreQueue(CommandData commandData) {
         preQueue.addToQueue(commandData);
@@ -70,10 +88,11 @@ public class CommandQueue {
 
     static class OneQueue {
         final QueueType queueType;
-        Queue<CommandData> queue = new PriorityBlockingQueue<>(INITIAL_CAPACITY);
+        final CommandPriorityQueue queue;
 
         private OneQueue(QueueType queueType) {
             this.queueType = queueType;
+            queue = new CommandPriorityQueue(INITIAL_CAPACITY, PERSISTED_QUEUES.contains(queueType));
         }
 
         public void clear() {
@@ -84,13 +103,8 @@ public class CommandQueue {
             return queue.isEmpty();
         }
 
-        private boolean hasForegroundTasks() {
-            for (CommandData commandData : queue) {
-                if (commandData.isInForeground()) {
-                    return true;
-                }
-            }
-            return false;
+        boolean hasForegroundTasks() {
+            return queue.hasForegroundTasks();
         }
 
         boolean addToQueue(CommandData commandData) {
@@ -108,9 +122,14 @@ public class CommandQueue {
                     MyLog.v(TAG, () -> "Removed equal command from " + queueType + " queue");
                 }
             } else {
-                if (queue.contains(commandData)) {
-                    MyLog.v(TAG, () -> "Didn't add to " + queueType + " queue. Already found " + commandData);
-                    return true;
+                CommandData existing = queue.get(commandData);
+                if (existing != null) {
+                    if (commandData.isInForeground() && !existing.isInForeground() && queue.remove(existing)) {
+                        MyLog.v(TAG, () -> "Raising priority in " + queueType + " queue of " + existing);
+                    } else {
+                        MyLog.v(TAG, () -> "Didn't add to " + queueType + " queue. Already found " + commandData);
+                        return true;
+                    }
                 }
             }
 
@@ -176,8 +195,7 @@ public class CommandQueue {
     /** @return Number of items loaded */
     private int load(@NonNull QueueType queueType) {
         final String method = "loadQueue-" + queueType.save();
-        OneQueue oneQueue = get(queueType);
-        Queue<CommandData> queue = oneQueue.queue;
+        CommandPriorityQueue queue = get(queueType).queue;
         int count = 0;
         SQLiteDatabase db = myContext.getDatabase();
         if (db == null) {
@@ -195,8 +213,9 @@ public class CommandQueue {
                     MyLog.w(TAG, method + "; empty skipped " + cd);
                 } else if (queue.contains(cd)) {
                     MyLog.w(TAG, method + "; duplicate skipped " + cd);
+                    queue.onDeleted(cd);
                 } else {
-                    if (queue.offer(cd)) {
+                    if (queue.offerSaved(cd)) {
                         count++;
                         if (MyLog.isVerboseEnabled() && (count < 6 || cd.getCommand() == CommandEnum.UPDATE_NOTE)) {
                             MyLog.v(TAG, method + "; " + count + ": " + cd.toString());
@@ -214,7 +233,7 @@ public class CommandQueue {
     }
 
     public synchronized void save() {
-        if (!changed && preQueue.isEmpty()) {
+        if (!changed && preQueue.isEmpty() && !hasChangesToSave()) {
             MyLog.v(TAG, () -> "save; Nothing to save. changed:" + changed + "; preQueueIsEmpty:" + preQueue.isEmpty());
             return;
         }
@@ -229,71 +248,119 @@ public class CommandQueue {
             return;
         }
         accessors.values().forEach(Accessor::moveCommandsFromPreToMainQueue);
-        if (loaded) clearQueuesInDatabase(db);
-
-        Try<Integer> countNotError = save(db, QueueType.CURRENT)
-                .flatMap(i1 -> save(db, QueueType.DOWNLOADS).map(i2 -> i1 + i2))
-                .flatMap(i1 -> save(db, QueueType.SKIPPED).map(i2 -> i1 + i2))
-                .flatMap(i1 -> save(db, QueueType.RETRY).map(i2 -> i1 + i2));
-        Try<Integer> countError = save(db, QueueType.ERROR);
-        MyLog.d(TAG, (loaded ? "Queues saved" : "Saved new queued commands only") + ", "
-            + ( countNotError.isFailure() || countError.isFailure()
-                ? " Error saving commands!"
-                : ((countNotError.get() > 0 ? Integer.toString(countNotError.get()) : "no") + " commands"
-                    + (countError.get() > 0 ? ", plus " + countError.get() + " in Error queue" : ""))
-            )
-        );
         changed = false;
+
+        StopWatch stopWatch = StopWatch.createStarted();
+        // Anything changed while saving will be saved next time
+        Map<QueueType, CommandPriorityQueue.Changes> changes = new HashMap<>();
+        for (QueueType queueType : PERSISTED_QUEUES) {
+            changes.put(queueType, get(queueType).queue.takeChanges());
+        }
+        final boolean saveAllNow = saveAll && loaded;
+        Try<String> result = saveAllNow ? saveAll(db) : saveChanges(db, changes);
+        if (result.isFailure()) {
+            saveAll = true;
+            changed = true;
+        } else if (saveAllNow) {
+            saveAll = false;
+        }
+        MyLog.d(TAG, (loaded ? "Queues saved" : "Saved changes of not loaded queues") + ", "
+                + result.map(counts -> counts + " in " + stopWatch.getTime() + "ms").getOrElse(" Error saving commands!"));
     }
 
-    /** @return Number of items persisted */
-    private Try<Integer> save(@NonNull SQLiteDatabase db, @NonNull QueueType queueType) {
-        final String method = "saveQueue-" + queueType.save();
-        OneQueue oneQueue = get(queueType);
-        Queue<CommandData> queue = oneQueue.queue;
+    private boolean hasChangesToSave() {
+        for (QueueType queueType : PERSISTED_QUEUES) {
+            if (get(queueType).queue.hasChanges()) return true;
+        }
+        return false;
+    }
+
+    /** Writes added and changed commands and deletes removed ones in one transaction
+     * @return Counts of persisted commands */
+    private Try<String> saveChanges(@NonNull SQLiteDatabase db, Map<QueueType, CommandPriorityQueue.Changes> changes) {
+        final String method = "saveChanges";
+        int countSaved = 0;
+        int countDeleted = 0;
+        SQLiteStatement deleteStatement = null;
+        db.beginTransactionNonExclusive();
+        try {
+            // A command may be moved to another queue, so a row is deleted only if it belongs to this queue
+            deleteStatement = db.compileStatement("DELETE FROM " + CommandTable.TABLE_NAME
+                    + " WHERE " + CommandTable._ID + "=? AND " + CommandTable.QUEUE_TYPE + "=?");
+            for (Map.Entry<QueueType, CommandPriorityQueue.Changes> entry : changes.entrySet()) {
+                for (long commandId : entry.getValue().toDelete) {
+                    deleteStatement.bindLong(1, commandId);
+                    deleteStatement.bindString(2, entry.getKey().save());
+                    countDeleted += deleteStatement.executeUpdateDelete();
+                }
+            }
+            for (Map.Entry<QueueType, CommandPriorityQueue.Changes> entry : changes.entrySet()) {
+                for (CommandData cd : entry.getValue().toSave) {
+                    replace(db, entry.getKey(), cd);
+                    countSaved++;
+                }
+            }
+            db.setTransactionSuccessful();
+        } catch (Exception e) {
+            String msgLog = method + "; " + countSaved + " saved, " + countDeleted + " deleted before the failure";
+            MyLog.e(TAG, msgLog, e);
+            return TryUtils.failure(msgLog, e);
+        } finally {
+            DbUtils.closeSilently(deleteStatement);
+            endTransactionSilently(db);
+        }
+        return Try.success(countSaved + " saved, " + countDeleted + " deleted");
+    }
+
+    /** Rewrites all commands of all queues in one transaction
+     * @return Counts of persisted commands */
+    private Try<String> saveAll(@NonNull SQLiteDatabase db) {
+        final String method = "saveAll";
         int count = 0;
+        int countError = 0;
+        db.beginTransactionNonExclusive();
         try {
-            if (!queue.isEmpty()) {
-                List<CommandData> commands = new ArrayList<>();
-                while (!queue.isEmpty() && count < 300) {
-                    CommandData cd = queue.poll();
-                    ContentValues values = new ContentValues();
-                    cd.toContentValues(values);
-                    values.put(CommandTable.QUEUE_TYPE, queueType.save());
-                    db.insert(CommandTable.TABLE_NAME, null, values);
-                    count++;
-                    commands.add(cd);
-                    if (MyLog.isVerboseEnabled() && (count < 6 || cd.getCommand() == CommandEnum.UPDATE_NOTE)) {
-                        MyLog.v(TAG, method + "; " + count + ": " + cd.toString());
-                    }
-                    if (myContext.isTestRun() && queue.contains(cd)) {
-                        MyLog.e(TAG, method + "; Duplicated command in a queue:" + count + " " + cd.toString());
+            DbUtils.execSQL(db, "DELETE FROM " + CommandTable.TABLE_NAME);
+            for (QueueType queueType : PERSISTED_QUEUES) {
+                for (CommandData cd : get(queueType).queue) {
+                    replace(db, queueType, cd);
+                    if (queueType == QueueType.ERROR) {
+                        countError++;
+                    } else {
+                        count++;
                     }
                 }
-                int left = queue.size();
-                // And add all commands back to the queue, so we won't need to reload them from a database
-                commands.forEach(queue::offer);
-                MyLog.d(TAG, method + "; " + count + " saved" +
-                        (left == 0 ? " all" : ", " + left + " left"));
             }
+            db.setTransactionSuccessful();
         } catch (Exception e) {
-            String msgLog = method + "; " + count + " saved, " + queue.size() + " left.";
+            String msgLog = method + "; " + (count + countError) + " saved before the failure";
             MyLog.e(TAG, msgLog, e);
             return TryUtils.failure(msgLog, e);
+        } finally {
+            endTransactionSilently(db);
+        }
+        return Try.success("all " + (count > 0 ? Integer.toString(count) : "no") + " commands"
+                + (countError > 0 ? ", plus " + countError + " in Error queue" : ""));
+    }
+
+    private static void replace(@NonNull SQLiteDatabase db, @NonNull QueueType queueType, CommandData cd) {
+        ContentValues values = new ContentValues();
+        cd.toContentValues(values);
+        values.put(CommandTable.QUEUE_TYPE, queueType.save());
+        if (db.replace(CommandTable.TABLE_NAME, null, values) == -1) {
+            throw new IllegalStateException("Failed to save to " + queueType + " queue: " + cd);
+        }
+        if (MyLog.isVerboseEnabled() && cd.getCommand() == CommandEnum.UPDATE_NOTE) {
+            MyLog.v(TAG, "Saved to " + queueType + " queue: " + cd);
         }
-        return Try.success(count);
     }
 
-    private synchronized Try<Void> clearQueuesInDatabase(@NonNull SQLiteDatabase db) {
-        final String method = "clearQueuesInDatabase";
+    private static void endTransactionSilently(@NonNull SQLiteDatabase db) {
         try {
-            String sql = "DELETE FROM " + CommandTable.TABLE_NAME;
-            DbUtils.execSQL(db, sql);
+            db.endTransaction();
         } catch (Exception e) {
-            MyLog.e(TAG, method, e);
-            return TryUtils.failure(method, e);
+            MyLog.w(TAG, "endTransaction", e);
         }
-        return TryUtils.SUCCESS;
     }
 
     Try<Void> clear() {
@@ -303,6 +370,7 @@ public class CommandQueue {
         }
         preQueue.clear();
         changed = true;
+        saveAll = true;
         save();
         MyLog.v(TAG, "Queues cleared");
         return TryUtils.SUCCESS;
@@ -332,6 +400,12 @@ public class CommandQueue {
         return size + preQueue.size();
     }
 
+    /** @return true if commands, which the User waits for, are queued, so background work should give way to them */
+    public boolean hasForegroundTasks() {
+        return preQueue.hasForegroundTasks() || get(QueueType.CURRENT).hasForegroundTasks()
+                || get(QueueType.DOWNLOADS).hasForegroundTasks();
+    }
+
     /** @return true if success */
     boolean addToQueue(QueueType queueTypeIn, CommandData commandData) {
         if (get(queueTypeIn).addToQueue(commandData)) {
@@ -345,6 +419,79 @@ public class CommandQueue {
         return accessors.values().stream().anyMatch(Accessor::isAnythingToExecuteNow);
     }
 
+    /** Commands for one origin may occupy all lanes except one, so other origins are not starved.
+     * Downloads are limited per host of their URLs, because media are often served by other servers
+     * @return false if the command shouldn't be executed now, because its origin or host is busy */
+    private boolean onExecutionStarting(CommandData commandData, Set<String> busyKeys) {
+        String key = getExecutionKey(commandData);
+        if (key.isEmpty()) return true;
+        if (busyKeys.contains(key)) return false;
+
+        int maxPerKey = isDownload(commandData)
+                ? MyPreferences.getMaxConnectionsPerHost()
+                : MyPreferences.getMaxCommandsPerOrigin();
+        synchronized (executingPerKey) {
+            int executing = executingPerKey.getOrDefault(key, 0);
+            if (executing >= maxPerKey) {
+                busyKeys.add(key);
+                return false;
+            }
+
+            executingPerKey.put(key, executing + 1);
+            executionKeys.put(commandData.getCommandId(), key);
+            return true;
+        }
+    }
+
+    private void onExecutionEnded(CommandData commandData) {
+        synchronized (executingPerKey) {
+            String key = executionKeys.remove(commandData.getCommandId());
+            if (key == null) return;
+
+            int executing = executingPerKey.getOrDefault(key, 0);
+            if (executing > 1) {
+                executingPerKey.put(key, executing - 1);
+            } else {
+                executingPerKey.remove(key);
+            }
+        }
+    }
+
+    /** @return Origin or host, which the command connects to. Empty if unknown */
+    private String getExecutionKey(CommandData commandData) {
+        String key = commandData.executionKey;
+        if (key == null) {
+            key = findExecutionKey(commandData);
+            commandData.executionKey = key;
+        }
+        return key;
+    }
+
+    private String findExecutionKey(CommandData commandData) {
+        if (!isDownload(commandData)) {
+            long originId = commandData.myAccount.getOriginId();
+            return originId == 0 ? "" : "origin:" + originId;
+        }
+        String url;
+        if (commandData.getCommand() == CommandEnum.GET_AVATAR) {
+            Actor actor = commandData.getTimeline().actor;
+            url = StringUtil.nonEmpty(actor.getAvatarUrl())
+                    ? actor.getAvatarUrl()
+                    : MyQuery.idToStringColumnValue(myContext.getDatabase(), ActorTable.TABLE_NAME,
+                        ActorTable.AVATAR_URL, actor.actorId);
+        } else {
+            url = MyQuery.idToStringColumnValue(myContext.getDatabase(), DownloadTable.TABLE_NAME,
+                    DownloadTable.URL, commandData.itemId);
+        }
+        String host = UriUtils.fromString(url).getHost();
+        return StringUtil.isEmpty(host) ? "" : "host:" + host;
+    }
+
+    private static boolean isDownload(CommandData commandData) {
+        return commandData.getCommand() == CommandEnum.GET_ATTACHMENT
+                || commandData.getCommand() == CommandEnum.GET_AVATAR;
+    }
+
     enum AccessorType {
         GENERAL,
         DOWNLOADS
@@ -375,9 +522,7 @@ public class CommandQueue {
         }
 
         private boolean isForAccessor(CommandData cd) {
-            boolean commandForDownloads = cd.getCommand() == CommandEnum.GET_ATTACHMENT
-                    || cd.getCommand() == CommandEnum.GET_AVATAR;
-            return accessorType == AccessorType.GENERAL ^ commandForDownloads;
+            return accessorType == AccessorType.GENERAL ^ isDownload(cd);
         }
 
         private QueueType mainQueueType() {
@@ -416,8 +561,14 @@ public class CommandQueue {
 
         CommandData pollQueue() {
             moveCommandsFromPreToMainQueue();
-            CommandData commandData;
+            CommandData commandData = null;
+            List<CommandData> originIsBusy = new ArrayList<>();
+            Set<String> busyKeys = new HashSet<>();
             do {
+                if (originIsBusy.size() >= MAX_BUSY_COMMANDS_TO_SET_ASIDE) {
+                    MyLog.v(TAG, () -> "Stopped polling " + accessorType + ", origins or hosts are busy: " + busyKeys);
+                    break;
+                }
                 commandData = cq.get(mainQueueType()).queue.poll();
                 if (commandData == null && isTimeToProcessRetryQueue() && isAnythingToExecuteNowIn(QueueType.RETRY)) {
                     moveCommandsFromRetryToMainQueue();
@@ -433,8 +584,13 @@ public class CommandQueue {
                 if (skip(commandData)) {
                     cq.addToQueue(QueueType.SKIPPED, commandData);
                     commandData = null;
+                } else if (commandData != null && !cq.onExecutionStarting(commandData, busyKeys)) {
+                    originIsBusy.add(commandData);
+                    commandData = null;
                 }
             } while (commandData == null);
+            // Leave these for other lanes, they were in the main queue already
+            originIsBusy.forEach(cq.get(mainQueueType()).queue::offer);
             MyLog.v(TAG, "Polled " + accessorType + " in "
                     + (cq.myContext.isInForeground() ? "foreground "
                     + (MyPreferences.isSyncWhileUsingApplicationEnabled() ? "enabled" : "disabled")
@@ -447,6 +603,11 @@ public class CommandQueue {
             return commandData;
         }
 
+        /** Should be called for each command returned by {@link #pollQueue()} */
+        void onExecutionEnded(CommandData commandData) {
+            cq.onExecutionEnded(commandData);
+        }
+
         private boolean skip(CommandData commandData) {
             if (commandData == null) return false;
 
@@ -493,7 +654,7 @@ public class CommandQueue {
         }
 
         private void moveCommandsFromRetryToMainQueue() {
-            Queue<CommandData> queue = cq.get(QueueType.RETRY).queue;
+            CommandPriorityQueue queue = cq.get(QueueType.RETRY).queue;
             for (CommandData cd : queue) {
                 if (cd.executedMoreSecondsAgoThan(MIN_RETRY_PERIOD_SECONDS) && addToMainOrSkipQueue(cd)) {
                     queue.remove(cd);
@@ -505,30 +666,24 @@ public class CommandQueue {
         }
 
         private CommandData findInRetryQueue(CommandData cdIn) {
-            Queue<CommandData> queue = cq.get(QueueType.RETRY).queue;
-            CommandData cdOut = cdIn;
-            if (queue.contains(cdIn)) {
-                for (CommandData cd : queue) {
-                    if (cd.equals(cdIn)) {
-                        cd.resetRetries();
-                        if (cdIn.isManuallyLaunched() || cd.executedMoreSecondsAgoThan(MIN_RETRY_PERIOD_SECONDS)) {
-                            cdOut = cd;
-                            queue.remove(cd);
-                            cq.changed = true;
-                            MyLog.v(TAG, () -> "Returned from Retry queue: " + cd);
-                        } else {
-                            cdOut = null;
-                            MyLog.v(TAG, () -> "Found in Retry queue, but left there: " + cd);
-                        }
-                        break;
-                    }
-                }
+            CommandPriorityQueue queue = cq.get(QueueType.RETRY).queue;
+            CommandData cd = queue.get(cdIn);
+            if (cd == null) return cdIn;
+
+            cd.resetRetries();
+            if (cdIn.isManuallyLaunched() || cd.executedMoreSecondsAgoThan(MIN_RETRY_PERIOD_SECONDS)) {
+                queue.remove(cd);
+                cq.changed = true;
+                MyLog.v(TAG, () -> "Returned from Retry queue: " + cd);
+                return cd;
             }
-            return cdOut;
+            queue.onChanged(cd);
+            MyLog.v(TAG, () -> "Found in Retry queue, but left there: " + cd);
+            return null;
         }
 
         private CommandData findInErrorQueue(CommandData cdIn) {
-            Queue<CommandData> queue = cq.get(QueueType.ERROR).queue;
+            CommandPriorityQueue queue = cq.get(QueueType.ERROR).queue;
             CommandData cdOut = cdIn;
             if (queue.contains(cdIn)) {
                 for (CommandData cd : queue) {
@@ -565,10 +720,8 @@ public class CommandQueue {
 
     @NonNull
     CommandData getFromQueue(QueueType queueType, CommandData dataIn) {
-        for (Object data : get(queueType).queue) {
-            if (dataIn.equals(data)) return (CommandData) data;
-        }
-        return CommandData.EMPTY;
+        CommandData data = get(queueType).queue.get(dataIn);
+        return data == null ? CommandData.EMPTY : data;
     }
 
     Optional<OneQueue> inWhichQueue(CommandData commandData) {
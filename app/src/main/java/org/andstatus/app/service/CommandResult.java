@@ -112,6 +112,18 @@ public final class CommandResult implements Parcelable {
         progress = parcel.readString();
     }
 
+    /** @return A copy with the same fields, as the one, passed via Intent */
+    CommandResult copy() {
+        Parcel parcel = Parcel.obtain();
+        try {
+            writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            return new CommandResult(parcel);
+        } finally {
+            parcel.recycle();
+        }
+    }
+
     public void toContentValues(ContentValues values) {
         values.put(CommandTable.LAST_EXECUTED_DATE, lastExecutedDate);
         values.put(CommandTable.EXECUTION_COUNT, executionCount);
@@ -16,6 +16,8 @@
 
 package org.andstatus.app.service;
 
+import android.net.Uri;
+
 import org.andstatus.app.account.MyAccount;
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyStorage;
@@ -26,14 +28,24 @@ import org.andstatus.app.net.http.ConnectionException;
 import org.andstatus.app.net.http.HttpRequest;
 import org.andstatus.app.net.social.ApiRoutineEnum;
 import org.andstatus.app.net.social.Connection;
+import org.andstatus.app.util.FileUtils;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StringUtil;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import io.vavr.control.Try;
 
 public abstract class FileDownloader {
+    private static final long MAX_SECONDS_TO_WAIT_FOR_OTHER_DOWNLOAD = 60;
+    /** The same URL may be requested by several commands at once, e.g. an image of a reblogged note,
+     * so it's downloaded once, and other downloaders copy the file */
+    private static final Map<Uri, UrlDownload> downloadsInProgress = new ConcurrentHashMap<>();
     final MyContext myContext;
     protected final DownloadData data;
     private Connection connectionMock;
@@ -90,6 +102,36 @@ public abstract class FileDownloader {
         final String method = "downloadFile";
         DownloadFile fileTemp = new DownloadFile(MyStorage.TEMP_FILENAME_PREFIX + data.getFilenameNew());
         File file = fileTemp.getFile();
+        Uri uri = data.getUri();
+        UrlDownload ownDownload = new UrlDownload();
+        UrlDownload otherDownload = uri == Uri.EMPTY ? null : downloadsInProgress.putIfAbsent(uri, ownDownload);
+        try {
+            if (otherDownload != null && otherDownload.copyTo(file)) {
+                MyLog.v(this, () -> "Reused parallel download of " + data.toString());
+            } else {
+                downloadFromUrl(method, file);
+            }
+            if (data.isError()) {
+                fileTemp.delete();
+            }
+            DownloadFile fileNew = new DownloadFile(data.getFilenameNew());
+            fileNew.delete();
+            if (!data.isError() && !fileTemp.getFile().renameTo(fileNew.getFile())) {
+                data.softErrorLogged(method + "; Couldn't rename file " + fileTemp + " to " + fileNew, null);
+            }
+            data.onDownloaded();
+            if (otherDownload == null && !data.isError()) {
+                ownDownload.file = fileNew.getFile();
+            }
+        } finally {
+            if (otherDownload == null && uri != Uri.EMPTY) {
+                downloadsInProgress.remove(uri, ownDownload);
+                ownDownload.done.countDown();
+            }
+        }
+    }
+
+    private void downloadFromUrl(String method, File file) {
         MyAccount ma = findBestAccountForDownload();
         if (ma.isValidAndSucceeded()) {
             Connection connection = connectionMock == null ? ma.getConnection() : connectionMock;
@@ -111,15 +153,6 @@ public abstract class FileDownloader {
             MyLog.v(this, () -> "No account to download " + data.toString() + "; account:" + ma.getAccountName());
             data.hardErrorLogged(method + ", No account to download the file", null);
         }
-        if (data.isError()) {
-            fileTemp.delete();
-        }
-        DownloadFile fileNew = new DownloadFile(data.getFilenameNew());
-        fileNew.delete();
-        if (!data.isError() && !fileTemp.getFile().renameTo(fileNew.getFile())) {
-            data.softErrorLogged(method + "; Couldn't rename file " + fileTemp + " to " + fileNew, null);
-        }
-        data.onDownloaded();
     }
 
     private HttpRequest newRequest(File file) {
@@ -144,6 +177,32 @@ public abstract class FileDownloader {
         return downloader.load(commandData);
     }
 
+    private static class UrlDownload {
+        final CountDownLatch done = new CountDownLatch(1);
+        /** Downloaded file, null if the download failed */
+        volatile File file = null;
+
+        /** Waits for this download to complete
+         * @return true if the downloaded file was copied */
+        boolean copyTo(File target) {
+            try {
+                if (!done.await(MAX_SECONDS_TO_WAIT_FOR_OTHER_DOWNLOAD, TimeUnit.SECONDS)) return false;
+
+                File source = file;
+                if (source == null || !source.exists()) return false;
+
+                if (target.exists() && !target.delete()) return false;
+                return FileUtils.copyFile(this, source, target);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            } catch (IOException e) {
+                MyLog.w(this, "Failed to copy " + file + " to " + target, e);
+                return false;
+            }
+        }
+    }
+
     public FileDownloader setConnectionMock(Connection connectionMock) {
         this.connectionMock = connectionMock;
         return this;
@@ -31,6 +31,7 @@ import org.andstatus.app.MyAction;
 import org.andstatus.app.appwidget.AppWidgets;
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.data.DbUtils;
+import org.andstatus.app.net.http.PooledHttpClients;
 import org.andstatus.app.net.social.Actor;
 import org.andstatus.app.notification.NotificationData;
 import org.andstatus.app.os.AsyncTaskLauncher;
@@ -298,10 +299,12 @@ public class MyService extends Service implements IdentifiableInstance {
         }
 
         AsyncTaskLauncher.cancelPoolTasks(MyAsyncTask.PoolEnum.SYNC);
+        AsyncTaskLauncher.execute(() -> PooledHttpClients.closeIdleConnections(0));
         releaseWakeLock();
         stopSelf();
         myContext.getNotifier().clearAndroidNotification(SERVICE_RUNNING);
-        MyLog.i(TAG, "MyService " + instanceId + " stopped, myServiceWorkMs:" + (System.currentTimeMillis() - initializedTime));
+        MyLog.i(TAG, "MyService " + instanceId + " stopped, myServiceWorkMs:" + (System.currentTimeMillis() - initializedTime)
+                + "; " + myContext.oids());
         isStopping.set(false);
     }
 
@@ -365,6 +368,7 @@ public class MyService extends Service implements IdentifiableInstance {
                     breakReason = "Not initialized";
                     break;
                 }
+                PooledHttpClients.closeIdleConnections(PooledHttpClients.IDLE_CONNECTION_TIMEOUT_SECONDS);
                 publishProgress(iteration);
             }
             String breakReasonVal = breakReason;
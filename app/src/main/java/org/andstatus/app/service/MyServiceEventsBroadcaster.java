@@ -26,9 +26,13 @@ import org.andstatus.app.context.MyContext;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StringUtil;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 import static org.andstatus.app.context.MyContextHolder.myContextHolder;
 
 public class MyServiceEventsBroadcaster {
+    /** The latest service state, sent via the system broadcast */
+    private static final AtomicReference<MyServiceState> stateBroadcast = new AtomicReference<>(MyServiceState.UNKNOWN);
     private final MyContext mMyContext;
     private final MyServiceState mState;
     private CommandData mCommandData = CommandData.EMPTY;
@@ -59,19 +63,33 @@ public class MyServiceEventsBroadcaster {
         return this;
     }
 
+    /**
+     * Events are delivered to receivers of this process via {@link MyServiceEventsBus}.
+     * The system broadcast is sent only for external receivers, which need to know the service state:
+     * when the state changes, the service stops or replies to a state request
+     */
     public void broadcast() {
-        Intent intent = MyAction.SERVICE_STATE.getIntent();
         if (mCommandData != CommandData.EMPTY) {
             mCommandData.getResult().setProgress(progress);
         }
-        mCommandData.toIntent(intent);
-        intent.putExtra(IntentExtra.SERVICE_STATE.key, mState.save());
-        intent.putExtra(IntentExtra.SERVICE_EVENT.key, mEvent.save());
         if (MyLog.isVerboseEnabled()) {
             MyLog.v(this, () -> "state:" + mState + ", event:" + mEvent
             + ", " + mCommandData.toCommandSummary(myContextHolder.getNow())
             + (StringUtil.isEmpty(progress) ? "" : ", progress:" + progress) );
         }
-        mMyContext.context().sendBroadcast(intent);
+        MyServiceEventsBus.post(mMyContext, mCommandData, mEvent);
+        if (isForExternalReceivers()) {
+            Intent intent = MyAction.SERVICE_STATE.getIntent();
+            mCommandData.toIntent(intent);
+            intent.putExtra(IntentExtra.SERVICE_STATE.key, mState.save());
+            intent.putExtra(IntentExtra.SERVICE_EVENT.key, mEvent.save());
+            mMyContext.context().sendBroadcast(intent);
+        }
+    }
+
+    private boolean isForExternalReceivers() {
+        boolean stateChanged = mState != MyServiceState.UNKNOWN && stateBroadcast.getAndSet(mState) != mState;
+        return stateChanged || mEvent == MyServiceEvent.ON_STOP || mEvent == MyServiceEvent.UNKNOWN
+                || mCommandData.getCommand() == CommandEnum.BROADCAST_SERVICE_STATE;
     }
 }
@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.service;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import org.andstatus.app.context.MyContext;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * In-process delivery of {@link MyServiceEvent}s to registered {@link MyServiceEventsReceiver}s
+ * on the main thread, without sending commands via system broadcasts.
+ * Rapid progress updates of a command are coalesced: only the latest of them is delivered
+ * not more often than once per {@link #PROGRESS_COALESCING_MILLIS},
+ * and pending progress is dropped, when any other event of this command is posted
+ * @author yvolk@yurivolkov.com
+ */
+final class MyServiceEventsBus {
+    static final long PROGRESS_COALESCING_MILLIS = 300;
+
+    private static final Set<MyServiceEventsReceiver> receivers = new CopyOnWriteArraySet<>();
+    /** Progress of commands, waiting for delivery, by command id */
+    private static final Map<Long, CommandData> pendingProgress = new ConcurrentHashMap<>();
+    private static volatile Handler handler = null;
+
+    private MyServiceEventsBus() {
+        // Empty
+    }
+
+    static void register(MyServiceEventsReceiver receiver) {
+        receivers.add(receiver);
+    }
+
+    static void unregister(MyServiceEventsReceiver receiver) {
+        receivers.remove(receiver);
+    }
+
+    /**
+     * May be called from any thread. Receivers get a snapshot of the command data, taken at the time of posting,
+     * because the command is changed by its executor concurrently
+     */
+    static void post(MyContext myContext, CommandData commandDataIn, MyServiceEvent event) {
+        if (receivers.isEmpty() || event == MyServiceEvent.UNKNOWN) return;
+
+        final CommandData commandData = commandDataIn.copy(myContext);
+        final long commandId = commandData.getCommandId();
+        if (event == MyServiceEvent.PROGRESS_EXECUTING_COMMAND) {
+            if (pendingProgress.put(commandId, commandData) == null) {
+                getHandler().postDelayed(() -> deliverProgress(commandId), PROGRESS_COALESCING_MILLIS);
+            }
+        } else {
+            pendingProgress.remove(commandId);
+            getHandler().post(() -> deliver(commandData, event));
+        }
+    }
+
+    private static void deliverProgress(long commandId) {
+        CommandData commandData = pendingProgress.remove(commandId);
+        if (commandData != null) {
+            deliver(commandData, MyServiceEvent.PROGRESS_EXECUTING_COMMAND);
+        }
+    }
+
+    private static void deliver(CommandData commandData, MyServiceEvent event) {
+        for (MyServiceEventsReceiver receiver : receivers) {
+            receiver.onReceive(commandData, event);
+        }
+    }
+
+    private static Handler getHandler() {
+        if (handler == null) {
+            handler = new Handler(Looper.getMainLooper());
+        }
+        return handler;
+    }
+}
@@ -16,54 +16,36 @@
 
 package org.andstatus.app.service;
 
-import android.content.BroadcastReceiver;
 import android.content.Context;
-import android.content.Intent;
-import android.content.IntentFilter;
 
-import org.andstatus.app.IntentExtra;
-import org.andstatus.app.MyAction;
-import org.andstatus.app.context.MyContext;
 import org.andstatus.app.util.InstanceId;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.MyStringBuilder;
 
 /**
- * @author yvolk@yurivolkov.com
+ * Receives {@link MyServiceEvent}s of this process via {@link MyServiceEventsBus} on the main thread
  */
-public final class MyServiceEventsReceiver extends BroadcastReceiver {
+public final class MyServiceEventsReceiver {
     private final long mInstanceId = InstanceId.next();
     private final MyServiceEventsListener listener;
-    private final MyContext myContext;
 
-    public MyServiceEventsReceiver(MyContext myContext, MyServiceEventsListener listener) {
-        super();
-        this.myContext = myContext;
+    public MyServiceEventsReceiver(MyServiceEventsListener listener) {
         this.listener = listener;
         MyLog.v(this, () -> "Created, instanceId=" + mInstanceId
                 + (listener == null ? "" : "; listener=" + MyStringBuilder.objToTag(listener)));
     }
     
     public void registerReceiver(Context context) {
-        context.registerReceiver(this, new IntentFilter(MyAction.SERVICE_STATE.getAction()));
+        MyServiceEventsBus.register(this);
     }
 
     public void unregisterReceiver(Context context) {
-        try {
-            context.unregisterReceiver(this);
-        } catch (IllegalArgumentException e) {
-            // Thrown when the "Receiver not registered: org.andstatus.app.service.MyServiceReceiver@..."
-            MyLog.ignored(this, e);
-        }
+        MyServiceEventsBus.unregister(this);
     }
     
-    @Override
-    public void onReceive(Context context, Intent intent) {
-        MyServiceEvent event = MyServiceEvent.load(intent.getStringExtra(IntentExtra.SERVICE_EVENT.key));
-        if (event == MyServiceEvent.UNKNOWN) return;
-
+    void onReceive(CommandData commandData, MyServiceEvent event) {
         MyLog.v(this, () -> "onReceive " + event + " for " + MyStringBuilder.objToTag(listener)
                 + ", instanceId:" + mInstanceId);
-        listener.onReceive(CommandData.fromIntent(myContext, intent), event);
+        listener.onReceive(commandData, event);
     }
-}
\ No newline at end of file
+}
@@ -18,17 +18,21 @@ class QueueExecutor extends MyAsyncTask<Void, Void, Boolean> implements CommandE
     private final static String TAG = "QueueExecutor";
     private final WeakReference<MyService> myServiceRef;
     private final CommandQueue.AccessorType accessorType;
+    private final int lane;
     private final AtomicLong executedCounter = new AtomicLong();
 
-    QueueExecutor(MyService myService, CommandQueue.AccessorType accessorType) {
-        super(TAG + "-" + accessorType, PoolEnum.SYNC);
+    QueueExecutor(MyService myService, CommandQueue.AccessorType accessorType, int lane) {
+        super(TAG + "-" + accessorType + "-" + lane, accessorType == CommandQueue.AccessorType.DOWNLOADS
+                ? PoolEnum.FILE_DOWNLOAD
+                : PoolEnum.SYNC);
         this.myServiceRef = new WeakReference<>(myService);
         this.accessorType = accessorType;
+        this.lane = lane;
     }
 
     @Override
     public String instanceTag() {
-        return super.instanceTag() + "-" + accessorType;
+        return super.instanceTag() + "-" + accessorType + "-" + lane;
     }
 
     @Override
@@ -56,7 +60,7 @@ class QueueExecutor extends MyAsyncTask<Void, Void, Boolean> implements CommandE
                 breakReason = "Executed too long";
                 break;
             }
-            if (myService.executors.getRef(accessorType).get() != this) {
+            if (myService.executors.getRef(accessorType, lane).get() != this) {
                 breakReason = "Other executor";
                 break;
             }
@@ -69,9 +73,12 @@ class QueueExecutor extends MyAsyncTask<Void, Void, Boolean> implements CommandE
             executedCounter.incrementAndGet();
             currentlyExecutingSince = System.currentTimeMillis();
             currentlyExecutingDescription = commandData.toString();
-            myService.broadcastBeforeExecutingCommand(commandData);
-
-            CommandExecutorStrategy.executeCommand(commandData, this);
+            try {
+                myService.broadcastBeforeExecutingCommand(commandData);
+                CommandExecutorStrategy.executeCommand(commandData, this);
+            } finally {
+                accessor.onExecutionEnded(commandData);
+            }
 
             if (commandData.getResult().shouldWeRetry()) {
                 myService.myContext.queues().addToQueue(QueueType.RETRY, commandData);
@@ -18,31 +18,58 @@ package org.andstatus.app.service;
 
 import androidx.annotation.NonNull;
 
+import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.os.AsyncTaskLauncher;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.MyStringBuilder;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 
-/** Two specialized threads to execute {@link CommandQueue} */
+/** Specialized threads to execute {@link CommandQueue}:
+ * several "lanes" for each {@link CommandQueue.AccessorType},
+ * so that commands for different servers are executed in parallel.
+ * See {@link MyPreferences#getCommandExecutorLanes()} and {@link MyPreferences#getDownloadExecutorLanes()} */
 class QueueExecutors {
     private final MyService myService;
-    private final AtomicReference<QueueExecutor> general = new AtomicReference<>();
-    private final AtomicReference<QueueExecutor> downloads = new AtomicReference<>();
+    private final List<AtomicReference<QueueExecutor>> general = newLanes(MyPreferences.MAX_COMMAND_EXECUTOR_LANES);
+    private final List<AtomicReference<QueueExecutor>> downloads = newLanes(MyPreferences.MAX_DOWNLOAD_EXECUTOR_LANES);
 
     QueueExecutors(MyService myService) {
         this.myService = myService;
     }
 
+    private static List<AtomicReference<QueueExecutor>> newLanes(int maxLanes) {
+        List<AtomicReference<QueueExecutor>> lanes = new ArrayList<>();
+        for (int lane = 0; lane < maxLanes; lane++) {
+            lanes.add(new AtomicReference<>());
+        }
+        return lanes;
+    }
+
     void ensureExecutorsStarted() {
-        ensureExecutorStarted(CommandQueue.AccessorType.GENERAL);
-        ensureExecutorStarted(CommandQueue.AccessorType.DOWNLOADS);
+        ensureExecutorsStarted(CommandQueue.AccessorType.GENERAL);
+        ensureExecutorsStarted(CommandQueue.AccessorType.DOWNLOADS);
     }
 
-    private void ensureExecutorStarted(CommandQueue.AccessorType accessorType) {
-        final String method = "ensureExecutorStarted-" + accessorType;
+    /** Additional lanes are started only when there are more commands to execute than lanes working */
+    private void ensureExecutorsStarted(CommandQueue.AccessorType accessorType) {
+        int lanesCount = accessorType == CommandQueue.AccessorType.GENERAL
+                ? MyPreferences.getCommandExecutorLanes()
+                : MyPreferences.getDownloadExecutorLanes();
+        for (int lane = 0; lane < lanesCount; lane++) {
+            if (lane > 0 && myService.myContext.queues().getAccessor(accessorType).countToExecuteNow() <= lane) {
+                break;
+            }
+            ensureExecutorStarted(accessorType, lane);
+        }
+    }
+
+    private void ensureExecutorStarted(CommandQueue.AccessorType accessorType, int lane) {
+        final String method = "ensureExecutorStarted-" + accessorType + "-" + lane;
         MyStringBuilder logMessageBuilder = new MyStringBuilder();
-        QueueExecutor previous = getRef(accessorType).get();
+        QueueExecutor previous = getRef(accessorType, lane).get();
         boolean replace = previous == null;
         if ( !replace && previous.completedBackgroundWork()) {
             logMessageBuilder.withComma("Removing completed Executor " + previous);
@@ -55,20 +82,20 @@ class QueueExecutors {
         if (replace) {
             CommandQueue.Accessor accessor = myService.myContext.queues().getAccessor(accessorType);
             QueueExecutor current = accessor.isAnythingToExecuteNow()
-                ? new QueueExecutor(myService, accessorType)
+                ? new QueueExecutor(myService, accessorType, lane)
                 : null;
             if (current == null && previous == null) {
                 logMessageBuilder.withComma("Nothing to execute");
             } else {
-                if (replaceExecutor(logMessageBuilder, accessorType, previous, current)) {
+                if (replaceExecutor(logMessageBuilder, accessorType, lane, previous, current)) {
                     if (current == null) {
                         logMessageBuilder.withComma("Nothing to execute");
                     } else {
                         logMessageBuilder.withComma("Starting new Executor " + current);
-                        AsyncTaskLauncher.execute( myService.classTag() + "-" + accessorType, current)
+                        AsyncTaskLauncher.execute( myService.classTag() + "-" + accessorType + "-" + lane, current)
                                 .onFailure(throwable -> {
                                     logMessageBuilder.withComma("Failed to start new executor: " + throwable);
-                                    replaceExecutor(logMessageBuilder, accessorType, current, null);
+                                    replaceExecutor(logMessageBuilder, accessorType, lane, current, null);
                                 });
                     }
                 }
@@ -82,15 +109,20 @@ class QueueExecutors {
     }
 
     @NonNull
-    AtomicReference<QueueExecutor> getRef(CommandQueue.AccessorType accessorType) {
+    AtomicReference<QueueExecutor> getRef(CommandQueue.AccessorType accessorType, int lane) {
+        return getLanes(accessorType).get(lane);
+    }
+
+    @NonNull
+    private List<AtomicReference<QueueExecutor>> getLanes(CommandQueue.AccessorType accessorType) {
         return accessorType == CommandQueue.AccessorType.GENERAL
                 ? general
                 : downloads;
     }
 
-    private boolean replaceExecutor(MyStringBuilder logMessageBuilder, CommandQueue.AccessorType accessorType,
+    private boolean replaceExecutor(MyStringBuilder logMessageBuilder, CommandQueue.AccessorType accessorType, int lane,
                                     QueueExecutor previous, QueueExecutor current) {
-        if (getRef(accessorType).compareAndSet(previous, current)) {
+        if (getRef(accessorType, lane).compareAndSet(previous, current)) {
             if (previous == null) {
                 logMessageBuilder.withComma(current == null
                         ? "No executor"
@@ -110,15 +142,21 @@ class QueueExecutors {
     }
 
     boolean stopExecutor(boolean forceNow) {
-        return stopExecutor(CommandQueue.AccessorType.GENERAL, forceNow)
-              && stopExecutor(CommandQueue.AccessorType.DOWNLOADS, forceNow);
+        boolean success = true;
+        for (int lane = 0; lane < general.size(); lane++) {
+            success &= stopExecutor(CommandQueue.AccessorType.GENERAL, lane, forceNow);
+        }
+        for (int lane = 0; lane < downloads.size(); lane++) {
+            success &= stopExecutor(CommandQueue.AccessorType.DOWNLOADS, lane, forceNow);
+        }
+        return success;
     }
 
-    private boolean stopExecutor(CommandQueue.AccessorType accessorType, boolean forceNow) {
-        final String method = "couldStopExecutor-" + accessorType;
+    private boolean stopExecutor(CommandQueue.AccessorType accessorType, int lane, boolean forceNow) {
+        final String method = "couldStopExecutor-" + accessorType + "-" + lane;
         MyStringBuilder logMessageBuilder = new MyStringBuilder();
 
-        AtomicReference<QueueExecutor> executorRef = getRef(accessorType);
+        AtomicReference<QueueExecutor> executorRef = getRef(accessorType, lane);
         QueueExecutor previous = executorRef.get();
         boolean success = previous == null;
         boolean doStop = !success;
@@ -131,7 +169,7 @@ class QueueExecutors {
             }
         }
         if (doStop) {
-            success = replaceExecutor(logMessageBuilder, accessorType, previous, null);
+            success = replaceExecutor(logMessageBuilder, accessorType, lane, previous, null);
         }
         if (logMessageBuilder.nonEmpty()) {
             MyLog.v(myService, () -> method + "; " + logMessageBuilder);
@@ -140,15 +178,33 @@ class QueueExecutors {
     }
 
     boolean isReallyWorking() {
-        QueueExecutor gExecutor = general.get();
-        QueueExecutor dExecutor = downloads.get();
-        return gExecutor != null && (gExecutor.isReallyWorking()
-                || dExecutor != null && dExecutor.isReallyWorking());
+        return isReallyWorking(general) || isReallyWorking(downloads);
+    }
+
+    private static boolean isReallyWorking(List<AtomicReference<QueueExecutor>> lanes) {
+        for (AtomicReference<QueueExecutor> ref : lanes) {
+            QueueExecutor executor = ref.get();
+            if (executor != null && executor.isReallyWorking()) return true;
+        }
+        return false;
     }
 
     @NonNull
     @Override
     public String toString() {
-        return general.toString() + "; " + downloads.toString();
+        MyStringBuilder builder = new MyStringBuilder();
+        lanesToString(builder, CommandQueue.AccessorType.GENERAL);
+        lanesToString(builder, CommandQueue.AccessorType.DOWNLOADS);
+        return builder.toString();
+    }
+
+    private void lanesToString(MyStringBuilder builder, CommandQueue.AccessorType accessorType) {
+        List<AtomicReference<QueueExecutor>> lanes = getLanes(accessorType);
+        for (int lane = 0; lane < lanes.size(); lane++) {
+            QueueExecutor executor = lanes.get(lane).get();
+            if (executor != null) {
+                builder.withComma(accessorType + "-" + lane, executor.toString());
+            }
+        }
     }
 }
@@ -27,6 +27,7 @@ import android.view.View;
 
 import org.andstatus.app.R;
 import org.andstatus.app.list.SyncLoader;
+import org.andstatus.app.net.http.PooledHttpClients;
 import org.andstatus.app.os.AsyncTaskLauncher;
 import org.andstatus.app.timeline.BaseTimelineAdapter;
 import org.andstatus.app.timeline.LoadableListActivity;
@@ -62,6 +63,12 @@ public class QueueViewer extends LoadableListActivity {
         };
     }
 
+    @Override
+    protected CharSequence getCustomTitle() {
+        mSubtitle = PooledHttpClients.getStatistics();
+        return super.getCustomTitle();
+    }
+
     @Override
     protected BaseTimelineAdapter newListAdapter() {
         return new QueueViewerAdapter(this, getLoaded().getList());
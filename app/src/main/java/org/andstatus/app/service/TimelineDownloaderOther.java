@@ -117,8 +117,8 @@ class TimelineDownloaderOther extends TimelineDownloader {
                         ) {
                             activity.setSubscribedByMe(TriState.TRUE);
                         }
-                        dataUpdater.onActivity(activity, false);
                     }
+                    dataUpdater.onActivitiesInTransaction(page.items);
                     Optional<TimelinePosition> optPositionToRequest = syncTracker.getNextPositionToRequest();
                     if ( toDownload - syncTracker.getDownloadedCounter() <= 0 || !optPositionToRequest.isPresent()) {
                         break;
@@ -30,6 +30,7 @@ import org.andstatus.app.util.MyStringBuilder;
 import org.andstatus.app.util.SharedPreferencesUtil;
 
 import java.util.List;
+import java.util.function.BooleanSupplier;
 
 public abstract class BaseTimelineAdapter<T extends ViewItem<T>> extends BaseAdapter  implements View.OnClickListener {
     protected final boolean showAvatars = MyPreferences.getShowAvatars();
@@ -134,6 +135,17 @@ public abstract class BaseTimelineAdapter<T extends ViewItem<T>> extends BaseAda
         return positionRestored;
     }
 
+    /** Prefetches images of the item at this position, so they are in the cache, when the item is shown */
+    void prefetch(int position, BooleanSupplier isCancelled) {
+        if (position >= 0 && position < getCount()) {
+            prefetchImages(getItem(position), isCancelled);
+        }
+    }
+
+    public void prefetchImages(T item, BooleanSupplier isCancelled) {
+        // Empty
+    }
+
     protected boolean mayHaveYoungerPage() {
         return listData.mayHaveYoungerPage();
     }
@@ -155,18 +155,30 @@ public class DuplicatesCollapser<T extends ViewItem<T>> {
     }
 
     private void collapseDuplicates(long itemId) {
+        collapseDuplicates(itemId, Integer.MAX_VALUE);
+    }
+
+    /** Collapses only the youngest items and their duplicates, e.g. after new items were added to the top */
+    void collapseDuplicatesOfYoungestItems(int count) {
+        collapseDuplicates(0, count + maxDistanceBetweenDuplicates + 1);
+    }
+
+    private void collapseDuplicates(long itemId, int maxItemsToCheck) {
         if (maxDistanceBetweenDuplicates < 1) return;
         Set<ItemWithPage<T>> toCollapse = new HashSet<>();
-        innerCollapseDuplicates(itemId, toCollapse);
+        innerCollapseDuplicates(itemId, toCollapse, maxItemsToCheck);
         for (ItemWithPage<T> itemWithPage : toCollapse) {
             itemWithPage.page.items.remove(itemWithPage.item);
         }
     }
 
-    private void innerCollapseDuplicates(long itemId, Set<ItemWithPage<T>> toCollapse) {
+    private void innerCollapseDuplicates(long itemId, Set<ItemWithPage<T>> toCollapse, int maxItemsToCheck) {
         List<GroupToCollapse<T>> groups = new ArrayList<>();
+        int itemsChecked = 0;
+        pagesLoop:
         for (TimelinePage<T> page : data.pages) {
             for (T item : page.items) {
+                if (itemsChecked++ >= maxItemsToCheck) break pagesLoop;
                 ItemWithPage<T> itemPair = new ItemWithPage<>(page, item);
                 boolean found = false;
                 for (GroupToCollapse<T> group : groups) {
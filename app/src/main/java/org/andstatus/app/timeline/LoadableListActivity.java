@@ -23,6 +23,7 @@ import android.text.TextUtils;
 import android.view.KeyEvent;
 import android.view.MenuItem;
 import android.view.View;
+import android.widget.AbsListView;
 import android.widget.ListView;
 import android.widget.TextView;
 
@@ -39,6 +40,7 @@ import org.andstatus.app.list.SyncLoader;
 import org.andstatus.app.os.AsyncTaskLauncher;
 import org.andstatus.app.os.MyAsyncTask;
 import org.andstatus.app.service.CommandData;
+import org.andstatus.app.service.CommandEnum;
 import org.andstatus.app.service.MyServiceEvent;
 import org.andstatus.app.service.MyServiceEventsListener;
 import org.andstatus.app.service.MyServiceEventsReceiver;
@@ -61,7 +63,8 @@ import static org.andstatus.app.context.MyContextHolder.myContextHolder;
  * 
  * @author yvolk@yurivolkov.com
  */
-public abstract class LoadableListActivity<T extends ViewItem<T>> extends MyBaseListActivity implements MyServiceEventsListener {
+public abstract class LoadableListActivity<T extends ViewItem<T>> extends MyBaseListActivity
+        implements MyServiceEventsListener, AbsListView.OnScrollListener {
 
     protected boolean showSyncIndicatorSetting = true;
     protected View textualSyncIndicator = null;
@@ -94,6 +97,7 @@ public abstract class LoadableListActivity<T extends ViewItem<T>> extends MyBase
      */
     protected long centralItemId = 0;
     protected MySearchView searchView = null;
+    protected final ScrollPrefetcher prefetcher = new ScrollPrefetcher();
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -114,7 +118,7 @@ public abstract class LoadableListActivity<T extends ViewItem<T>> extends MyBase
         if (myContext.isReady()) {
             MyServiceManager.setServiceAvailable();
         }
-        myServiceReceiver = new MyServiceEventsReceiver(myContext, this);
+        myServiceReceiver = new MyServiceEventsReceiver(this);
 
         parsedUri = ParsedUri.fromIntent(getIntent());
         centralItemId = getParsedUri().getItemId();
@@ -311,7 +315,7 @@ public abstract class LoadableListActivity<T extends ViewItem<T>> extends MyBase
         updateList(getCurrentListPosition(), viewParameters, false);
     }
 
-    private void updateList(LoadableListPosition pos, LoadableListViewParameters viewParameters, boolean newAdapter) {
+    protected void updateList(LoadableListPosition pos, LoadableListViewParameters viewParameters, boolean newAdapter) {
         final String method = "updateList";
         ListView list = getListView();
         if (list == null) return;
@@ -321,11 +325,13 @@ public abstract class LoadableListActivity<T extends ViewItem<T>> extends MyBase
                 : "notifying change"));
 
         final BaseTimelineAdapter<T> adapter = newAdapter ? newListAdapter() : getListAdapter();
+        prefetcher.reset();
         if (viewParameters.isViewChanging()) {
             adapter.getListData().updateView(viewParameters);
         }
         if (newAdapter) {
             setListAdapter(adapter);
+            list.setOnScrollListener(this);
         } else {
             adapter.notifyDataSetChanged();
         }
@@ -339,6 +345,16 @@ public abstract class LoadableListActivity<T extends ViewItem<T>> extends MyBase
         // Empty
     }
 
+    @Override
+    public void onScrollStateChanged(AbsListView view, int scrollState) {
+        prefetcher.onScrollStateChanged(scrollState);
+    }
+
+    @Override
+    public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+        prefetcher.onScroll(view, getListAdapter(), firstVisibleItem, visibleItemCount);
+    }
+
     protected abstract BaseTimelineAdapter<T> newListAdapter();
 
     @NonNull
@@ -433,10 +449,14 @@ public abstract class LoadableListActivity<T extends ViewItem<T>> extends MyBase
             if (MyLog.isVerboseEnabled()) {
                 MyLog.v(this, "Auto refresh on content change");
             }
-            showList(WhichPage.CURRENT);
+            refreshOnContentChange();
         }
     }
 
+    protected void refreshOnContentChange() {
+        showList(WhichPage.CURRENT);
+    }
+
     private void showSyncing(final CommandData commandData) {
         new AsyncTaskLauncher<CommandData>().execute(this,
                 new MyAsyncTask<CommandData, Void, String>("ShowSyncing" + getInstanceId(), MyAsyncTask.PoolEnum.QUICK_UI) {
@@ -468,7 +488,10 @@ public abstract class LoadableListActivity<T extends ViewItem<T>> extends MyBase
     protected void onReceiveAfterExecutingCommand(CommandData commandData) {
         if (isRefreshNeededAfterExecuting(commandData)) {
             refreshNeededSince.compareAndSet(0, System.currentTimeMillis());
-            refreshNeededAfterForegroundCommand.compareAndSet(false, commandData.isInForeground());
+            // Many images may be downloaded for the screen at once, so they don't force immediate reloads
+            refreshNeededAfterForegroundCommand.compareAndSet(false, commandData.isInForeground()
+                    && commandData.getCommand() != CommandEnum.GET_AVATAR
+                    && commandData.getCommand() != CommandEnum.GET_ATTACHMENT);
         }
     }
 
@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.timeline;
+
+import android.os.SystemClock;
+import android.widget.AbsListView;
+import android.widget.ListView;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Prefetches images of list items, which will be shown soon, ahead of the scroll position.
+ * The faster the list is scrolled, the more items are prefetched.
+ * Prefetching, which hasn't started yet, is cancelled, when the scroll direction changes.
+ * Positions here are positions in the adapter, list header views are not counted.
+ * @author yvolk@yurivolkov.com
+ */
+class ScrollPrefetcher {
+    static final int ITEMS_AHEAD_MIN = 3;
+    static final int ITEMS_AHEAD_MAX = 30;
+    /** Items, which will be shown during this time at the current scroll speed, are prefetched */
+    private static final long PREFETCH_AHEAD_MILLIS = 1500;
+
+    private final AtomicInteger generation = new AtomicInteger();
+    private int firstVisiblePrev = -1;
+    private long scrolledAt = 0;
+    /** 1 - scrolling down to older items, -1 - up to younger items, 0 - unknown */
+    private int direction = 0;
+    private float itemsPerSecond = 0;
+    /** The farthest position, prefetched in the current direction */
+    private int prefetchedTo = -1;
+
+    /** Forgets positions, e.g. when the list is changed */
+    void reset() {
+        generation.incrementAndGet();
+        firstVisiblePrev = -1;
+        direction = 0;
+        itemsPerSecond = 0;
+        prefetchedTo = -1;
+    }
+
+    void onScrollStateChanged(int scrollState) {
+        if (scrollState == AbsListView.OnScrollListener.SCROLL_STATE_IDLE) {
+            itemsPerSecond = 0;
+        }
+    }
+
+    void onScroll(AbsListView view, BaseTimelineAdapter<?> adapter, int firstVisibleItem, int visibleItemCount) {
+        int headers = view instanceof ListView ? ((ListView) view).getHeaderViewsCount() : 0;
+        int firstVisible = Math.max(firstVisibleItem - headers, 0);
+        if (visibleItemCount < 1 || firstVisible == firstVisiblePrev) return;
+
+        long now = SystemClock.uptimeMillis();
+        int newDirection = firstVisible > firstVisiblePrev ? 1 : -1;
+        if (firstVisiblePrev >= 0) {
+            float speed = Math.abs(firstVisible - firstVisiblePrev) * 1000f / Math.max(now - scrolledAt, 1);
+            itemsPerSecond = newDirection == direction ? (itemsPerSecond + speed) / 2 : speed;
+        }
+        if (newDirection != direction) {
+            direction = newDirection;
+            prefetchedTo = -1;
+            generation.incrementAndGet();
+        }
+        firstVisiblePrev = firstVisible;
+        scrolledAt = now;
+        prefetch(adapter, firstVisible, firstVisible + visibleItemCount - 1);
+    }
+
+    private void prefetch(BaseTimelineAdapter<?> adapter, int firstVisible, int lastVisible) {
+        int itemsAhead = getItemsAhead();
+        int myGeneration = generation.get();
+        BooleanSupplier isCancelled = () -> generation.get() != myGeneration;
+        if (isScrollingDown()) {
+            int to = Math.min(lastVisible + itemsAhead, adapter.getCount() - 1);
+            for (int position = Math.max(lastVisible + 1, prefetchedTo + 1); position <= to; position++) {
+                adapter.prefetch(position, isCancelled);
+                prefetchedTo = position;
+            }
+        } else {
+            int to = Math.max(firstVisible - itemsAhead, 0);
+            int from = prefetchedTo < 0 ? firstVisible - 1 : Math.min(firstVisible - 1, prefetchedTo - 1);
+            for (int position = from; position >= to; position--) {
+                adapter.prefetch(position, isCancelled);
+                prefetchedTo = position;
+            }
+        }
+    }
+
+    /** @return Number of items beyond visible ones to prepare in the scroll direction */
+    int getItemsAhead() {
+        int items = ITEMS_AHEAD_MIN + Math.round(itemsPerSecond * PREFETCH_AHEAD_MILLIS / 1000);
+        return Math.min(items, ITEMS_AHEAD_MAX);
+    }
+
+    boolean isScrollingDown() {
+        return direction > 0;
+    }
+
+    boolean isScrollingUp() {
+        return direction < 0;
+    }
+}
@@ -57,8 +57,12 @@ import org.andstatus.app.context.DemoData;
 import org.andstatus.app.context.MyContext;
 import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.context.MySettingsActivity;
+import org.andstatus.app.data.AttachedImageFiles;
+import org.andstatus.app.data.AvatarFile;
 import org.andstatus.app.data.MatchedUri;
+import org.andstatus.app.data.MyQuery;
 import org.andstatus.app.data.ParsedUri;
+import org.andstatus.app.database.table.DownloadTable;
 import org.andstatus.app.graphics.AvatarView;
 import org.andstatus.app.list.SyncLoader;
 import org.andstatus.app.net.social.Actor;
@@ -99,6 +103,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Predicate;
 
 import static org.andstatus.app.context.MyContextHolder.myContextHolder;
 import static org.andstatus.app.util.RelativeTime.DATETIME_MILLIS_NEVER;
@@ -108,7 +113,7 @@ import static org.andstatus.app.util.RelativeTime.SOME_TIME_AGO;
  * @author yvolk@yurivolkov.com
  */
 public class TimelineActivity<T extends ViewItem<T>> extends NoteEditorListActivity<T> implements
-        NoteContextMenuContainer, AbsListView.OnScrollListener {
+        NoteContextMenuContainer {
     public static final String HORIZONTAL_ELLIPSIS = "\u2026";
 
     /** Parameters for the next page request, not necessarily requested already */
@@ -116,6 +121,8 @@ public class TimelineActivity<T extends ViewItem<T>> extends NoteEditorListActiv
     /** Last parameters, requested to load. Thread safe. They are taken by a Loader at some time */
     private volatile TimelineParameters paramsToLoad;
     private volatile TimelineData<T> listData;
+    /** Since the last load request, the list content could change only by new items, downloaded by timeline sync */
+    private volatile boolean onlyNewItemsToRefresh = true;
 
     private ActivityContextMenu contextMenu;
 
@@ -568,14 +575,10 @@ public class TimelineActivity<T extends ViewItem<T>> extends NoteEditorListActiv
         }
     }
 
-    @Override
-    public void onScrollStateChanged(AbsListView view, int scrollState) {
-        // Empty
-    }
-
     @Override
     public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount,
                          int totalItemCount) {
+        super.onScroll(view, firstVisibleItem, visibleItemCount, totalItemCount);
         boolean up = false;
         if (firstVisibleItem == 0) {
             View v = getListView().getChildAt(0);
@@ -586,10 +589,13 @@ public class TimelineActivity<T extends ViewItem<T>> extends NoteEditorListActiv
             }
         }
         // Idea from http://stackoverflow.com/questions/1080811/android-endless-list
+        // The older page is requested in advance, while scrolling down, before the end of the list is reached
+        int itemsAhead = prefetcher.isScrollingUp() ? 0 : prefetcher.getItemsAhead();
+        int itemsBelow = totalItemCount - 1 - (firstVisibleItem + visibleItemCount);
         if ( !up && (visibleItemCount > 0)
-                && (firstVisibleItem + visibleItemCount >= totalItemCount - 1)
+                && (itemsBelow <= 0 || itemsBelow <= itemsAhead && !isLoading())
                 && getListData().mayHaveOlderPage()) {
-            MyLog.d(this, "Start Loading older items, rows=" + totalItemCount);
+            MyLog.d(this, "Start Loading older items, rows=" + totalItemCount + ", items ahead:" + itemsAhead);
             showList(WhichPage.OLDER);
         }
     }
@@ -786,6 +792,7 @@ public class TimelineActivity<T extends ViewItem<T>> extends NoteEditorListActiv
                 }
                 return getParamsLoaded();
             case YOUNGER:
+            case NEW:
                 if (getListData().size() > 0) {
                     return getListData().pages.get(0).params;
                 }
@@ -824,6 +831,7 @@ public class TimelineActivity<T extends ViewItem<T>> extends NoteEditorListActiv
                     + "; requesting " + (isDifferentRequest ? "" : "duplicating ")
                     + params.toSummary());
             if (chainedRequest.untrue) saveTimelinePosition();
+            onlyNewItemsToRefresh = true;
             disableHeaderSyncButton(R.string.loading);
             disableFooterButton(R.string.loading);
             showLoading(method, getText(R.string.loading) + " "
@@ -853,7 +861,13 @@ public class TimelineActivity<T extends ViewItem<T>> extends NoteEditorListActiv
     public void onLoadFinished(LoadableListPosition posIn) {
         final String method = "onLoadFinished";
         if (MyLog.isVerboseEnabled()) posIn.logV(method + " started;");
-        TimelineData<T> dataLoaded = setListData(((TimelineLoader<T>) getLoaded()).getPage());
+        TimelinePage<T> pageLoaded = ((TimelineLoader<T>) getLoaded()).getPage();
+        if (pageLoaded.params.whichPage == WhichPage.NEW
+                && pageLoaded.params.getContentUri().equals(getParamsLoaded().getContentUri())) {
+            onNewItemsLoaded(pageLoaded);
+            return;
+        }
+        TimelineData<T> dataLoaded = setListData(pageLoaded);
         MyLog.v(this, () -> method + "; " + dataLoaded.params.toSummary());
 
         LoadableListPosition pos = posIn.nonEmpty() && getListData().isSameTimeline &&
@@ -900,6 +914,27 @@ public class TimelineActivity<T extends ViewItem<T>> extends NoteEditorListActiv
         }
     }
 
+    /** Only the new items are added to the list, the list is not rebuilt */
+    private void onNewItemsLoaded(TimelinePage<T> pageLoaded) {
+        final String method = "onNewItemsLoaded";
+        // The position is taken before the data changes, so that it points to the item, shown on the screen
+        LoadableListPosition pos = getCurrentListPosition();
+        int added = getListData().addNewItems(pageLoaded);
+        MyLog.v(this, () -> method + "; " + added + " new items, " + pageLoaded.params.toSummary());
+        if (added > 0) {
+            updateList(pos, LoadableListViewParameters.EMPTY, false);
+        }
+        updateTitle("");
+        hideLoading(method);
+        updateScreen();
+
+        TimelineParameters otherParams = paramsToLoad;
+        if (otherParams != null && !pageLoaded.params.equals(otherParams)) {
+            MyLog.v(this, () -> method + "; Parameters changed, requesting " + otherParams.toSummary());
+            showList(otherParams, TriState.TRUE);
+        }
+    }
+
     private void addSyncButtons() {
         final ListView listView = getListView();
         if (listView != null) {
@@ -1179,7 +1214,21 @@ public class TimelineActivity<T extends ViewItem<T>> extends NoteEditorListActiv
 
     @Override
     public boolean isRefreshNeededAfterExecuting(CommandData commandData) {
+        switch (commandData.getCommand()) {
+            case GET_AVATAR:
+            case GET_ATTACHMENT:
+                // Downloaded media are shown in the loaded items, so no reload of the timeline is needed
+                if (!commandData.getResult().hasError()) {
+                    updateDownloadedMedia(this, commandData);
+                }
+                return false;
+            default:
+                break;
+        }
         boolean needed = super.isRefreshNeededAfterExecuting(commandData);
+        if (needed) {
+            onlyNewItemsToRefresh = false;
+        }
         switch (commandData.getCommand()) {
             case GET_TIMELINE:
             case GET_OLDER_TIMELINE:
@@ -1189,6 +1238,9 @@ public class TimelineActivity<T extends ViewItem<T>> extends NoteEditorListActiv
                 }
                 if (commandData.getResult().getDownloadedCount() > 0) {
                     needed = true;
+                    if (commandData.getCommand() == CommandEnum.GET_OLDER_TIMELINE) {
+                        onlyNewItemsToRefresh = false;
+                    }
                 } else {
                     showSyncListButtons();
                 }
@@ -1199,6 +1251,45 @@ public class TimelineActivity<T extends ViewItem<T>> extends NoteEditorListActiv
         return needed;
     }
 
+    private static <T extends ViewItem<T>> void updateDownloadedMedia(TimelineActivity<T> timelineActivity,
+                                                                      CommandData commandData) {
+        AsyncTaskLauncher.execute(timelineActivity,
+                new MyAsyncTask<Void, Void, Predicate<T>>("updateDownloadedMedia" + commandData.getCommandId(),
+                        MyAsyncTask.PoolEnum.QUICK_UI) {
+                    @Override
+                    protected Predicate<T> doInBackground2(Void aVoid) {
+                        MyContext myContext = timelineActivity.myContext;
+                        if (commandData.getCommand() == CommandEnum.GET_AVATAR) {
+                            AvatarFile avatarFile = Actor.loadFromDatabase(myContext,
+                                    commandData.getTimeline().actor.actorId, Actor::getEmpty, false).avatarFile;
+                            return item -> item.updateAvatar(avatarFile);
+                        }
+                        long noteId = MyQuery.idToLongColumnValue(myContext.getDatabase(), DownloadTable.TABLE_NAME,
+                                DownloadTable.NOTE_ID, commandData.itemId);
+                        AttachedImageFiles imageFiles = AttachedImageFiles.load(myContext, noteId);
+                        return item -> item.updateAttachedImageFiles(noteId, imageFiles);
+                    }
+
+                    @Override
+                    protected void onPostExecute2(Predicate<T> updater) {
+                        if (updater != null && timelineActivity.getListData().updateItems(updater)) {
+                            timelineActivity.getListAdapter().notifyDataSetChanged();
+                        }
+                    }
+                }
+        );
+    }
+
+    /** After timeline sync only new items are loaded, if the youngest items are shown */
+    @Override
+    protected void refreshOnContentChange() {
+        if (onlyNewItemsToRefresh && getListData().size() > 0 && !getListData().mayHaveYoungerPage()) {
+            showList(WhichPage.NEW);
+        } else {
+            super.refreshOnContentChange();
+        }
+    }
+
     @Override
     protected boolean isAutoRefreshNow(boolean onStop) {
         return super.isAutoRefreshNow(onStop) && MyPreferences.isRefreshTimelineAutomatically();
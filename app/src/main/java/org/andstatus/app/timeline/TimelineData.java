@@ -26,8 +26,11 @@ import org.andstatus.app.util.MyStringBuilder;
 import org.andstatus.app.util.TryUtils;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Predicate;
 
 import androidx.annotation.NonNull;
 import io.vavr.control.Try;
@@ -73,7 +76,8 @@ public class TimelineData<T extends ViewItem<T>> {
 
     private void dropExcessivePage(TimelinePage<T> lastLoadedPage) {
         if (pages.size() > MAX_PAGES_COUNT) {
-            if (lastLoadedPage.params.whichPage == WhichPage.YOUNGER) {
+            if (lastLoadedPage.params.whichPage == WhichPage.YOUNGER
+                    || lastLoadedPage.params.whichPage == WhichPage.NEW) {
                 pages.remove(pages.size() - 1);
             } else {
                 pages.remove(0);
@@ -135,6 +139,48 @@ public class TimelineData<T extends ViewItem<T>> {
         }
     }
 
+    /**
+     * Adds the {@link WhichPage#NEW} page to the loaded data in place, so positions of loaded items are kept,
+     * and duplicates are collapsed only near the new items.
+     * Loaded items, which were updated, are replaced with their new versions.
+     * Should be called in the UI thread
+     * @return number of the new items
+     */
+    int addNewItems(@NonNull TimelinePage<T> page) {
+        if (page.items.isEmpty()) return 0;
+
+        removeOldVersionsOf(page);
+        if (page.params.rowsLoaded >= TimelineParameters.PAGE_SIZE || pages.isEmpty()) {
+            // Not all new items were loaded, so they are added as a younger page
+            pages.add(0, page);
+            dropExcessivePage(page);
+        } else {
+            TimelinePage<T> youngestPage = pages.get(0);
+            List<T> items = new ArrayList<>(page.items.size() + youngestPage.items.size());
+            items.addAll(page.items);
+            items.addAll(youngestPage.items);
+            TimelinePage<T> mergedPage = new TimelinePage<>(youngestPage.params, items);
+            mergedPage.actorViewItem = youngestPage.actorViewItem;
+            youngestPage.params.rememberItemDateLoaded(page.params.maxDateLoaded);
+            pages.set(0, mergedPage);
+        }
+        if (isCollapseDuplicates()) {
+            duplicatesCollapser.collapseDuplicatesOfYoungestItems(page.items.size());
+        }
+        return page.items.size();
+    }
+
+    /** Updated items have the same ids, but they are not equal to their old versions, see {@link ViewItem#equals(Object)} */
+    private void removeOldVersionsOf(TimelinePage<T> page) {
+        Set<Long> ids = new HashSet<>();
+        for (T item : page.items) {
+            ids.add(item.getId());
+        }
+        for (TimelinePage<T> existing : pages) {
+            existing.items.removeIf(item -> ids.contains(item.getId()));
+        }
+    }
+
     private void removeDuplicatesWithYounger(TimelinePage<T> page, int indExistingPage) {
         for (int ind = Integer.min(indExistingPage, pages.size() - 1); ind >= 0; ind--) {
             pages.get(ind).items.removeAll(page.items);
@@ -160,6 +206,18 @@ public class TimelineData<T extends ViewItem<T>> {
         return count;
     }
 
+    /** Applies the updater to every loaded item
+     * @return true if any item was changed */
+    public boolean updateItems(Predicate<T> updater) {
+        boolean changed = false;
+        for (TimelinePage<T> page : pages) {
+            for (T item : page.items) {
+                if (updater.test(item)) changed = true;
+            }
+        }
+        return changed;
+    }
+
     @NonNull
     public T getItem(int position) {
         int firstPosition = 0;
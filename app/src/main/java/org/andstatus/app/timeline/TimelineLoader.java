@@ -22,6 +22,7 @@ import org.andstatus.app.actor.ActorsLoader;
 import org.andstatus.app.actor.ActorsScreenType;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.list.SyncLoader;
+import org.andstatus.app.note.NoteDetailsLoader;
 import org.andstatus.app.util.I18n;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.MyStringBuilder;
@@ -57,7 +58,7 @@ public class TimelineLoader<T extends ViewItem<T>> extends SyncLoader<T> {
         }
         params.timeline.save(params.getMyContext());
         if (params.whichPage != WhichPage.EMPTY) {
-            filter(loadActors(loadFromCursor(queryDatabase())));
+            filter(loadActors(loadNoteDetails(loadFromCursor(queryDatabase()))));
         }
         params.isLoaded = true;
         if (MyLog.isDebugEnabled()) {
@@ -122,6 +123,18 @@ public class TimelineLoader<T extends ViewItem<T>> extends SyncLoader<T> {
         return items;
     }
 
+    private List<T> loadNoteDetails(List<T> items) {
+        final String method = "loadNoteDetails";
+        final StopWatch stopWatch = StopWatch.createStarted();
+        NoteDetailsLoader loader = new NoteDetailsLoader(params.getMyContext());
+        items.forEach(item -> item.addNoteToLoadDetails(loader));
+        loader.load();
+        if (MyLog.isDebugEnabled()) {
+            MyLog.d(this, method + " ended; " + items.size() + " rows, " + stopWatch.getTime() + "ms" );
+        }
+        return items;
+    }
+
     private List<T> loadActors(List<T> items) {
         if (items.isEmpty() && !params.timeline.hasActorProfile()) return items;
         ActorsLoader loader = new ActorsLoader(params.getMyContext(), ActorsScreenType.ACTORS_AT_ORIGIN,
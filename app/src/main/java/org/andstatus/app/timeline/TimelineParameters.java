@@ -102,6 +102,9 @@ public class TimelineParameters implements TaggedClass {
                     params.minDate = prev.minDate;
                 }
                 break;
+            case NEW:
+                params.minDate = prev.maxDateLoaded;
+                break;
             default:
                 break;
         }
@@ -22,6 +22,9 @@ import android.database.Cursor;
 import org.andstatus.app.R;
 import org.andstatus.app.actor.ActorsLoader;
 import org.andstatus.app.context.MyContext;
+import org.andstatus.app.data.AttachedImageFiles;
+import org.andstatus.app.data.AvatarFile;
+import org.andstatus.app.note.NoteDetailsLoader;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.timeline.meta.Timeline;
 import org.andstatus.app.timeline.meta.TimelineType;
@@ -63,6 +66,18 @@ public class ViewItem<T extends ViewItem<T>> implements IsEmpty {
         return 0;
     }
 
+    /** Shows the downloaded avatar, if this item has the actor of the avatar
+     * @return true if the item was changed */
+    public boolean updateAvatar(@NonNull AvatarFile avatarFile) {
+        return false;
+    }
+
+    /** Shows the downloaded attachments, if this item has the note
+     * @return true if the item was changed */
+    public boolean updateAttachedImageFiles(long noteId, @NonNull AttachedImageFiles imageFiles) {
+        return false;
+    }
+
     @NonNull
     public final Collection<T> getChildren() {
         return children;
@@ -127,6 +142,10 @@ public class ViewItem<T extends ViewItem<T>> implements IsEmpty {
         return builder;
     }
 
+    public void addNoteToLoadDetails(NoteDetailsLoader loader) {
+        // Empty
+    }
+
     public void addActorsToLoad(ActorsLoader loader) {
         // Empty
     }
@@ -33,7 +33,9 @@ public enum WhichPage {
     YOUNGEST(3, R.string.page_youngest),
     TOP(4, R.string.page_top_of),
     OLDER(6, R.string.page_older),
-    EMPTY(7, R.string.page_empty);
+    EMPTY(7, R.string.page_empty),
+    /** Items, which appeared after the youngest loaded item. They are added to already loaded pages */
+    NEW(9, R.string.page_new);
 
     private static final String TAG = WhichPage.class.getSimpleName();
     private final long code;
@@ -26,12 +26,18 @@ import org.andstatus.app.net.social.Actor;
 import org.andstatus.app.origin.Origin;
 import org.andstatus.app.util.MyLog;
 import org.andstatus.app.util.StopWatch;
+import org.andstatus.app.util.StringUtil;
 import org.andstatus.app.util.TriState;
+import org.andstatus.app.util.UriUtils;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -42,6 +48,10 @@ import java.util.stream.Stream;
  */
 public class PersistentTimelines {
     private final ConcurrentMap<Long, Timeline> timelines = new ConcurrentHashMap<>();
+    /** Timelines by each of their {@link #duplicatesKeys(Timeline)} */
+    private final ConcurrentMap<String, Set<Timeline>> byDuplicatesKey = new ConcurrentHashMap<>();
+    /** Timelines by {@link #syncKey(Timeline)} */
+    private final ConcurrentMap<String, Set<Timeline>> bySyncKey = new ConcurrentHashMap<>();
     private final MyContext myContext;
 
     public static PersistentTimelines newEmpty(MyContext myContext) {
@@ -56,11 +66,14 @@ public class PersistentTimelines {
         StopWatch stopWatch = StopWatch.createStarted();
         final String method = "initialize";
         timelines.clear();
+        byDuplicatesKey.clear();
+        bySyncKey.clear();
         MyQuery.get(myContext, "SELECT * FROM " + TimelineTable.TABLE_NAME,
                 cursor -> Timeline.fromCursor(myContext, cursor)
         ).forEach(timeline -> {
             if (timeline.isValid()) {
                 timelines.put(timeline.getId(), timeline);
+                addToIndex(timeline);
                 if (MyLog.isVerboseEnabled() && timelines.size() < 5) {
                     MyLog.v(PersistentTimelines.class, method + "; " + timeline);
                 }
@@ -120,7 +133,16 @@ public class PersistentTimelines {
         if (timelineType == TimelineType.UNKNOWN) return Timeline.EMPTY;
 
         Timeline newTimeline = new Timeline(myContext, id, timelineType, actor, origin, searchQuery, 0);
-        return stream().filter(newTimeline::duplicates).findAny().orElse(newTimeline);
+        return findDuplicate(newTimeline).orElse(newTimeline);
+    }
+
+    Optional<Timeline> findDuplicate(Timeline timeline) {
+        return duplicatesKeys(timeline).stream()
+                .map(byDuplicatesKey::get)
+                .filter(Objects::nonNull)
+                .flatMap(Set::stream)
+                .filter(timeline::duplicates)
+                .findAny();
     }
 
     public Stream<Timeline> stream() {
@@ -135,7 +157,10 @@ public class PersistentTimelines {
     public List<Timeline> toAutoSyncForAccount(MyAccount ma) {
         List<Timeline> timelines = new ArrayList<>();
         if (ma.isValidAndSucceeded()) {
-            for (Timeline timeline : values()) {
+            Set<Timeline> candidates = new HashSet<>();
+            Optional.ofNullable(bySyncKey.get(accountSyncKey(ma.getActorId()))).ifPresent(candidates::addAll);
+            Optional.ofNullable(bySyncKey.get(originSyncKey(ma.getOrigin().getId()))).ifPresent(candidates::addAll);
+            for (Timeline timeline : candidates) {
                 if (timeline.isSyncedAutomatically() &&
                         ((!timeline.getTimelineType().isAtOrigin() && timeline.myAccountToSync.equals(ma)) ||
                                 timeline.getTimelineType().isAtOrigin() && timeline.getOrigin().equals(ma.getOrigin())) &&
@@ -183,13 +208,15 @@ public class PersistentTimelines {
         }
         for (Timeline timeline : toRemove) {
             timelines.remove(timeline.getId());
+            removeFromIndex(timeline);
         }
     }
 
     public void delete(Timeline timeline) {
         if (myContext.isReady()) {
             timeline.delete(myContext);
-            timelines.remove(timeline.getId());
+            Timeline removed = timelines.remove(timeline.getId());
+            if (removed != null) removeFromIndex(removed);
         }
     }
 
@@ -198,10 +225,61 @@ public class PersistentTimelines {
     }
 
     public Timeline addNew(Timeline timeline) {
-        if (timeline.isValid() && timeline.getId() != 0) timelines.putIfAbsent(timeline.getId(), timeline);
+        if (timeline.isValid() && timeline.getId() != 0 && timelines.putIfAbsent(timeline.getId(), timeline) == null) {
+            addToIndex(timeline);
+        }
         return timelines.getOrDefault(timeline.getId(), timeline);
     }
 
+    private void addToIndex(Timeline timeline) {
+        for (String key : duplicatesKeys(timeline)) {
+            byDuplicatesKey.computeIfAbsent(key, k -> ConcurrentHashMap.newKeySet()).add(timeline);
+        }
+        bySyncKey.computeIfAbsent(syncKey(timeline), key -> ConcurrentHashMap.newKeySet()).add(timeline);
+    }
+
+    private void removeFromIndex(Timeline timeline) {
+        // Identifiers of the actor may have changed since the timeline was indexed
+        byDuplicatesKey.values().forEach(set -> set.remove(timeline));
+        Optional.ofNullable(bySyncKey.get(syncKey(timeline))).ifPresent(set -> set.remove(timeline));
+    }
+
+    /** Timelines, which may duplicate each other, have at least one common key.
+     * Actors are compared by {@link Actor#isSame(Actor)}, which matches any of the actor's identifiers,
+     * so a timeline has a key for each identifier of its actor */
+    private static List<String> duplicatesKeys(Timeline timeline) {
+        final String prefix = timeline.getTimelineType().save() + ";" + timeline.getOrigin().getId() + ";"
+                + timeline.getSearchQuery() + ";";
+        final Actor actor = timeline.actor;
+        List<String> keys = new ArrayList<>();
+        keys.add(prefix + "id:" + actor.actorId);
+        if (UriUtils.isRealOid(actor.oid)) {
+            keys.add(prefix + "oid:" + actor.oid);
+        }
+        if (StringUtil.nonEmpty(actor.getWebFingerId())) {
+            keys.add(prefix + "webfinger:" + actor.getWebFingerId());
+        }
+        if (actor.isUsernameValid()) {
+            keys.add(prefix + "username:" + actor.getUsername().toLowerCase(Locale.ROOT));
+        }
+        return keys;
+    }
+
+    /** See {@link #toAutoSyncForAccount(MyAccount)} */
+    private static String syncKey(Timeline timeline) {
+        return timeline.getTimelineType().isAtOrigin()
+                ? originSyncKey(timeline.getOrigin().getId())
+                : accountSyncKey(timeline.myAccountToSync.getActorId());
+    }
+
+    private static String accountSyncKey(long accountActorId) {
+        return "account:" + accountActorId;
+    }
+
+    private static String originSyncKey(long originId) {
+        return "origin:" + originId;
+    }
+
     public void resetCounters(boolean all) {
         for (Timeline timeline : values()) {
             timeline.resetCounters(all);
@@ -530,7 +530,7 @@ public class Timeline implements Comparable<Timeline>, IsEmpty {
     }
 
     public void delete(MyContext myContext) {
-        if (isRequired() && myContext.timelines().stream().noneMatch(this::duplicates)) {
+        if (isRequired() && !myContext.timelines().findDuplicate(this).isPresent()) {
             MyLog.d(this, "Cannot delete required timeline: " + this);
             return;
         }
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.user;
+
+import android.util.LruCache;
+
+import androidx.annotation.NonNull;
+
+import org.andstatus.app.net.social.Actor;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongPredicate;
+
+/**
+ * Cache of actors, limited in size: least recently used actors are evicted.
+ * Pinned actors (my actors and my friends) are never evicted
+ * @author yvolk@yurivolkov.com
+ */
+public class ActorsCache {
+    private final LongPredicate isPinned;
+    private final Map<Long, Actor> pinned = new ConcurrentHashMap<>();
+    private final LruCache<Long, Actor> recent;
+
+    ActorsCache(int maxSize, LongPredicate isPinned) {
+        this.isPinned = isPinned;
+        recent = new LruCache<>(maxSize);
+    }
+
+    @NonNull
+    public Actor getOrDefault(long actorId, @NonNull Actor defaultActor) {
+        Actor actor = get(actorId);
+        return actor == null ? defaultActor : actor;
+    }
+
+    public Actor get(long actorId) {
+        Actor actor = pinned.get(actorId);
+        if (actor != null) return actor;
+
+        actor = recent.get(actorId);
+        if (actor != null && isPinned.test(actorId)) {
+            pinned.put(actorId, actor);
+            recent.remove(actorId);
+        }
+        return actor;
+    }
+
+    public void put(@NonNull Actor actor) {
+        if (isPinned.test(actor.actorId)) {
+            pinned.put(actor.actorId, actor);
+            recent.remove(actor.actorId);
+        } else {
+            recent.put(actor.actorId, actor);
+        }
+    }
+
+    public void putIfAbsent(@NonNull Actor actor) {
+        if (get(actor.actorId) == null) put(actor);
+    }
+
+    /** Moves actors, which are not pinned any more, to the evictable part of the cache */
+    void onPinnedChanged() {
+        for (Actor actor : new ArrayList<>(pinned.values())) {
+            if (!isPinned.test(actor.actorId)) {
+                pinned.remove(actor.actorId);
+                recent.put(actor.actorId, actor);
+            }
+        }
+    }
+
+    /** @return A snapshot of cached actors */
+    public Collection<Actor> values() {
+        List<Actor> values = new ArrayList<>(pinned.values());
+        values.addAll(recent.snapshot().values());
+        return values;
+    }
+
+    public int size() {
+        return pinned.size() + recent.size();
+    }
+
+    void resize(int maxSize) {
+        if (maxSize != recent.maxSize()) recent.resize(maxSize);
+    }
+
+    int maxSize() {
+        return recent.maxSize();
+    }
+
+    public void clear() {
+        pinned.clear();
+        recent.evictAll();
+    }
+
+    public String getStatistics() {
+        long hitsCount = recent.hitCount();
+        long total = hitsCount + recent.missCount();
+        return "actors pinned:" + pinned.size() + ", cached:" + recent.size() + " of " + recent.maxSize()
+                + ", hits:" + hitsCount + ", misses:" + recent.missCount() + ", evicted:" + recent.evictionCount()
+                + (total > 0 ? ", hit rate:" + (hitsCount * 100 / total) + "%" : "");
+    }
+
+    @Override
+    public String toString() {
+        return "ActorsCache{" + getStatistics() + "}";
+    }
+}
@@ -1,11 +1,13 @@
 package org.andstatus.app.user;
 
 import android.database.Cursor;
+import android.util.LruCache;
 
 import androidx.annotation.NonNull;
 
 import org.andstatus.app.actor.GroupType;
 import org.andstatus.app.context.MyContext;
+import org.andstatus.app.context.MyPreferences;
 import org.andstatus.app.data.ActorSql;
 import org.andstatus.app.data.DbUtils;
 import org.andstatus.app.data.GroupMembership;
@@ -16,14 +18,17 @@ import org.andstatus.app.database.table.TimelineTable;
 import org.andstatus.app.database.table.UserTable;
 import org.andstatus.app.net.social.Actor;
 import org.andstatus.app.origin.Origin;
-import org.andstatus.app.util.CollectionsUtil;
+import org.andstatus.app.util.LongMap;
+import org.andstatus.app.util.LongSet;
 import org.andstatus.app.util.MyLog;
+import org.andstatus.app.util.SortedLongs;
 import org.andstatus.app.util.StopWatch;
 import org.andstatus.app.util.TriState;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -32,15 +37,21 @@ import static org.andstatus.app.util.RelativeTime.SOME_TIME_AGO;
 
 public class CachedUsersAndActors {
     private final MyContext myContext;
-    public final Map<Long, User> users = new ConcurrentHashMap<>();
-    public final Map<Long, Actor> actors = new ConcurrentHashMap<>();
-    public final Map<Long, GroupType> actorGroupTypes = new ConcurrentHashMap<>();
-    public final Map<String, Long> originIdAndUsernameToActorId = new ConcurrentHashMap<>();
+    /** Bounded, so that actors, loaded once, don't stay in memory forever. My actors and my friends are pinned */
+    public final ActorsCache actors = new ActorsCache(MyPreferences.getActorsCacheSize(), this::isPinned);
+    public final LruCache<Long, GroupType> actorGroupTypes = new LruCache<>(MyPreferences.getActorsCacheSize());
+    public final LruCache<String, Long> originIdAndUsernameToActorId =
+            new LruCache<>(MyPreferences.getActorsCacheSize());
     public final Map<Long, User> myUsers = new ConcurrentHashMap<>();
+    /** Users, which are not mine, bounded like the cache of actors. My users are pinned in {@link #myUsers} */
+    final LruCache<Long, User> otherUsers = new LruCache<>(MyPreferences.getActorsCacheSize());
     public final Map<Long, Actor> myActors = new ConcurrentHashMap<>();
-    /** key - friendId, set of values - IDs of my actors  */
-    public final Map<Long, Set<Long>> friendsOfMyActors = new ConcurrentHashMap<>();
-    public final Map<Long, Set<Long>> followersOfMyActors = new ConcurrentHashMap<>();
+    /** Ids of all actors of my users. A snapshot, which is replaced, not modified, when changed */
+    private volatile LongSet myActorIds = new LongSet();
+    /** key - friendId, set of values - IDs of my actors.
+     * Snapshots without boxed ids, which are replaced, not modified, when changed  */
+    public volatile LongMap<SortedLongs> friendsOfMyActors = new LongMap<>();
+    public volatile LongMap<SortedLongs> followersOfMyActors = new LongMap<>();
 
     public static CachedUsersAndActors newEmpty(MyContext myContext) {
         return new CachedUsersAndActors(myContext);
@@ -57,22 +68,25 @@ public class CachedUsersAndActors {
     public CachedUsersAndActors initialize() {
         StopWatch stopWatch = StopWatch.createStarted();
         initializeMyUsers();
-        initializeMyFriendsOrFollowers(GroupType.FRIENDS, friendsOfMyActors);
-        initializeMyFriendsOrFollowers(GroupType.FOLLOWERS, followersOfMyActors);
+        friendsOfMyActors = initializeMyFriendsOrFollowers(GroupType.FRIENDS);
+        followersOfMyActors = initializeMyFriendsOrFollowers(GroupType.FOLLOWERS);
+        actors.onPinnedChanged();
         loadTimelineActors();
         MyLog.i(this, "usersInitializedMs:" + stopWatch.getTime() + "; "
                 + myUsers.size() + " users, "
                 + myActors.size() + " my actors, "
                 + friendsOfMyActors.size() + " friends, "
-                + followersOfMyActors.size() + " followers");
+                + followersOfMyActors.size() + " followers; "
+                + actors.getStatistics());
         return this;
     }
 
     private void initializeMyUsers() {
-        users.clear();
+        otherUsers.evictAll();
         actors.clear();
         myUsers.clear();
         myActors.clear();
+        myActorIds = new LongSet();
         final String sql = "SELECT " + ActorSql.selectFullProjection()
                 + " FROM " + ActorSql.allTables()
                 + " WHERE " + UserTable.IS_MY + "=" + TriState.TRUE.id;
@@ -80,9 +94,11 @@ public class CachedUsersAndActors {
         MyQuery.get(myContext, sql, function).forEach(this::updateCache);
     }
 
-    private void initializeMyFriendsOrFollowers(GroupType groupType, Map<Long, Set<Long>> groupMembers) {
+    private LongMap<SortedLongs> initializeMyFriendsOrFollowers(GroupType groupType) {
         final String MY_ACTOR_ID = "myActorId";
-        groupMembers.clear();
+        LongMap<SortedLongs> groupMembers = new LongMap<>();
+        // Usually many members share the same set of my actors, so we keep one instance of each set
+        Map<SortedLongs, SortedLongs> uniqueSets = new HashMap<>();
         final String sql = "SELECT DISTINCT " + ActorSql.selectFullProjection()
                 + ", friends." + ActorTable.PARENT_ACTOR_ID + " AS " + MY_ACTOR_ID
                 + " FROM (" + ActorSql.allTables() + ")"
@@ -93,10 +109,12 @@ public class CachedUsersAndActors {
         final Function<Cursor, Void> function = cursor -> {
             Actor other = Actor.fromCursor(myContext, cursor, true);
             Actor me = Actor.load(myContext, DbUtils.getLong(cursor, MY_ACTOR_ID));
-            groupMembers.compute(other.actorId, CollectionsUtil.addValue(me.actorId));
+            SortedLongs myActorIds = groupMembers.getOrDefault(other.actorId, SortedLongs.EMPTY).with(me.actorId);
+            groupMembers.put(other.actorId, uniqueSets.computeIfAbsent(myActorIds, ids -> ids));
             return null;
         };
         MyQuery.get(myContext, sql, function);
+        return groupMembers;
     }
 
     public Actor load(long actorId) {
@@ -110,19 +128,26 @@ public class CachedUsersAndActors {
     public Actor load(long actorId, boolean reloadFirst) {
         Actor actor = Actor.load(myContext, actorId, reloadFirst, Actor::getEmpty);
         if (reloadFirst && isMe(actor)) {
-            reloadFriendsOrFollowersOfMy(GroupType.FRIENDS, friendsOfMyActors, actor);
-            reloadFriendsOrFollowersOfMy(GroupType.FOLLOWERS, followersOfMyActors, actor);
+            synchronized (this) {
+                friendsOfMyActors = reloadFriendsOrFollowersOfMy(GroupType.FRIENDS, friendsOfMyActors, actor);
+                followersOfMyActors = reloadFriendsOrFollowersOfMy(GroupType.FOLLOWERS, followersOfMyActors, actor);
+            }
+            actors.onPinnedChanged();
         }
         return actor;
     }
 
-    private void reloadFriendsOrFollowersOfMy(GroupType groupType, Map<Long, Set<Long>> groupMembers, Actor actor) {
-        groupMembers.entrySet().stream().filter(entry -> entry.getValue().contains(actor.actorId))
-                .forEach(entry ->
-                        groupMembers.compute(entry.getKey(), CollectionsUtil.removeValue(actor.actorId)));
-        GroupMembership.getGroupMemberIds(myContext, actor.actorId, groupType)
-                .forEach(friendId -> groupMembers.compute(friendId, CollectionsUtil.addValue(actor.actorId))
+    private LongMap<SortedLongs> reloadFriendsOrFollowersOfMy(GroupType groupType, LongMap<SortedLongs> groupMembers,
+                                                              Actor actor) {
+        LongMap<SortedLongs> reloaded = new LongMap<>(groupMembers.size());
+        groupMembers.forEach((memberId, myActorIds) -> {
+            SortedLongs ids = myActorIds.without(actor.actorId);
+            if (ids.nonEmpty()) reloaded.put(memberId, ids);
+        });
+        GroupMembership.getGroupMemberIds(myContext, actor.actorId, groupType).forEach(memberId ->
+                reloaded.put(memberId, reloaded.getOrDefault(memberId, SortedLongs.EMPTY).with(actor.actorId))
         );
+        return reloaded;
     }
 
     private void loadTimelineActors() {
@@ -142,7 +167,21 @@ public class CachedUsersAndActors {
 
     @Override
     public String toString() {
-        return "MyUsers{\n" + myUsers + "\nMy actors: " + myActors + "\nMy friends: " + friendsOfMyActors + '}';
+        return "MyUsers{\n" + myUsers + "\nMy actors: " + myActors + "\nMy friends: " + friendsOfMyActors +
+                "\n" + actors.getStatistics() + '}';
+    }
+
+    /** All caches of actors have the same size */
+    public void resizeActorsCaches(int maxSize) {
+        actors.resize(maxSize);
+        if (maxSize != otherUsers.maxSize()) otherUsers.resize(maxSize);
+        if (maxSize != actorGroupTypes.maxSize()) actorGroupTypes.resize(maxSize);
+        if (maxSize != originIdAndUsernameToActorId.maxSize()) originIdAndUsernameToActorId.resize(maxSize);
+    }
+
+    /** Pinned actors are not evicted from the cache */
+    private boolean isPinned(long actorId) {
+        return myActors.containsKey(actorId) || friendsOfMyActors.containsKey(actorId);
     }
 
     public boolean isMeOrMyFriend(Actor actor) {
@@ -154,9 +193,21 @@ public class CachedUsersAndActors {
     }
 
     public boolean isMe(long actorId) {
-        return actorId != 0 && (
-            myActors.containsKey(actorId) || myUsers.values().stream().anyMatch(user -> user.actorIds.contains(actorId))
-        );
+        return actorId != 0 && myActorIds.contains(actorId);
+    }
+
+    private synchronized void addMyActorIds(Collection<Long> actorIds) {
+        LongSet ids = null;
+        for (long actorId : actorIds) {
+            if (actorId == 0 || myActorIds.contains(actorId)) continue;
+
+            if (ids == null) {
+                ids = new LongSet(myActorIds.size() + actorIds.size());
+                ids.addAll(myActorIds);
+            }
+            ids.add(actorId);
+        }
+        if (ids != null) myActorIds = ids;
     }
 
     public Actor lookupUser(Actor actor) {
@@ -196,13 +247,25 @@ public class CachedUsersAndActors {
                 .findAny().orElse(actor);
     }
 
+    @NonNull
+    public User getUser(long userId) {
+        if (userId == 0) return User.EMPTY;
+        User user = myUsers.get(userId);
+        if (user == null) user = otherUsers.get(userId);
+        return user == null ? User.EMPTY : user;
+    }
+
     @NonNull
     public User userFromActorId(long actorId, Supplier<User> userSupplier) {
         if (actorId == 0) return User.EMPTY;
         final User user1 = actors.getOrDefault(actorId, Actor.EMPTY).user;
-        return user1.nonEmpty()
-                ? user1
-                : users.values().stream().filter(user -> user.actorIds.contains(actorId)).findFirst().orElseGet(userSupplier);
+        if (user1.nonEmpty()) return user1;
+
+        final Collection<User> cachedUsers = isMe(actorId) ? myUsers.values() : otherUsers.snapshot().values();
+        for (User user : cachedUsers) {
+            if (user.actorIds.contains(actorId)) return user;
+        }
+        return userSupplier.get();
     }
 
     public GroupType idToGroupType(long actorId) {
@@ -225,38 +288,62 @@ public class CachedUsersAndActors {
             if (userId != 0) {
                 user.actorIds.add(actorId);
             }
-            updateCachedActor(actors, actor);
-            if (user.isMyUser().isTrue) updateCachedActor(myActors, actor);
+            // My actors go first, so that they are pinned in the cache of all actors
+            if (user.isMyUser().isTrue) updateCachedMyActor(actor);
+            updateCachedActor(actor);
         }
         if (userId == 0) return;
 
-        User cached = users.getOrDefault(userId, User.EMPTY);
+        User cached = getUser(userId);
         if (cached.isEmpty()) {
-            users.putIfAbsent(userId, user);
-            if (user.isMyUser().isTrue) myUsers.putIfAbsent(userId, user);
+            if (user.isMyUser().isTrue) {
+                myUsers.putIfAbsent(userId, user);
+            } else {
+                otherUsers.put(userId, user);
+            }
         } else if (user.isMyUser().isTrue && cached.isMyUser().untrue) {
             user.actorIds.addAll(cached.actorIds);
-            users.put(userId, user);
             myUsers.put(userId, user);
+            otherUsers.remove(userId);
         } else if (actorId != 0) {
             cached.actorIds.add(actorId);
         }
+        User myUser = myUsers.getOrDefault(userId, User.EMPTY);
+        if (myUser.nonEmpty()) addMyActorIds(myUser.actorIds);
     }
 
-    private void updateCachedActor(Map<Long, Actor> actors, Actor actor) {
+    private void updateCachedActor(Actor actor) {
         if (actor.isEmpty()) return;
 
         if (actor.getUpdatedDate() <= SOME_TIME_AGO) {
-            actors.putIfAbsent(actor.actorId, actor);
+            actors.putIfAbsent(actor);
             return;
         }
         if (actor.isBetterToCacheThan(actors.get(actor.actorId))) {
-            actors.put(actor.actorId, actor);
-            actorGroupTypes.put(actor.actorId, actor.groupType);
-            if (actor.isOidReal()) {
-                originIdAndUsernameToActorId.put(actor.origin.getId() + ";" + actor.getUsername(), actor.actorId);
-            }
-            myActors.computeIfPresent(actor.actorId, (id, actor1) -> actor);
+            actors.put(actor);
+            onBetterActorCached(actor);
+        }
+    }
+
+    private void updateCachedMyActor(Actor actor) {
+        if (actor.isEmpty()) return;
+
+        addMyActorIds(Collections.singleton(actor.actorId));
+        if (actor.getUpdatedDate() <= SOME_TIME_AGO) {
+            myActors.putIfAbsent(actor.actorId, actor);
+            return;
+        }
+        if (actor.isBetterToCacheThan(myActors.get(actor.actorId))) {
+            myActors.put(actor.actorId, actor);
+            onBetterActorCached(actor);
+        }
+    }
+
+    private void onBetterActorCached(Actor actor) {
+        actorGroupTypes.put(actor.actorId, actor.groupType);
+        if (actor.isOidReal()) {
+            originIdAndUsernameToActorId.put(actor.origin.getId() + ";" + actor.getUsername(), actor.actorId);
         }
+        myActors.computeIfPresent(actor.actorId, (id, actor1) -> actor);
     }
 }
\ No newline at end of file
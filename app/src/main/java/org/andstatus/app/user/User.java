@@ -70,7 +70,7 @@ public class User implements IsEmpty {
     public static User fromCursor(MyContext myContext, Cursor cursor, boolean useCache) {
         final long userId = DbUtils.getLong(cursor, ActorTable.USER_ID);
         User user1 = useCache
-            ? myContext.users().users.getOrDefault(userId, User.EMPTY)
+            ? myContext.users().getUser(userId)
             : User.EMPTY ;
         return user1.nonEmpty() ? user1
                 : new User(userId, DbUtils.getString(cursor, UserTable.KNOWN_AS),
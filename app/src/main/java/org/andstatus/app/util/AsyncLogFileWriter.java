@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import net.jcip.annotations.GuardedBy;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Appends lines to the log file asynchronously, so logging threads never wait for disk I/O:
+ * lines are added to a bounded lock-free queue, and one background thread writes them in batches
+ * to the log file, which is kept open.
+ * When the queue is full, new lines are dropped, and the number of dropped lines is written to the log later.
+ * The log file is rotated, when it becomes larger than {@link #MAX_FILE_SIZE}.
+ * Queued lines are flushed synchronously for errors and on an uncaught exception
+ * @author yvolk@yurivolkov.com
+ */
+final class AsyncLogFileWriter {
+    private static final String TAG = AsyncLogFileWriter.class.getSimpleName();
+    static final int QUEUE_CAPACITY = 10000;
+    /** The writer is woken up, when this number of lines is queued, instead of waiting for the flush interval */
+    private static final int LINES_TO_WAKE_UP = 500;
+    private static final int BATCH_MAX_CHARS = 64 * 1024;
+    private static final long FLUSH_INTERVAL_MILLIS = 500;
+    static final long MAX_FILE_SIZE = 10 * 1024 * 1024;
+
+    private final Queue<String> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile Thread writerThread = null;
+
+    @GuardedBy("this")
+    private File file = null;
+    @GuardedBy("this")
+    private FileChannel channel = null;
+    @GuardedBy("this")
+    private final StringBuilder batch = new StringBuilder();
+    @GuardedBy("this")
+    private boolean flushOnCrashInstalled = false;
+
+    /** Never blocks */
+    void add(String line) {
+        int size = queueSize.incrementAndGet();
+        if (size > QUEUE_CAPACITY) {
+            queueSize.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
+        queue.offer(line);
+        if (size == LINES_TO_WAKE_UP) {
+            Thread thread = writerThread;
+            if (thread != null) LockSupport.unpark(thread);
+        }
+    }
+
+    /** Opens (creates) the file at once and starts the background writer, if it is not running yet */
+    synchronized void start(@Nullable File newFile) {
+        if (channel == null || !FileUtils.exists(newFile) || !newFile.equals(file)) {
+            drain();
+            open(newFile);
+        }
+        if (writerThread == null) {
+            Thread thread = new Thread(this::run, TAG);
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            writerThread = thread;
+            thread.start();
+        }
+        if (!flushOnCrashInstalled) {
+            flushOnCrashInstalled = true;
+            installFlushOnCrash();
+        }
+    }
+
+    /** Writes all queued lines at once, in the calling thread */
+    void flush() {
+        if (writerThread == null) return;
+
+        synchronized (this) {
+            drain();
+        }
+    }
+
+    /** The stack trace of a crash and the lines, queued before it, are written before the process dies */
+    private void installFlushOnCrash() {
+        Thread.UncaughtExceptionHandler previous = Thread.getDefaultUncaughtExceptionHandler();
+        Thread.setDefaultUncaughtExceptionHandler((thread, throwable) -> {
+            try {
+                // Errors are flushed synchronously
+                MyLog.e(TAG, "Uncaught exception in thread '" + thread.getName() + "'", throwable);
+            } finally {
+                if (previous != null) previous.uncaughtException(thread, throwable);
+            }
+        });
+    }
+
+    /** Writes all queued lines and closes the file */
+    void stop() {
+        Thread thread = writerThread;
+        writerThread = null;
+        if (thread != null) LockSupport.unpark(thread);
+        synchronized (this) {
+            drain();
+            close();
+        }
+    }
+
+    long getDropped() {
+        return dropped.get();
+    }
+
+    private void run() {
+        Thread thread = Thread.currentThread();
+        while (writerThread == thread) {
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MILLIS));
+            synchronized (this) {
+                if (writerThread == thread) drain();
+            }
+        }
+    }
+
+    @GuardedBy("this")
+    private void drain() {
+        String line;
+        while ((line = queue.poll()) != null) {
+            queueSize.decrementAndGet();
+            batch.append(line);
+            if (batch.length() >= BATCH_MAX_CHARS) writeBatch();
+        }
+        long droppedNow = dropped.getAndSet(0);
+        if (droppedNow > 0) {
+            batch.append(MyLog.currentDateTimeForLogLine()).append(" W/").append(TAG).append(": ")
+                    .append(droppedNow).append(" lines dropped, the queue was full\n");
+        }
+        writeBatch();
+    }
+
+    @GuardedBy("this")
+    private void writeBatch() {
+        if (batch.length() == 0) return;
+
+        if (channel == null || !file.exists() || size() >= MAX_FILE_SIZE) {
+            open(MyLog.nextLogFile());
+        }
+        if (channel != null) {
+            try {
+                ByteBuffer buffer = StandardCharsets.UTF_8.encode(CharBuffer.wrap(batch));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                // Not MyLog, because we are writing the log itself
+                Log.w(TAG, "Failed to write to '" + file + "'", e);
+                close();
+            }
+        }
+        batch.setLength(0);
+    }
+
+    @GuardedBy("this")
+    private long size() {
+        try {
+            return channel.size();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @GuardedBy("this")
+    private void open(@Nullable File newFile) {
+        close();
+        if (newFile == null) return;
+
+        try {
+            channel = new FileOutputStream(newFile, true).getChannel();
+            file = newFile;
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to open '" + newFile + "'", e);
+        }
+    }
+
+    @GuardedBy("this")
+    private void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Failed to close '" + file + "'", e);
+            }
+        }
+        channel = null;
+        file = null;
+    }
+}
@@ -16,11 +16,15 @@
 
 package org.andstatus.app.util;
 
+import android.util.JsonReader;
+
 import androidx.annotation.NonNull;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
+import java.io.IOException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
@@ -140,4 +144,59 @@ public class JsonUtils {
         else
             return json.optString(key, fallback);
     }
+
+    /** Reads the next value of the stream into the same objects, which {@link org.json.JSONTokener} creates:
+     * JSONObject, JSONArray, String, Boolean, Integer, Long, Double or {@link JSONObject#NULL} */
+    public static Object readValue(JsonReader reader) throws IOException, JSONException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT:
+                return readObject(reader);
+            case BEGIN_ARRAY:
+                JSONArray array = new JSONArray();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    array.put(readValue(reader));
+                }
+                reader.endArray();
+                return array;
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NULL:
+                reader.nextNull();
+                return JSONObject.NULL;
+            case NUMBER:
+                return numberFromLiteral(reader.nextString());
+            default:
+                return reader.nextString();
+        }
+    }
+
+    public static JSONObject readObject(JsonReader reader) throws IOException, JSONException {
+        JSONObject jso = new JSONObject();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            jso.put(reader.nextName(), readValue(reader));
+        }
+        reader.endObject();
+        return jso;
+    }
+
+    private static Object numberFromLiteral(String literal) {
+        if (literal.indexOf('.') < 0 && literal.indexOf('e') < 0 && literal.indexOf('E') < 0) {
+            try {
+                long number = Long.parseLong(literal);
+                if (number <= Integer.MAX_VALUE && number >= Integer.MIN_VALUE) {
+                    return (int) number;
+                }
+                return number;
+            } catch (NumberFormatException e) {
+                // Too large for long, parsed as double below
+            }
+        }
+        try {
+            return Double.valueOf(literal);
+        } catch (NumberFormatException e) {
+            return literal;
+        }
+    }
 }
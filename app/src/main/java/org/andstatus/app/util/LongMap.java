@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+/**
+ * Map with primitive long keys, e.g. ids, which doesn't box the keys.
+ * Open addressing with linear probing, see {@link LongSet}. Not thread safe,
+ * so a map, shared between threads, should be replaced with a modified {@link #copy()} instead of changing it
+ * @author yvolk@yurivolkov.com
+ */
+public class LongMap<V> implements IsEmpty {
+    private static final int MIN_CAPACITY = 8;
+    private static final float LOAD_FACTOR = 0.7f;
+    /** 0 marks free slots, so the value for the zero key is kept separately */
+    private long[] keys;
+    private Object[] values;
+    private Object zeroValue = null;
+    private int size = 0;
+    private int maxSize;
+
+    public interface LongObjConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    public LongMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongMap(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    /** @return the previous value or null */
+    public V put(long key, V value) {
+        if (value == null) throw new IllegalArgumentException("Null values are not supported");
+
+        if (key == 0) {
+            V previous = valueAt(zeroValue);
+            if (previous == null) size++;
+            zeroValue = value;
+            return previous;
+        }
+        int index = indexOf(key);
+        if (keys[index] == key) {
+            V previous = valueAt(values[index]);
+            values[index] = value;
+            return previous;
+        }
+        keys[index] = key;
+        values[index] = value;
+        if (++size > maxSize) rehash(keys.length * 2);
+        return null;
+    }
+
+    public V get(long key) {
+        if (key == 0) return valueAt(zeroValue);
+
+        int index = indexOf(key);
+        return keys[index] == key ? valueAt(values[index]) : null;
+    }
+
+    public V getOrDefault(long key, V defaultValue) {
+        V value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /** @return the removed value or null */
+    public V remove(long key) {
+        if (key == 0) {
+            V previous = valueAt(zeroValue);
+            if (previous != null) size--;
+            zeroValue = null;
+            return previous;
+        }
+        int index = indexOf(key);
+        if (keys[index] != key) return null;
+
+        V previous = valueAt(values[index]);
+        shiftKeysBack(index);
+        size--;
+        return previous;
+    }
+
+    /** @return Slot of the key or of the free slot, where the key may be put */
+    private int indexOf(long key) {
+        int mask = keys.length - 1;
+        int index = LongSet.hash(key) & mask;
+        while (keys[index] != 0 && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private void shiftKeysBack(int freed) {
+        int mask = keys.length - 1;
+        int current = freed;
+        while (true) {
+            current = (current + 1) & mask;
+            long key = keys[current];
+            if (key == 0) break;
+
+            int home = LongSet.hash(key) & mask;
+            if (freed <= current ? (home <= freed || home > current) : (home <= freed && home > current)) {
+                keys[freed] = key;
+                values[freed] = values[current];
+                freed = current;
+            }
+        }
+        keys[freed] = 0;
+        values[freed] = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void forEach(LongObjConsumer<V> action) {
+        V zero = valueAt(zeroValue);
+        if (zero != null) action.accept(0, zero);
+        for (int index = 0; index < keys.length; index++) {
+            if (keys[index] != 0) action.accept(keys[index], valueAt(values[index]));
+        }
+    }
+
+    public LongMap<V> copy() {
+        LongMap<V> copy = new LongMap<>(0);
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.zeroValue = zeroValue;
+        copy.size = size;
+        copy.maxSize = maxSize;
+        return copy;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(newCapacity);
+        for (int oldIndex = 0; oldIndex < oldKeys.length; oldIndex++) {
+            if (oldKeys[oldIndex] == 0) continue;
+
+            int index = indexOf(oldKeys[oldIndex]);
+            keys[index] = oldKeys[oldIndex];
+            values[index] = oldValues[oldIndex];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        maxSize = (int) (capacity * LOAD_FACTOR);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(Object value) {
+        return (V) value;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("LongMap{size:" + size);
+        forEach((key, value) -> {
+            if (builder.length() < 1000) builder.append(", ").append(key).append("=").append(value);
+        });
+        return builder.append(size > 0 && builder.length() >= 1000 ? ", ...}" : "}").toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LongMap)) return false;
+
+        LongMap<?> other = (LongMap<?>) o;
+        if (size != other.size) return false;
+        if (zeroValue == null ? other.zeroValue != null : !zeroValue.equals(other.zeroValue)) return false;
+        for (int index = 0; index < keys.length; index++) {
+            if (keys[index] != 0 && !values[index].equals(other.get(keys[index]))) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = zeroValue == null ? 0 : zeroValue.hashCode();
+        for (int index = 0; index < keys.length; index++) {
+            if (keys[index] != 0) result += Long.hashCode(keys[index]) ^ values[index].hashCode();
+        }
+        return result;
+    }
+}
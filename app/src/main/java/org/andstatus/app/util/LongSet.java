@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * Mutable set of primitive longs, e.g. of ids, which doesn't box its elements.
+ * Open addressing with linear probing. Not thread safe.
+ * See {@link SortedLongs} for an immutable set
+ * @author yvolk@yurivolkov.com
+ */
+public class LongSet implements IsEmpty {
+    private static final int MIN_CAPACITY = 8;
+    private static final float LOAD_FACTOR = 0.7f;
+    /** 0 marks free slots, so the zero element is kept separately */
+    private long[] keys;
+    private boolean hasZero = false;
+    private int size = 0;
+    private int maxSize;
+
+    public LongSet() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongSet(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public static LongSet of(long ... elements) {
+        LongSet set = new LongSet(elements.length);
+        for (long element : elements) {
+            set.add(element);
+        }
+        return set;
+    }
+
+    public static LongSet of(Iterable<Long> elements) {
+        LongSet set = new LongSet();
+        for (long element : elements) {
+            set.add(element);
+        }
+        return set;
+    }
+
+    /** @return true if the element was added */
+    public boolean add(long element) {
+        if (element == 0) {
+            if (hasZero) return false;
+
+            hasZero = true;
+            size++;
+            return true;
+        }
+        int mask = keys.length - 1;
+        int index = hash(element) & mask;
+        while (keys[index] != 0) {
+            if (keys[index] == element) return false;
+            index = (index + 1) & mask;
+        }
+        keys[index] = element;
+        if (++size > maxSize) rehash(keys.length * 2);
+        return true;
+    }
+
+    public boolean contains(long element) {
+        if (element == 0) return hasZero;
+
+        int mask = keys.length - 1;
+        int index = hash(element) & mask;
+        while (keys[index] != 0) {
+            if (keys[index] == element) return true;
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /** @return true if the element was removed */
+    public boolean remove(long element) {
+        if (element == 0) {
+            if (!hasZero) return false;
+
+            hasZero = false;
+            size--;
+            return true;
+        }
+        int mask = keys.length - 1;
+        int index = hash(element) & mask;
+        while (keys[index] != element) {
+            if (keys[index] == 0) return false;
+            index = (index + 1) & mask;
+        }
+        shiftKeysBack(index);
+        size--;
+        return true;
+    }
+
+    /** Moves elements of the same probe sequence to the freed slot, so that no "deleted" markers are needed */
+    private void shiftKeysBack(int freed) {
+        int mask = keys.length - 1;
+        int current = freed;
+        while (true) {
+            current = (current + 1) & mask;
+            long key = keys[current];
+            if (key == 0) break;
+
+            int home = hash(key) & mask;
+            // Can the key be moved to the freed slot without breaking its probe sequence?
+            if (freed <= current ? (home <= freed || home > current) : (home <= freed && home > current)) {
+                keys[freed] = key;
+                freed = current;
+            }
+        }
+        keys[freed] = 0;
+    }
+
+    public void addAll(LongSet other) {
+        other.forEach(this::add);
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        hasZero = false;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Iterates without allocations */
+    public void forEach(LongConsumer action) {
+        if (hasZero) action.accept(0);
+        for (long key : keys) {
+            if (key != 0) action.accept(key);
+        }
+    }
+
+    public LongStream stream() {
+        return LongStream.of(toArray());
+    }
+
+    /** @return elements in no particular order */
+    public long[] toArray() {
+        long[] array = new long[size];
+        int index = 0;
+        if (hasZero) array[index++] = 0;
+        for (long key : keys) {
+            if (key != 0) array[index++] = key;
+        }
+        return array;
+    }
+
+    /** Length of the backing array */
+    int capacity() {
+        return keys.length;
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        allocate(newCapacity);
+        int mask = keys.length - 1;
+        for (long key : oldKeys) {
+            if (key == 0) continue;
+
+            int index = hash(key) & mask;
+            while (keys[index] != 0) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        maxSize = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /** Ids are sequential, so their bits are mixed in order not to form long runs of occupied slots */
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LongSet)) return false;
+
+        LongSet other = (LongSet) o;
+        if (size != other.size || hasZero != other.hasZero) return false;
+        for (long key : keys) {
+            if (key != 0 && !other.contains(key)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = 0;
+        for (long key : keys) {
+            result += Long.hashCode(key);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "LongSet" + Arrays.toString(SortedLongs.of(this).toArray());
+    }
+}
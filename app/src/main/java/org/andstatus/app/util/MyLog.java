@@ -101,6 +101,7 @@ public class MyLog {
     private final static AtomicBoolean logToFileEnabled = new AtomicBoolean(false);
     @GuardedBy("logToFileEnabled")
     private static String logFileName = null;
+    private static final AsyncLogFileWriter logFileWriter = new AsyncLogFileWriter();
 
     private MyLog() {
         // Empty
@@ -398,13 +399,18 @@ public class MyLog {
 
     public static void setNextLogFileName() {
         setNextLogFileName(true);
+        if (isLogToFileEnabled()) {
+            logFileWriter.start(getFileInLogDir(getLogFilename(), false));
+        }
     }
     
     public static void setLogToFile(boolean logEnabled) {
         logToFileEnabled.set(logEnabled);
         if (logToFileEnabled.get()) {
             setNextLogFileName(false);
+            logFileWriter.start(getFileInLogDir(getLogFilename(), false));
         } else { 
+            logFileWriter.stop();
             synchronized (logToFileEnabled) {
                 logFileName = null;
             }
@@ -419,6 +425,12 @@ public class MyLog {
             }
         }
     }
+
+    /** Switches to the next log file, e.g. when the current one was deleted or became too large */
+    static File nextLogFile() {
+        setNextLogFileName(true);
+        return getFileInLogDir(getLogFilename(), false);
+    }
     
     public static boolean isLogToFileEnabled() {
         return logToFileEnabled.get();
@@ -445,24 +457,16 @@ public class MyLog {
             builder.append(getStackTrace(tr));
         }
         builder.append("\n");
-        writeRawStringToLogFile(builder);
+        writeRawStringToLogFile(builder, logLevel >= ERROR);
     }
 
-    private static final Object logFileWriterLock = new Object();
-
-    private static void writeRawStringToLogFile(StringBuilder builder) {
-        synchronized (logFileWriterLock) {
-            writeStringToFile(builder.toString(), getMostRecentLogFileName(), true, false);
-        }
-    }
-    
-    private static String getMostRecentLogFileName() {
-        String filename = getLogFilename();
-        if (!FileUtils.exists(getFileInLogDir(filename, false))) {
-            setNextLogFileName(true);
-            filename = getLogFilename();
+    /** The line is written asynchronously, so logging threads don't wait for disk I/O.
+     * Errors are flushed at once, so they are not lost, if the process dies soon */
+    private static void writeRawStringToLogFile(StringBuilder builder, boolean flush) {
+        logFileWriter.add(builder.toString());
+        if (flush) {
+            logFileWriter.flush();
         }
-        return filename;
     }
     
     public static String getLogFilename() {
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * Immutable set of primitive longs, kept in a sorted array without duplicates.
+ * Compact and thread safe snapshot, e.g. of ids. Lookups are binary searches, which don't allocate memory
+ * @author yvolk@yurivolkov.com
+ */
+public final class SortedLongs implements IsEmpty {
+    public static final SortedLongs EMPTY = new SortedLongs(new long[0]);
+    private final long[] elements;
+
+    private SortedLongs(long[] elements) {
+        this.elements = elements;
+    }
+
+    public static SortedLongs of(long ... elements) {
+        if (elements.length == 0) return EMPTY;
+
+        long[] sorted = elements.clone();
+        Arrays.sort(sorted);
+        return new SortedLongs(distinct(sorted));
+    }
+
+    public static SortedLongs of(LongSet set) {
+        if (set.isEmpty()) return EMPTY;
+
+        long[] sorted = set.toArray();
+        Arrays.sort(sorted);
+        return new SortedLongs(sorted);
+    }
+
+    public static SortedLongs of(Collection<Long> collection) {
+        if (collection.isEmpty()) return EMPTY;
+
+        long[] sorted = new long[collection.size()];
+        int index = 0;
+        for (long element : collection) {
+            sorted[index++] = element;
+        }
+        Arrays.sort(sorted);
+        return new SortedLongs(distinct(sorted));
+    }
+
+    private static long[] distinct(long[] sorted) {
+        int size = 0;
+        for (int index = 0; index < sorted.length; index++) {
+            if (index == 0 || sorted[index] != sorted[size - 1]) {
+                sorted[size++] = sorted[index];
+            }
+        }
+        return size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+    }
+
+    public boolean contains(long element) {
+        return Arrays.binarySearch(elements, element) >= 0;
+    }
+
+    /** @return this, if the element is present already, else a new set */
+    public SortedLongs with(long element) {
+        int index = Arrays.binarySearch(elements, element);
+        if (index >= 0) return this;
+
+        int insertAt = -index - 1;
+        long[] newElements = new long[elements.length + 1];
+        System.arraycopy(elements, 0, newElements, 0, insertAt);
+        newElements[insertAt] = element;
+        System.arraycopy(elements, insertAt, newElements, insertAt + 1, elements.length - insertAt);
+        return new SortedLongs(newElements);
+    }
+
+    /** @return this, if the element is absent, else a new set */
+    public SortedLongs without(long element) {
+        int index = Arrays.binarySearch(elements, element);
+        if (index < 0) return this;
+        if (elements.length == 1) return EMPTY;
+
+        long[] newElements = new long[elements.length - 1];
+        System.arraycopy(elements, 0, newElements, 0, index);
+        System.arraycopy(elements, index + 1, newElements, index, elements.length - index - 1);
+        return new SortedLongs(newElements);
+    }
+
+    public int size() {
+        return elements.length;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return elements.length == 0;
+    }
+
+    public long get(int index) {
+        return elements[index];
+    }
+
+    public void forEach(LongConsumer action) {
+        for (long element : elements) {
+            action.accept(element);
+        }
+    }
+
+    public LongStream stream() {
+        return Arrays.stream(elements);
+    }
+
+    public long[] toArray() {
+        return elements.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        return Arrays.equals(elements, ((SortedLongs) o).elements);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(elements);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(elements);
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2020 yvolk (Yuri Volkov), http://yurivolkov.com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.andstatus.app.util;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LongSetTest {
+
+    @Test
+    public void testLongSet() {
+        LongSet set = LongSet.of(5, 0, 7, 5);
+        assertEquals(3, set.size());
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(7));
+        assertFalse(set.contains(6));
+        assertTrue(set.remove(0));
+        assertFalse(set.remove(0));
+        assertEquals(LongSet.of(7, 5), set);
+        assertEquals(LongSet.of(7, 5).hashCode(), set.hashCode());
+        assertEquals("LongSet[5, 7]", set.toString());
+    }
+
+    /** Compares with {@link HashSet} while adding and removing many elements, so that probe sequences collide */
+    @Test
+    public void testSameAsHashSet() {
+        Random random = new Random(17);
+        LongSet set = new LongSet();
+        Set<Long> expected = new HashSet<>();
+        for (int ind = 0; ind < 100000; ind++) {
+            long element = random.nextInt(5000) - 10;
+            if (random.nextInt(3) == 0) {
+                assertEquals("Remove " + element, expected.remove(element), set.remove(element));
+            } else {
+                assertEquals("Add " + element, expected.add(element), set.add(element));
+            }
+        }
+        assertEquals(expected.size(), set.size());
+        for (long element = -10; element < 5000; element++) {
+            assertEquals("Contains " + element, expected.contains(element), set.contains(element));
+        }
+        assertEquals(SortedLongs.of(expected), SortedLongs.of(set));
+    }
+
+    @Test
+    public void testSortedLongs() {
+        SortedLongs sorted = SortedLongs.of(9, 3, 3, 5);
+        assertArrayEquals(new long[]{3, 5, 9}, sorted.toArray());
+        assertTrue(sorted.contains(5));
+        assertFalse(sorted.contains(4));
+        assertSame(sorted, sorted.with(9));
+        assertEquals(SortedLongs.of(3, 4, 5, 9), sorted.with(4));
+        assertSame(sorted, sorted.without(4));
+        assertEquals(SortedLongs.of(3, 9), sorted.without(5));
+        assertSame(SortedLongs.EMPTY, SortedLongs.of(1).without(1));
+        assertEquals(17, SortedLongs.of(8, 9).stream().sum());
+    }
+
+    @Test
+    public void testLongMap() {
+        Random random = new Random(19);
+        LongMap<String> map = new LongMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        for (int ind = 0; ind < 50000; ind++) {
+            long key = random.nextInt(3000);
+            if (random.nextInt(3) == 0) {
+                assertEquals("Remove " + key, expected.remove(key), map.remove(key));
+            } else {
+                assertEquals("Put " + key, expected.put(key, "v" + ind), map.put(key, "v" + ind));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (long key = 0; key < 3000; key++) {
+            assertEquals("Get " + key, expected.get(key), map.get(key));
+        }
+        LongMap<String> copy = map.copy();
+        assertEquals(map, copy);
+        copy.put(5000, "new");
+        assertNull(map.get(5000));
+        int[] count = {0};
+        map.forEach((key, value) -> {
+            assertEquals(expected.get(key), value);
+            count[0]++;
+        });
+        assertEquals(expected.size(), count[0]);
+    }
+
+    /** Ids are kept in arrays of primitives, 8 bytes per slot, which don't grow faster than needed */
+    @Test
+    public void testBackingArraySizes() {
+        final int size = 100000;
+        LongSet set = new LongSet();
+        long[] ids = new long[size + 10];
+        for (int ind = 0; ind < size; ind++) {
+            set.add(ind + 1000001);
+            ids[ind] = ind + 1000001;
+        }
+        for (int ind = size; ind < ids.length; ind++) {
+            ids[ind] = ind - size + 1000001;
+        }
+        assertEquals(size, set.size());
+        assertTrue("Capacity " + set.capacity(),
+                set.capacity() * 0.7 >= size && set.capacity() * 0.7 < 2 * size);
+        assertEquals(set.capacity(), new LongSet(size).capacity());
+        assertEquals(set.capacity(), LongSet.of(ids).capacity());
+
+        SortedLongs sorted = SortedLongs.of(ids);
+        assertEquals("Duplicates are not kept", size, sorted.size());
+        assertEquals(size, sorted.toArray().length);
+    }
+}